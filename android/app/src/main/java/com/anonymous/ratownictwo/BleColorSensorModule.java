@@ -0,0 +1,500 @@
+package com.anonymous.ratownictwo;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.module.annotations.ReactModule;
+
+import java.util.UUID;
+
+/**
+ * Owns the GATT connection to the ESP32 colour sensor.
+ *
+ * Every GATT callback runs on a dedicated handler thread, where notifications
+ * are decoded into primitive ints and delivered to JS as one "bleColorBatch"
+ * event per batch interval instead of one bridge event per notification.
+ */
+@ReactModule(name = BleColorSensorModule.NAME)
+public class BleColorSensorModule extends ReactContextBaseJavaModule {
+    public static final String NAME = "BleColorSensor";
+    private static final String TAG = "BleColorSensorModule";
+
+    static final UUID SERVICE_UUID = UUID.fromString("12345678-1234-1234-1234-1234567890ab");
+    static final UUID CHARACTERISTIC_UUID = UUID.fromString("abcd1234-5678-90ab-cdef-1234567890ab");
+    static final UUID CCCD_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+
+    private static final int DEFAULT_BATCH_INTERVAL_MS = 50;
+    private static final int MIN_BATCH_INTERVAL_MS = 10;
+    private static final int DEFAULT_MTU = 64;
+    private static final int BUFFER_CAPACITY = 256;
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private final ReactApplicationContext reactContext;
+    // Started on first use, see gattHandler()
+    private HandlerThread gattThread;
+    private volatile Handler gattHandler;
+    private final ColorSampleBuffer sampleBuffer = new ColorSampleBuffer(BUFFER_CAPACITY);
+
+    // Reused on the gatt thread only
+    private final int[] decoded = new int[3];
+    private final int[] batchR = new int[MAX_BATCH_SIZE];
+    private final int[] batchG = new int[MAX_BATCH_SIZE];
+    private final int[] batchB = new int[MAX_BATCH_SIZE];
+    private final long[] batchT = new long[MAX_BATCH_SIZE];
+
+    private ColorClassifierModule classifier;
+    private BluetoothGatt gatt;
+    private String deviceAddress;
+    private Promise pendingConnect;
+    private int requestedMtu = DEFAULT_MTU;
+    private volatile int batchIntervalMs = DEFAULT_BATCH_INTERVAL_MS;
+    private volatile boolean streaming = false;
+    private volatile int negotiatedMtu = 23;
+    private long notificationCount = 0;
+    private long invalidCount = 0;
+    private long batchesSent = 0;
+    // Buffer drop total already reported in a batch event
+    private long droppedReported = 0;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushBatch();
+            if (streaming) {
+                gattHandler().postDelayed(this, batchIntervalMs);
+            }
+        }
+    };
+
+    public BleColorSensorModule(ReactApplicationContext context) {
+        super(context);
+        this.reactContext = context;
+    }
+
+    private Handler gattHandler() {
+        Handler handler = gattHandler;
+        if (handler != null) {
+            return handler;
+        }
+        synchronized (this) {
+            if (gattHandler == null) {
+                gattThread = new HandlerThread("BleColorSensorGatt");
+                gattThread.start();
+                gattHandler = new Handler(gattThread.getLooper());
+            }
+            return gattHandler;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @ReactMethod
+    public void connect(String address, ReadableMap options, Promise jsPromise) {
+        TimedPromise promise = TimedPromise.wrap("BleColorSensor.connect", jsPromise);
+        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+        if (adapter == null) {
+            promise.reject("NO_ADAPTER", "Bluetooth adapter not available");
+            return;
+        }
+        // A connect that never completes must not leave the GATT client open
+        promise.onCancel(() -> gattHandler().post(() -> {
+            if (pendingConnect == promise) {
+                pendingConnect = null;
+                closeGatt();
+            }
+        }));
+
+        if (options != null) {
+            if (options.hasKey("batchIntervalMs")) {
+                batchIntervalMs = Math.max(MIN_BATCH_INTERVAL_MS, options.getInt("batchIntervalMs"));
+            }
+            if (options.hasKey("mtu")) {
+                requestedMtu = options.getInt("mtu");
+            }
+        }
+
+        gattHandler().post(() -> {
+            try {
+                if (pendingConnect != null) {
+                    pendingConnect.reject("CANCELLED", "Superseded by a new connect request");
+                }
+                closeGatt();
+
+                BluetoothDevice device = adapter.getRemoteDevice(address);
+                deviceAddress = address;
+                pendingConnect = promise;
+                sampleBuffer.clear();
+                if (classifier != null) {
+                    classifier.resetSource(address);
+                }
+
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    // Deliver callbacks straight onto our own thread
+                    gatt = device.connectGatt(reactContext, false, gattCallback,
+                        BluetoothDevice.TRANSPORT_LE, BluetoothDevice.PHY_LE_1M_MASK, gattHandler());
+                } else {
+                    gatt = device.connectGatt(reactContext, false, gattCallback, BluetoothDevice.TRANSPORT_LE);
+                }
+
+                if (gatt == null) {
+                    rejectPendingConnect("CONNECT_ERROR", "connectGatt returned null");
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error connecting to sensor", e);
+                rejectPendingConnect("CONNECT_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void disconnect(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("BleColorSensor.disconnect", jsPromise);
+        gattHandler().post(() -> {
+            try {
+                rejectPendingConnect("CANCELLED", "Disconnected before the stream started");
+                closeGatt();
+                promise.resolve(true);
+            } catch (Exception e) {
+                Log.e(TAG, "Error disconnecting sensor", e);
+                promise.reject("DISCONNECT_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void setBatchInterval(int intervalMs) {
+        long started = System.nanoTime();
+        try {
+            batchIntervalMs = Math.max(MIN_BATCH_INTERVAL_MS, intervalMs);
+        } finally {
+            NativeMetrics.get().recordMethod("BleColorSensor.setBatchInterval", started);
+        }
+    }
+
+    @ReactMethod
+    public void getStats(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("BleColorSensor.getStats", jsPromise);
+        gattHandler().post(() -> {
+            WritableMap stats = new WritableNativeMap();
+            stats.putBoolean("streaming", streaming);
+            stats.putString("deviceAddress", deviceAddress);
+            stats.putInt("mtu", negotiatedMtu);
+            stats.putInt("batchIntervalMs", batchIntervalMs);
+            stats.putDouble("notifications", notificationCount);
+            stats.putDouble("invalidReadings", invalidCount);
+            stats.putDouble("batchesSent", batchesSent);
+            stats.putDouble("droppedReadings", sampleBuffer.getTotalDropped());
+            promise.resolve(stats);
+        });
+    }
+
+    @ReactMethod
+    public void addListener(String eventName) {
+        // Required for NativeEventEmitter
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+        // Required for NativeEventEmitter
+    }
+
+    @Override
+    public void invalidate() {
+        synchronized (this) {
+            if (gattHandler != null) {
+                HandlerThread thread = gattThread;
+                gattHandler.post(() -> {
+                    closeGatt();
+                    thread.quitSafely();
+                });
+            }
+        }
+        super.invalidate();
+    }
+
+    /**
+     * From Android 8 the stack calls this on the gatt thread already; before
+     * that it runs on binder threads, so every callback is moved there.
+     */
+    private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
+        private boolean onGattThread() {
+            return Looper.myLooper() == gattHandler().getLooper();
+        }
+
+        @Override
+        public void onConnectionStateChange(BluetoothGatt g, int status, int newState) {
+            if (onGattThread()) {
+                onConnectionState(g, status, newState);
+            } else {
+                gattHandler().post(() -> onConnectionState(g, status, newState));
+            }
+        }
+
+        @Override
+        public void onMtuChanged(BluetoothGatt g, int mtu, int status) {
+            if (onGattThread()) {
+                onMtu(g, mtu, status);
+            } else {
+                gattHandler().post(() -> onMtu(g, mtu, status));
+            }
+        }
+
+        @Override
+        public void onServicesDiscovered(BluetoothGatt g, int status) {
+            if (onGattThread()) {
+                onServices(g, status);
+            } else {
+                gattHandler().post(() -> onServices(g, status));
+            }
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt g, BluetoothGattDescriptor descriptor, int status) {
+            if (onGattThread()) {
+                onNotifyEnabled(g, status);
+            } else {
+                gattHandler().post(() -> onNotifyEnabled(g, status));
+            }
+        }
+
+        @Override
+        public void onCharacteristicChanged(@NonNull BluetoothGatt g,
+                                            @NonNull BluetoothGattCharacteristic characteristic,
+                                            @NonNull byte[] value) {
+            onNotification(g, value);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void onCharacteristicChanged(BluetoothGatt g, BluetoothGattCharacteristic characteristic) {
+            // Android 13+ delivers through the overload above
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+                return;
+            }
+            byte[] value = characteristic.getValue();
+            if (onGattThread()) {
+                onNotification(g, value);
+            } else {
+                // The characteristic is reused for the next notification
+                byte[] copy = value != null ? value.clone() : null;
+                gattHandler().post(() -> onNotification(g, copy));
+            }
+        }
+    };
+
+    private void onConnectionState(BluetoothGatt g, int status, int newState) {
+        if (g != gatt) {
+            // Left over from a connection that was closed or replaced
+            return;
+        }
+        if (newState == BluetoothProfile.STATE_CONNECTED) {
+            Log.d(TAG, "Connected to " + deviceAddress);
+            g.requestConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH);
+            if (!g.requestMtu(requestedMtu)) {
+                g.discoverServices();
+            }
+            sendStateEvent("connected");
+        } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+            Log.d(TAG, "Disconnected from " + deviceAddress + ", status " + status);
+            rejectPendingConnect("CONNECT_ERROR", "Connection lost, status " + status);
+            // Frees the client interface; the stack has only a handful of them
+            closeGatt();
+            sendStateEvent("disconnected");
+        }
+    }
+
+    private void onMtu(BluetoothGatt g, int mtu, int status) {
+        if (g != gatt) {
+            return;
+        }
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            negotiatedMtu = mtu;
+        }
+        g.discoverServices();
+    }
+
+    private void onServices(BluetoothGatt g, int status) {
+        if (g != gatt) {
+            return;
+        }
+        if (status != BluetoothGatt.GATT_SUCCESS) {
+            rejectPendingConnect("DISCOVERY_ERROR", "Service discovery failed, status " + status);
+            return;
+        }
+
+        BluetoothGattService service = g.getService(SERVICE_UUID);
+        BluetoothGattCharacteristic characteristic =
+            service != null ? service.getCharacteristic(CHARACTERISTIC_UUID) : null;
+        if (characteristic == null) {
+            rejectPendingConnect("NO_CHARACTERISTIC", "Colour characteristic not found");
+            return;
+        }
+
+        g.setCharacteristicNotification(characteristic, true);
+        BluetoothGattDescriptor cccd = characteristic.getDescriptor(CCCD_UUID);
+        if (cccd == null) {
+            startStreaming();
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            g.writeDescriptor(cccd, BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+        } else {
+            cccd.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+            g.writeDescriptor(cccd);
+        }
+    }
+
+    private void onNotifyEnabled(BluetoothGatt g, int status) {
+        if (g != gatt) {
+            return;
+        }
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            startStreaming();
+        } else {
+            rejectPendingConnect("NOTIFY_ERROR", "Enabling notifications failed, status " + status);
+        }
+    }
+
+    private void onNotification(BluetoothGatt g, byte[] value) {
+        if (g != gatt) {
+            return;
+        }
+        notificationCount++;
+        if (value != null && ColorPayloadDecoder.decode(value, value.length, decoded)) {
+            sampleBuffer.write(decoded[0], decoded[1], decoded[2], SystemClock.elapsedRealtime());
+            if (classifier == null) {
+                classifier = reactContext.getNativeModule(ColorClassifierModule.class);
+            }
+            if (classifier != null) {
+                classifier.onReading(deviceAddress, decoded[0], decoded[1], decoded[2]);
+            }
+        } else {
+            invalidCount++;
+        }
+    }
+
+    private void startStreaming() {
+        streaming = true;
+        gattHandler().removeCallbacks(flushRunnable);
+        gattHandler().postDelayed(flushRunnable, batchIntervalMs);
+        sendStateEvent("monitoring");
+
+        if (pendingConnect != null) {
+            WritableMap result = new WritableNativeMap();
+            result.putString("deviceAddress", deviceAddress);
+            result.putInt("mtu", negotiatedMtu);
+            result.putInt("batchIntervalMs", batchIntervalMs);
+            pendingConnect.resolve(result);
+            pendingConnect = null;
+        }
+    }
+
+    private void stopStreaming() {
+        streaming = false;
+        gattHandler().removeCallbacks(flushRunnable);
+        flushBatch();
+    }
+
+    private void flushBatch() {
+        int count = sampleBuffer.drain(batchR, batchG, batchB, batchT);
+        if (count == 0) {
+            return;
+        }
+
+        WritableArray r = new WritableNativeArray();
+        WritableArray g = new WritableNativeArray();
+        WritableArray b = new WritableNativeArray();
+        WritableArray t = new WritableNativeArray();
+        for (int i = 0; i < count; i++) {
+            r.pushInt(batchR[i]);
+            g.pushInt(batchG[i]);
+            b.pushInt(batchB[i]);
+            t.pushDouble(batchT[i]);
+        }
+
+        WritableMap params = new WritableNativeMap();
+        params.putString("deviceAddress", deviceAddress);
+        params.putInt("count", count);
+        params.putArray("r", r);
+        params.putArray("g", g);
+        params.putArray("b", b);
+        params.putArray("timestamps", t);
+        long dropped = sampleBuffer.getTotalDropped();
+        params.putDouble("dropped", dropped - droppedReported);
+        droppedReported = dropped;
+        sendEvent("bleColorBatch", params);
+        batchesSent++;
+    }
+
+    private void closeGatt() {
+        stopStreaming();
+        if (gatt != null) {
+            try {
+                gatt.disconnect();
+                gatt.close();
+            } catch (SecurityException e) {
+                Log.e(TAG, "Missing Bluetooth permission while closing GATT", e);
+            }
+            gatt = null;
+        }
+        negotiatedMtu = 23;
+    }
+
+    private void rejectPendingConnect(String code, String message) {
+        if (pendingConnect != null) {
+            pendingConnect.reject(code, message);
+            pendingConnect = null;
+        }
+    }
+
+    private void sendStateEvent(String state) {
+        WritableMap params = new WritableNativeMap();
+        params.putString("deviceAddress", deviceAddress);
+        params.putString("state", state);
+        sendEvent("bleColorSensorState", params);
+    }
+
+    private void sendEvent(String eventName, WritableMap params) {
+        // Held back while JS is suspended during a background session
+        if (SessionRuntime.get(reactContext).offer(eventName, params)) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, params);
+            NativeMetrics.get().recordEvent(eventName, started);
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending event", e);
+        }
+    }
+}
@@ -0,0 +1,821 @@
+package com.anonymous.ratownictwo;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.module.annotations.ReactModule;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streams several colour sensors of one manikin at once (airway, chest,
+ * wrist, ...).
+ *
+ * One scan looks for all the known sensors and each is connected as soon as
+ * it is seen. All GATT callbacks run on one loop thread, which stamps every
+ * decoded reading and offers it to a single SensorSampleQueue tagged with
+ * the sensor's index. The Bluetooth executor drains the queue and sends one
+ * "bleSensorBatch" event per batch interval for all sensors together.
+ *
+ * A sensor that drops out is reconnected on its own, first directly and then
+ * in the background, without scanning again.
+ */
+@ReactModule(name = BleSensorHubModule.NAME)
+public class BleSensorHubModule extends ReactContextBaseJavaModule {
+    public static final String NAME = "BleSensorHub";
+    private static final String TAG = "BleSensorHubModule";
+
+    // Android allows 7 GATT client connections by default
+    private static final int MAX_SENSORS = 7;
+    // Above this, links ask for a balanced interval so the radio can serve all of them
+    private static final int HIGH_PRIORITY_MAX_SENSORS = 2;
+    private static final int DEFAULT_SCAN_TIMEOUT_MS = 10000;
+    private static final int DEFAULT_BATCH_INTERVAL_MS = 50;
+    private static final int MIN_BATCH_INTERVAL_MS = 10;
+    private static final int DEFAULT_MTU = 64;
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long RECONNECT_BASE_MS = 1000;
+    private static final long RECONNECT_MAX_MS = 15000;
+    // Direct attempts before leaving the reconnect to the stack
+    private static final int DIRECT_RECONNECT_ATTEMPTS = 3;
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    /**
+     * One configured sensor. Fields are touched on the loop thread only.
+     */
+    private static final class Sensor {
+        final int index;
+        final String id;
+        final String address;
+        BluetoothGatt gatt;
+        String state = "idle";
+        int mtu = 23;
+        int attempts;
+        long reconnects;
+        long notifications;
+        long invalid;
+        long windowStart;
+        long windowCount;
+        double perSecond;
+        Runnable reconnect;
+
+        Sensor(int index, String id, String address) {
+            this.index = index;
+            this.id = id;
+            this.address = address;
+        }
+    }
+
+    /**
+     * What the flush needs from the current session, swapped as a whole.
+     */
+    private static final class Feed {
+        final SensorSampleQueue queue;
+        final String[] ids;
+
+        Feed(SensorSampleQueue queue, String[] ids) {
+            this.queue = queue;
+            this.ids = ids;
+        }
+    }
+
+    private final ReactApplicationContext reactContext;
+    // Started on first use, see loop()
+    private HandlerThread loopThread;
+    private volatile Handler loopHandler;
+
+    // Loop thread only
+    private final int[] decoded = new int[3];
+    private Sensor[] sensors;
+    private BluetoothLeScanner scanner;
+    private ScanCallback scanCallback;
+    private int requestedMtu = DEFAULT_MTU;
+    private ColorClassifierModule classifier;
+    private final Runnable scanTimeout = this::finishScan;
+
+    // Flush thread only
+    private final int[] batchSensor = new int[MAX_BATCH_SIZE];
+    private final int[] batchR = new int[MAX_BATCH_SIZE];
+    private final int[] batchG = new int[MAX_BATCH_SIZE];
+    private final int[] batchB = new int[MAX_BATCH_SIZE];
+    private final long[] batchT = new long[MAX_BATCH_SIZE];
+
+    private volatile Feed feed;
+    private volatile boolean flushing = false;
+    private volatile int batchIntervalMs = DEFAULT_BATCH_INTERVAL_MS;
+    private volatile long batchesSent = 0;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushBatch(feed);
+            if (flushing) {
+                flushHandler().postDelayed(this, batchIntervalMs);
+            }
+        }
+    };
+
+    public BleSensorHubModule(ReactApplicationContext context) {
+        super(context);
+        this.reactContext = context;
+    }
+
+    private Handler loop() {
+        Handler handler = loopHandler;
+        if (handler != null) {
+            return handler;
+        }
+        synchronized (this) {
+            if (loopHandler == null) {
+                loopThread = new HandlerThread("BleSensorHubLoop");
+                loopThread.start();
+                loopHandler = new Handler(loopThread.getLooper());
+            }
+            return loopHandler;
+        }
+    }
+
+    private static Handler flushHandler() {
+        return ModuleExecutor.get(ModuleExecutor.BLUETOOTH).handler();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Scans for the given sensors and streams every one that is found.
+     * Resolves once the scan is running; progress arrives as
+     * "bleSensorState" events.
+     *
+     * @param sensorList [{id, address}], at most seven
+     */
+    @ReactMethod
+    public void start(ReadableArray sensorList, ReadableMap options, Promise jsPromise) {
+        TimedPromise promise = TimedPromise.wrap("BleSensorHub.start", jsPromise);
+        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+        if (adapter == null) {
+            promise.reject("NO_ADAPTER", "Bluetooth adapter not available");
+            return;
+        }
+
+        Sensor[] configured;
+        try {
+            configured = parseSensors(sensorList);
+        } catch (IllegalArgumentException e) {
+            promise.reject("INVALID_ARGUMENT", e.getMessage());
+            return;
+        }
+
+        int scanTimeoutMs = DEFAULT_SCAN_TIMEOUT_MS;
+        if (options != null) {
+            if (options.hasKey("scanTimeoutMs")) {
+                scanTimeoutMs = Math.max(1000, options.getInt("scanTimeoutMs"));
+            }
+            if (options.hasKey("batchIntervalMs")) {
+                batchIntervalMs = Math.max(MIN_BATCH_INTERVAL_MS, options.getInt("batchIntervalMs"));
+            }
+            if (options.hasKey("mtu")) {
+                requestedMtu = options.getInt("mtu");
+            }
+        }
+
+        int timeoutMs = scanTimeoutMs;
+        // Loop thread only: the session this call started
+        Feed[] started = new Feed[1];
+        // Runs after the start task on the same loop; stops that session
+        // unless a later start already replaced it
+        promise.onCancel(() -> loop().post(() -> {
+            if (started[0] != null && feed == started[0]) {
+                stopSession();
+            }
+        }));
+        loop().post(() -> {
+            try {
+                stopSession();
+                sensors = configured;
+                String[] ids = new String[configured.length];
+                for (Sensor sensor : configured) {
+                    ids[sensor.index] = sensor.id;
+                    if (classifier != null) {
+                        classifier.resetSource(sensor.id);
+                    }
+                }
+                feed = new Feed(new SensorSampleQueue(QUEUE_CAPACITY, configured.length), ids);
+                started[0] = feed;
+                flushing = true;
+                flushHandler().removeCallbacks(flushRunnable);
+                flushHandler().postDelayed(flushRunnable, batchIntervalMs);
+
+                startScan(adapter, timeoutMs);
+
+                WritableMap result = new WritableNativeMap();
+                result.putInt("sensors", configured.length);
+                result.putInt("scanTimeoutMs", timeoutMs);
+                result.putInt("batchIntervalMs", batchIntervalMs);
+                promise.resolve(result);
+            } catch (SecurityException e) {
+                Log.e(TAG, "Missing Bluetooth permission", e);
+                stopSession();
+                promise.reject("PERMISSION_ERROR", e.getMessage());
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting sensors", e);
+                stopSession();
+                promise.reject("START_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void stop(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("BleSensorHub.stop", jsPromise);
+        loop().post(() -> {
+            try {
+                stopSession();
+                promise.resolve(true);
+            } catch (Exception e) {
+                Log.e(TAG, "Error stopping sensors", e);
+                promise.reject("STOP_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void setBatchInterval(int intervalMs) {
+        long started = System.nanoTime();
+        try {
+            batchIntervalMs = Math.max(MIN_BATCH_INTERVAL_MS, intervalMs);
+        } finally {
+            NativeMetrics.get().recordMethod("BleSensorHub.setBatchInterval", started);
+        }
+    }
+
+    /**
+     * Per-sensor throughput (valid readings per second over the last
+     * second), drops and reconnects, keyed by sensor id.
+     */
+    @ReactMethod
+    public void getStats(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("BleSensorHub.getStats", jsPromise);
+        loop().post(() -> {
+            Feed current = feed;
+            WritableMap stats = new WritableNativeMap();
+            stats.putBoolean("running", sensors != null);
+            stats.putBoolean("scanning", scanCallback != null);
+            stats.putInt("batchIntervalMs", batchIntervalMs);
+            stats.putDouble("batchesSent", batchesSent);
+            stats.putInt("queued", current != null ? current.queue.size() : 0);
+            stats.putInt("capacity", current != null ? current.queue.capacity() : 0);
+
+            WritableMap perSensor = new WritableNativeMap();
+            if (sensors != null && current != null) {
+                long now = SystemClock.elapsedRealtimeNanos();
+                for (Sensor sensor : sensors) {
+                    WritableMap entry = new WritableNativeMap();
+                    entry.putString("address", sensor.address);
+                    entry.putString("state", sensor.state);
+                    entry.putInt("mtu", sensor.mtu);
+                    entry.putDouble("notifications", sensor.notifications);
+                    entry.putDouble("invalidReadings", sensor.invalid);
+                    entry.putDouble("accepted", current.queue.getAccepted(sensor.index));
+                    entry.putDouble("dropped", current.queue.getDropped(sensor.index));
+                    // A sensor that went quiet has no window closing to bring its rate down
+                    boolean stale = now - sensor.windowStart > 2 * RATE_WINDOW_NANOS;
+                    entry.putDouble("perSecond", stale ? 0 : sensor.perSecond);
+                    entry.putDouble("reconnects", sensor.reconnects);
+                    perSensor.putMap(sensor.id, entry);
+                }
+            }
+            stats.putMap("sensors", perSensor);
+            promise.resolve(stats);
+        });
+    }
+
+    @ReactMethod
+    public void addListener(String eventName) {
+        // Required for NativeEventEmitter
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+        // Required for NativeEventEmitter
+    }
+
+    @Override
+    public void invalidate() {
+        synchronized (this) {
+            if (loopHandler != null) {
+                HandlerThread thread = loopThread;
+                loopHandler.post(() -> {
+                    stopSession();
+                    thread.quitSafely();
+                });
+            }
+        }
+        super.invalidate();
+    }
+
+    private static Sensor[] parseSensors(ReadableArray sensorList) {
+        int count = sensorList != null ? sensorList.size() : 0;
+        if (count == 0 || count > MAX_SENSORS) {
+            throw new IllegalArgumentException("Expected 1 to " + MAX_SENSORS + " sensors, got " + count);
+        }
+        Sensor[] parsed = new Sensor[count];
+        Set<String> ids = new HashSet<>();
+        Set<String> addresses = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            ReadableMap entry = sensorList.getMap(i);
+            String id = entry != null && entry.hasKey("id") ? entry.getString("id") : null;
+            String address = entry != null && entry.hasKey("address") ? entry.getString("address") : null;
+            if (id == null || address == null || !BluetoothAdapter.checkBluetoothAddress(address)) {
+                throw new IllegalArgumentException("Sensor " + i + " needs an id and a valid address");
+            }
+            if (!ids.add(id) || !addresses.add(address)) {
+                throw new IllegalArgumentException("Sensor " + id + " is listed twice");
+            }
+            parsed[i] = new Sensor(i, id, address);
+        }
+        return parsed;
+    }
+
+    private void startScan(BluetoothAdapter adapter, int timeoutMs) {
+        scanner = adapter.getBluetoothLeScanner();
+        if (scanner == null) {
+            // Adapter is off; leave every sensor to a background connect
+            finishScan();
+            return;
+        }
+
+        List<ScanFilter> filters = new ArrayList<>();
+        for (Sensor sensor : sensors) {
+            filters.add(new ScanFilter.Builder().setDeviceAddress(sensor.address).build());
+            setState(sensor, "scanning");
+        }
+        ScanSettings settings = new ScanSettings.Builder()
+            .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
+            .build();
+
+        Sensor[] session = sensors;
+        scanCallback = new ScanCallback() {
+            @Override
+            public void onScanResult(int callbackType, ScanResult result) {
+                BluetoothDevice device = result.getDevice();
+                loop().post(() -> onFound(session, device));
+            }
+
+            @Override
+            public void onBatchScanResults(List<ScanResult> results) {
+                for (ScanResult result : results) {
+                    onScanResult(ScanSettings.CALLBACK_TYPE_ALL_MATCHES, result);
+                }
+            }
+
+            @Override
+            public void onScanFailed(int errorCode) {
+                Log.w(TAG, "Scan failed, code " + errorCode);
+                loop().post(() -> {
+                    if (sensors == session) {
+                        finishScan();
+                    }
+                });
+            }
+        };
+        scanner.startScan(filters, settings, scanCallback);
+        loop().postDelayed(scanTimeout, timeoutMs);
+    }
+
+    private void onFound(Sensor[] session, BluetoothDevice device) {
+        if (sensors != session) {
+            return;
+        }
+        boolean waiting = false;
+        for (Sensor sensor : sensors) {
+            if (sensor.address.equals(device.getAddress()) && "scanning".equals(sensor.state)) {
+                connect(sensor, device, false);
+            }
+            waiting |= "scanning".equals(sensor.state);
+        }
+        if (!waiting) {
+            finishScan();
+        }
+    }
+
+    /**
+     * Ends the one scan of the session. Sensors it did not see are handed to
+     * the stack, which connects them whenever they come into range.
+     */
+    private void finishScan() {
+        stopScan();
+        if (sensors == null) {
+            return;
+        }
+        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+        for (Sensor sensor : sensors) {
+            if ("scanning".equals(sensor.state)) {
+                connect(sensor, adapter.getRemoteDevice(sensor.address), true);
+            }
+        }
+    }
+
+    private void stopScan() {
+        loop().removeCallbacks(scanTimeout);
+        if (scanCallback == null) {
+            return;
+        }
+        try {
+            scanner.stopScan(scanCallback);
+        } catch (SecurityException | IllegalStateException e) {
+            // Adapter turned off or permission revoked; the scan is gone either way
+            Log.w(TAG, "Could not stop scan", e);
+        }
+        scanCallback = null;
+        scanner = null;
+    }
+
+    private void connect(Sensor sensor, BluetoothDevice device, boolean background) {
+        setState(sensor, background ? "waiting" : "connecting");
+        SensorCallback callback = new SensorCallback(sensor);
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                // Every sensor delivers onto the same loop
+                sensor.gatt = device.connectGatt(reactContext, background, callback,
+                    BluetoothDevice.TRANSPORT_LE, BluetoothDevice.PHY_LE_1M_MASK, loop());
+            } else {
+                sensor.gatt = device.connectGatt(reactContext, background, callback, BluetoothDevice.TRANSPORT_LE);
+            }
+        } catch (SecurityException e) {
+            Log.e(TAG, "Missing Bluetooth permission while connecting " + sensor.id, e);
+            setState(sensor, "error");
+            return;
+        }
+        if (sensor.gatt == null) {
+            scheduleReconnect(sensor);
+        }
+    }
+
+    private void scheduleReconnect(Sensor sensor) {
+        if (!isCurrent(sensor)) {
+            return;
+        }
+        long delayMs = Math.min(RECONNECT_MAX_MS, RECONNECT_BASE_MS << Math.min(sensor.attempts, 4));
+        boolean background = sensor.attempts >= DIRECT_RECONNECT_ATTEMPTS;
+        sensor.attempts++;
+        sensor.reconnects++;
+        sensor.reconnect = () -> {
+            sensor.reconnect = null;
+            if (isCurrent(sensor) && sensor.gatt == null) {
+                BluetoothDevice device = BluetoothAdapter.getDefaultAdapter().getRemoteDevice(sensor.address);
+                connect(sensor, device, background);
+            }
+        };
+        loop().postDelayed(sensor.reconnect, delayMs);
+    }
+
+    private boolean isCurrent(Sensor sensor) {
+        return sensors != null && sensor.index < sensors.length && sensors[sensor.index] == sensor;
+    }
+
+    /**
+     * Per-sensor callback. From Android 8 the stack already calls it on the
+     * loop; before that calls are moved there.
+     */
+    private final class SensorCallback extends BluetoothGattCallback {
+        private final Sensor sensor;
+
+        SensorCallback(Sensor sensor) {
+            this.sensor = sensor;
+        }
+
+        private boolean onLoop() {
+            return Looper.myLooper() == loop().getLooper();
+        }
+
+        @Override
+        public void onConnectionStateChange(BluetoothGatt g, int status, int newState) {
+            if (onLoop()) {
+                onConnectionState(sensor, g, status, newState);
+            } else {
+                loop().post(() -> onConnectionState(sensor, g, status, newState));
+            }
+        }
+
+        @Override
+        public void onMtuChanged(BluetoothGatt g, int mtu, int status) {
+            if (onLoop()) {
+                onMtu(sensor, g, mtu, status);
+            } else {
+                loop().post(() -> onMtu(sensor, g, mtu, status));
+            }
+        }
+
+        @Override
+        public void onServicesDiscovered(BluetoothGatt g, int status) {
+            if (onLoop()) {
+                onServices(sensor, g, status);
+            } else {
+                loop().post(() -> onServices(sensor, g, status));
+            }
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt g, BluetoothGattDescriptor descriptor, int status) {
+            if (onLoop()) {
+                onNotifyEnabled(sensor, g, status);
+            } else {
+                loop().post(() -> onNotifyEnabled(sensor, g, status));
+            }
+        }
+
+        @Override
+        public void onCharacteristicChanged(@NonNull BluetoothGatt g,
+                                            @NonNull BluetoothGattCharacteristic characteristic,
+                                            @NonNull byte[] value) {
+            onNotification(sensor, g, value);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void onCharacteristicChanged(BluetoothGatt g, BluetoothGattCharacteristic characteristic) {
+            // Android 13+ delivers through the overload above
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+                return;
+            }
+            byte[] value = characteristic.getValue();
+            if (onLoop()) {
+                onNotification(sensor, g, value);
+            } else {
+                // The characteristic is reused for the next notification
+                byte[] copy = value != null ? value.clone() : null;
+                loop().post(() -> onNotification(sensor, g, copy));
+            }
+        }
+    }
+
+    private void onConnectionState(Sensor sensor, BluetoothGatt g, int status, int newState) {
+        if (!isCurrent(sensor) || sensor.gatt != g) {
+            // Left over from a stopped session or a replaced connection
+            closeQuietly(g);
+            return;
+        }
+        if (newState == BluetoothProfile.STATE_CONNECTED) {
+            Log.d(TAG, "Connected to " + sensor.id);
+            sensor.attempts = 0;
+            setState(sensor, "connected");
+            g.requestConnectionPriority(sensors.length > HIGH_PRIORITY_MAX_SENSORS
+                ? BluetoothGatt.CONNECTION_PRIORITY_BALANCED
+                : BluetoothGatt.CONNECTION_PRIORITY_HIGH);
+            if (!g.requestMtu(requestedMtu)) {
+                g.discoverServices();
+            }
+        } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+            Log.d(TAG, "Disconnected from " + sensor.id + ", status " + status);
+            closeQuietly(g);
+            sensor.gatt = null;
+            sensor.mtu = 23;
+            setState(sensor, "disconnected");
+            scheduleReconnect(sensor);
+        }
+    }
+
+    private void onMtu(Sensor sensor, BluetoothGatt g, int mtu, int status) {
+        if (!isCurrent(sensor) || sensor.gatt != g) {
+            return;
+        }
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            sensor.mtu = mtu;
+        }
+        g.discoverServices();
+    }
+
+    private void onServices(Sensor sensor, BluetoothGatt g, int status) {
+        if (!isCurrent(sensor) || sensor.gatt != g) {
+            return;
+        }
+        if (status != BluetoothGatt.GATT_SUCCESS) {
+            Log.w(TAG, "Service discovery failed for " + sensor.id + ", status " + status);
+            // Dropping the link brings us back through the reconnect
+            g.disconnect();
+            return;
+        }
+
+        BluetoothGattService service = g.getService(BleColorSensorModule.SERVICE_UUID);
+        BluetoothGattCharacteristic characteristic =
+            service != null ? service.getCharacteristic(BleColorSensorModule.CHARACTERISTIC_UUID) : null;
+        if (characteristic == null) {
+            // Not a colour sensor; retrying will not change that
+            Log.w(TAG, "Colour characteristic not found on " + sensor.id);
+            closeQuietly(g);
+            sensor.gatt = null;
+            setState(sensor, "error");
+            return;
+        }
+
+        g.setCharacteristicNotification(characteristic, true);
+        BluetoothGattDescriptor cccd = characteristic.getDescriptor(BleColorSensorModule.CCCD_UUID);
+        if (cccd == null) {
+            startMonitoring(sensor);
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            g.writeDescriptor(cccd, BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+        } else {
+            cccd.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+            g.writeDescriptor(cccd);
+        }
+    }
+
+    private void onNotifyEnabled(Sensor sensor, BluetoothGatt g, int status) {
+        if (!isCurrent(sensor) || sensor.gatt != g) {
+            return;
+        }
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            startMonitoring(sensor);
+        } else {
+            Log.w(TAG, "Enabling notifications failed for " + sensor.id + ", status " + status);
+            g.disconnect();
+        }
+    }
+
+    private void startMonitoring(Sensor sensor) {
+        sensor.windowStart = SystemClock.elapsedRealtimeNanos();
+        sensor.windowCount = 0;
+        setState(sensor, "monitoring");
+    }
+
+    private void onNotification(Sensor sensor, BluetoothGatt g, byte[] value) {
+        Feed current = feed;
+        if (!isCurrent(sensor) || sensor.gatt != g || current == null) {
+            return;
+        }
+        sensor.notifications++;
+        if (value == null || !ColorPayloadDecoder.decode(value, value.length, decoded)) {
+            sensor.invalid++;
+            return;
+        }
+
+        // Stamped here, on the one loop, so the queue stays in time order across sensors
+        long now = SystemClock.elapsedRealtimeNanos();
+        current.queue.offer(sensor.index, decoded[0], decoded[1], decoded[2], now);
+
+        sensor.windowCount++;
+        long elapsed = now - sensor.windowStart;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            sensor.perSecond = sensor.windowCount * 1e9 / elapsed;
+            sensor.windowStart = now;
+            sensor.windowCount = 0;
+        }
+
+        if (classifier == null) {
+            classifier = reactContext.getNativeModule(ColorClassifierModule.class);
+        }
+        if (classifier != null) {
+            classifier.onReading(sensor.id, decoded[0], decoded[1], decoded[2]);
+        }
+    }
+
+    private void stopSession() {
+        stopScan();
+        if (sensors != null) {
+            for (Sensor sensor : sensors) {
+                if (sensor.reconnect != null) {
+                    loop().removeCallbacks(sensor.reconnect);
+                    sensor.reconnect = null;
+                }
+                if (sensor.gatt != null) {
+                    try {
+                        sensor.gatt.disconnect();
+                    } catch (SecurityException e) {
+                        Log.e(TAG, "Missing Bluetooth permission while closing GATT", e);
+                    }
+                    closeQuietly(sensor.gatt);
+                    sensor.gatt = null;
+                }
+                setState(sensor, "stopped");
+            }
+            sensors = null;
+        }
+        if (flushing) {
+            flushing = false;
+            flushHandler().removeCallbacks(flushRunnable);
+            // Hands over what is still queued, even if a new session has started by then
+            Feed last = feed;
+            flushHandler().post(() -> flushBatch(last));
+        }
+    }
+
+    private static void closeQuietly(BluetoothGatt g) {
+        try {
+            g.close();
+        } catch (SecurityException e) {
+            Log.e(TAG, "Missing Bluetooth permission while closing GATT", e);
+        }
+    }
+
+    private void flushBatch(Feed current) {
+        if (current == null) {
+            return;
+        }
+        int count;
+        do {
+            count = current.queue.drain(batchSensor, batchR, batchG, batchB, batchT);
+            if (count > 0) {
+                sendBatch(current, count);
+            }
+        } while (count == MAX_BATCH_SIZE);
+    }
+
+    private void sendBatch(Feed current, int count) {
+        WritableArray ids = new WritableNativeArray();
+        for (String id : current.ids) {
+            ids.pushString(id);
+        }
+        WritableArray sensor = new WritableNativeArray();
+        WritableArray r = new WritableNativeArray();
+        WritableArray g = new WritableNativeArray();
+        WritableArray b = new WritableNativeArray();
+        WritableArray t = new WritableNativeArray();
+        for (int i = 0; i < count; i++) {
+            sensor.pushInt(batchSensor[i]);
+            r.pushInt(batchR[i]);
+            g.pushInt(batchG[i]);
+            b.pushInt(batchB[i]);
+            // elapsedRealtime in milliseconds, kept to the microsecond
+            t.pushDouble(batchT[i] / 1000 / 1000.0);
+        }
+
+        WritableMap params = new WritableNativeMap();
+        params.putArray("sensors", ids);
+        params.putInt("count", count);
+        params.putArray("sensor", sensor);
+        params.putArray("r", r);
+        params.putArray("g", g);
+        params.putArray("b", b);
+        params.putArray("timestamps", t);
+        sendEvent("bleSensorBatch", params);
+        batchesSent++;
+    }
+
+    private void setState(Sensor sensor, String state) {
+        if (state.equals(sensor.state)) {
+            return;
+        }
+        sensor.state = state;
+        WritableMap params = new WritableNativeMap();
+        params.putString("sensorId", sensor.id);
+        params.putString("deviceAddress", sensor.address);
+        params.putString("state", state);
+        sendEvent("bleSensorState", params);
+    }
+
+    private void sendEvent(String eventName, WritableMap params) {
+        // Held back while JS is suspended during a background session
+        if (SessionRuntime.get(reactContext).offer(eventName, params)) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, params);
+            NativeMetrics.get().recordEvent(eventName, started);
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending event", e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.anonymous.ratownictwo;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connects or disconnects a list of devices through BluetoothProfileManager
+ * with at most {@code concurrency} operations in flight.
+ *
+ * Each device keeps its own timeout inside the profile manager, so one silent
+ * headset only holds a single slot. The listener hears about every device as
+ * it settles and once more when the whole batch is done.
+ */
+final class BluetoothBatch {
+    interface Listener {
+        void onDevice(BluetoothBatch batch, Result result, int completed);
+
+        void onFinished(BluetoothBatch batch, Result[] results, long wallMs);
+    }
+
+    static final class Result {
+        final String address;
+        final boolean success;
+        final String result;
+        final String profile;
+        final String message;
+        final long elapsedMs;
+
+        Result(String address, boolean success, String result, String profile, String message, long elapsedMs) {
+            this.address = address;
+            this.success = success;
+            this.result = result;
+            this.profile = profile;
+            this.message = message;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    final String id;
+    final boolean connect;
+    private final BluetoothProfileManager manager;
+    private final List<String> addresses;
+    private final int concurrency;
+    private final long timeoutMs;
+    private final Listener listener;
+    private final Result[] results;
+    // Profile manager tokens of this batch's own operations, by index
+    private final long[] tokens;
+    private long startedAt;
+    private int nextIndex;
+    private int completed;
+    private boolean cancelled;
+
+    BluetoothBatch(String id, boolean connect, BluetoothProfileManager manager, List<String> addresses,
+                   int concurrency, long timeoutMs, Listener listener) {
+        this.id = id;
+        this.connect = connect;
+        this.manager = manager;
+        this.addresses = addresses;
+        this.concurrency = Math.max(1, concurrency);
+        this.timeoutMs = timeoutMs;
+        this.listener = listener;
+        this.results = new Result[addresses.size()];
+        this.tokens = new long[addresses.size()];
+    }
+
+    int size() {
+        return addresses.size();
+    }
+
+    void start() {
+        startedAt = SystemClock.elapsedRealtime();
+        if (addresses.isEmpty()) {
+            listener.onFinished(this, results, 0);
+            return;
+        }
+        for (int i = 0; i < concurrency; i++) {
+            launchNext();
+        }
+    }
+
+    /**
+     * Launches no more devices and cancels the ones in flight, e.g. when the
+     * caller's deadline passed. Only this batch's operations are cancelled; a
+     * single connect on one of its devices started elsewhere keeps running.
+     * onFinished is not called.
+     */
+    void cancel() {
+        List<String> pending = new ArrayList<>();
+        List<Long> pendingTokens = new ArrayList<>();
+        synchronized (this) {
+            cancelled = true;
+            for (int i = 0; i < nextIndex; i++) {
+                // A zero token is still being launched; launchNext cancels it
+                if (results[i] == null && tokens[i] != 0) {
+                    pending.add(addresses.get(i));
+                    pendingTokens.add(tokens[i]);
+                }
+            }
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            manager.cancel(pending.get(i), pendingTokens.get(i));
+        }
+    }
+
+    private void launchNext() {
+        final int index;
+        synchronized (this) {
+            if (cancelled || nextIndex >= addresses.size()) {
+                return;
+            }
+            index = nextIndex++;
+        }
+
+        BluetoothProfileManager.Callback callback = (address, success, result, profile, message, elapsedMs) -> {
+            Result entry = new Result(address, success, result, profile, message, elapsedMs);
+            int done;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                results[index] = entry;
+                done = ++completed;
+            }
+            listener.onDevice(this, entry, done);
+            if (done == addresses.size()) {
+                listener.onFinished(this, results, SystemClock.elapsedRealtime() - startedAt);
+            } else {
+                launchNext();
+            }
+        };
+
+        String address = addresses.get(index);
+        long token = connect
+            ? manager.connect(address, timeoutMs, callback)
+            : manager.disconnect(address, timeoutMs, callback);
+        boolean cancelNow;
+        synchronized (this) {
+            tokens[index] = token;
+            cancelNow = cancelled;
+        }
+        if (cancelNow) {
+            manager.cancel(address, token);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.anonymous.ratownictwo;
+
+import android.bluetooth.BluetoothProfile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory ACL / A2DP / HFP state of every device seen since start.
+ *
+ * Updates only mark a device dirty. drainChanges() then returns the devices
+ * whose state differs from what was last reported, so a burst of broadcasts
+ * (CONNECTING, CONNECTED, ACL up) becomes one event and flapping back to the
+ * reported state produces none.
+ */
+final class BluetoothDeviceStates {
+    static final class DeviceState {
+        final String address;
+        String name;
+        boolean acl;
+        int a2dp = BluetoothProfile.STATE_DISCONNECTED;
+        int hfp = BluetoothProfile.STATE_DISCONNECTED;
+        long changedAt;
+
+        DeviceState(String address) {
+            this.address = address;
+        }
+
+        DeviceState copy() {
+            DeviceState copy = new DeviceState(address);
+            copy.name = name;
+            copy.acl = acl;
+            copy.a2dp = a2dp;
+            copy.hfp = hfp;
+            copy.changedAt = changedAt;
+            return copy;
+        }
+
+        boolean sameAs(DeviceState other) {
+            return other != null && acl == other.acl && a2dp == other.a2dp && hfp == other.hfp;
+        }
+
+        boolean isAudioConnected() {
+            return a2dp == BluetoothProfile.STATE_CONNECTED || hfp == BluetoothProfile.STATE_CONNECTED;
+        }
+    }
+
+    private final Map<String, DeviceState> states = new HashMap<>();
+    private final Map<String, DeviceState> reported = new HashMap<>();
+    private final Set<String> dirty = new LinkedHashSet<>();
+
+    /**
+     * @return true when this is the first pending change, i.e. a flush should be scheduled
+     */
+    synchronized boolean setAcl(String address, String name, boolean connected, long now) {
+        DeviceState state = get(address, name);
+        if (state.acl == connected) {
+            return false;
+        }
+        state.acl = connected;
+        if (!connected) {
+            // ACL down means no profile can still be up
+            state.a2dp = BluetoothProfile.STATE_DISCONNECTED;
+            state.hfp = BluetoothProfile.STATE_DISCONNECTED;
+        }
+        return markDirty(state, now);
+    }
+
+    synchronized boolean setProfile(String address, String name, String profile, int value, long now) {
+        DeviceState state = get(address, name);
+        boolean a2dp = BluetoothProfileManager.PROFILE_A2DP.equals(profile);
+        if ((a2dp ? state.a2dp : state.hfp) == value) {
+            return false;
+        }
+        if (a2dp) {
+            state.a2dp = value;
+        } else {
+            state.hfp = value;
+        }
+        if (value == BluetoothProfile.STATE_CONNECTED) {
+            state.acl = true;
+        }
+        return markDirty(state, now);
+    }
+
+    /**
+     * Devices that changed since the last drain, skipping ones that ended up
+     * back in the state already reported.
+     */
+    synchronized List<DeviceState> drainChanges() {
+        List<DeviceState> changes = new ArrayList<>(dirty.size());
+        for (String address : dirty) {
+            DeviceState state = states.get(address);
+            if (!state.sameAs(reported.get(address))) {
+                DeviceState copy = state.copy();
+                reported.put(address, copy);
+                changes.add(copy);
+            }
+        }
+        dirty.clear();
+        return changes;
+    }
+
+    synchronized List<DeviceState> snapshot() {
+        List<DeviceState> copies = new ArrayList<>(states.size());
+        for (DeviceState state : states.values()) {
+            copies.add(state.copy());
+        }
+        return copies;
+    }
+
+    private DeviceState get(String address, String name) {
+        DeviceState state = states.get(address);
+        if (state == null) {
+            state = new DeviceState(address);
+            states.put(address, state);
+        }
+        if (name != null) {
+            state.name = name;
+        }
+        return state;
+    }
+
+    private boolean markDirty(DeviceState state, long now) {
+        state.changedAt = now;
+        boolean first = dirty.isEmpty();
+        dirty.add(state.address);
+        return first;
+    }
+}
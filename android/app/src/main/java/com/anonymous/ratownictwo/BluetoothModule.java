@@ -2,37 +2,49 @@ package com.anonymous.ratownictwo;
 
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothHeadset;
 import android.bluetooth.BluetoothProfile;
 import android.media.AudioManager;
 import android.content.Context;
 import android.util.Log;
 import android.os.Build;
 import android.media.AudioDeviceInfo;
+import androidx.annotation.Nullable;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.Promise;
-import android.bluetooth.BluetoothA2dp;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // Android Bluetooth
 import android.bluetooth.BluetoothClass;
 import android.bluetooth.BluetoothDevice;
 import android.os.ParcelUuid;
-import android.os.Handler;
-import android.os.Looper;
 
 // React Native Bridge
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.module.annotations.ReactModule;
 
 
 
-public class BluetoothModule extends ReactContextBaseJavaModule {
+@ReactModule(name = BluetoothSpec.NAME)
+public class BluetoothModule extends BluetoothSpec {
     private final ReactApplicationContext reactContext;
     private static final String TAG = "BluetoothModule";
+    private static final long OPERATION_TIMEOUT_MS = 10000;
+    private static final int DEFAULT_BATCH_CONCURRENCY = 3;
+    // Ponad własny timeout operacji; termin promise to tylko zabezpieczenie
+    private static final long DEADLINE_MARGIN_MS = 5000;
+    private final AtomicInteger batchCounter = new AtomicInteger();
+    private BluetoothProfileManager profileManager;
 
     public BluetoothModule(ReactApplicationContext context) {
         super(context);
@@ -42,108 +54,325 @@ public class BluetoothModule extends ReactContextBaseJavaModule {
     private static final ParcelUuid HFP_UUID = ParcelUuid.fromString("0000111e-0000-1000-8000-00805f9b34fb");
     private static final ParcelUuid HSP_UUID = ParcelUuid.fromString("00001108-0000-1000-8000-00805f9b34fb");
     private static final ParcelUuid OPP_UUID = ParcelUuid.fromString("00001105-0000-1000-8000-00805f9b34fb");
-    @Override
-    public String getName() {
-        return "BluetoothModule";
-    }
 
   
     
 
 
+    @Override
     @ReactMethod
-public void disconnectAudioDevice(String deviceAddress, Promise promise) {
-    try {
-        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
-        if (adapter == null) {
+    public void disconnectAudioDevice(String deviceAddress, Promise jsPromise) {
+        TimedPromise promise = TimedPromise.wrap("BluetoothModule.disconnectAudioDevice", jsPromise,
+            OPERATION_TIMEOUT_MS + DEADLINE_MARGIN_MS);
+        BluetoothProfileManager manager = getProfileManager();
+        if (manager == null) {
             promise.reject("NO_ADAPTER", "Brak adaptera Bluetooth");
             return;
         }
+        String address = normalizeAddress(deviceAddress);
 
-        BluetoothDevice device = adapter.getRemoteDevice(deviceAddress);
-        if (device == null) {
-            promise.reject("NO_DEVICE", "Nie znaleziono urządzenia");
-            return;
-        }
-
-        // Rozłącz tylko określone urządzenie
-        adapter.getProfileProxy(reactContext, new BluetoothProfile.ServiceListener() {
-            @Override
-            public void onServiceConnected(int profile, BluetoothProfile proxy) {
-                try {
-                    if (profile == BluetoothProfile.A2DP) {
-                        BluetoothA2dp a2dp = (BluetoothA2dp) proxy;
-                        Method method = BluetoothA2dp.class.getMethod("disconnect", BluetoothDevice.class);
-                        method.invoke(a2dp, device);
-                    } else if (profile == BluetoothProfile.HEADSET) {
-                        BluetoothHeadset headset = (BluetoothHeadset) proxy;
-                        Method method = BluetoothHeadset.class.getMethod("disconnect", BluetoothDevice.class);
-                        method.invoke(headset, device);
-                    }
+        // Rozłącz tylko określone urządzenie (A2DP i HFP)
+        long token = manager.disconnect(address, OPERATION_TIMEOUT_MS,
+            (device, success, result, profile, message, elapsedMs) -> {
+                if (success) {
                     promise.resolve(true);
-                } catch (Exception e) {
-                    promise.reject("DISCONNECT_ERROR", e.getMessage());
-                } finally {
-                    adapter.closeProfileProxy(profile, proxy);
+                } else {
+                    promise.reject(result, message);
                 }
-            }
+            });
+        promise.onCancel(() -> manager.cancel(address, token));
+    }
+
 
-            @Override
-            public void onServiceDisconnected(int profile) {
-                // Ignoruj
-            }
-        }, BluetoothProfile.A2DP);
 
-    } catch (Exception e) {
-        promise.reject("ERROR", e.getMessage());
+    @Override
+    @ReactMethod
+    public void disconnectAudio(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("BluetoothModule.disconnectAudio", jsPromise);
+        // Wywołania AudioManagera to binder; poza wątkiem modułów
+        bluetooth().execute(() -> {
+            try {
+                Log.d(TAG, "Rozpoczynanie rozłączania audio");
+
+                // 1. Reset ustawień audio
+                resetAudioRouting();
+
+                // 2. Rozłącz profile Bluetooth
+                BluetoothProfileManager manager = getProfileManager();
+                if (manager != null) {
+                    manager.disconnectAll();
+                }
+
+                promise.resolve(true);
+            } catch (Exception e) {
+                Log.e(TAG, "Błąd rozłączania", e);
+                promise.reject("DISCONNECT_ERROR", e.getMessage());
+            }
+        });
     }
-}
 
 
+    @Override
+    @ReactMethod
+    public void getDeviceProfiles(String deviceAddress, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("BluetoothModule.getDeviceProfiles", jsPromise);
+        bluetooth().execute(() -> {
+            try {
+                BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+                if (adapter == null) {
+                    promise.resolve(new WritableNativeArray());
+                    return;
+                }
+                promise.resolve(readProfiles(adapter, normalizeAddress(deviceAddress)));
+            } catch (Exception e) {
+                promise.reject("PROFILE_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Profile wielu urządzeń w jednym wywołaniu: {adres: ["A2DP", "HFP", ...]}.
+     */
+    @Override
+    @ReactMethod
+    public void getDeviceProfilesBatch(ReadableArray deviceAddresses, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("BluetoothModule.getDeviceProfilesBatch", jsPromise);
+        List<String> addresses = distinctAddresses(deviceAddresses);
+        bluetooth().execute(() -> {
+            try {
+                BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+                WritableMap result = new WritableNativeMap();
+                for (String address : addresses) {
+                    result.putArray(address, adapter != null ? readProfiles(adapter, address) : new WritableNativeArray());
+                }
+                promise.resolve(result);
+            } catch (Exception e) {
+                promise.reject("PROFILE_ERROR", e.getMessage());
+            }
+        });
+    }
 
+    /**
+     * Łączy wiele urządzeń naraz. concurrency i timeoutMs <= 0 oznaczają
+     * wartości domyślne, batchId null - identyfikator nadany tutaj.
+     * Postęp przychodzi zdarzeniem "bluetoothBatchProgress", a promise zwraca
+     * podsumowanie z czasem całkowitym i czasem każdego urządzenia.
+     */
+    @Override
     @ReactMethod
-    public void disconnectAudio(Promise promise) {
-        try {
-            Log.d(TAG, "Rozpoczynanie rozłączania audio");
+    public void connectDevices(ReadableArray deviceAddresses, double concurrency, double timeoutMs,
+                               @Nullable String batchId, Promise jsPromise) {
+        runBatch(true, "BluetoothModule.connectDevices", deviceAddresses, concurrency, timeoutMs, batchId,
+            jsPromise);
+    }
 
-            // 1. Reset ustawień audio
-            resetAudioRouting();
+    @Override
+    @ReactMethod
+    public void disconnectDevices(ReadableArray deviceAddresses, double concurrency, double timeoutMs,
+                                  @Nullable String batchId, Promise jsPromise) {
+        runBatch(false, "BluetoothModule.disconnectDevices", deviceAddresses, concurrency, timeoutMs, batchId,
+            jsPromise);
+    }
 
-            // 2. Rozłącz profile Bluetooth
-            BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
-            if (adapter != null) {
-                disconnectHeadsetProfile(adapter);
+    /**
+     * Aktualny stan wszystkich znanych urządzeń, czytany synchronicznie
+     * z mapy w pamięci (bez zapytań do stosu Bluetooth).
+     */
+    @Override
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableArray getDeviceStates() {
+        long started = System.nanoTime();
+        try {
+            WritableArray result = new WritableNativeArray();
+            BluetoothProfileManager manager = getProfileManager();
+            if (manager != null) {
+                for (BluetoothDeviceStates.DeviceState state : manager.getDeviceStates()) {
+                    result.pushMap(toMap(state));
+                }
             }
+            return result;
+        } finally {
+            NativeMetrics.get().recordMethod("BluetoothModule.getDeviceStates", started);
+        }
+    }
 
-            promise.resolve(true);
-        } catch (Exception e) {
-            Log.e(TAG, "Błąd rozłączania", e);
-            promise.reject("DISCONNECT_ERROR", e.getMessage());
+    @Override
+    @ReactMethod
+    public void addListener(String eventName) {
+        // Wymagane przez NativeEventEmitter; subskrypcja stanu uruchamia śledzenie
+        if ("bluetoothDeviceState".equals(eventName)) {
+            getProfileManager();
         }
     }
 
+    @Override
+    @ReactMethod
+    public void removeListeners(double count) {
+        // Wymagane przez NativeEventEmitter
+    }
 
+    /**
+     * Łączy przez A2DP, a gdy A2DP zawiedzie, od razu przez HFP.
+     * Zwraca "SUCCESS" albo odrzuca z kodem błędu (np. TIMEOUT).
+     */
+    @Override
     @ReactMethod
-public void getDeviceProfiles(String deviceAddress, Promise promise) {
-    try {
-        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
-        if (adapter == null) {
-            promise.resolve(new WritableNativeArray());
+    public void connectToDevice(String deviceAddress, Promise jsPromise) {
+        TimedPromise promise = TimedPromise.wrap("BluetoothModule.connectToDevice", jsPromise,
+            OPERATION_TIMEOUT_MS + DEADLINE_MARGIN_MS);
+        BluetoothProfileManager manager = getProfileManager();
+        if (manager == null) {
+            promise.reject("NO_ADAPTER", "Brak adaptera Bluetooth");
             return;
         }
+        String address = normalizeAddress(deviceAddress);
+
+        long token = manager.connect(address, OPERATION_TIMEOUT_MS,
+            (device, success, result, profile, message, elapsedMs) -> {
+                if (success) {
+                    Log.d(TAG, "Połączono " + device + " przez " + profile + " w " + elapsedMs + " ms");
+                    promise.resolve(result);
+                } else {
+                    promise.reject(result, message);
+                }
+            });
+        promise.onCancel(() -> manager.cancel(address, token));
+    }
+
+    @Override
+    public void invalidate() {
+        synchronized (this) {
+            if (profileManager != null) {
+                profileManager.close();
+                profileManager = null;
+            }
+        }
+        super.invalidate();
+    }
 
-        BluetoothDevice device = adapter.getRemoteDevice(deviceAddress);
-        if (device == null) {
-            promise.resolve(new WritableNativeArray());
+    /**
+     * Termin promise: tyle rund, ile trzeba przy danej współbieżności, każda
+     * po timeout urządzenia, plus margines.
+     */
+    private void runBatch(boolean connect, String metric, ReadableArray deviceAddresses, double concurrency,
+                          double timeoutMs, @Nullable String batchId, Promise jsPromise) {
+        List<String> addresses = distinctAddresses(deviceAddresses);
+        int slots = concurrency > 0 ? (int) concurrency : DEFAULT_BATCH_CONCURRENCY;
+        long deviceTimeoutMs = timeoutMs > 0 ? (long) timeoutMs : OPERATION_TIMEOUT_MS;
+        long rounds = Math.max(1, (addresses.size() + slots - 1) / slots);
+        TimedPromise promise = TimedPromise.wrap(metric, jsPromise, rounds * deviceTimeoutMs + DEADLINE_MARGIN_MS);
+        BluetoothProfileManager manager = getProfileManager();
+        if (manager == null) {
+            promise.reject("NO_ADAPTER", "Brak adaptera Bluetooth");
             return;
         }
 
-        WritableArray profiles = new WritableNativeArray();
+        String id = batchId != null ? batchId : "batch-" + batchCounter.incrementAndGet();
+        BluetoothBatch batch = new BluetoothBatch(id, connect, manager, addresses, slots, deviceTimeoutMs,
+            new BluetoothBatch.Listener() {
+                @Override
+                public void onDevice(BluetoothBatch batch, BluetoothBatch.Result result, int completed) {
+                    WritableMap params = toMap(result);
+                    params.putString("batchId", batch.id);
+                    params.putString("operation", batch.connect ? "connect" : "disconnect");
+                    params.putInt("completed", completed);
+                    params.putInt("total", batch.size());
+                    sendEvent("bluetoothBatchProgress", params);
+                }
 
-        // Sprawdzanie profili poprzez refleksję (dla starszych wersji Androida)
+                @Override
+                public void onFinished(BluetoothBatch batch, BluetoothBatch.Result[] results, long wallMs) {
+                    WritableMap summary = new WritableNativeMap();
+                    WritableArray devices = new WritableNativeArray();
+                    int succeeded = 0;
+                    long totalMs = 0;
+                    long maxMs = 0;
+                    for (BluetoothBatch.Result result : results) {
+                        devices.pushMap(toMap(result));
+                        if (result.success) {
+                            succeeded++;
+                        }
+                        totalMs += result.elapsedMs;
+                        maxMs = Math.max(maxMs, result.elapsedMs);
+                    }
+                    summary.putString("batchId", batch.id);
+                    summary.putString("operation", batch.connect ? "connect" : "disconnect");
+                    summary.putInt("total", results.length);
+                    summary.putInt("succeeded", succeeded);
+                    summary.putInt("failed", results.length - succeeded);
+                    summary.putDouble("wallMs", wallMs);
+                    summary.putDouble("averageDeviceMs", results.length > 0 ? (double) totalMs / results.length : 0);
+                    summary.putDouble("maxDeviceMs", maxMs);
+                    summary.putArray("results", devices);
+                    Log.d(TAG, "Partia " + batch.id + ": " + succeeded + "/" + results.length + " w " + wallMs + " ms");
+                    promise.resolve(summary);
+                }
+            });
+        promise.onCancel(batch::cancel);
+        batch.start();
+    }
+
+    private static WritableMap toMap(BluetoothBatch.Result result) {
+        WritableMap map = new WritableNativeMap();
+        map.putString("address", result.address);
+        map.putBoolean("success", result.success);
+        map.putString("result", result.result);
+        map.putString("profile", result.profile);
+        map.putString("message", result.message);
+        map.putDouble("elapsedMs", result.elapsedMs);
+        return map;
+    }
+
+    private static WritableMap toMap(BluetoothDeviceStates.DeviceState state) {
+        WritableMap map = new WritableNativeMap();
+        map.putString("address", state.address);
+        map.putString("name", state.name);
+        map.putBoolean("aclConnected", state.acl);
+        map.putString("a2dp", stateName(state.a2dp));
+        map.putString("hfp", stateName(state.hfp));
+        map.putBoolean("audioConnected", state.isAudioConnected());
+        map.putDouble("changedAt", state.changedAt);
+        return map;
+    }
+
+    private static String stateName(int state) {
+        switch (state) {
+            case BluetoothProfile.STATE_CONNECTED:
+                return "connected";
+            case BluetoothProfile.STATE_CONNECTING:
+                return "connecting";
+            case BluetoothProfile.STATE_DISCONNECTING:
+                return "disconnecting";
+            default:
+                return "disconnected";
+        }
+    }
+
+    private static List<String> distinctAddresses(ReadableArray deviceAddresses) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (int i = 0; i < deviceAddresses.size(); i++) {
+            String address = deviceAddresses.getString(i);
+            if (address != null) {
+                unique.add(normalizeAddress(address));
+            }
+        }
+        return new ArrayList<>(unique);
+    }
+
+    /**
+     * Adres MAC wielkimi literami: tak klucze stanu i operacji są zgodne
+     * niezależnie od ścieżki (pojedyncze połączenie, partia, broadcast).
+     */
+    private static String normalizeAddress(String address) {
+        return address.toUpperCase(Locale.ROOT);
+    }
+
+    private WritableArray readProfiles(BluetoothAdapter adapter, String deviceAddress) {
+        WritableArray profiles = new WritableNativeArray();
         try {
-            Method getUuidsMethod = BluetoothDevice.class.getMethod("getUuids");
-            ParcelUuid[] uuids = (ParcelUuid[]) getUuidsMethod.invoke(device);
+            BluetoothDevice device = adapter.getRemoteDevice(deviceAddress);
+            // UUID-y z pamięci podręcznej stosu, bez zapytania SDP
+            ParcelUuid[] uuids = device.getUuids();
             if (uuids != null) {
                 for (ParcelUuid uuid : uuids) {
                     if (uuid.equals(A2DP_SINK_UUID)) {
@@ -160,87 +389,53 @@ public void getDeviceProfiles(String deviceAddress, Promise promise) {
         } catch (Exception e) {
             Log.e(TAG, "Błąd sprawdzania profili", e);
         }
-
-        promise.resolve(profiles);
-    } catch (Exception e) {
-        promise.reject("PROFILE_ERROR", e.getMessage());
+        return profiles;
     }
-}
 
-@ReactMethod
-public void connectToDevice(String deviceAddress, Promise promise) {
-    try {
-        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
-        if (adapter == null) {
-            promise.reject("NO_ADAPTER", "Brak adaptera Bluetooth");
+    private void sendEvent(String eventName, WritableMap params) {
+        // Trzymane w buforze, dopóki JS jest uśpiony podczas sesji w tle
+        if (SessionRuntime.get(reactContext).offer(eventName, params)) {
             return;
         }
-
-        BluetoothDevice device = adapter.getRemoteDevice(deviceAddress);
-        if (device == null) {
-            promise.reject("NO_DEVICE", "Nie znaleziono urządzenia");
-            return;
+        long started = System.nanoTime();
+        try {
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, params);
+            NativeMetrics.get().recordEvent(eventName, started);
+        } catch (Exception e) {
+            Log.e(TAG, "Błąd wysyłania zdarzenia", e);
         }
+    }
 
-        // Próba połączenia przez profile audio
-        boolean connected = false;
-
-        // 1. Próba połączenia przez A2DP
-        adapter.getProfileProxy(reactContext, new BluetoothProfile.ServiceListener() {
-            @Override
-            public void onServiceConnected(int profile, BluetoothProfile proxy) {
-                if (profile == BluetoothProfile.A2DP) {
-                    BluetoothA2dp a2dp = (BluetoothA2dp) proxy;
-                    try {
-                        Method connectMethod = BluetoothA2dp.class.getMethod("connect", BluetoothDevice.class);
-                        connectMethod.invoke(a2dp, device);
-                        promise.resolve("SUCCESS");
-                    } catch (Exception e) {
-                        promise.reject("A2DP_ERROR", e.getMessage());
-                    } finally {
-                        adapter.closeProfileProxy(profile, proxy);
-                    }
-                }
-            }
-
-            @Override
-            public void onServiceDisconnected(int profile) {
-                // Ignoruj
-            }
-        }, BluetoothProfile.A2DP);
-
-        // 2. Próba połączenia przez HFP (z opóźnieniem, jeśli A2DP zawiedzie)
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            if (!connected) {
-                adapter.getProfileProxy(reactContext, new BluetoothProfile.ServiceListener() {
-                    @Override
-                    public void onServiceConnected(int profile, BluetoothProfile proxy) {
-                        if (profile == BluetoothProfile.HEADSET) {
-                            BluetoothHeadset headset = (BluetoothHeadset) proxy;
-                            try {
-                                Method connectMethod = BluetoothHeadset.class.getMethod("connect", BluetoothDevice.class);
-                                connectMethod.invoke(headset, device);
-                                promise.resolve("SUCCESS");
-                            } catch (Exception e) {
-                                promise.reject("HFP_ERROR", e.getMessage());
-                            } finally {
-                                adapter.closeProfileProxy(profile, proxy);
-                            }
-                        }
-                    }
+    private static ModuleExecutor bluetooth() {
+        return ModuleExecutor.get(ModuleExecutor.BLUETOOTH);
+    }
 
-                    @Override
-                    public void onServiceDisconnected(int profile) {
-                        // Ignoruj
-                    }
-                }, BluetoothProfile.HEADSET);
+    /**
+     * Menedżer profili tworzony przy pierwszym użyciu; null bez adaptera.
+     */
+    private synchronized BluetoothProfileManager getProfileManager() {
+        if (profileManager == null) {
+            BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+            if (adapter == null) {
+                return null;
             }
-        }, 1000);
-
-    } catch (Exception e) {
-        promise.reject("CONNECTION_ERROR", e.getMessage());
+            profileManager = new BluetoothProfileManager(reactContext, adapter);
+            // Zmiany stanu (ACL, A2DP, HFP) idą do JS jednym zdarzeniem na okno
+            profileManager.startTracking(changes -> {
+                WritableArray devices = new WritableNativeArray();
+                for (BluetoothDeviceStates.DeviceState state : changes) {
+                    devices.pushMap(toMap(state));
+                }
+                WritableMap params = new WritableNativeMap();
+                params.putArray("changes", devices);
+                params.putDouble("timestamp", System.currentTimeMillis());
+                sendEvent("bluetoothDeviceState", params);
+            });
+        }
+        return profileManager;
     }
-}
 
 
 
@@ -271,89 +466,14 @@ public void connectToDevice(String deviceAddress, Promise promise) {
                     Log.d(TAG, "Starsza wersja Androida, brak wsparcia dla getDevices");
                 }
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Błąd resetowania audio", e);
-        }
-    }
-    
-@ReactMethod
-
-
 
-
-
-    private void disconnectHeadsetProfile(BluetoothAdapter adapter) {
-        try {
-            // Rozłączamy profil HFP (Hands-Free Profile)
-            adapter.getProfileProxy(reactContext, new BluetoothProfile.ServiceListener() {
-                @Override
-                public void onServiceConnected(int profile, BluetoothProfile proxy) {
-                    try {
-                        if (proxy instanceof BluetoothHeadset) {
-                            BluetoothHeadset headset = (BluetoothHeadset) proxy;
-                            for (BluetoothDevice device : headset.getConnectedDevices()) {
-                                disconnectDevice(headset, device);
-                            }
-                        }
-                    } finally {
-                        adapter.closeProfileProxy(profile, proxy);
-                    }
-                }
-    
-                @Override
-                public void onServiceDisconnected(int profile) {
-                    Log.d(TAG, "Profil rozłączony: " + profile);
-                }
-            }, BluetoothProfile.HEADSET);
-            
-            // Rozłączamy profil A2DP (Advanced Audio Distribution Profile)
-            adapter.getProfileProxy(reactContext, new BluetoothProfile.ServiceListener() {
-                @Override
-                public void onServiceConnected(int profile, BluetoothProfile proxy) {
-                    try {
-                        if (proxy instanceof BluetoothA2dp) {
-                            BluetoothA2dp a2dp = (BluetoothA2dp) proxy;
-                            for (BluetoothDevice device : a2dp.getConnectedDevices()) {
-                                disconnectDevice(a2dp, device);
-                            }
-                        }
-                    } finally {
-                        adapter.closeProfileProxy(profile, proxy);
-                    }
-                }
-    
-                @Override
-                public void onServiceDisconnected(int profile) {
-                    Log.d(TAG, "Profil A2DP rozłączony: " + profile);
-                }
-            }, BluetoothProfile.A2DP);
-    
-        } catch (Exception e) {
-            Log.e(TAG, "Błąd rozłączania profili Bluetooth", e);
-        }
-    }
-    
-
-
-
-    
-    private void disconnectDevice(BluetoothA2dp a2dp, BluetoothDevice device) {
-        try {
-            Method method = BluetoothA2dp.class.getMethod("disconnect", BluetoothDevice.class);
-            method.invoke(a2dp, device);
-            Log.d(TAG, "Rozłączono A2DP: " + device.getName());
-        } catch (Exception e) {
-            Log.e(TAG, "Błąd rozłączania A2DP", e);
-        }
-    }
-    
-    private void disconnectDevice(BluetoothHeadset headset, BluetoothDevice device) {
-        try {
-            Method method = BluetoothHeadset.class.getMethod("disconnect", BluetoothDevice.class);
-            method.invoke(headset, device);
-            Log.d(TAG, "Rozłączono HFP: " + device.getName());
+            // Silnik dźwięków sygnałów podąża za wybraną trasą audio
+            CueSoundModule cueSound = reactContext.getNativeModule(CueSoundModule.class);
+            if (cueSound != null) {
+                cueSound.refreshRoute();
+            }
         } catch (Exception e) {
-            Log.e(TAG, "Błąd rozłączania HFP", e);
+            Log.e(TAG, "Błąd resetowania audio", e);
         }
     }
-}
\ No newline at end of file
+}
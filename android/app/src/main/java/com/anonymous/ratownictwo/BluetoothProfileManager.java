@@ -0,0 +1,523 @@
+package com.anonymous.ratownictwo;
+
+import android.bluetooth.BluetoothA2dp;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothHeadset;
+import android.bluetooth.BluetoothProfile;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the A2DP and HEADSET proxies open for the life of BluetoothModule and
+ * runs connect / disconnect as a per-device state machine.
+ *
+ * The hidden connect / disconnect methods are resolved once. Every transition
+ * is driven by the profile connection-state broadcasts, so HFP fallback starts
+ * as soon as A2DP reports a failure instead of after a fixed delay. All state
+ * lives on the Bluetooth ModuleExecutor and each operation settles exactly
+ * once: on success, on failure, when its timeout fires or when it is
+ * cancelled.
+ *
+ * The same receiver also follows ACL changes and keeps BluetoothDeviceStates
+ * up to date; changes are coalesced for COALESCE_MS and handed to the
+ * StateListener in one batch.
+ */
+final class BluetoothProfileManager {
+    private static final String TAG = "BluetoothProfileManager";
+
+    static final String PROFILE_A2DP = "A2DP";
+    static final String PROFILE_HFP = "HFP";
+
+    interface Callback {
+        /**
+         * @param result "SUCCESS" (connect) or "DISCONNECTED", or an error code on failure
+         * @param profile profile that completed the operation, or null
+         */
+        void onComplete(String address, boolean success, String result, String profile,
+                        String message, long elapsedMs);
+    }
+
+    interface StateListener {
+        void onStateChanges(List<BluetoothDeviceStates.DeviceState> changes);
+    }
+
+    // Broadcasts arriving within this window are reported together
+    private static final long COALESCE_MS = 20;
+
+    private enum Step { WAITING_PROXY, A2DP, HFP, DISCONNECTING }
+
+    private static final class Operation {
+        final long token;
+        final String address;
+        final BluetoothDevice device;
+        final boolean connect;
+        final Callback callback;
+        final long startedAt = SystemClock.elapsedRealtime();
+        Step step = Step.WAITING_PROXY;
+        boolean settled;
+        Runnable timeout;
+
+        Operation(long token, String address, BluetoothDevice device, boolean connect, Callback callback) {
+            this.token = token;
+            this.address = address;
+            this.device = device;
+            this.connect = connect;
+            this.callback = callback;
+        }
+    }
+
+    private final Context context;
+    private final BluetoothAdapter adapter;
+    private final ModuleExecutor executor;
+    private final Handler handler;
+    private final Map<String, Operation> operations = new HashMap<>();
+    private final AtomicLong tokens = new AtomicLong();
+    private final BluetoothDeviceStates states = new BluetoothDeviceStates();
+    private final Runnable flushStates = this::flushStates;
+    private volatile StateListener stateListener;
+
+    // Dostęp tylko z wątku executora Bluetooth
+    private BluetoothA2dp a2dp;
+    private BluetoothHeadset headset;
+    private Method a2dpConnect;
+    private Method a2dpDisconnect;
+    private Method headsetConnect;
+    private Method headsetDisconnect;
+    private boolean a2dpRequested;
+    private boolean headsetRequested;
+    private boolean receiverRegistered;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
+            if (device == null) {
+                return;
+            }
+            String address = device.getAddress();
+            String action = intent.getAction();
+            long now = System.currentTimeMillis();
+            boolean schedule;
+            if (BluetoothDevice.ACTION_ACL_CONNECTED.equals(action)
+                    || BluetoothDevice.ACTION_ACL_DISCONNECTED.equals(action)) {
+                schedule = states.setAcl(address, nameOf(device),
+                    BluetoothDevice.ACTION_ACL_CONNECTED.equals(action), now);
+            } else {
+                int state = intent.getIntExtra(BluetoothProfile.EXTRA_STATE, BluetoothProfile.STATE_DISCONNECTED);
+                int previous = intent.getIntExtra(BluetoothProfile.EXTRA_PREVIOUS_STATE, BluetoothProfile.STATE_DISCONNECTED);
+                String profile = BluetoothA2dp.ACTION_CONNECTION_STATE_CHANGED.equals(action) ? PROFILE_A2DP : PROFILE_HFP;
+                schedule = states.setProfile(address, nameOf(device), profile, state, now);
+                onProfileState(address, profile, state, previous);
+            }
+            if (schedule) {
+                handler.postDelayed(flushStates, COALESCE_MS);
+            }
+        }
+    };
+
+    BluetoothProfileManager(Context context, BluetoothAdapter adapter) {
+        this.context = context;
+        this.adapter = adapter;
+        this.executor = ModuleExecutor.get(ModuleExecutor.BLUETOOTH);
+        this.handler = executor.handler();
+    }
+
+    /**
+     * Registers the receivers and proxies without starting any operation, so
+     * state changes are tracked from now on.
+     */
+    void startTracking(StateListener listener) {
+        stateListener = listener;
+        executor.execute(this::ensureProxies);
+    }
+
+    List<BluetoothDeviceStates.DeviceState> getDeviceStates() {
+        return states.snapshot();
+    }
+
+    /**
+     * @return token of the started operation, for {@link #cancel(String, long)}
+     */
+    long connect(String address, long timeoutMs, Callback callback) {
+        long token = tokens.incrementAndGet();
+        executor.execute(() -> start(token, address, true, timeoutMs, callback));
+        return token;
+    }
+
+    long disconnect(String address, long timeoutMs, Callback callback) {
+        long token = tokens.incrementAndGet();
+        executor.execute(() -> start(token, address, false, timeoutMs, callback));
+        return token;
+    }
+
+    /**
+     * Fails the operation with this token with CANCELLED, e.g. when the
+     * caller's deadline passed. A later operation on the same device, started
+     * by another caller, is left alone.
+     */
+    void cancel(String address, long token) {
+        executor.execute(() -> {
+            Operation operation = operations.get(address);
+            if (operation != null && operation.token == token) {
+                fail(operation, "CANCELLED", "Anulowano po przekroczeniu terminu");
+            }
+        });
+    }
+
+    /**
+     * Disconnects every device currently connected on A2DP or HEADSET.
+     */
+    void disconnectAll() {
+        executor.execute(() -> {
+            ensureProxies();
+            try {
+                if (headset != null) {
+                    for (BluetoothDevice device : headset.getConnectedDevices()) {
+                        invoke(headsetDisconnect, headset, device);
+                    }
+                }
+                if (a2dp != null) {
+                    for (BluetoothDevice device : a2dp.getConnectedDevices()) {
+                        invoke(a2dpDisconnect, a2dp, device);
+                    }
+                }
+            } catch (SecurityException e) {
+                Log.e(TAG, "Brak uprawnień Bluetooth", e);
+            }
+        });
+    }
+
+    void close() {
+        executor.execute(() -> {
+            for (Operation operation : new ArrayList<>(operations.values())) {
+                fail(operation, "CANCELLED", "Moduł Bluetooth został zamknięty");
+            }
+            if (receiverRegistered) {
+                try {
+                    context.unregisterReceiver(receiver);
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "Odbiornik już wyrejestrowany", e);
+                }
+                receiverRegistered = false;
+            }
+            if (a2dp != null) {
+                adapter.closeProfileProxy(BluetoothProfile.A2DP, a2dp);
+                a2dp = null;
+            }
+            if (headset != null) {
+                adapter.closeProfileProxy(BluetoothProfile.HEADSET, headset);
+                headset = null;
+            }
+        });
+    }
+
+    private void start(long token, String address, boolean connect, long timeoutMs, Callback callback) {
+        BluetoothDevice device;
+        try {
+            device = adapter.getRemoteDevice(address);
+        } catch (IllegalArgumentException e) {
+            callback.onComplete(address, false, "NO_DEVICE", null, "Nie znaleziono urządzenia", 0);
+            return;
+        }
+
+        Operation existing = operations.get(address);
+        if (existing != null) {
+            fail(existing, "CANCELLED", "Zastąpione nowym żądaniem");
+        }
+
+        Operation operation = new Operation(token, address, device, connect, callback);
+        operations.put(address, operation);
+        operation.timeout = () -> fail(operation, "TIMEOUT",
+            "Przekroczono czas oczekiwania (" + timeoutMs + " ms, etap " + operation.step + ")");
+        handler.postDelayed(operation.timeout, timeoutMs);
+
+        if (ensureProxies()) {
+            guarded(operation, () -> advance(operation));
+        }
+    }
+
+    /**
+     * Opens both proxies and the state receiver once.
+     *
+     * @return true when both proxies are connected (or will never connect)
+     */
+    private boolean ensureProxies() {
+        if (!receiverRegistered) {
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(BluetoothA2dp.ACTION_CONNECTION_STATE_CHANGED);
+            filter.addAction(BluetoothHeadset.ACTION_CONNECTION_STATE_CHANGED);
+            filter.addAction(BluetoothDevice.ACTION_ACL_CONNECTED);
+            filter.addAction(BluetoothDevice.ACTION_ACL_DISCONNECTED);
+            context.registerReceiver(receiver, filter, null, handler);
+            receiverRegistered = true;
+        }
+        if (!a2dpRequested) {
+            a2dpRequested = adapter.getProfileProxy(context, listener, BluetoothProfile.A2DP);
+        }
+        if (!headsetRequested) {
+            headsetRequested = adapter.getProfileProxy(context, listener, BluetoothProfile.HEADSET);
+        }
+        return (a2dp != null || !a2dpRequested) && (headset != null || !headsetRequested);
+    }
+
+    private final BluetoothProfile.ServiceListener listener = new BluetoothProfile.ServiceListener() {
+        @Override
+        public void onServiceConnected(int profile, BluetoothProfile proxy) {
+            executor.execute(() -> {
+                if (profile == BluetoothProfile.A2DP) {
+                    a2dp = (BluetoothA2dp) proxy;
+                    if (a2dpConnect == null) {
+                        a2dpConnect = resolve(BluetoothA2dp.class, "connect");
+                        a2dpDisconnect = resolve(BluetoothA2dp.class, "disconnect");
+                    }
+                } else if (profile == BluetoothProfile.HEADSET) {
+                    headset = (BluetoothHeadset) proxy;
+                    if (headsetConnect == null) {
+                        headsetConnect = resolve(BluetoothHeadset.class, "connect");
+                        headsetDisconnect = resolve(BluetoothHeadset.class, "disconnect");
+                    }
+                }
+                Log.d(TAG, "Połączono proxy profilu " + profile);
+                seedStates(proxy, profile == BluetoothProfile.A2DP ? PROFILE_A2DP : PROFILE_HFP);
+                if (ensureProxies()) {
+                    for (Operation operation : new ArrayList<>(operations.values())) {
+                        if (operation.step == Step.WAITING_PROXY) {
+                            guarded(operation, () -> advance(operation));
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onServiceDisconnected(int profile) {
+            executor.execute(() -> {
+                Log.d(TAG, "Rozłączono proxy profilu " + profile);
+                if (profile == BluetoothProfile.A2DP) {
+                    a2dp = null;
+                    for (Operation operation : new ArrayList<>(operations.values())) {
+                        if (operation.step == Step.A2DP) {
+                            guarded(operation, () -> tryHeadset(operation));
+                        }
+                    }
+                } else if (profile == BluetoothProfile.HEADSET) {
+                    headset = null;
+                    for (Operation operation : new ArrayList<>(operations.values())) {
+                        if (operation.step == Step.HFP) {
+                            fail(operation, "HFP_ERROR", "Usługa HFP została rozłączona");
+                        }
+                    }
+                }
+            });
+        }
+    };
+
+    /**
+     * Devices already connected before the receiver was registered.
+     */
+    private void seedStates(BluetoothProfile proxy, String profile) {
+        try {
+            long now = System.currentTimeMillis();
+            boolean schedule = false;
+            for (BluetoothDevice device : proxy.getConnectedDevices()) {
+                schedule |= states.setProfile(device.getAddress(), nameOf(device), profile,
+                    BluetoothProfile.STATE_CONNECTED, now);
+            }
+            if (schedule) {
+                handler.postDelayed(flushStates, COALESCE_MS);
+            }
+        } catch (SecurityException e) {
+            Log.e(TAG, "Brak uprawnień Bluetooth", e);
+        }
+    }
+
+    private void flushStates() {
+        List<BluetoothDeviceStates.DeviceState> changes = states.drainChanges();
+        StateListener listener = stateListener;
+        if (!changes.isEmpty() && listener != null) {
+            listener.onStateChanges(changes);
+        }
+    }
+
+    private static String nameOf(BluetoothDevice device) {
+        try {
+            return device.getName();
+        } catch (SecurityException e) {
+            return null;
+        }
+    }
+
+    private void advance(Operation operation) {
+        if (operation.connect) {
+            tryA2dp(operation);
+        } else {
+            startDisconnect(operation);
+        }
+    }
+
+    private void tryA2dp(Operation operation) {
+        operation.step = Step.A2DP;
+        if (a2dp == null || a2dpConnect == null) {
+            tryHeadset(operation);
+            return;
+        }
+        if (a2dp.getConnectionState(operation.device) == BluetoothProfile.STATE_CONNECTED) {
+            succeed(operation, "SUCCESS", PROFILE_A2DP);
+            return;
+        }
+        if (!invoke(a2dpConnect, a2dp, operation.device)) {
+            Log.d(TAG, "A2DP odrzucił połączenie, próba HFP: " + operation.address);
+            tryHeadset(operation);
+        }
+    }
+
+    private void tryHeadset(Operation operation) {
+        operation.step = Step.HFP;
+        if (headset == null || headsetConnect == null) {
+            fail(operation, "HFP_ERROR", "Profil HFP niedostępny");
+            return;
+        }
+        if (headset.getConnectionState(operation.device) == BluetoothProfile.STATE_CONNECTED) {
+            succeed(operation, "SUCCESS", PROFILE_HFP);
+            return;
+        }
+        if (!invoke(headsetConnect, headset, operation.device)) {
+            fail(operation, "CONNECT_FAILED", "Urządzenie odrzuciło połączenie A2DP i HFP");
+        }
+    }
+
+    private void startDisconnect(Operation operation) {
+        operation.step = Step.DISCONNECTING;
+        if (headset != null && headset.getConnectionState(operation.device) != BluetoothProfile.STATE_DISCONNECTED) {
+            invoke(headsetDisconnect, headset, operation.device);
+        }
+        if (a2dp != null && a2dp.getConnectionState(operation.device) != BluetoothProfile.STATE_DISCONNECTED) {
+            invoke(a2dpDisconnect, a2dp, operation.device);
+        }
+        checkDisconnected(operation);
+    }
+
+    private void checkDisconnected(Operation operation) {
+        boolean a2dpDown = a2dp == null
+            || a2dp.getConnectionState(operation.device) == BluetoothProfile.STATE_DISCONNECTED;
+        boolean headsetDown = headset == null
+            || headset.getConnectionState(operation.device) == BluetoothProfile.STATE_DISCONNECTED;
+        if (a2dpDown && headsetDown) {
+            succeed(operation, "DISCONNECTED", null);
+        }
+    }
+
+    private void onProfileState(String address, String profile, int state, int previous) {
+        Operation operation = operations.get(address);
+        if (operation != null) {
+            guarded(operation, () -> handleProfileState(operation, profile, state, previous));
+        }
+    }
+
+    private void handleProfileState(Operation operation, String profile, int state, int previous) {
+        String address = operation.address;
+        switch (operation.step) {
+            case A2DP:
+                if (!PROFILE_A2DP.equals(profile)) {
+                    break;
+                }
+                if (state == BluetoothProfile.STATE_CONNECTED) {
+                    succeed(operation, "SUCCESS", PROFILE_A2DP);
+                } else if (state == BluetoothProfile.STATE_DISCONNECTED
+                        && previous == BluetoothProfile.STATE_CONNECTING) {
+                    Log.d(TAG, "A2DP nie połączył się, natychmiastowa próba HFP: " + address);
+                    tryHeadset(operation);
+                }
+                break;
+            case HFP:
+                if (!PROFILE_HFP.equals(profile)) {
+                    break;
+                }
+                if (state == BluetoothProfile.STATE_CONNECTED) {
+                    succeed(operation, "SUCCESS", PROFILE_HFP);
+                } else if (state == BluetoothProfile.STATE_DISCONNECTED
+                        && previous == BluetoothProfile.STATE_CONNECTING) {
+                    fail(operation, "CONNECT_FAILED", "Nie udało się połączyć przez A2DP ani HFP");
+                }
+                break;
+            case DISCONNECTING:
+                if (state == BluetoothProfile.STATE_DISCONNECTED) {
+                    checkDisconnected(operation);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Runs one step; a missing BLUETOOTH_CONNECT permission fails the
+     * operation instead of killing the profile thread.
+     */
+    private void guarded(Operation operation, Runnable step) {
+        try {
+            step.run();
+        } catch (SecurityException e) {
+            Log.e(TAG, "Brak uprawnień Bluetooth", e);
+            fail(operation, "PERMISSION_DENIED", e.getMessage());
+        }
+    }
+
+    private void succeed(Operation operation, String result, String profile) {
+        settle(operation, true, result, profile, null);
+    }
+
+    private void fail(Operation operation, String code, String message) {
+        settle(operation, false, code, null, message);
+    }
+
+    private void settle(Operation operation, boolean success, String result, String profile, String message) {
+        if (operation.settled) {
+            return;
+        }
+        operation.settled = true;
+        handler.removeCallbacks(operation.timeout);
+        if (operations.get(operation.address) == operation) {
+            operations.remove(operation.address);
+        }
+        long elapsed = SystemClock.elapsedRealtime() - operation.startedAt;
+        Log.d(TAG, (operation.connect ? "Połączenie " : "Rozłączenie ") + operation.address
+            + ": " + result + " po " + elapsed + " ms");
+        operation.callback.onComplete(operation.address, success, result, profile, message, elapsed);
+    }
+
+    private static Method resolve(Class<?> type, String name) {
+        try {
+            return type.getMethod(name, BluetoothDevice.class);
+        } catch (NoSuchMethodException e) {
+            Log.e(TAG, "Brak metody " + type.getSimpleName() + "." + name, e);
+            return null;
+        }
+    }
+
+    private static boolean invoke(Method method, BluetoothProfile proxy, BluetoothDevice device) {
+        if (method == null || proxy == null) {
+            return false;
+        }
+        try {
+            Object result = method.invoke(proxy, device);
+            return !(result instanceof Boolean) || (Boolean) result;
+        } catch (Exception e) {
+            Log.e(TAG, "Błąd wywołania " + method.getName(), e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.anonymous.ratownictwo;
+
+/**
+ * Hysteresis and debounce state for one colour stream.
+ *
+ * The stable colour is kept while the reading stays inside its widened
+ * (loose) tolerance. A different colour only becomes stable after it has been
+ * the strict match for {@code debounceSamples} readings in a row.
+ */
+final class ColorClassTracker {
+    static final int UNCHANGED = -2;
+
+    private int stable = ColorLookupTable.NO_MATCH;
+    private int candidate = ColorLookupTable.NO_MATCH;
+    private int candidateCount;
+
+    /**
+     * @return the new stable prototype index (or NO_MATCH) when it changed,
+     *         otherwise {@link #UNCHANGED}
+     */
+    int update(int strict, int looseMask, int debounceSamples) {
+        if (stable != ColorLookupTable.NO_MATCH && (looseMask & (1 << stable)) != 0) {
+            candidate = stable;
+            candidateCount = 0;
+            return UNCHANGED;
+        }
+
+        if (strict == stable) {
+            candidateCount = 0;
+            return UNCHANGED;
+        }
+
+        if (strict == candidate) {
+            candidateCount++;
+        } else {
+            candidate = strict;
+            candidateCount = 1;
+        }
+
+        if (candidateCount >= debounceSamples) {
+            stable = candidate;
+            candidateCount = 0;
+            return stable;
+        }
+        return UNCHANGED;
+    }
+
+    int getStable() {
+        return stable;
+    }
+
+    void reset() {
+        stable = ColorLookupTable.NO_MATCH;
+        candidate = ColorLookupTable.NO_MATCH;
+        candidateCount = 0;
+    }
+}
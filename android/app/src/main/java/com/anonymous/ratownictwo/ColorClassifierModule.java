@@ -0,0 +1,283 @@
+package com.anonymous.ratownictwo;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.module.annotations.ReactModule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Classifies colour readings against the examiner's colour configs.
+ *
+ * Takes the same config objects ColorConfigService loads (id, isEnabled,
+ * color, customColorRgb, colorTolerance) and compiles them into a
+ * ColorLookupTable. Readings coming from BleColorSensorModule are classified natively and JS
+ * only receives a "colorClassChanged" event when the stable colour changes.
+ * ColorClassifierService pushes the configs and ColorSensor follows the event.
+ */
+@ReactModule(name = ColorClassifierModule.NAME)
+public class ColorClassifierModule extends ReactContextBaseJavaModule {
+    public static final String NAME = "ColorClassifier";
+    private static final String TAG = "ColorClassifierModule";
+
+    private static final float DEFAULT_TOLERANCE = 0.15f;
+    private static final float DEFAULT_HYSTERESIS = 0.25f;
+    private static final int DEFAULT_DEBOUNCE_SAMPLES = 3;
+    private static final int DEFAULT_MIN_BRIGHTNESS = 100;
+
+    private final ReactApplicationContext reactContext;
+    private final ColorLookupTable table = new ColorLookupTable();
+    private final Map<String, ColorClassTracker> trackers = new HashMap<>();
+
+    private int debounceSamples = DEFAULT_DEBOUNCE_SAMPLES;
+    private long readings = 0;
+    private long changes = 0;
+
+    public ColorClassifierModule(ReactApplicationContext context) {
+        super(context);
+        this.reactContext = context;
+        this.table.setHysteresis(DEFAULT_HYSTERESIS);
+        this.table.setMinBrightness(DEFAULT_MIN_BRIGHTNESS);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Replaces all colour configs and rebuilds the whole table.
+     */
+    @ReactMethod
+    public void configure(ReadableArray configs, ReadableMap options, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("ColorClassifier.configure", jsPromise);
+        try {
+            int n = Math.min(configs.size(), ColorLookupTable.MAX_PROTOTYPES);
+            int[] ids = new int[n];
+            int[] r = new int[n];
+            int[] g = new int[n];
+            int[] b = new int[n];
+            float[] tolerance = new float[n];
+            boolean[] enabled = new boolean[n];
+
+            for (int i = 0; i < n; i++) {
+                ReadableMap config = configs.getMap(i);
+                ids[i] = config.getInt("id");
+                enabled[i] = !config.hasKey("isEnabled") || config.getBoolean("isEnabled");
+                tolerance[i] = readTolerance(config);
+                ReadableMap rgb = customRgb(config);
+                if (rgb != null) {
+                    r[i] = rgb.getInt("r");
+                    g[i] = rgb.getInt("g");
+                    b[i] = rgb.getInt("b");
+                } else {
+                    enabled[i] = false;
+                }
+            }
+
+            synchronized (table) {
+                if (options != null) {
+                    if (options.hasKey("hysteresis")) {
+                        table.setHysteresis((float) options.getDouble("hysteresis"));
+                    }
+                    if (options.hasKey("debounceSamples")) {
+                        debounceSamples = Math.max(1, options.getInt("debounceSamples"));
+                    }
+                    if (options.hasKey("minBrightness")) {
+                        table.setMinBrightness(options.getInt("minBrightness"));
+                    }
+                }
+                table.setAll(n, ids, r, g, b, tolerance, enabled);
+                for (ColorClassTracker tracker : trackers.values()) {
+                    tracker.reset();
+                }
+            }
+
+            if (configs.size() > n) {
+                Log.w(TAG, "Only the first " + n + " colour configs are classified");
+            }
+            promise.resolve(n);
+        } catch (Exception e) {
+            Log.e(TAG, "Error configuring classifier", e);
+            promise.reject("CONFIG_ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Inserts or replaces one colour config (e.g. a new calibration pushed by
+     * the examiner) and only re-evaluates the affected part of the table.
+     */
+    @ReactMethod
+    public void updateConfig(ReadableMap config, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("ColorClassifier.updateConfig", jsPromise);
+        try {
+            int id = config.getInt("id");
+            boolean enabled = !config.hasKey("isEnabled") || config.getBoolean("isEnabled");
+            int r = 0;
+            int g = 0;
+            int b = 0;
+            ReadableMap rgb = customRgb(config);
+            if (rgb != null) {
+                r = rgb.getInt("r");
+                g = rgb.getInt("g");
+                b = rgb.getInt("b");
+            } else {
+                enabled = false;
+            }
+
+            boolean updated;
+            synchronized (table) {
+                updated = table.update(id, r, g, b, readTolerance(config), enabled);
+            }
+            if (!updated) {
+                promise.reject("TABLE_FULL", "At most " + ColorLookupTable.MAX_PROTOTYPES + " colour configs are supported");
+                return;
+            }
+            promise.resolve(true);
+        } catch (Exception e) {
+            Log.e(TAG, "Error updating colour config", e);
+            promise.reject("CONFIG_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void classify(int r, int g, int b, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("ColorClassifier.classify", jsPromise);
+        int match;
+        int configId = 0;
+        synchronized (table) {
+            match = table.strictAt(table.cellOf(r, g, b));
+            if (match != ColorLookupTable.NO_MATCH) {
+                configId = table.getId(match);
+            }
+        }
+        if (match == ColorLookupTable.NO_MATCH) {
+            promise.resolve(null);
+        } else {
+            promise.resolve(configId);
+        }
+    }
+
+    @ReactMethod
+    public void getStats(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("ColorClassifier.getStats", jsPromise);
+        WritableMap stats = new WritableNativeMap();
+        synchronized (table) {
+            stats.putInt("configs", table.getCount());
+            stats.putInt("debounceSamples", debounceSamples);
+            stats.putDouble("readings", readings);
+            stats.putDouble("changes", changes);
+            stats.putDouble("cellsRebuilt", table.getCellsRebuilt());
+        }
+        promise.resolve(stats);
+    }
+
+    @ReactMethod
+    public void addListener(String eventName) {
+        // Required for NativeEventEmitter
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+        // Required for NativeEventEmitter
+    }
+
+    /**
+     * Feeds one decoded reading from a native sensor stream. Allocation-free
+     * unless the stable colour changes.
+     */
+    void onReading(String source, int r, int g, int b) {
+        int changed;
+        int configId = 0;
+        synchronized (table) {
+            readings++;
+            ColorClassTracker tracker = trackers.get(source);
+            if (tracker == null) {
+                tracker = new ColorClassTracker();
+                trackers.put(source, tracker);
+            }
+            int cell = table.cellOf(r, g, b);
+            changed = tracker.update(table.strictAt(cell), table.looseAt(cell), debounceSamples);
+            if (changed == ColorClassTracker.UNCHANGED) {
+                return;
+            }
+            changes++;
+            if (changed != ColorLookupTable.NO_MATCH) {
+                configId = table.getId(changed);
+            }
+        }
+
+        WritableMap params = new WritableNativeMap();
+        params.putString("source", source);
+        if (changed == ColorLookupTable.NO_MATCH) {
+            params.putNull("configId");
+        } else {
+            params.putInt("configId", configId);
+        }
+        params.putInt("r", r);
+        params.putInt("g", g);
+        params.putInt("b", b);
+        sendEvent("colorClassChanged", params);
+    }
+
+    void resetSource(String source) {
+        synchronized (table) {
+            ColorClassTracker tracker = trackers.get(source);
+            if (tracker != null) {
+                tracker.reset();
+            }
+        }
+    }
+
+    /**
+     * The target of a config whose colour is "custom", or null. A named
+     * colour is not matched by the customColorRgb it may still carry.
+     */
+    @Nullable
+    private static ReadableMap customRgb(ReadableMap config) {
+        boolean custom = config.hasKey("color") && !config.isNull("color")
+            && "custom".equals(config.getString("color"));
+        if (!custom || !config.hasKey("customColorRgb") || config.isNull("customColorRgb")) {
+            return null;
+        }
+        return config.getMap("customColorRgb");
+    }
+
+    private static float readTolerance(ReadableMap config) {
+        if (config.hasKey("colorTolerance") && !config.isNull("colorTolerance")) {
+            float tolerance = (float) config.getDouble("colorTolerance");
+            if (tolerance > 0f) {
+                return tolerance;
+            }
+        }
+        return DEFAULT_TOLERANCE;
+    }
+
+    private void sendEvent(String eventName, WritableMap params) {
+        // Held back while JS is suspended during a background session
+        if (SessionRuntime.get(reactContext).offer(eventName, params)) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, params);
+            NativeMetrics.get().recordEvent(eventName, started);
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending event", e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.anonymous.ratownictwo;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed chromaticity-to-colour-config lookup table.
+ *
+ * Matching in ColorSensor.tsx only depends on the channel ratios
+ * (r/sum, g/sum, b/sum) and a brightness gate, so the table is indexed by
+ * quantized (r/sum, g/sum) and b/sum is implied. Each cell stores the first
+ * enabled prototype within its tolerance (strict table) and a bitmask of all
+ * prototypes within the widened hysteresis tolerance (loose table).
+ *
+ * Classifying a reading is one integer index computation and two array reads.
+ */
+final class ColorLookupTable {
+    static final int MAX_PROTOTYPES = 31;
+    static final int NO_MATCH = -1;
+
+    private static final int STEPS = 128;
+    private static final int SCALE = STEPS - 1;
+
+    // Cell -> prototype index + 1 (0 means no match)
+    private final byte[] strictClass = new byte[STEPS * STEPS];
+    // Cell -> bitmask of prototypes within the hysteresis tolerance
+    private final int[] looseMask = new int[STEPS * STEPS];
+
+    private final int[] ids = new int[MAX_PROTOTYPES];
+    private final float[] chromaR = new float[MAX_PROTOTYPES];
+    private final float[] chromaG = new float[MAX_PROTOTYPES];
+    private final float[] chromaB = new float[MAX_PROTOTYPES];
+    private final float[] strictRadiusSq = new float[MAX_PROTOTYPES];
+    private final float[] looseRadiusSq = new float[MAX_PROTOTYPES];
+    private final float[] looseRadius = new float[MAX_PROTOTYPES];
+    private final boolean[] enabled = new boolean[MAX_PROTOTYPES];
+    private int count;
+
+    private float hysteresis = 0.25f;
+    private int minBrightness = 100;
+    private long cellsRebuilt;
+
+    int getCount() {
+        return count;
+    }
+
+    int getId(int index) {
+        return ids[index];
+    }
+
+    long getCellsRebuilt() {
+        return cellsRebuilt;
+    }
+
+    void setMinBrightness(int minBrightness) {
+        this.minBrightness = minBrightness;
+    }
+
+    void setHysteresis(float hysteresis) {
+        this.hysteresis = Math.max(0f, hysteresis);
+    }
+
+    /**
+     * Returns the cell index for a reading, or -1 when it is below the brightness gate.
+     */
+    int cellOf(int r, int g, int b) {
+        int sum = r + g + b;
+        if (sum < minBrightness || sum <= 0) {
+            return -1;
+        }
+        int ri = (int) ((long) r * SCALE / sum);
+        int gi = (int) ((long) g * SCALE / sum);
+        return ri * STEPS + gi;
+    }
+
+    /**
+     * Index of the first prototype matching the cell, or {@link #NO_MATCH}.
+     */
+    int strictAt(int cell) {
+        return cell < 0 ? NO_MATCH : strictClass[cell] - 1;
+    }
+
+    int looseAt(int cell) {
+        return cell < 0 ? 0 : looseMask[cell];
+    }
+
+    /**
+     * Replaces all prototypes and rebuilds the whole table.
+     */
+    void setAll(int n, int[] newIds, int[] rgbR, int[] rgbG, int[] rgbB, float[] tolerance, boolean[] isEnabled) {
+        count = Math.min(n, MAX_PROTOTYPES);
+        for (int i = 0; i < count; i++) {
+            store(i, newIds[i], rgbR[i], rgbG[i], rgbB[i], tolerance[i], isEnabled[i]);
+        }
+        rebuild(0, SCALE, 0, SCALE);
+    }
+
+    /**
+     * Inserts or replaces a single prototype and re-evaluates only the cells
+     * covered by its old and new tolerance discs.
+     *
+     * @return false when the table is full
+     */
+    boolean update(int id, int r, int g, int b, float tolerance, boolean isEnabled) {
+        int index = indexOf(id);
+        boolean hadDisc = false;
+        float oldR = 0f;
+        float oldG = 0f;
+        float oldRadius = 0f;
+        if (index < 0) {
+            if (count == MAX_PROTOTYPES) {
+                return false;
+            }
+            index = count++;
+        } else if (enabled[index]) {
+            hadDisc = true;
+            oldR = chromaR[index];
+            oldG = chromaG[index];
+            oldRadius = looseRadius[index];
+        }
+
+        store(index, id, r, g, b, tolerance, isEnabled);
+        if (hadDisc) {
+            rebuildDisc(oldR, oldG, oldRadius);
+        }
+        if (enabled[index]) {
+            rebuildDisc(chromaR[index], chromaG[index], looseRadius[index]);
+        }
+        return true;
+    }
+
+    int indexOf(int id) {
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void store(int index, int id, int r, int g, int b, float tolerance, boolean isEnabled) {
+        int sum = r + g + b;
+        ids[index] = id;
+        enabled[index] = isEnabled && sum > 0;
+        chromaR[index] = sum > 0 ? (float) r / sum : 0f;
+        chromaG[index] = sum > 0 ? (float) g / sum : 0f;
+        chromaB[index] = sum > 0 ? (float) b / sum : 0f;
+        strictRadiusSq[index] = tolerance * tolerance;
+        float loose = tolerance * (1f + hysteresis);
+        looseRadius[index] = loose;
+        looseRadiusSq[index] = loose * loose;
+    }
+
+    private void rebuildDisc(float centerR, float centerG, float radius) {
+        int minR = clamp((int) Math.floor((centerR - radius) * SCALE) - 1);
+        int maxR = clamp((int) Math.ceil((centerR + radius) * SCALE) + 1);
+        int minG = clamp((int) Math.floor((centerG - radius) * SCALE) - 1);
+        int maxG = clamp((int) Math.ceil((centerG + radius) * SCALE) + 1);
+        rebuild(minR, maxR, minG, maxG);
+    }
+
+    private void rebuild(int minR, int maxR, int minG, int maxG) {
+        for (int ri = minR; ri <= maxR; ri++) {
+            float cr = (ri + 0.5f) / SCALE;
+            int row = ri * STEPS;
+            for (int gi = minG; gi <= maxG; gi++) {
+                float cg = (gi + 0.5f) / SCALE;
+                float cb = 1f - cr - cg;
+                int cell = row + gi;
+
+                if (cb < -1f / SCALE) {
+                    // r/sum + g/sum > 1 cannot be produced by a reading
+                    strictClass[cell] = 0;
+                    looseMask[cell] = 0;
+                    continue;
+                }
+
+                int strict = 0;
+                int mask = 0;
+                for (int i = 0; i < count; i++) {
+                    if (!enabled[i]) {
+                        continue;
+                    }
+                    float dr = cr - chromaR[i];
+                    float dg = cg - chromaG[i];
+                    float db = cb - chromaB[i];
+                    float distSq = dr * dr + dg * dg + db * db;
+                    if (distSq <= looseRadiusSq[i]) {
+                        mask |= 1 << i;
+                        if (strict == 0 && distSq <= strictRadiusSq[i]) {
+                            strict = i + 1;
+                        }
+                    }
+                }
+                strictClass[cell] = (byte) strict;
+                looseMask[cell] = mask;
+            }
+        }
+        cellsRebuilt += (long) (maxR - minR + 1) * (maxG - minG + 1);
+    }
+
+    void clear() {
+        count = 0;
+        Arrays.fill(strictClass, (byte) 0);
+        Arrays.fill(looseMask, 0);
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(SCALE, value));
+    }
+}
@@ -0,0 +1,63 @@
+package com.anonymous.ratownictwo;
+
+/**
+ * Decodes the ESP32_RGB_DIST notification payload.
+ *
+ * The sensor sends three big-endian unsigned 16-bit channels (R, G, B).
+ * The filtering rules mirror the ones previously applied in
+ * useBleManagerNative.ts, so JS sees exactly the same readings.
+ */
+final class ColorPayloadDecoder {
+    static final int PAYLOAD_LENGTH = 6;
+
+    // Sensor sends 1000/1000/1000 when it has no valid reading
+    private static final int SENTINEL_VALUE = 1000;
+    // Flat readings in this range are the idle white LED reflection
+    private static final int IDLE_MIN = 400;
+    private static final int IDLE_MAX = 600;
+    private static final int IDLE_SPREAD = 10;
+    private static final int NOISE_FLOOR = 2;
+    static final int MIN_BRIGHTNESS = 20;
+
+    private ColorPayloadDecoder() {
+    }
+
+    /**
+     * Decodes {@code length} bytes of {@code payload} into {@code out[0..2]}.
+     *
+     * @return true when the reading is valid and should be forwarded
+     */
+    static boolean decode(byte[] payload, int length, int[] out) {
+        if (payload == null || length < PAYLOAD_LENGTH) {
+            return false;
+        }
+
+        int r = ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+        int g = ((payload[2] & 0xFF) << 8) | (payload[3] & 0xFF);
+        int b = ((payload[4] & 0xFF) << 8) | (payload[5] & 0xFF);
+
+        if (r == SENTINEL_VALUE && g == SENTINEL_VALUE && b == SENTINEL_VALUE) {
+            return false;
+        }
+
+        boolean allSimilar = Math.abs(r - g) < IDLE_SPREAD
+            && Math.abs(r - b) < IDLE_SPREAD
+            && Math.abs(g - b) < IDLE_SPREAD;
+        if (allSimilar && r > IDLE_MIN && r < IDLE_MAX) {
+            return false;
+        }
+
+        if (r < NOISE_FLOOR) r = 0;
+        if (g < NOISE_FLOOR) g = 0;
+        if (b < NOISE_FLOOR) b = 0;
+
+        if (r + g + b < MIN_BRIGHTNESS) {
+            return false;
+        }
+
+        out[0] = r;
+        out[1] = g;
+        out[2] = b;
+        return true;
+    }
+}
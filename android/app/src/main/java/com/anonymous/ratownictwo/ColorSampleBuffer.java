@@ -0,0 +1,77 @@
+package com.anonymous.ratownictwo;
+
+/**
+ * Fixed-size ring of decoded colour readings kept in primitive arrays.
+ *
+ * Written from the GATT callback thread and drained by the batch flush.
+ * When JS falls behind the oldest readings are overwritten and counted
+ * as dropped instead of growing the buffer.
+ */
+final class ColorSampleBuffer {
+    private final int capacity;
+    private final int[] red;
+    private final int[] green;
+    private final int[] blue;
+    private final long[] timestamps;
+
+    private int head;
+    private int size;
+    private long totalWritten;
+    private long totalDropped;
+
+    ColorSampleBuffer(int capacity) {
+        this.capacity = capacity;
+        this.red = new int[capacity];
+        this.green = new int[capacity];
+        this.blue = new int[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    synchronized void write(int r, int g, int b, long timestampMs) {
+        int index = (head + size) % capacity;
+        red[index] = r;
+        green[index] = g;
+        blue[index] = b;
+        timestamps[index] = timestampMs;
+
+        if (size == capacity) {
+            head = (head + 1) % capacity;
+            totalDropped++;
+        } else {
+            size++;
+        }
+        totalWritten++;
+    }
+
+    /**
+     * Moves up to {@code outR.length} readings into the given arrays, oldest first.
+     *
+     * @return number of readings copied
+     */
+    synchronized int drain(int[] outR, int[] outG, int[] outB, long[] outT) {
+        int count = Math.min(size, outR.length);
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) % capacity;
+            outR[i] = red[index];
+            outG[i] = green[index];
+            outB[i] = blue[index];
+            outT[i] = timestamps[index];
+        }
+        head = (head + count) % capacity;
+        size -= count;
+        return count;
+    }
+
+    synchronized void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    synchronized long getTotalWritten() {
+        return totalWritten;
+    }
+
+    synchronized long getTotalDropped() {
+        return totalDropped;
+    }
+}
@@ -0,0 +1,176 @@
+package com.anonymous.ratownictwo;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * Decodes a cue sound (wav/mp3) into interleaved 16-bit stereo PCM at the
+ * engine's output sample rate, so playback never has to resample or decode.
+ */
+final class CueSoundDecoder {
+    private static final long DEQUEUE_TIMEOUT_US = 10_000;
+    private static final String RAW_PREFIX = "raw:";
+
+    private CueSoundDecoder() {
+    }
+
+    /**
+     * @param source "raw:name" for res/raw, otherwise a file/content/http URI
+     *               as returned by Image.resolveAssetSource
+     */
+    static short[] decode(Context context, String source, int outputSampleRate) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try {
+            setDataSource(context, extractor, source);
+
+            int trackIndex = -1;
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat candidate = extractor.getTrackFormat(i);
+                String mime = candidate.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    trackIndex = i;
+                    format = candidate;
+                    break;
+                }
+            }
+            if (trackIndex < 0) {
+                throw new IOException("No audio track in " + source);
+            }
+
+            extractor.selectTrack(trackIndex);
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            ShortGrowBuffer pcm = new ShortGrowBuffer(sampleRate * channels);
+
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean inputDone = false;
+            boolean outputDone = false;
+            while (!outputDone) {
+                if (!inputDone) {
+                    int inIndex = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+                    if (inIndex >= 0) {
+                        ByteBuffer input = codec.getInputBuffer(inIndex);
+                        int size = extractor.readSampleData(input, 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inIndex, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outIndex = codec.dequeueOutputBuffer(info, DEQUEUE_TIMEOUT_US);
+                if (outIndex >= 0) {
+                    ByteBuffer output = codec.getOutputBuffer(outIndex);
+                    if (output != null && info.size > 0) {
+                        output.position(info.offset);
+                        output.limit(info.offset + info.size);
+                        pcm.append(output.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer());
+                    }
+                    codec.releaseOutputBuffer(outIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        outputDone = true;
+                    }
+                } else if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outFormat = codec.getOutputFormat();
+                    sampleRate = outFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                    channels = outFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                }
+            }
+
+            return toStereo(pcm.data, pcm.size, channels, sampleRate, outputSampleRate);
+        } finally {
+            if (codec != null) {
+                try {
+                    codec.stop();
+                } catch (IllegalStateException ignored) {
+                    // Already stopped after a failed configure
+                }
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+
+    private static void setDataSource(Context context, MediaExtractor extractor, String source) throws IOException {
+        if (source.startsWith(RAW_PREFIX)) {
+            String name = source.substring(RAW_PREFIX.length());
+            int resId = context.getResources().getIdentifier(name, "raw", context.getPackageName());
+            if (resId == 0) {
+                throw new IOException("Raw resource not found: " + name);
+            }
+            try (AssetFileDescriptor afd = context.getResources().openRawResourceFd(resId)) {
+                extractor.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+            }
+        } else if (source.startsWith("http://") || source.startsWith("https://")) {
+            // Metro serves assets over http in development builds
+            extractor.setDataSource(source);
+        } else {
+            extractor.setDataSource(context, Uri.parse(source), null);
+        }
+    }
+
+    /**
+     * Converts decoded PCM to interleaved stereo at the output rate using
+     * linear interpolation.
+     */
+    static short[] toStereo(short[] input, int samples, int channels, int inputRate, int outputRate) {
+        int inFrames = samples / channels;
+        long outFrames = (long) inFrames * outputRate / inputRate;
+        short[] out = new short[(int) outFrames * 2];
+        double step = (double) inputRate / outputRate;
+
+        for (int i = 0; i < outFrames; i++) {
+            double position = i * step;
+            int index = (int) position;
+            float fraction = (float) (position - index);
+            int next = Math.min(index + 1, inFrames - 1);
+
+            int left = index * channels;
+            int nextLeft = next * channels;
+            int right = channels > 1 ? left + 1 : left;
+            int nextRight = channels > 1 ? nextLeft + 1 : nextLeft;
+
+            out[i * 2] = (short) (input[left] + (input[nextLeft] - input[left]) * fraction);
+            out[i * 2 + 1] = (short) (input[right] + (input[nextRight] - input[right]) * fraction);
+        }
+        return out;
+    }
+
+    private static final class ShortGrowBuffer {
+        short[] data;
+        int size;
+
+        ShortGrowBuffer(int initialCapacity) {
+            data = new short[Math.max(initialCapacity, 1024)];
+        }
+
+        void append(ShortBuffer buffer) {
+            int count = buffer.remaining();
+            if (size + count > data.length) {
+                short[] grown = new short[Math.max(data.length * 2, size + count)];
+                System.arraycopy(data, 0, grown, 0, size);
+                data = grown;
+            }
+            buffer.get(data, size, count);
+            size += count;
+        }
+    }
+}
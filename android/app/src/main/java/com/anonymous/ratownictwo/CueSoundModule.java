@@ -0,0 +1,694 @@
+package com.anonymous.ratownictwo;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioDeviceCallback;
+import android.media.AudioDeviceInfo;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.module.annotations.ReactModule;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Low-latency cue sound engine.
+ *
+ * Cue sounds are decoded to PCM once and kept in a bounded CueSoundPool.
+ * A single mixer thread feeds a low-latency AudioTrack and mixes up to
+ * MAX_VOICES overlapping voices, so triggering a cue is just claiming a
+ * voice slot. The output device follows the route picked by BluetoothModule
+ * and trigger-to-first-sample latency is measured from AudioTrack timestamps.
+ * After IDLE_RELEASE_MS without a playing voice the track is released, so
+ * the audio route (and an A2DP link) is not held open by silence; the next
+ * cue starts it again.
+ */
+@ReactModule(name = CueSoundModule.NAME)
+public class CueSoundModule extends ReactContextBaseJavaModule {
+    public static final String NAME = "CueSound";
+    private static final String TAG = "CueSoundModule";
+
+    private static final int MAX_VOICES = 8;
+    private static final long POOL_BUDGET_BYTES = 32L * 1024 * 1024;
+    private static final int DEFAULT_SAMPLE_RATE = 48000;
+    private static final int DEFAULT_FRAMES_PER_BUFFER = 256;
+    private static final long IDLE_RELEASE_MS = 3000;
+
+    private static final class Voice {
+        CueSoundPool.Cue cue;
+        int id;
+        int position;
+        int gain;
+        boolean loop;
+        boolean active;
+        boolean paused;
+        long triggerNanos;
+        long startFrame;
+        long startWallNanos;
+        boolean latencyPending;
+    }
+
+    private final ReactApplicationContext reactContext;
+    private final CueSoundPool pool = new CueSoundPool(POOL_BUDGET_BYTES);
+    private final Voice[] voices = new Voice[MAX_VOICES];
+    // Started on first use, see loaderHandler()
+    private HandlerThread loaderThread;
+    private volatile Handler loaderHandler;
+    private final AudioTimestamp timestamp = new AudioTimestamp();
+
+    private AudioManager audioManager;
+    private int outputSampleRate = DEFAULT_SAMPLE_RATE;
+    private int framesPerBuffer = DEFAULT_FRAMES_PER_BUFFER;
+
+    // Released only by the mixer thread that plays it, once it stops
+    private volatile AudioTrack track;
+    private Thread mixerThread;
+    private volatile boolean running = false;
+    private int[] mixBuffer;
+    private short[] outBuffer;
+    private long framesWritten = 0;
+    private int nextVoiceId = 1;
+    private AudioDeviceInfo routedDevice;
+
+    private long latencyCount = 0;
+    private long latencySumNanos = 0;
+    private long latencyMaxNanos = 0;
+    private long latencyLastNanos = 0;
+    private long voicesStolen = 0;
+    private long underruns = 0;
+    private long idleReleases = 0;
+
+    private final AudioDeviceCallback deviceCallback = new AudioDeviceCallback() {
+        @Override
+        public void onAudioDevicesAdded(AudioDeviceInfo[] addedDevices) {
+            refreshRoute();
+        }
+
+        @Override
+        public void onAudioDevicesRemoved(AudioDeviceInfo[] removedDevices) {
+            refreshRoute();
+        }
+    };
+
+    public CueSoundModule(ReactApplicationContext context) {
+        super(context);
+        this.reactContext = context;
+        for (int i = 0; i < MAX_VOICES; i++) {
+            voices[i] = new Voice();
+        }
+    }
+
+    private Handler loaderHandler() {
+        Handler handler = loaderHandler;
+        if (handler != null) {
+            return handler;
+        }
+        synchronized (this) {
+            if (loaderHandler == null) {
+                loaderThread = new HandlerThread("CueSoundLoader");
+                loaderThread.start();
+                loaderHandler = new Handler(loaderThread.getLooper());
+            }
+            return loaderHandler;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Decodes a cue once and keeps it in the pool.
+     *
+     * @param source "raw:kaszel" for res/raw, or the uri from Image.resolveAssetSource
+     */
+    @ReactMethod
+    public void preload(String key, String source, Promise jsPromise) {
+        TimedPromise promise = TimedPromise.wrap("CueSound.preload", jsPromise);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Runnable task = () -> {
+            if (cancelled.get()) {
+                return;
+            }
+            try {
+                initOutputParams();
+                long start = System.nanoTime();
+                short[] pcm = CueSoundDecoder.decode(reactContext, source, outputSampleRate);
+                if (cancelled.get()) {
+                    // The caller gave up; do not take pool space for it
+                    return;
+                }
+                CueSoundPool.Cue cue = new CueSoundPool.Cue(key, pcm);
+                if (!pool.put(cue)) {
+                    promise.reject("POOL_FULL", "Cue " + key + " does not fit in the sound pool");
+                    return;
+                }
+
+                WritableMap result = new WritableNativeMap();
+                result.putString("key", key);
+                result.putInt("frames", cue.frames);
+                result.putDouble("durationMs", cue.frames * 1000.0 / outputSampleRate);
+                result.putDouble("bytes", cue.bytes());
+                result.putDouble("decodeMs", (System.nanoTime() - start) / 1_000_000.0);
+                promise.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Error decoding cue " + key, e);
+                promise.reject("DECODE_ERROR", e.getMessage());
+            }
+        };
+        // Drop the decode if it has not started; one under way skips the pool
+        promise.onCancel(() -> {
+            cancelled.set(true);
+            loaderHandler().removeCallbacks(task);
+        });
+        loaderHandler().post(task);
+    }
+
+    @ReactMethod
+    public void unload(String key, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("CueSound.unload", jsPromise);
+        synchronized (voices) {
+            for (Voice voice : voices) {
+                if (voice.active && voice.cue.key.equals(key)) {
+                    deactivate(voice);
+                }
+            }
+        }
+        pool.remove(key);
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void play(String key, ReadableMap options, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("CueSound.play", jsPromise);
+        long triggerNanos = System.nanoTime();
+        CueSoundPool.Cue cue = pool.get(key);
+        if (cue == null) {
+            promise.reject("NOT_LOADED", "Cue " + key + " is not preloaded");
+            return;
+        }
+
+        float volume = 1.0f;
+        boolean loop = false;
+        if (options != null) {
+            if (options.hasKey("volume")) {
+                volume = (float) options.getDouble("volume");
+            }
+            if (options.hasKey("loop")) {
+                loop = options.getBoolean("loop");
+            }
+        }
+
+        int voiceId;
+        // Held across start and claim so an idle release cannot slip in between
+        synchronized (this) {
+            try {
+                ensureRunning();
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting audio engine", e);
+                promise.reject("ENGINE_ERROR", e.getMessage());
+                return;
+            }
+
+            synchronized (voices) {
+                Voice voice = claimVoice();
+                voice.cue = cue;
+                voice.id = nextVoiceId++;
+                voice.position = 0;
+                voice.gain = Math.round(Math.max(0f, Math.min(1f, volume)) * 256);
+                voice.loop = loop;
+                voice.paused = false;
+                voice.triggerNanos = triggerNanos;
+                voice.startFrame = -1;
+                voice.latencyPending = true;
+                voice.active = true;
+                pool.retain(cue);
+                voiceId = voice.id;
+            }
+        }
+        promise.resolve(voiceId);
+    }
+
+    @ReactMethod
+    public void stop(int voiceId, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("CueSound.stop", jsPromise);
+        boolean stopped = false;
+        synchronized (voices) {
+            for (Voice voice : voices) {
+                if (voice.active && voice.id == voiceId) {
+                    deactivate(voice);
+                    stopped = true;
+                }
+            }
+        }
+        promise.resolve(stopped);
+    }
+
+    /**
+     * Holds a voice at its position. A paused voice does not keep the track
+     * open; resume starts it again if it was released meanwhile.
+     */
+    @ReactMethod
+    public void pause(int voiceId, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("CueSound.pause", jsPromise);
+        promise.resolve(setPaused(voiceId, true));
+    }
+
+    @ReactMethod
+    public void resume(int voiceId, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("CueSound.resume", jsPromise);
+        boolean resumed;
+        synchronized (this) {
+            try {
+                ensureRunning();
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting audio engine", e);
+                promise.reject("ENGINE_ERROR", e.getMessage());
+                return;
+            }
+            resumed = setPaused(voiceId, false);
+        }
+        promise.resolve(resumed);
+    }
+
+    @ReactMethod
+    public void stopAll(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("CueSound.stopAll", jsPromise);
+        synchronized (voices) {
+            for (Voice voice : voices) {
+                if (voice.active) {
+                    deactivate(voice);
+                }
+            }
+        }
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void getStats(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("CueSound.getStats", jsPromise);
+        WritableMap stats = new WritableNativeMap();
+        synchronized (voices) {
+            int active = 0;
+            for (Voice voice : voices) {
+                if (voice.active) active++;
+            }
+            stats.putInt("activeVoices", active);
+            stats.putInt("maxVoices", MAX_VOICES);
+            stats.putDouble("voicesStolen", voicesStolen);
+            stats.putDouble("latencySamples", latencyCount);
+            stats.putDouble("latencyLastMs", latencyLastNanos / 1_000_000.0);
+            stats.putDouble("latencyAvgMs", latencyCount > 0 ? latencySumNanos / (double) latencyCount / 1_000_000.0 : 0);
+            stats.putDouble("latencyMaxMs", latencyMaxNanos / 1_000_000.0);
+        }
+        stats.putBoolean("running", running);
+        stats.putDouble("idleReleases", idleReleases);
+        stats.putInt("sampleRate", outputSampleRate);
+        stats.putInt("framesPerBuffer", framesPerBuffer);
+        stats.putInt("cues", pool.size());
+        stats.putDouble("poolBytes", pool.getUsedBytes());
+        stats.putDouble("poolBudgetBytes", pool.getBudgetBytes());
+        stats.putDouble("poolEvictions", pool.getEvictions());
+        stats.putDouble("underruns", underruns);
+        AudioDeviceInfo device = routedDevice;
+        stats.putString("outputDevice", device != null ? String.valueOf(device.getProductName()) : "default");
+        promise.resolve(stats);
+    }
+
+    @ReactMethod
+    public void shutdown(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("CueSound.shutdown", jsPromise);
+        stopEngine();
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void addListener(String eventName) {
+        // Required for NativeEventEmitter
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+        // Required for NativeEventEmitter
+    }
+
+    @Override
+    public void invalidate() {
+        stopEngine();
+        pool.clear();
+        synchronized (this) {
+            if (loaderThread != null) {
+                loaderThread.quitSafely();
+            }
+        }
+        super.invalidate();
+    }
+
+    /**
+     * Re-applies the output route. Called by BluetoothModule after it changes
+     * the audio routing and whenever audio devices come or go.
+     */
+    void refreshRoute() {
+        AudioTrack current = track;
+        if (current == null) {
+            return;
+        }
+        AudioDeviceInfo device = pickOutputDevice();
+        routedDevice = device;
+        current.setPreferredDevice(device);
+        Log.d(TAG, "Cue output routed to " + (device != null ? device.getProductName() : "default"));
+    }
+
+    private AudioDeviceInfo pickOutputDevice() {
+        if (audioManager == null) {
+            return null;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            // Follow the communication device BluetoothModule selected
+            AudioDeviceInfo communication = audioManager.getCommunicationDevice();
+            if (communication != null && communication.getType() != AudioDeviceInfo.TYPE_BUILTIN_EARPIECE) {
+                return communication;
+            }
+        }
+
+        AudioDeviceInfo sco = null;
+        for (AudioDeviceInfo device : audioManager.getDevices(AudioManager.GET_DEVICES_OUTPUTS)) {
+            if (device.getType() == AudioDeviceInfo.TYPE_BLUETOOTH_A2DP) {
+                return device;
+            }
+            if (device.getType() == AudioDeviceInfo.TYPE_BLUETOOTH_SCO) {
+                sco = device;
+            }
+        }
+        return audioManager.isBluetoothScoOn() ? sco : null;
+    }
+
+    private synchronized void initOutputParams() {
+        if (audioManager != null) {
+            return;
+        }
+        audioManager = (AudioManager) reactContext.getSystemService(Context.AUDIO_SERVICE);
+        if (audioManager == null) {
+            return;
+        }
+        String rate = audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE);
+        String frames = audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER);
+        if (rate != null) {
+            outputSampleRate = Integer.parseInt(rate);
+        }
+        if (frames != null) {
+            framesPerBuffer = Integer.parseInt(frames);
+        }
+        audioManager.registerAudioDeviceCallback(deviceCallback, loaderHandler());
+    }
+
+    private synchronized void ensureRunning() {
+        if (running) {
+            return;
+        }
+        initOutputParams();
+
+        int minBytes = AudioTrack.getMinBufferSize(outputSampleRate,
+            AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT);
+        int bufferBytes = Math.max(minBytes, framesPerBuffer * 4 * 2);
+
+        AudioAttributes.Builder attributes = new AudioAttributes.Builder()
+            .setUsage(AudioAttributes.USAGE_GAME)
+            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            attributes.setFlags(AudioAttributes.FLAG_LOW_LATENCY);
+        }
+
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+            .setAudioAttributes(attributes.build())
+            .setAudioFormat(new AudioFormat.Builder()
+                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                .setSampleRate(outputSampleRate)
+                .setChannelMask(AudioFormat.CHANNEL_OUT_STEREO)
+                .build())
+            .setBufferSizeInBytes(bufferBytes)
+            .setTransferMode(AudioTrack.MODE_STREAM);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+
+        track = builder.build();
+        mixBuffer = new int[framesPerBuffer * 2];
+        outBuffer = new short[framesPerBuffer * 2];
+        framesWritten = 0;
+        refreshRoute();
+        track.play();
+
+        running = true;
+        mixerThread = new Thread(this::mixLoop, "CueSoundMixer");
+        mixerThread.start();
+        Log.d(TAG, "Audio engine started at " + outputSampleRate + " Hz, " + framesPerBuffer + " frames/buffer");
+    }
+
+    private synchronized void stopEngine() {
+        // After an idle release only paused voices and the callback remain
+        if (running) {
+            running = false;
+            track = null;
+            // The mixer releases its track on the way out
+            try {
+                mixerThread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            mixerThread = null;
+        }
+        synchronized (voices) {
+            for (Voice voice : voices) {
+                if (voice.active) {
+                    deactivate(voice);
+                }
+            }
+        }
+        if (audioManager != null) {
+            audioManager.unregisterAudioDeviceCallback(deviceCallback);
+            audioManager = null;
+        }
+    }
+
+    private void mixLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        AudioTrack out = track;
+        long idleSince = 0;
+        try {
+            // A stop, an idle release or a restart all take the track away from this loop
+            while (running && track == out) {
+                if (mix()) {
+                    idleSince = 0;
+                } else if (idleSince == 0) {
+                    idleSince = SystemClock.elapsedRealtime();
+                } else if (SystemClock.elapsedRealtime() - idleSince >= IDLE_RELEASE_MS && releaseIfIdle(out)) {
+                    break;
+                }
+                int written = out.write(outBuffer, 0, outBuffer.length);
+                if (written < 0) {
+                    Log.e(TAG, "AudioTrack write failed: " + written);
+                    break;
+                }
+                framesWritten += written / 2;
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                    underruns = out.getUnderrunCount();
+                }
+                resolveLatencies(out);
+            }
+        } finally {
+            synchronized (this) {
+                // Write failure: the engine must start over on the next cue
+                if (track == out) {
+                    running = false;
+                    track = null;
+                    mixerThread = null;
+                }
+            }
+            out.stop();
+            out.release();
+        }
+    }
+
+    /**
+     * Hands the track back from the mixer thread once nothing is playing;
+     * the mixer then releases it. Returns false when a cue arrived in the
+     * meantime.
+     */
+    private synchronized boolean releaseIfIdle(AudioTrack out) {
+        if (!running || track != out) {
+            // stopEngine already took over
+            return true;
+        }
+        synchronized (voices) {
+            for (Voice voice : voices) {
+                if (voice.active && !voice.paused) {
+                    return false;
+                }
+                // Frame positions restart with the next track
+                voice.latencyPending = false;
+            }
+        }
+        running = false;
+        track = null;
+        mixerThread = null;
+        idleReleases++;
+        Log.d(TAG, "Audio engine idle, track released");
+        return true;
+    }
+
+    /**
+     * @return true when at least one voice is playing
+     */
+    private boolean mix() {
+        Arrays.fill(mixBuffer, 0);
+        boolean playing = false;
+        synchronized (voices) {
+            for (Voice voice : voices) {
+                if (!voice.active || voice.paused) {
+                    continue;
+                }
+                playing = true;
+                if (voice.startFrame < 0) {
+                    voice.startFrame = framesWritten;
+                    voice.startWallNanos = System.nanoTime();
+                }
+
+                short[] pcm = voice.cue.pcm;
+                int offset = 0;
+                int needed = mixBuffer.length;
+                while (offset < needed && voice.active) {
+                    int available = pcm.length - voice.position;
+                    int count = Math.min(available, needed - offset);
+                    for (int i = 0; i < count; i++) {
+                        mixBuffer[offset + i] += (pcm[voice.position + i] * voice.gain) >> 8;
+                    }
+                    offset += count;
+                    voice.position += count;
+                    if (voice.position >= pcm.length) {
+                        if (voice.loop && pcm.length > 0) {
+                            voice.position = 0;
+                        } else {
+                            deactivate(voice);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < mixBuffer.length; i++) {
+            int sample = mixBuffer[i];
+            outBuffer[i] = (short) (sample > Short.MAX_VALUE ? Short.MAX_VALUE
+                : sample < Short.MIN_VALUE ? Short.MIN_VALUE : sample);
+        }
+        return playing;
+    }
+
+    private void resolveLatencies(AudioTrack out) {
+        boolean haveTimestamp = out.getTimestamp(timestamp);
+        synchronized (voices) {
+            for (Voice voice : voices) {
+                if (!voice.latencyPending || voice.startFrame < 0) {
+                    continue;
+                }
+
+                long presentNanos;
+                if (haveTimestamp && timestamp.framePosition >= voice.startFrame) {
+                    presentNanos = timestamp.nanoTime
+                        + (voice.startFrame - timestamp.framePosition) * 1_000_000_000L / outputSampleRate;
+                } else if (!haveTimestamp) {
+                    // No timestamp yet: estimate from the frames queued ahead of the voice
+                    long queued = voice.startFrame - (out.getPlaybackHeadPosition() & 0xFFFFFFFFL);
+                    presentNanos = voice.startWallNanos + Math.max(0, queued) * 1_000_000_000L / outputSampleRate;
+                } else {
+                    continue;
+                }
+
+                long latency = Math.max(0, presentNanos - voice.triggerNanos);
+                voice.latencyPending = false;
+                latencyCount++;
+                latencySumNanos += latency;
+                latencyLastNanos = latency;
+                if (latency > latencyMaxNanos) {
+                    latencyMaxNanos = latency;
+                }
+                sendLatencyEvent(voice.id, voice.cue.key, latency);
+            }
+        }
+    }
+
+    private boolean setPaused(int voiceId, boolean paused) {
+        synchronized (voices) {
+            for (Voice voice : voices) {
+                if (voice.active && voice.id == voiceId) {
+                    voice.paused = paused;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Voice claimVoice() {
+        Voice oldest = voices[0];
+        for (Voice voice : voices) {
+            if (!voice.active) {
+                return voice;
+            }
+            if (voice.triggerNanos < oldest.triggerNanos) {
+                oldest = voice;
+            }
+        }
+        voicesStolen++;
+        deactivate(oldest);
+        return oldest;
+    }
+
+    private void deactivate(Voice voice) {
+        voice.active = false;
+        pool.release(voice.cue);
+    }
+
+    private void sendLatencyEvent(int voiceId, String key, long latencyNanos) {
+        WritableMap params = new WritableNativeMap();
+        params.putInt("voiceId", voiceId);
+        params.putString("key", key);
+        params.putDouble("latencyMs", latencyNanos / 1_000_000.0);
+        sendEvent("cueStarted", params);
+    }
+
+    private void sendEvent(String eventName, WritableMap params) {
+        // Held back while JS is suspended during a background session
+        if (SessionRuntime.get(reactContext).offer(eventName, params)) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, params);
+            NativeMetrics.get().recordEvent(eventName, started);
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending event", e);
+        }
+    }
+}
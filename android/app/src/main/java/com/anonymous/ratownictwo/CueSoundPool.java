@@ -0,0 +1,124 @@
+package com.anonymous.ratownictwo;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded cue sounds kept in memory up to a fixed byte budget.
+ *
+ * Entries are kept in access order; when the budget is exceeded the least
+ * recently played cues that are not currently sounding are evicted.
+ */
+final class CueSoundPool {
+    static final class Cue {
+        final String key;
+        final short[] pcm;
+        final int frames;
+        int playing;
+
+        Cue(String key, short[] pcm) {
+            this.key = key;
+            this.pcm = pcm;
+            this.frames = pcm.length / 2;
+        }
+
+        long bytes() {
+            return pcm.length * 2L;
+        }
+    }
+
+    private final long budgetBytes;
+    private final LinkedHashMap<String, Cue> cues = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    private long evictions;
+
+    CueSoundPool(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    synchronized Cue get(String key) {
+        return cues.get(key);
+    }
+
+    synchronized boolean contains(String key) {
+        return cues.containsKey(key);
+    }
+
+    /**
+     * Replaces any cue with the same key. Nothing is replaced or evicted
+     * when the new cue would not fit, so a failed reload keeps the old one.
+     *
+     * @return false when the cue does not fit even after evicting idle cues
+     */
+    synchronized boolean put(Cue cue) {
+        // Iterated rather than looked up, which would reorder the access order
+        Cue previous = null;
+        long pinned = 0;
+        for (Cue existing : cues.values()) {
+            if (existing.key.equals(cue.key)) {
+                // Freed even while it plays; its player holds on to it
+                previous = existing;
+            } else if (existing.playing > 0) {
+                pinned += existing.bytes();
+            }
+        }
+        if (pinned + cue.bytes() > budgetBytes) {
+            return false;
+        }
+
+        if (previous != null) {
+            cues.remove(cue.key);
+            usedBytes -= previous.bytes();
+        }
+        Iterator<Map.Entry<String, Cue>> it = cues.entrySet().iterator();
+        while (usedBytes + cue.bytes() > budgetBytes && it.hasNext()) {
+            Cue candidate = it.next().getValue();
+            if (candidate.playing == 0) {
+                usedBytes -= candidate.bytes();
+                it.remove();
+                evictions++;
+            }
+        }
+
+        cues.put(cue.key, cue);
+        usedBytes += cue.bytes();
+        return true;
+    }
+
+    synchronized void retain(Cue cue) {
+        cue.playing++;
+    }
+
+    synchronized void release(Cue cue) {
+        cue.playing--;
+    }
+
+    synchronized void remove(String key) {
+        Cue cue = cues.remove(key);
+        if (cue != null) {
+            usedBytes -= cue.bytes();
+        }
+    }
+
+    synchronized void clear() {
+        cues.clear();
+        usedBytes = 0;
+    }
+
+    synchronized int size() {
+        return cues.size();
+    }
+
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,176 @@
+package com.anonymous.ratownictwo;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memory-mapped reader for ekg_rhythms.ekgb, generated at build time from
+ * assets/heart_beat_data by the generateEkgBinary Gradle task.
+ *
+ * Layout (little-endian):
+ * <pre>
+ *   "EKGB" | u16 version | u16 count
+ *   count x { u16 nameLength | utf-8 name | u32 offset | u32 length }
+ *   per rhythm at offset:
+ *     f64 sampleRate | i32 periodCount | f64 midpoint | i32 points
+ *     i32 timeScale | i32 valueScale
+ *     points x varint timestamps | points x varint values
+ * </pre>
+ * Each series is quantised to fixed-point integers (value x scale, rounded)
+ * and stored as zigzag varints of the difference between consecutive
+ * integers. The scale is finer than the float precision EkgRhythm keeps.
+ * Rhythms are only decoded when first opened by name.
+ */
+final class EkgBinaryReader {
+    static final String ASSET_NAME = "ekg_rhythms.ekgb";
+    private static final int MAGIC = 0x42474B45; // "EKGB" read little-endian
+    private static final int VERSION = 2;
+
+    private final ByteBuffer data;
+    private final Map<String, int[]> index;
+    private final Map<String, EkgRhythm> opened = new ConcurrentHashMap<>();
+    private final long openNanos;
+    private final long mappedBytes;
+
+    private EkgBinaryReader(ByteBuffer data, Map<String, int[]> index, long openNanos) {
+        this.data = data;
+        this.index = index;
+        this.openNanos = openNanos;
+        this.mappedBytes = data.capacity();
+    }
+
+    /**
+     * Maps the bundled asset. The asset is stored uncompressed (noCompress
+     * "ekgb" in build.gradle), so it can be mapped straight from the APK.
+     */
+    static EkgBinaryReader open(Context context) throws IOException {
+        long start = System.nanoTime();
+        try (AssetFileDescriptor afd = context.getAssets().openFd(ASSET_NAME);
+             FileInputStream stream = new FileInputStream(afd.getFileDescriptor());
+             FileChannel channel = stream.getChannel()) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                afd.getStartOffset(), afd.getLength());
+            return fromBuffer(mapped, start);
+        }
+    }
+
+    static EkgBinaryReader fromBuffer(ByteBuffer buffer, long startNanos) throws IOException {
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (data.getInt(0) != MAGIC) {
+            throw new IOException("Not an EKG rhythm bundle");
+        }
+        int version = data.getShort(4) & 0xFFFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported EKG bundle version " + version);
+        }
+
+        int count = data.getShort(6) & 0xFFFF;
+        Map<String, int[]> index = new HashMap<>(count * 2);
+        int position = 8;
+        for (int i = 0; i < count; i++) {
+            int nameLength = data.getShort(position) & 0xFFFF;
+            position += 2;
+            byte[] name = new byte[nameLength];
+            for (int j = 0; j < nameLength; j++) {
+                name[j] = data.get(position + j);
+            }
+            position += nameLength;
+            int offset = data.getInt(position);
+            int length = data.getInt(position + 4);
+            position += 8;
+            index.put(new String(name, StandardCharsets.UTF_8), new int[]{offset, length});
+        }
+        return new EkgBinaryReader(data, index, System.nanoTime() - startNanos);
+    }
+
+    Set<String> getNames() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    long getOpenNanos() {
+        return openNanos;
+    }
+
+    long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    int getOpenedCount() {
+        return opened.size();
+    }
+
+    /**
+     * Decodes a rhythm on first use, or returns null when it is not bundled.
+     */
+    EkgRhythm openRhythm(String name) {
+        EkgRhythm rhythm = opened.get(name);
+        if (rhythm != null) {
+            return rhythm;
+        }
+        int[] entry = index.get(name);
+        if (entry == null) {
+            return null;
+        }
+
+        ByteBuffer block = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        block.position(entry[0]);
+        float sampleRate = (float) block.getDouble();
+        int periodCount = block.getInt();
+        float midpoint = (float) block.getDouble();
+        int points = block.getInt();
+        int timeScale = block.getInt();
+        int valueScale = block.getInt();
+
+        float[] t = new float[points];
+        float[] v = new float[points];
+        readDeltas(block, timeScale, t);
+        readDeltas(block, valueScale, v);
+
+        rhythm = new EkgRhythm(name, sampleRate, periodCount, midpoint, t, v, points);
+        opened.put(name, rhythm);
+        return rhythm;
+    }
+
+    /**
+     * Decodes one delta-encoded fixed-point series back to floats.
+     */
+    static void readDeltas(ByteBuffer in, int scale, float[] out) {
+        long previous = 0;
+        for (int i = 0; i < out.length; i++) {
+            long zigzag = readVarint(in);
+            long delta = (zigzag >>> 1) ^ -(zigzag & 1);
+            previous += delta;
+            out[i] = (float) (previous / (double) scale);
+        }
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+}
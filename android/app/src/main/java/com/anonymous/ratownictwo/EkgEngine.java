@@ -0,0 +1,177 @@
+package com.anonymous.ratownictwo;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates EKG samples on its own clock and pushes them into sample rings.
+ *
+ * The engine thread decides how many samples are due from the elapsed
+ * monotonic time, so the output rate stays steady no matter how busy the JS
+ * or UI threads are. The samples themselves come from EkgSynthesizer, which
+ * handles retiming, noise and crossfaded rhythm switches without allocating.
+ */
+final class EkgEngine {
+    static final int DEFAULT_SAMPLE_RATE = 250;
+    static final float DEFAULT_BPM = 72f;
+    private static final int CHUNK_SAMPLES = 10;
+    private static final int MAX_CATCH_UP_SAMPLES = 250;
+
+    private final int sampleRate;
+    private final float[] chunk = new float[MAX_CATCH_UP_SAMPLES];
+    private final EkgSynthesizer synthesizer;
+
+    private volatile EkgSampleRing[] sinks = new EkgSampleRing[0];
+    private volatile boolean running = false;
+    private Thread thread;
+
+    private volatile long generated = 0;
+    private volatile long lateTicks = 0;
+    private volatile long maxLatenessNanos = 0;
+
+    EkgEngine(int sampleRate) {
+        this.sampleRate = sampleRate;
+        this.synthesizer = new EkgSynthesizer(sampleRate);
+    }
+
+    int getSampleRate() {
+        return sampleRate;
+    }
+
+    EkgSynthesizer getSynthesizer() {
+        return synthesizer;
+    }
+
+    void setRhythm(EkgRhythm rhythm) {
+        synthesizer.setRhythm(rhythm);
+    }
+
+    void setBpm(float bpm) {
+        synthesizer.setBpm(bpm);
+    }
+
+    float getBpm() {
+        return synthesizer.getBpm();
+    }
+
+    synchronized void addSink(EkgSampleRing ring) {
+        EkgSampleRing[] current = sinks;
+        EkgSampleRing[] next = new EkgSampleRing[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = ring;
+        sinks = next;
+    }
+
+    EkgSampleRing[] getSinks() {
+        return sinks;
+    }
+
+    synchronized void removeSink(EkgSampleRing ring) {
+        EkgSampleRing[] current = sinks;
+        int index = -1;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == ring) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return;
+        }
+        EkgSampleRing[] next = new EkgSampleRing[current.length - 1];
+        System.arraycopy(current, 0, next, 0, index);
+        System.arraycopy(current, index + 1, next, index, current.length - index - 1);
+        sinks = next;
+    }
+
+    synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "EkgEngine");
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    long getGenerated() {
+        return generated;
+    }
+
+    long getLateTicks() {
+        return lateTicks;
+    }
+
+    long getMaxLatenessNanos() {
+        return maxLatenessNanos;
+    }
+
+    /**
+     * Fills {@code out} with the next {@code count} samples. Only called from
+     * the engine thread (or directly by a caller that drives its own clock).
+     */
+    void generate(float[] out, int count) {
+        synthesizer.render(out, count);
+    }
+
+    private void run() {
+        long tickNanos = CHUNK_SAMPLES * 1_000_000_000L / sampleRate;
+        long startNanos = System.nanoTime();
+        long produced = 0;
+        long nextTick = startNanos + tickNanos;
+
+        while (running) {
+            long now = System.nanoTime();
+            long due = (now - startNanos) * sampleRate / 1_000_000_000L - produced;
+
+            if (due > MAX_CATCH_UP_SAMPLES) {
+                // The thread was suspended for a long time; skip ahead instead of bursting
+                produced += due - MAX_CATCH_UP_SAMPLES;
+                due = MAX_CATCH_UP_SAMPLES;
+            }
+
+            if (due > 0) {
+                int count = (int) due;
+                generate(chunk, count);
+                EkgSampleRing[] targets = sinks;
+                for (EkgSampleRing ring : targets) {
+                    ring.write(chunk, 0, count);
+                }
+                produced += count;
+                generated += count;
+            }
+
+            long lateness = now - nextTick;
+            if (lateness > tickNanos) {
+                lateTicks++;
+                if (lateness > maxLatenessNanos) {
+                    maxLatenessNanos = lateness;
+                }
+                nextTick = now + tickNanos;
+            } else {
+                nextTick += tickNanos;
+            }
+
+            long sleep = nextTick - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+            }
+        }
+    }
+}
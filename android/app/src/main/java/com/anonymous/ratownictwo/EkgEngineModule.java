@@ -0,0 +1,337 @@
+package com.anonymous.ratownictwo;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.module.annotations.ReactModule;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Native EKG sample engine.
+ *
+ * Rhythms are loaded once into primitive float tables (EkgRhythm) and
+ * EkgEngine generates samples on its own clock into a lock-free ring.
+ * JS pulls fixed-size blocks with pullBlock; native consumers can attach
+ * their own ring through {@link #getEngine()}.
+ *
+ * Bundled rhythms come from the memory-mapped ekg_rhythms.ekgb asset and are
+ * decoded lazily the first time they are selected, so JS does not need to
+ * parse or pass the heart_beat_data JSON.
+ *
+ * Heart rate changes retime the recorded beats instead of stretching the
+ * whole loop, and noise (setNoise) is synthesised natively, so the JS noise
+ * timer is not needed while the engine is in use.
+ */
+@ReactModule(name = EkgEngineModule.NAME)
+public class EkgEngineModule extends ReactContextBaseJavaModule {
+    public static final String NAME = "EkgEngine";
+    private static final String TAG = "EkgEngineModule";
+    private static final int JS_RING_CAPACITY = 4096;
+    private static final int MAX_BLOCK_SIZE = 1024;
+
+    private final Map<String, EkgRhythm> rhythms = new ConcurrentHashMap<>();
+    private final EkgSampleRing jsRing = new EkgSampleRing(JS_RING_CAPACITY);
+    private final float[] blockBuffer = new float[MAX_BLOCK_SIZE];
+    private final ReactApplicationContext reactContext;
+    private EkgBinaryReader bundle;
+    private volatile EkgEngine engine = new EkgEngine(EkgEngine.DEFAULT_SAMPLE_RATE);
+    private String currentRhythm;
+
+    public EkgEngineModule(ReactApplicationContext context) {
+        super(context);
+        this.reactContext = context;
+        engine.addSink(jsRing);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Loads one rhythm in the heart_beat_data JSON shape
+     * ({sample_rate, period_count, timestamps, amplitudes|values, midpoint}).
+     */
+    @ReactMethod
+    public void loadRhythm(String name, ReadableMap data, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EkgEngine.loadRhythm", jsPromise);
+        try {
+            ReadableArray timestamps = data.getArray("timestamps");
+            ReadableArray values = data.hasKey("amplitudes") ? data.getArray("amplitudes") : data.getArray("values");
+            if (timestamps == null || values == null) {
+                promise.reject("INVALID_DATA", "Rhythm " + name + " has no timestamps or values");
+                return;
+            }
+
+            int length = Math.min(timestamps.size(), values.size());
+            float[] t = new float[length];
+            float[] v = new float[length];
+            for (int i = 0; i < length; i++) {
+                t[i] = (float) timestamps.getDouble(i);
+                v[i] = (float) values.getDouble(i);
+            }
+
+            float sampleRate = data.hasKey("sample_rate") ? (float) data.getDouble("sample_rate") : 0f;
+            int periodCount = data.hasKey("period_count") ? data.getInt("period_count") : 1;
+            float midpoint = data.hasKey("midpoint") && !data.isNull("midpoint")
+                ? (float) data.getDouble("midpoint") : EkgRhythm.DEFAULT_MIDPOINT;
+
+            rhythms.put(name, new EkgRhythm(name, sampleRate, periodCount, midpoint, t, v, length));
+            promise.resolve(length);
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading rhythm " + name, e);
+            promise.reject("LOAD_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void start(ReadableMap options, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EkgEngine.start", jsPromise);
+        try {
+            if (options != null) {
+                if (options.hasKey("sampleRate") && options.getInt("sampleRate") != engine.getSampleRate()) {
+                    recreateEngine(options.getInt("sampleRate"));
+                }
+                if (options.hasKey("bpm")) {
+                    engine.setBpm((float) options.getDouble("bpm"));
+                }
+                if (options.hasKey("rhythm") && !options.isNull("rhythm")) {
+                    applyRhythm(options.getString("rhythm"));
+                }
+                if (options.hasKey("noise") && !options.isNull("noise")) {
+                    engine.getSynthesizer().setNoise(readNoise(options.getMap("noise")));
+                }
+                if (options.hasKey("retiming")) {
+                    engine.getSynthesizer().setRetiming(options.getBoolean("retiming"));
+                }
+            }
+            engine.start();
+            promise.resolve(engine.getSampleRate());
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting EKG engine", e);
+            promise.reject("ENGINE_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void stop(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EkgEngine.stop", jsPromise);
+        engine.stop();
+        promise.resolve(true);
+    }
+
+    /**
+     * Switches rhythm; null or an unknown "asystolia" gives a flat line.
+     */
+    @ReactMethod
+    public void setRhythm(String name, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EkgEngine.setRhythm", jsPromise);
+        if (name != null && getRhythm(name) == null && !"asystolia".equals(name)) {
+            promise.reject("UNKNOWN_RHYTHM", "Rhythm " + name + " is not loaded");
+            return;
+        }
+        applyRhythm(name);
+        promise.resolve(true);
+    }
+
+    /**
+     * Opens the bundled rhythm file (if not open yet) and reports how long the
+     * open took and how many bytes are mapped.
+     */
+    @ReactMethod
+    public void getBundleInfo(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EkgEngine.getBundleInfo", jsPromise);
+        try {
+            EkgBinaryReader reader = openBundle();
+            WritableMap info = new WritableNativeMap();
+            info.putDouble("openMs", reader.getOpenNanos() / 1_000_000.0);
+            info.putDouble("mappedBytes", reader.getMappedBytes());
+            info.putInt("rhythms", reader.getNames().size());
+            info.putInt("decodedRhythms", reader.getOpenedCount());
+            WritableArray names = new WritableNativeArray();
+            for (String name : reader.getNames()) {
+                names.pushString(name);
+            }
+            info.putArray("names", names);
+            promise.resolve(info);
+        } catch (Exception e) {
+            Log.e(TAG, "Error opening EKG bundle", e);
+            promise.reject("BUNDLE_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void setBpm(double bpm) {
+        long started = System.nanoTime();
+        try {
+            engine.setBpm((float) bpm);
+        } finally {
+            NativeMetrics.get().recordMethod("EkgEngine.setBpm", started);
+        }
+    }
+
+    /**
+     * Sets the noise mix. Takes the EkgConfig noise fields
+     * ({noiseType, noiseAmplitude, baselineWanderAmplitude,
+     * muscleArtifactProbability}) plus optional mainsAmplitude and
+     * mainsFrequency; explicit fields override the noiseType preset.
+     */
+    @ReactMethod
+    public void setNoise(ReadableMap config, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EkgEngine.setNoise", jsPromise);
+        try {
+            EkgNoiseProfile profile = readNoise(config);
+            engine.getSynthesizer().setNoise(profile);
+            promise.resolve(profile.type);
+        } catch (Exception e) {
+            Log.e(TAG, "Error setting EKG noise", e);
+            promise.reject("INVALID_NOISE", e.getMessage());
+        }
+    }
+
+    /**
+     * Turns beat retiming on or off; off stretches the whole loop linearly.
+     */
+    @ReactMethod
+    public void setRetiming(boolean enabled) {
+        long started = System.nanoTime();
+        try {
+            engine.getSynthesizer().setRetiming(enabled);
+        } finally {
+            NativeMetrics.get().recordMethod("EkgEngine.setRetiming", started);
+        }
+    }
+
+    /**
+     * Returns exactly {@code blockSize} samples, or an empty array when a full
+     * block is not ready yet.
+     */
+    @ReactMethod
+    public void pullBlock(int blockSize, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EkgEngine.pullBlock", jsPromise);
+        int size = Math.max(1, Math.min(blockSize, MAX_BLOCK_SIZE));
+        WritableArray samples = new WritableNativeArray();
+        synchronized (blockBuffer) {
+            if (jsRing.available() >= size) {
+                int read = jsRing.read(blockBuffer, 0, size);
+                for (int i = 0; i < read; i++) {
+                    samples.pushDouble(blockBuffer[i]);
+                }
+            }
+        }
+        promise.resolve(samples);
+    }
+
+    @ReactMethod
+    public void getStats(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EkgEngine.getStats", jsPromise);
+        WritableMap stats = new WritableNativeMap();
+        stats.putBoolean("running", engine.isRunning());
+        stats.putInt("sampleRate", engine.getSampleRate());
+        stats.putDouble("bpm", engine.getBpm());
+        stats.putDouble("currentBpm", engine.getSynthesizer().getCurrentBpm());
+        stats.putInt("noiseType", engine.getSynthesizer().getNoise().type);
+        stats.putBoolean("retiming", engine.getSynthesizer().isRetiming());
+        stats.putString("rhythm", currentRhythm);
+        stats.putInt("loadedRhythms", rhythms.size());
+        stats.putDouble("generated", engine.getGenerated());
+        stats.putDouble("lateTicks", engine.getLateTicks());
+        stats.putDouble("maxLatenessMs", engine.getMaxLatenessNanos() / 1_000_000.0);
+        stats.putInt("buffered", jsRing.available());
+        stats.putDouble("overruns", jsRing.getOverruns());
+        promise.resolve(stats);
+    }
+
+    @Override
+    public void invalidate() {
+        engine.stop();
+        super.invalidate();
+    }
+
+    /**
+     * Engine shared with native consumers such as the vitals monitor view.
+     */
+    synchronized EkgEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Rhythm loaded from JS, or decoded on first use from the bundled file.
+     */
+    EkgRhythm getRhythm(String name) {
+        if (name == null) {
+            return null;
+        }
+        EkgRhythm rhythm = rhythms.get(name);
+        if (rhythm != null) {
+            return rhythm;
+        }
+        try {
+            EkgBinaryReader reader = openBundle();
+            return reader.openRhythm(name);
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading bundled rhythm " + name, e);
+            return null;
+        }
+    }
+
+    private synchronized EkgBinaryReader openBundle() throws IOException {
+        if (bundle == null) {
+            bundle = EkgBinaryReader.open(reactContext);
+            Log.d(TAG, "Mapped " + bundle.getMappedBytes() + " bytes of EKG data in "
+                + bundle.getOpenNanos() / 1000 + " us");
+        }
+        return bundle;
+    }
+
+    private void applyRhythm(String name) {
+        currentRhythm = name;
+        engine.setRhythm(getRhythm(name));
+    }
+
+    private static EkgNoiseProfile readNoise(ReadableMap config) {
+        int type = config.hasKey("noiseType") ? config.getInt("noiseType") : EkgNoiseProfile.CUSTOM;
+        EkgNoiseProfile preset = EkgNoiseProfile.preset(type);
+        return new EkgNoiseProfile(type,
+            readFloat(config, "noiseAmplitude", preset.noiseAmplitude),
+            readFloat(config, "baselineWanderAmplitude", preset.baselineWanderAmplitude),
+            readFloat(config, "muscleArtifactProbability", preset.muscleArtifactProbability),
+            readFloat(config, "mainsAmplitude", preset.mainsAmplitude),
+            readFloat(config, "mainsFrequency", preset.mainsFrequency));
+    }
+
+    private static float readFloat(ReadableMap map, String key, float fallback) {
+        return map.hasKey(key) && !map.isNull(key) ? (float) map.getDouble(key) : fallback;
+    }
+
+    private synchronized void recreateEngine(int sampleRate) {
+        EkgEngine previous = engine;
+        boolean wasRunning = previous.isRunning();
+        EkgSynthesizer old = previous.getSynthesizer();
+        previous.stop();
+        engine = new EkgEngine(sampleRate);
+        engine.setBpm(old.getBpm());
+        engine.getSynthesizer().setNoise(old.getNoise());
+        engine.getSynthesizer().setRetiming(old.isRetiming());
+        engine.setRhythm(getRhythm(currentRhythm));
+        // Keep native consumers such as monitor views attached
+        for (EkgSampleRing ring : previous.getSinks()) {
+            engine.addSink(ring);
+        }
+        if (wasRunning) {
+            engine.start();
+        }
+    }
+}
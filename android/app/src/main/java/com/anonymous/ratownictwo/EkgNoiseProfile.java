@@ -0,0 +1,56 @@
+package com.anonymous.ratownictwo;
+
+/**
+ * Noise settings for EkgSynthesizer, in the same units as the EkgConfig noise
+ * fields in services/EkgFactory.ts (pixels around the 150 baseline).
+ *
+ * muscleArtifactProbability is the chance that a muscle burst starts in any
+ * 50 ms window, so the JS presets map to roughly 0.2 / 0.6 / 1.6 bursts per
+ * second instead of single-sample spikes.
+ */
+final class EkgNoiseProfile {
+    // Same ordinals as NoiseType in services/EkgFactory.ts
+    static final int NONE = 0;
+    static final int MILD = 1;
+    static final int MODERATE = 2;
+    static final int SEVERE = 3;
+    static final int CUSTOM = 4;
+
+    static final float DEFAULT_MAINS_FREQUENCY = 50f;
+
+    static final EkgNoiseProfile SILENT = new EkgNoiseProfile(NONE, 0f, 0f, 0f, 0f, DEFAULT_MAINS_FREQUENCY);
+
+    final int type;
+    final float noiseAmplitude;
+    final float baselineWanderAmplitude;
+    final float muscleArtifactProbability;
+    final float mainsAmplitude;
+    final float mainsFrequency;
+
+    EkgNoiseProfile(int type, float noiseAmplitude, float baselineWanderAmplitude,
+                    float muscleArtifactProbability, float mainsAmplitude, float mainsFrequency) {
+        this.type = type;
+        this.noiseAmplitude = Math.max(0f, noiseAmplitude);
+        this.baselineWanderAmplitude = Math.max(0f, baselineWanderAmplitude);
+        this.muscleArtifactProbability = Math.max(0f, Math.min(1f, muscleArtifactProbability));
+        this.mainsAmplitude = Math.max(0f, mainsAmplitude);
+        this.mainsFrequency = mainsFrequency > 0f ? mainsFrequency : DEFAULT_MAINS_FREQUENCY;
+    }
+
+    /**
+     * Preset matching EkgFactory.getNoiseConfig, plus a little mains hum.
+     */
+    static EkgNoiseProfile preset(int type) {
+        switch (type) {
+            case MILD:
+                return new EkgNoiseProfile(MILD, 1.0f, 3.0f, 0.01f, 0.5f, DEFAULT_MAINS_FREQUENCY);
+            case MODERATE:
+                return new EkgNoiseProfile(MODERATE, 2.5f, 8.0f, 0.03f, 1.5f, DEFAULT_MAINS_FREQUENCY);
+            case SEVERE:
+                return new EkgNoiseProfile(SEVERE, 5.0f, 15.0f, 0.08f, 3.0f, DEFAULT_MAINS_FREQUENCY);
+            case NONE:
+            default:
+                return SILENT;
+        }
+    }
+}
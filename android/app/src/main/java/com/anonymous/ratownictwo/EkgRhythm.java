@@ -0,0 +1,145 @@
+package com.anonymous.ratownictwo;
+
+import java.util.Arrays;
+
+/**
+ * One recorded EKG rhythm, resampled once into a uniform table.
+ *
+ * The source data (assets/heart_beat_data) has irregular timestamps and is
+ * looked up with a binary search per frame in EkgJsonDataLoader.ts. Here the
+ * loop is resampled at load time so the engine can read it with a phase
+ * accumulator and linear interpolation only.
+ *
+ * At load time each loop is also analysed for retiming: the quietest quarter
+ * of the first beat is taken as the isoelectric (TP) segment, and the table is
+ * read rotated so every beat starts in the middle of it. EkgSynthesizer then
+ * stretches only that quiet part when the heart rate changes.
+ */
+final class EkgRhythm {
+    static final float BASELINE = 150f;
+    static final float DEFAULT_MIDPOINT = 44.98086978240213f;
+    static final int TABLE_SIZE = 2048;
+    static final float QUIET_FRACTION = 0.25f;
+    // Quiet window must be this much calmer than the beat average to count as TP
+    private static final float MAX_QUIET_ACTIVITY = 0.35f;
+
+    final String name;
+    final int periodCount;
+    final float sampleRate;
+    final float midpoint;
+    final float duration;
+    // TABLE_SIZE + 1 entries, the last one repeats the first for interpolation
+    final float[] table;
+    // Loop phase where beat 0 starts, i.e. the middle of its quiet segment
+    final float beatOffset;
+    // Share of each beat that may be stretched, 0 when the rhythm has no clear TP segment
+    final float quietFraction;
+    // Length of one recorded beat; timestamps / sample_rate are milliseconds
+    final float beatSeconds;
+
+    EkgRhythm(String name, float sampleRate, int periodCount, float midpoint,
+              float[] timestamps, float[] values, int length) {
+        this.name = name;
+        this.sampleRate = sampleRate;
+        this.periodCount = Math.max(1, periodCount);
+        this.midpoint = midpoint;
+        this.duration = length > 0 ? timestamps[length - 1] : 0f;
+        this.table = resample(timestamps, values, length, midpoint);
+        this.beatSeconds = sampleRate > 0f && duration > 0f
+            ? duration / sampleRate / 1000f / this.periodCount
+            : 60f / EkgEngine.DEFAULT_BPM;
+
+        int quietStart = findQuietWindow(table, TABLE_SIZE / this.periodCount);
+        if (quietStart >= 0) {
+            int window = (int) (TABLE_SIZE / this.periodCount * QUIET_FRACTION);
+            this.beatOffset = (float) (quietStart + window / 2) / TABLE_SIZE;
+            this.quietFraction = QUIET_FRACTION;
+        } else {
+            this.beatOffset = 0f;
+            this.quietFraction = 0f;
+        }
+    }
+
+    /**
+     * Heart rate the recording was made at.
+     */
+    float nativeBpm() {
+        return 60f / beatSeconds;
+    }
+
+    /**
+     * Value at a loop phase in [0, 1).
+     */
+    float valueAt(float phase) {
+        float position = phase * TABLE_SIZE;
+        int index = (int) position;
+        if (index >= TABLE_SIZE) {
+            index = TABLE_SIZE - 1;
+        }
+        float fraction = position - index;
+        return table[index] + (table[index + 1] - table[index]) * fraction;
+    }
+
+    /**
+     * Start of the calmest QUIET_FRACTION window inside the first beat, or -1
+     * when nothing in the beat is calm enough (fibrillation, flutter, flat).
+     */
+    private static int findQuietWindow(float[] table, int beatLength) {
+        int window = (int) (beatLength * QUIET_FRACTION);
+        if (window < 2) {
+            return -1;
+        }
+
+        float total = 0f;
+        for (int i = 0; i < beatLength; i++) {
+            total += Math.abs(table[i + 1] - table[i]);
+        }
+        if (total <= 0f) {
+            return -1;
+        }
+
+        float sum = 0f;
+        for (int i = 0; i < window; i++) {
+            sum += Math.abs(table[i + 1] - table[i]);
+        }
+        float best = sum;
+        int bestStart = 0;
+        for (int start = 1; start + window <= beatLength; start++) {
+            sum += Math.abs(table[start + window] - table[start + window - 1])
+                - Math.abs(table[start] - table[start - 1]);
+            if (sum < best) {
+                best = sum;
+                bestStart = start;
+            }
+        }
+
+        float average = total * window / beatLength;
+        return best <= average * MAX_QUIET_ACTIVITY ? bestStart : -1;
+    }
+
+    private static float[] resample(float[] timestamps, float[] values, int length, float midpoint) {
+        float[] out = new float[TABLE_SIZE + 1];
+        if (length < 2 || timestamps[length - 1] <= timestamps[0]) {
+            float flat = length > 0 ? BASELINE + values[0] - midpoint : BASELINE;
+            Arrays.fill(out, flat);
+            return out;
+        }
+
+        float start = timestamps[0];
+        float span = timestamps[length - 1] - start;
+        int source = 0;
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            float t = start + span * i / TABLE_SIZE;
+            while (source < length - 2 && timestamps[source + 1] <= t) {
+                source++;
+            }
+            float t1 = timestamps[source];
+            float t2 = timestamps[source + 1];
+            float factor = t2 > t1 ? (t - t1) / (t2 - t1) : 0f;
+            float value = values[source] + factor * (values[source + 1] - values[source]);
+            out[i] = BASELINE + (value - midpoint);
+        }
+        out[TABLE_SIZE] = out[0];
+        return out;
+    }
+}
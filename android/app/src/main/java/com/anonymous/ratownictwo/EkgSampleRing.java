@@ -0,0 +1,88 @@
+package com.anonymous.ratownictwo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer / single-consumer ring of float samples.
+ *
+ * The EKG engine thread is the only writer and one consumer (JS pull or the
+ * monitor view) is the only reader. When the reader falls behind, new samples
+ * are dropped and counted instead of blocking the engine clock.
+ */
+final class EkgSampleRing {
+    private final float[] buffer;
+    private final int mask;
+    private final AtomicLong writeIndex = new AtomicLong();
+    private final AtomicLong readIndex = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to the next power of two
+     */
+    EkgSampleRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.buffer = new float[size];
+        this.mask = size - 1;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    int available() {
+        return (int) (writeIndex.get() - readIndex.get());
+    }
+
+    /**
+     * Producer side. Writes as many of {@code count} samples as fit.
+     *
+     * @return number of samples written
+     */
+    int write(float[] src, int offset, int count) {
+        long write = writeIndex.get();
+        long free = buffer.length - (write - readIndex.get());
+        int n = (int) Math.min(count, free);
+        for (int i = 0; i < n; i++) {
+            buffer[(int) ((write + i) & mask)] = src[offset + i];
+        }
+        writeIndex.lazySet(write + n);
+        if (n < count) {
+            overruns.addAndGet(count - n);
+        }
+        return n;
+    }
+
+    /**
+     * Consumer side. Copies up to {@code count} samples into {@code dst}.
+     *
+     * @return number of samples read
+     */
+    int read(float[] dst, int offset, int count) {
+        long read = readIndex.get();
+        int n = (int) Math.min(count, writeIndex.get() - read);
+        for (int i = 0; i < n; i++) {
+            dst[offset + i] = buffer[(int) ((read + i) & mask)];
+        }
+        readIndex.lazySet(read + n);
+        return n;
+    }
+
+    /**
+     * Consumer side. Discards everything but the newest {@code keep} samples.
+     */
+    void skipTo(int keep) {
+        long write = writeIndex.get();
+        long read = readIndex.get();
+        if (write - read > keep) {
+            readIndex.lazySet(write - keep);
+        }
+    }
+
+    long getWritten() {
+        return writeIndex.get();
+    }
+
+    long getOverruns() {
+        return overruns.get();
+    }
+}
@@ -0,0 +1,303 @@
+package com.anonymous.ratownictwo;
+
+import java.util.Random;
+
+/**
+ * Turns EkgRhythm tables into a continuous signal at any heart rate.
+ *
+ * A beat clock runs at the requested BPM. Each beat is mapped back into the
+ * recorded loop with a piecewise-linear warp: the P-QRS-T part keeps roughly
+ * its recorded shape (scaled with the square root of the RR change, like QT)
+ * and only the isoelectric segment absorbs the rest. Rhythms without a clear
+ * TP segment are scaled linearly, as before.
+ *
+ * Baseline wander, muscle bursts, mains hum and white noise are read from
+ * tables built once per process. All state lives in primitive fields, so
+ * render() does not allocate. Only the engine thread may call render();
+ * setters are safe from any thread and take effect at the next chunk.
+ */
+final class EkgSynthesizer {
+    private static final float CROSSFADE_SECONDS = 0.2f;
+    // Largest BPM change applied per second, so rate changes glide instead of jumping
+    private static final float BPM_SLEW_PER_SECOND = 100f;
+    // Noise gains follow a new profile with this time constant
+    private static final float NOISE_SMOOTHING_SECONDS = 0.5f;
+    private static final float MAX_ACTIVE_SHARE = 0.92f;
+
+    private static final float RESPIRATION_HZ = 0.25f;
+    private static final float DRIFT_HZ = 0.07f;
+    private static final float MUSCLE_CHECK_SECONDS = 0.05f;
+    private static final float MUSCLE_BURST_SECONDS = 0.3f;
+
+    private static final int SINE_SIZE = 1024;
+    private static final int NOISE_SIZE = 4096;
+    private static final float[] SINE = new float[SINE_SIZE + 1];
+    private static final float[] NOISE = new float[NOISE_SIZE];
+    private static final float[] MUSCLE = new float[NOISE_SIZE];
+
+    static {
+        for (int i = 0; i <= SINE_SIZE; i++) {
+            SINE[i] = (float) Math.sin(2 * Math.PI * i / SINE_SIZE);
+        }
+        // Fixed seed keeps the tables identical between runs
+        Random random = new Random(0x45_4B_47L);
+        for (int i = 0; i < NOISE_SIZE; i++) {
+            // Sum of uniforms is close enough to gaussian and stays within [-1, 1]
+            NOISE[i] = (random.nextFloat() + random.nextFloat()
+                + random.nextFloat() + random.nextFloat()) / 2 - 1;
+        }
+        // Differencing pushes the energy up towards the EMG band
+        float previous = 0f;
+        for (int i = 0; i < NOISE_SIZE; i++) {
+            float white = random.nextFloat() * 2 - 1;
+            MUSCLE[i] = (white - previous) / 2;
+            previous = white;
+        }
+    }
+
+    private final int sampleRate;
+    private final int crossfadeLength;
+    private final float bpmSlewPerSample;
+    private final float smoothing;
+    private final int muscleCheckSamples;
+    private final int muscleBurstSamples;
+
+    private volatile EkgRhythm pendingRhythm;
+    private volatile boolean rhythmChanged = false;
+    private volatile float targetBpm = EkgEngine.DEFAULT_BPM;
+    private volatile EkgNoiseProfile noise = EkgNoiseProfile.SILENT;
+    private volatile boolean retiming = true;
+
+    // Render thread state
+    private EkgRhythm current;
+    private EkgRhythm previous;
+    private int crossfadePosition;
+    private float bpm = EkgEngine.DEFAULT_BPM;
+    private float beatPhase;
+    private long beatIndex;
+
+    // Warp of the current and previous rhythm for the current chunk
+    private float currentLead;
+    private float currentActive;
+    private float previousLead;
+    private float previousActive;
+
+    private float noiseGain;
+    private float wanderGain;
+    private float mainsGain;
+    private float muscleGain;
+    private float respirationPhase;
+    private float driftPhase;
+    private float mainsPhase;
+    private int noiseIndex;
+    private int muscleCountdown;
+    private int burstPosition;
+    private int burstStart;
+    private int randomState = 0x2545F491;
+
+    EkgSynthesizer(int sampleRate) {
+        this.sampleRate = sampleRate;
+        this.crossfadeLength = Math.max(1, (int) (sampleRate * CROSSFADE_SECONDS));
+        this.crossfadePosition = crossfadeLength;
+        this.bpmSlewPerSample = BPM_SLEW_PER_SECOND / sampleRate;
+        this.smoothing = 1f / Math.max(1f, sampleRate * NOISE_SMOOTHING_SECONDS);
+        this.muscleCheckSamples = Math.max(1, (int) (sampleRate * MUSCLE_CHECK_SECONDS));
+        this.muscleBurstSamples = Math.max(1, (int) (sampleRate * MUSCLE_BURST_SECONDS));
+        this.burstPosition = muscleBurstSamples;
+    }
+
+    void setRhythm(EkgRhythm rhythm) {
+        pendingRhythm = rhythm;
+        rhythmChanged = true;
+    }
+
+    void setBpm(float bpm) {
+        this.targetBpm = Math.max(1f, bpm);
+    }
+
+    float getBpm() {
+        return targetBpm;
+    }
+
+    /**
+     * Heart rate actually being rendered; lags getBpm() while gliding.
+     */
+    float getCurrentBpm() {
+        return bpm;
+    }
+
+    void setNoise(EkgNoiseProfile profile) {
+        noise = profile != null ? profile : EkgNoiseProfile.SILENT;
+    }
+
+    EkgNoiseProfile getNoise() {
+        return noise;
+    }
+
+    /**
+     * With retiming off every rhythm is stretched linearly, like the JS path.
+     */
+    void setRetiming(boolean enabled) {
+        retiming = enabled;
+    }
+
+    boolean isRetiming() {
+        return retiming;
+    }
+
+    void render(float[] out, int count) {
+        if (rhythmChanged) {
+            rhythmChanged = false;
+            previous = current;
+            current = pendingRhythm;
+            crossfadePosition = 0;
+        }
+
+        float target = targetBpm;
+        EkgNoiseProfile profile = noise;
+        float mainsStep = profile.mainsFrequency / sampleRate;
+        float respirationStep = RESPIRATION_HZ / sampleRate;
+        float driftStep = DRIFT_HZ / sampleRate;
+        boolean warp = retiming;
+
+        updateWarp(warp);
+
+        for (int i = 0; i < count; i++) {
+            if (bpm != target) {
+                float delta = target - bpm;
+                if (delta > bpmSlewPerSample) {
+                    delta = bpmSlewPerSample;
+                } else if (delta < -bpmSlewPerSample) {
+                    delta = -bpmSlewPerSample;
+                }
+                bpm += delta;
+            }
+
+            float value = sampleRhythm(current, currentLead, currentActive);
+            if (crossfadePosition < crossfadeLength) {
+                float old = sampleRhythm(previous, previousLead, previousActive);
+                float mix = (float) crossfadePosition / crossfadeLength;
+                value = old + (value - old) * mix;
+                crossfadePosition++;
+            }
+
+            noiseGain += (profile.noiseAmplitude - noiseGain) * smoothing;
+            wanderGain += (profile.baselineWanderAmplitude - wanderGain) * smoothing;
+            mainsGain += (profile.mainsAmplitude - mainsGain) * smoothing;
+            muscleGain += (profile.noiseAmplitude * 2 - muscleGain) * smoothing;
+
+            if (wanderGain > 0.001f) {
+                value += wanderGain * (0.7f * sine(respirationPhase) + 0.3f * sine(driftPhase));
+            }
+            if (mainsGain > 0.001f) {
+                value += mainsGain * sine(mainsPhase);
+            }
+            if (noiseGain > 0.001f) {
+                value += noiseGain * NOISE[noiseIndex];
+            }
+            value += muscleSample(profile.muscleArtifactProbability);
+            out[i] = value;
+
+            noiseIndex = (noiseIndex + 1) & (NOISE_SIZE - 1);
+            if (noiseIndex == 0) {
+                // Restart the table somewhere else so the pattern does not repeat every 16 s
+                noiseIndex = nextRandom() & (NOISE_SIZE - 1);
+            }
+            respirationPhase = wrap(respirationPhase + respirationStep);
+            driftPhase = wrap(driftPhase + driftStep);
+            mainsPhase = wrap(mainsPhase + mainsStep);
+
+            beatPhase += bpm / (60f * sampleRate);
+            if (beatPhase >= 1f) {
+                beatPhase -= (int) beatPhase;
+                beatIndex++;
+                // Warp depends on the RR interval, so refresh it on every new beat
+                updateWarp(warp);
+            }
+        }
+    }
+
+    private void updateWarp(boolean warp) {
+        float rr = 60f / bpm;
+        currentActive = activeShare(current, rr, warp);
+        currentLead = (1f - currentActive) / 2;
+        previousActive = activeShare(previous, rr, warp);
+        previousLead = (1f - previousActive) / 2;
+    }
+
+    /**
+     * Part of the requested beat taken by the non-isoelectric segment, or -1
+     * when the rhythm is scaled linearly.
+     */
+    private static float activeShare(EkgRhythm rhythm, float rr, boolean warp) {
+        if (!warp || rhythm == null || rhythm.quietFraction <= 0f) {
+            return -1f;
+        }
+        float recorded = rhythm.beatSeconds;
+        float activeSeconds = (1f - rhythm.quietFraction) * recorded * (float) Math.sqrt(rr / recorded);
+        return Math.min(activeSeconds / rr, MAX_ACTIVE_SHARE);
+    }
+
+    private float sampleRhythm(EkgRhythm rhythm, float lead, float active) {
+        if (rhythm == null) {
+            return EkgRhythm.BASELINE;
+        }
+
+        float u = beatPhase;
+        float w;
+        if (active < 0f) {
+            w = u;
+        } else {
+            float halfQuiet = rhythm.quietFraction / 2;
+            if (u < lead) {
+                w = u / lead * halfQuiet;
+            } else if (u < lead + active) {
+                w = halfQuiet + (u - lead) / active * (1f - rhythm.quietFraction);
+            } else {
+                w = 1f - halfQuiet + (u - lead - active) / lead * halfQuiet;
+            }
+        }
+
+        int beat = (int) (beatIndex % rhythm.periodCount);
+        return rhythm.valueAt(wrap((beat + w) / rhythm.periodCount + rhythm.beatOffset));
+    }
+
+    private float muscleSample(float probability) {
+        if (--muscleCountdown <= 0) {
+            muscleCountdown = muscleCheckSamples;
+            if (probability > 0f && burstPosition >= muscleBurstSamples
+                && (nextRandom() & 0xFFFF) < probability * 0x10000) {
+                burstPosition = 0;
+                burstStart = nextRandom() & (NOISE_SIZE - 1);
+            }
+        }
+        if (burstPosition >= muscleBurstSamples || muscleGain <= 0.001f) {
+            return 0f;
+        }
+        // Half-sine envelope so bursts fade in and out
+        float envelope = sine((float) burstPosition / muscleBurstSamples / 2);
+        float value = muscleGain * envelope * MUSCLE[(burstStart + burstPosition) & (NOISE_SIZE - 1)];
+        burstPosition++;
+        return value;
+    }
+
+    private int nextRandom() {
+        int x = randomState;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        randomState = x;
+        return x;
+    }
+
+    private static float sine(float phase) {
+        float position = phase * SINE_SIZE;
+        int index = (int) position;
+        float fraction = position - index;
+        return SINE[index] + (SINE[index + 1] - SINE[index]) * fraction;
+    }
+
+    private static float wrap(float phase) {
+        return phase >= 1f ? phase - (int) phase : phase;
+    }
+}
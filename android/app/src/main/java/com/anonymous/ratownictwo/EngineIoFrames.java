@@ -0,0 +1,150 @@
+package com.anonymous.ratownictwo;
+
+/**
+ * The part of the Engine.IO v4 / Socket.IO v5 wire format the realtime
+ * transport needs, on plain strings.
+ *
+ * Event payloads stay JSON text end to end: JS stringifies what it sends,
+ * and inbound events are handed over as the raw argument array for JS to
+ * parse, so nothing here builds an object tree.
+ */
+final class EngineIoFrames {
+    static final char OPEN = '0';
+    static final char CLOSE = '1';
+    static final char PING = '2';
+    static final char PONG = '3';
+    static final char MESSAGE = '4';
+
+    static final char SIO_CONNECT = '0';
+    static final char SIO_DISCONNECT = '1';
+    static final char SIO_EVENT = '2';
+    static final char SIO_CONNECT_ERROR = '4';
+
+    static final String PONG_FRAME = "3";
+    static final String CONNECT_FRAME = "40";
+    static final String DISCONNECT_FRAME = "41";
+
+    private EngineIoFrames() {
+    }
+
+    /**
+     * "42" + ["event", payload]; a null payload sends the event alone.
+     */
+    static String encodeEvent(String event, String payloadJson) {
+        StringBuilder out = new StringBuilder(event.length() + (payloadJson != null ? payloadJson.length() : 0) + 8);
+        out.append("42[");
+        appendQuoted(out, event);
+        if (payloadJson != null) {
+            out.append(',').append(payloadJson);
+        }
+        out.append(']');
+        return out.toString();
+    }
+
+    /**
+     * Reads a numeric field such as pingInterval out of the open packet
+     * without a JSON parser.
+     */
+    static long readNumber(String frame, String field, long fallback) {
+        String key = "\"" + field + "\"";
+        int at = frame.indexOf(key);
+        if (at < 0) {
+            return fallback;
+        }
+        int i = frame.indexOf(':', at + key.length());
+        if (i < 0) {
+            return fallback;
+        }
+        i++;
+        while (i < frame.length() && frame.charAt(i) == ' ') {
+            i++;
+        }
+        long value = 0;
+        int start = i;
+        while (i < frame.length() && Character.isDigit(frame.charAt(i))) {
+            value = value * 10 + (frame.charAt(i) - '0');
+            i++;
+        }
+        return i > start ? value : fallback;
+    }
+
+    /**
+     * Index of the JSON argument array in a "42..." event frame, skipping an
+     * optional namespace and ack id, or -1 when there is none.
+     */
+    static int argumentsStart(String frame) {
+        int i = 2;
+        if (i < frame.length() && frame.charAt(i) == '/') {
+            int comma = frame.indexOf(',', i);
+            if (comma < 0) {
+                return -1;
+            }
+            i = comma + 1;
+        }
+        while (i < frame.length() && Character.isDigit(frame.charAt(i))) {
+            i++;
+        }
+        return i < frame.length() && frame.charAt(i) == '[' ? i : -1;
+    }
+
+    /**
+     * Event name: the JSON string that opens the argument array at
+     * {@code start}, unescaped. Null when the array does not start with one
+     * or the name is malformed.
+     */
+    static String eventName(String frame, int start) {
+        int i = start + 1;
+        while (i < frame.length() && frame.charAt(i) == ' ') {
+            i++;
+        }
+        if (i >= frame.length() || frame.charAt(i) != '"') {
+            return null;
+        }
+        StringBuilder name = null;
+        int from = ++i;
+        while (i < frame.length()) {
+            char c = frame.charAt(i);
+            if (c == '"') {
+                return name == null ? frame.substring(from, i) : name.append(frame, from, i).toString();
+            }
+            if (c == '\\' && i + 1 < frame.length()) {
+                if (name == null) {
+                    name = new StringBuilder();
+                }
+                name.append(frame, from, i);
+                char escaped = frame.charAt(i + 1);
+                if (escaped == 'u' && i + 5 < frame.length()) {
+                    try {
+                        name.append((char) Integer.parseInt(frame.substring(i + 2, i + 6), 16));
+                    } catch (NumberFormatException e) {
+                        // Malformed escape: drop the frame rather than fail the transport thread
+                        return null;
+                    }
+                    i += 6;
+                } else {
+                    name.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped == 'r' ? '\r' : escaped);
+                    i += 2;
+                }
+                from = i;
+                continue;
+            }
+            i++;
+        }
+        return null;
+    }
+
+    private static void appendQuoted(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,842 @@
+package com.anonymous.ratownictwo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of outgoing events that must survive a lost
+ * connection or a killed process.
+ *
+ * Records are numbered in append order and written by one writer thread
+ * with group commit: everything appended while the previous batch was being
+ * forced goes out in the next single write + force, so many small appends
+ * cost one fsync. A record is acknowledged once the server has it; replay
+ * returns the records after the acknowledged sequence, in order.
+ *
+ * Storage is a directory of segment files named after their first
+ * sequence, plus an "ack" file holding the acknowledged sequence. A segment
+ * is deleted once all of its records are acknowledged. When the live size
+ * passes the bound the unacknowledged records are compacted into one
+ * segment, and if that is still too big the oldest are dropped. The
+ * compacted segment is moved into place atomically before the segments it
+ * replaces are deleted; a crash in between leaves overlapping segments, and
+ * on open the one reaching the higher sequence wins. A torn record at the
+ * end of the last segment (crash mid-write) is cut off on open.
+ *
+ * Record: int bodyLength, int crc32(body), body = long seq, long timestamp,
+ * string dedupKey, string event, string payload (each string an int length
+ * and UTF-8). Plain Java, so it runs on the JVM against a temp directory.
+ */
+final class EventJournal {
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String ACK_FILE = "ack";
+    private static final String COMPACT_FILE = "compact.tmp";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    interface CommitCallback {
+        /**
+         * @param error null once the record is on disk
+         */
+        void onCommitted(long seq, IOException error);
+    }
+
+    static final class Record {
+        final long seq;
+        final long timestamp;
+        final String dedupKey;
+        final String event;
+        final String payload;
+
+        Record(long seq, long timestamp, String dedupKey, String event, String payload) {
+            this.seq = seq;
+            this.timestamp = timestamp;
+            this.dedupKey = dedupKey;
+            this.event = event;
+            this.payload = payload;
+        }
+    }
+
+    static final class Stats {
+        long appended;
+        long deduplicated;
+        long committed;
+        long commits;
+        long bytesWritten;
+        long commitNanos;
+        long maxCommitNanos;
+        long replayed;
+        long acked;
+        long dropped;
+        long compactions;
+        long recovered;
+        long truncatedBytes;
+        long lastSeq;
+        long ackedSeq;
+        int pending;
+        int segments;
+        long liveBytes;
+        long openedAt;
+    }
+
+    private static final class Pending {
+        final long seq;
+        final byte[] bytes;
+        final CommitCallback callback;
+
+        Pending(long seq, byte[] bytes, CommitCallback callback) {
+            this.seq = seq;
+            this.bytes = bytes;
+            this.callback = callback;
+        }
+    }
+
+    private final File directory;
+    private final long segmentBytes;
+    private final long maxBytes;
+    private final long commitDelayMs;
+
+    // Guarded by this
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    // Ack persistence and compaction, run on the writer thread between commits
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    // Unacknowledged dedup keys and their sequence
+    private final Map<String, Long> dedup = new HashMap<>();
+    private final List<long[]> segments = new ArrayList<>();
+    private long lastSeq;
+    private long ackedSeq;
+    private boolean closed;
+    private final Stats stats = new Stats();
+
+    // Held while segment files are read, rewritten or deleted, so a replay
+    // never sees a segment disappear under it. Taken before this.
+    private final Object fileLock = new Object();
+
+    // Writer thread only
+    private FileChannel tail;
+
+    private final Thread writer;
+
+    /**
+     * Opens (or creates) the journal in {@code directory} and recovers its
+     * state from the segments on disk.
+     */
+    EventJournal(File directory, long segmentBytes, long maxBytes, long commitDelayMs) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = Math.max(4096, segmentBytes);
+        this.maxBytes = Math.max(this.segmentBytes * 2, maxBytes);
+        this.commitDelayMs = Math.max(0, commitDelayMs);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+        recover();
+        writer = new Thread(this::runWriter, "EventJournal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a record for the next group commit. A record whose dedupKey
+     * matches one that is still unacknowledged is not written again, and the
+     * callback is not called.
+     *
+     * @return the record's sequence, or minus the existing record's sequence
+     *         for a duplicate
+     */
+    long append(String event, String payload, String dedupKey, CommitCallback callback) throws IOException {
+        byte[] bytes;
+        long seq;
+        Long existing = null;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Journal closed");
+            }
+            if (dedupKey != null) {
+                existing = dedup.get(dedupKey);
+            }
+            if (existing != null) {
+                stats.deduplicated++;
+                seq = -existing;
+            } else {
+                // Encode first: an oversized record must not use up a sequence
+                bytes = encode(lastSeq + 1, System.currentTimeMillis(), dedupKey, event, payload);
+                seq = ++lastSeq;
+                if (dedupKey != null) {
+                    dedup.put(dedupKey, seq);
+                }
+                pending.add(new Pending(seq, bytes, callback));
+                stats.appended++;
+                notifyAll();
+            }
+        }
+        return seq;
+    }
+
+    /**
+     * Records after the acknowledged sequence, oldest first. Only committed
+     * records are returned.
+     */
+    List<Record> replay(long afterSeq, int maxRecords) throws IOException {
+        List<Record> records = new ArrayList<>();
+        synchronized (fileLock) {
+            long from;
+            long committedSeq;
+            List<long[]> live;
+            synchronized (this) {
+                from = Math.max(afterSeq, ackedSeq);
+                committedSeq = lastSeq - pending.size();
+                live = new ArrayList<>(segments);
+            }
+            for (int i = 0; i < live.size() && records.size() < maxRecords; i++) {
+                long nextFirst = i + 1 < live.size() ? live.get(i + 1)[0] : Long.MAX_VALUE;
+                if (nextFirst <= from + 1) {
+                    continue;
+                }
+                // A record being appended right now fails its length or CRC check and ends the read
+                readSegment(segmentFile(live.get(i)[0]), record -> {
+                    if (record.seq > from && record.seq <= committedSeq && records.size() < maxRecords) {
+                        records.add(record);
+                    }
+                });
+            }
+        }
+        synchronized (this) {
+            stats.replayed += records.size();
+        }
+        return records;
+    }
+
+    /**
+     * Everything up to {@code seq} reached the server. Fully acknowledged
+     * segments are deleted.
+     */
+    void ack(long seq) throws IOException {
+        synchronized (this) {
+            if (seq <= ackedSeq) {
+                return;
+            }
+            long committedSeq = lastSeq - pending.size();
+            seq = Math.min(seq, committedSeq);
+            stats.acked += seq - ackedSeq;
+            ackedSeq = seq;
+            final long acked = seq;
+            dedup.values().removeIf(value -> value <= acked);
+        }
+        // Ordered with commits and compaction on the writer thread
+        submit(this::persistAckAndTrim);
+    }
+
+    /**
+     * Rewrites the unacknowledged records into a single segment.
+     */
+    void compact() {
+        submit(() -> {
+            synchronized (fileLock) {
+                compactNow(false);
+            }
+        });
+    }
+
+    synchronized void fill(Stats out) {
+        out.appended = stats.appended;
+        out.deduplicated = stats.deduplicated;
+        out.committed = stats.committed;
+        out.commits = stats.commits;
+        out.bytesWritten = stats.bytesWritten;
+        out.commitNanos = stats.commitNanos;
+        out.maxCommitNanos = stats.maxCommitNanos;
+        out.replayed = stats.replayed;
+        out.acked = stats.acked;
+        out.dropped = stats.dropped;
+        out.compactions = stats.compactions;
+        out.recovered = stats.recovered;
+        out.truncatedBytes = stats.truncatedBytes;
+        out.lastSeq = lastSeq;
+        out.ackedSeq = ackedSeq;
+        out.pending = pending.size();
+        out.segments = segments.size();
+        long live = 0;
+        for (long[] segment : segments) {
+            live += segment[1];
+        }
+        out.liveBytes = live;
+        out.openedAt = stats.openedAt;
+    }
+
+    /**
+     * Commits what is queued and stops the writer.
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(Runnable task) {
+        synchronized (this) {
+            tasks.add(task);
+            notifyAll();
+        }
+    }
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>();
+        List<Runnable> work = new ArrayList<>();
+        while (true) {
+            synchronized (this) {
+                while (pending.isEmpty() && tasks.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (pending.isEmpty() && tasks.isEmpty()) {
+                    break;
+                }
+            }
+            if (commitDelayMs > 0) {
+                // Let a burst of appends join this commit
+                try {
+                    Thread.sleep(commitDelayMs);
+                } catch (InterruptedException e) {
+                    // Commit what is there and wind down
+                }
+            }
+            synchronized (this) {
+                batch.addAll(pending);
+                work.addAll(tasks);
+                tasks.clear();
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+            }
+            for (Runnable task : work) {
+                task.run();
+            }
+            batch.clear();
+            work.clear();
+        }
+        closeTail();
+    }
+
+    private void commit(List<Pending> batch) {
+        IOException error = null;
+        long started = System.nanoTime();
+        int bytes = 0;
+        try {
+            ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+            // Size of the tail once the collected buffers are written
+            long tailBytes = tail != null ? tail.size() : 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Pending record = batch.get(i);
+                if (tail == null || tailBytes >= segmentBytes) {
+                    // Roll over on a record boundary: write what is collected first
+                    writeAll(buffers, i);
+                    Arrays.fill(buffers, null);
+                    rollTail(record.seq);
+                    tailBytes = 0;
+                }
+                buffers[i] = ByteBuffer.wrap(record.bytes);
+                bytes += record.bytes.length;
+                tailBytes += record.bytes.length;
+            }
+            writeAll(buffers, batch.size());
+            tail.force(false);
+        } catch (IOException e) {
+            error = e;
+        }
+        long elapsed = System.nanoTime() - started;
+
+        synchronized (this) {
+            for (int i = 0; i < batch.size(); i++) {
+                Pending record = pending.poll();
+                if (error != null) {
+                    // Not on disk, so a retry with the same key must not count as a duplicate
+                    dedup.values().remove(record.seq);
+                }
+            }
+            if (error == null) {
+                stats.committed += batch.size();
+                stats.commits++;
+                stats.bytesWritten += bytes;
+                stats.commitNanos += elapsed;
+                stats.maxCommitNanos = Math.max(stats.maxCommitNanos, elapsed);
+                long[] current = segments.get(segments.size() - 1);
+                try {
+                    current[1] = tail.size();
+                } catch (IOException e) {
+                    // Size is only for stats and the bound
+                }
+            }
+        }
+        for (Pending record : batch) {
+            if (record.callback != null) {
+                record.callback.onCommitted(record.seq, error);
+            }
+        }
+        if (error == null && liveBytes() > maxBytes) {
+            synchronized (fileLock) {
+                compactNow(true);
+            }
+        }
+    }
+
+    private void writeAll(ByteBuffer[] buffers, int count) throws IOException {
+        int first = 0;
+        while (first < count && buffers[first] == null) {
+            first++;
+        }
+        if (first >= count) {
+            return;
+        }
+        long remaining = 0;
+        for (int i = first; i < count; i++) {
+            remaining += buffers[i].remaining();
+        }
+        while (remaining > 0) {
+            remaining -= tail.write(buffers, first, count - first);
+        }
+    }
+
+    private void rollTail(long firstSeq) throws IOException {
+        if (tail != null) {
+            tail.force(false);
+            tail.close();
+        }
+        tail = FileChannel.open(segmentFile(firstSeq).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        synchronized (this) {
+            segments.add(new long[] {firstSeq, 0});
+        }
+    }
+
+    private void closeTail() {
+        if (tail != null) {
+            try {
+                tail.force(false);
+                tail.close();
+            } catch (IOException e) {
+                // Everything acknowledged to callers was already forced
+            }
+            tail = null;
+        }
+    }
+
+    private synchronized long liveBytes() {
+        long live = 0;
+        for (long[] segment : segments) {
+            live += segment[1];
+        }
+        return live;
+    }
+
+    private void persistAckAndTrim() {
+        long acked;
+        List<long[]> removable = new ArrayList<>();
+        boolean drained;
+        synchronized (this) {
+            acked = ackedSeq;
+            drained = acked >= lastSeq - pending.size();
+            // A segment is done when the next one starts at or before acked + 1,
+            // the tail only once everything on disk is acknowledged
+            for (int i = 0; i < segments.size(); i++) {
+                if (drained || (i + 1 < segments.size() && segments.get(i + 1)[0] <= acked + 1)) {
+                    removable.add(segments.get(i));
+                }
+            }
+        }
+        if (drained) {
+            // The next commit starts a fresh segment
+            closeTail();
+        }
+        try (FileChannel channel = FileChannel.open(new File(directory, ACK_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            buffer.putLong(0, acked);
+            channel.write(buffer, 0);
+            channel.force(false);
+        } catch (IOException e) {
+            // Worst case some acknowledged records are replayed again
+        }
+        synchronized (fileLock) {
+            for (long[] segment : removable) {
+                if (segmentFile(segment[0]).delete()) {
+                    synchronized (this) {
+                        segments.remove(segment);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrites the unacknowledged records of all segments into one. With
+     * {@code enforceBound}, drops the oldest records until the result fits.
+     * Writer thread only, holding fileLock.
+     */
+    private void compactNow(boolean enforceBound) {
+        List<long[]> live;
+        long acked;
+        synchronized (this) {
+            live = new ArrayList<>(segments);
+            acked = ackedSeq;
+        }
+        if (live.isEmpty()) {
+            return;
+        }
+        try {
+            closeTail();
+            List<byte[]> keep = new ArrayList<>();
+            long keptBytes = 0;
+            for (long[] segment : live) {
+                List<byte[]> raw = new ArrayList<>();
+                long[] seqs = readRaw(segmentFile(segment[0]), raw);
+                for (int i = 0; i < raw.size(); i++) {
+                    if (seqs[i] > acked) {
+                        keep.add(raw.get(i));
+                        keptBytes += raw.get(i).length;
+                    }
+                }
+            }
+
+            int dropped = 0;
+            long bound = maxBytes / 2;
+            while (enforceBound && keptBytes > bound && !keep.isEmpty()) {
+                keptBytes -= keep.remove(0).length;
+                dropped++;
+            }
+
+            File temp = new File(directory, COMPACT_FILE);
+            long firstSeq = keep.isEmpty() ? lastCommittedSeq() + 1 : seqOf(keep.get(0));
+            try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (byte[] record : keep) {
+                    ByteBuffer buffer = ByteBuffer.wrap(record);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+                out.force(true);
+            }
+            // Install before deleting anything, so a crash never loses the only copy.
+            // This replaces the live segment that starts at firstSeq, if one does.
+            Files.move(temp.toPath(), segmentFile(firstSeq).toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            for (long[] segment : live) {
+                if (segment[0] != firstSeq) {
+                    segmentFile(segment[0]).delete();
+                }
+            }
+
+            synchronized (this) {
+                segments.removeAll(live);
+                segments.add(0, new long[] {firstSeq, keptBytes});
+                stats.compactions++;
+                stats.dropped += dropped;
+                if (dropped > 0) {
+                    // Dropped records can never be replayed, so they count as acknowledged
+                    ackedSeq = Math.max(ackedSeq, firstSeq - 1);
+                    long floor = ackedSeq;
+                    dedup.values().removeIf(value -> value <= floor);
+                }
+            }
+            if (dropped > 0) {
+                persistAckAndTrim();
+            }
+            tail = FileChannel.open(segmentFile(firstSeq).toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // Either the move failed and the old segments are untouched, or the
+            // compacted one is in place and the rescan drops what it overlaps
+            try {
+                synchronized (this) {
+                    segments.clear();
+                }
+                scanSegments(false);
+            } catch (IOException ignored) {
+                // Nothing more to do; the next append rolls a new segment
+            }
+        }
+    }
+
+    private synchronized long lastCommittedSeq() {
+        return lastSeq - pending.size();
+    }
+
+    private void recover() throws IOException {
+        stats.openedAt = System.currentTimeMillis();
+        File ackFile = new File(directory, ACK_FILE);
+        if (ackFile.isFile() && ackFile.length() >= 8) {
+            try (FileChannel channel = FileChannel.open(ackFile.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(8);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Fill
+                }
+                ackedSeq = buffer.getLong(0);
+            }
+        }
+        installCompacted();
+        scanSegments(true);
+        lastSeq = Math.max(lastSeq, ackedSeq);
+    }
+
+    /**
+     * A compaction that crashed before its move leaves compact.tmp next to
+     * the intact segments. A complete one (every record intact, reaching the
+     * last sequence on disk) is installed as the compaction would have;
+     * anything less is deleted.
+     */
+    private void installCompacted() throws IOException {
+        File temp = new File(directory, COMPACT_FILE);
+        if (!temp.isFile()) {
+            return;
+        }
+        long[] range = {Long.MAX_VALUE, 0};
+        long validBytes = readSegment(temp, record -> {
+            range[0] = Math.min(range[0], record.seq);
+            range[1] = Math.max(range[1], record.seq);
+        });
+        long lastOnDisk = 0;
+        for (long first : segmentFirsts()) {
+            long[] last = {0};
+            readSegment(segmentFile(first), record -> last[0] = Math.max(last[0], record.seq));
+            lastOnDisk = Math.max(lastOnDisk, last[0]);
+        }
+        if (validBytes == 0 || validBytes != temp.length() || range[1] < lastOnDisk) {
+            temp.delete();
+            return;
+        }
+        Files.move(temp.toPath(), segmentFile(range[0]).toPath(),
+            StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Rebuilds the segment list, last sequence and dedup map from disk,
+     * truncating a torn record at the end of the last segment. Of two
+     * overlapping segments (left by an interrupted compaction) the one
+     * reaching further holds every unacknowledged record of both, so the
+     * other is deleted.
+     */
+    private void scanSegments(boolean initial) throws IOException {
+        List<SegmentScan> kept = new ArrayList<>();
+        for (long first : segmentFirsts()) {
+            File file = segmentFile(first);
+            SegmentScan scan = new SegmentScan(first);
+            long validBytes = readSegment(file, scan::add);
+            if (validBytes < file.length()) {
+                synchronized (this) {
+                    stats.truncatedBytes += file.length() - validBytes;
+                }
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    channel.truncate(validBytes);
+                    channel.force(true);
+                }
+            }
+            scan.bytes = validBytes;
+            while (scan != null && !kept.isEmpty() && kept.get(kept.size() - 1).lastSeq >= first) {
+                SegmentScan previous = kept.get(kept.size() - 1);
+                // On a tie the earlier one covers the same records and more
+                if (scan.lastSeq > previous.lastSeq) {
+                    segmentFile(previous.first).delete();
+                    kept.remove(kept.size() - 1);
+                } else {
+                    file.delete();
+                    scan = null;
+                }
+            }
+            if (scan != null) {
+                kept.add(scan);
+            }
+        }
+        synchronized (this) {
+            for (SegmentScan scan : kept) {
+                lastSeq = Math.max(lastSeq, scan.lastSeq);
+                for (Record record : scan.records) {
+                    if (record.seq > ackedSeq) {
+                        if (initial) {
+                            stats.recovered++;
+                        }
+                        if (record.dedupKey != null) {
+                            dedup.put(record.dedupKey, record.seq);
+                        }
+                    }
+                }
+                segments.add(new long[] {scan.first, scan.bytes});
+            }
+        }
+    }
+
+    private List<Long> segmentFirsts() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        List<Long> firsts = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    firsts.add(Long.parseLong(file.getName().substring(0,
+                        file.getName().length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not ours
+                }
+            }
+        }
+        firsts.sort(null);
+        return firsts;
+    }
+
+    /**
+     * What recovery needs of one segment: its range and the records that
+     * may still be unacknowledged, without their payloads.
+     */
+    private final class SegmentScan {
+        final long first;
+        final List<Record> records = new ArrayList<>();
+        long lastSeq;
+        long bytes;
+
+        SegmentScan(long first) {
+            this.first = first;
+            this.lastSeq = first - 1;
+        }
+
+        void add(Record record) {
+            lastSeq = Math.max(lastSeq, record.seq);
+            if (record.seq > ackedSeq) {
+                records.add(new Record(record.seq, record.timestamp, record.dedupKey, record.event, null));
+            }
+        }
+    }
+
+    private interface RecordSink {
+        void accept(Record record);
+    }
+
+    /**
+     * Reads the valid prefix of a segment.
+     *
+     * @return the number of bytes that hold complete, intact records
+     */
+    private long readSegment(File file, RecordSink sink) throws IOException {
+        if (!file.isFile()) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, channel.size()));
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // Fill
+            }
+            data.flip();
+            CRC32 check = new CRC32();
+            long valid = 0;
+            while (data.remaining() >= HEADER_BYTES) {
+                int start = data.position();
+                int length = data.getInt();
+                int expected = data.getInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES || length > data.remaining()) {
+                    break;
+                }
+                check.reset();
+                check.update(data.array(), data.position(), length);
+                if ((int) check.getValue() != expected) {
+                    break;
+                }
+                Record record;
+                try {
+                    record = decode(data);
+                } catch (RuntimeException e) {
+                    break;
+                }
+                if (data.position() != start + HEADER_BYTES + length) {
+                    break;
+                }
+                sink.accept(record);
+                valid = data.position();
+            }
+            return valid;
+        }
+    }
+
+    /**
+     * Raw record bytes of a segment and their sequences, for compaction.
+     */
+    private long[] readRaw(File file, List<byte[]> out) throws IOException {
+        List<Long> seqs = new ArrayList<>();
+        readSegment(file, record -> {
+            seqs.add(record.seq);
+            out.add(encode(record.seq, record.timestamp, record.dedupKey, record.event, record.payload));
+        });
+        long[] result = new long[seqs.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = seqs.get(i);
+        }
+        return result;
+    }
+
+    private static long seqOf(byte[] record) {
+        return ByteBuffer.wrap(record).getLong(HEADER_BYTES);
+    }
+
+    private File segmentFile(long firstSeq) {
+        return new File(directory, String.format("%020d", firstSeq) + SEGMENT_SUFFIX);
+    }
+
+    private static byte[] encode(long seq, long timestamp, String dedupKey, String event, String payload) {
+        byte[] key = dedupKey != null ? dedupKey.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] name = event.getBytes(StandardCharsets.UTF_8);
+        byte[] body = payload != null ? payload.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = 8 + 8 + 4 + key.length + 4 + name.length + 4 + body.length;
+        if (length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Record of " + length + " bytes is over the limit");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + length);
+        buffer.putInt(length);
+        buffer.putInt(0);
+        buffer.putLong(seq);
+        buffer.putLong(timestamp);
+        buffer.putInt(dedupKey != null ? key.length : -1).put(key);
+        buffer.putInt(name.length).put(name);
+        buffer.putInt(payload != null ? body.length : -1).put(body);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, length);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static Record decode(ByteBuffer data) {
+        long seq = data.getLong();
+        long timestamp = data.getLong();
+        String key = readString(data);
+        String event = readString(data);
+        String payload = readString(data);
+        return new Record(seq, timestamp, key, event, payload);
+    }
+
+    private static String readString(ByteBuffer data) {
+        int length = data.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(data.array(), data.position(), length, StandardCharsets.UTF_8);
+        data.position(data.position() + length);
+        return value;
+    }
+}
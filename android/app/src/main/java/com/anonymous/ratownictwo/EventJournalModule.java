@@ -0,0 +1,204 @@
+package com.anonymous.ratownictwo;
+
+import android.os.Build;
+import android.util.Log;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.module.annotations.ReactModule;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Durable outbox for events that must reach the server (see EventJournal).
+ *
+ * JS appends an event when it cannot send it, replays the journal once the
+ * socket is back and acknowledges what went out. The journal lives in the
+ * app's files directory, so it also survives the process being killed.
+ */
+@ReactModule(name = EventJournalModule.NAME)
+public class EventJournalModule extends ReactContextBaseJavaModule {
+    public static final String NAME = "EventJournal";
+    private static final String TAG = "EventJournalModule";
+    private static final String DIRECTORY = "event-journal";
+    private static final long SEGMENT_BYTES = 256 * 1024;
+    private static final long MAX_BYTES = 8 * 1024 * 1024;
+    private static final long COMMIT_DELAY_MS = 4;
+
+    private final ReactApplicationContext reactContext;
+    private EventJournal journal;
+
+    public EventJournalModule(ReactApplicationContext context) {
+        super(context);
+        this.reactContext = context;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Resolves {seq, duplicate} once the record is on disk. With a dedupKey,
+     * an unacknowledged record with the same key is kept instead.
+     */
+    @ReactMethod
+    public void append(String event, String payloadJson, String dedupKey, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EventJournal.append", jsPromise);
+        try {
+            long seq = journal().append(event, payloadJson, dedupKey, (committed, error) -> {
+                if (error != null) {
+                    Log.e(TAG, "Error committing " + event, error);
+                    promise.reject("JOURNAL_ERROR", error.getMessage());
+                    return;
+                }
+                WritableMap result = new WritableNativeMap();
+                result.putDouble("seq", committed);
+                result.putBoolean("duplicate", false);
+                promise.resolve(result);
+            });
+            if (seq < 0) {
+                WritableMap result = new WritableNativeMap();
+                result.putDouble("seq", -seq);
+                result.putBoolean("duplicate", true);
+                promise.resolve(result);
+            }
+        } catch (IllegalArgumentException e) {
+            promise.reject("RECORD_TOO_LARGE", e.getMessage());
+        } catch (IOException e) {
+            Log.e(TAG, "Error appending " + event, e);
+            promise.reject("JOURNAL_ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves {records: [{seq, timestamp, event, payload}], lastSeq} with
+     * up to {@code maxRecords} unacknowledged records after {@code afterSeq}
+     * (-1 for everything not yet acknowledged).
+     */
+    @ReactMethod
+    public void replay(double afterSeq, int maxRecords, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EventJournal.replay", jsPromise);
+        try {
+            List<EventJournal.Record> records = journal().replay((long) afterSeq, Math.max(1, maxRecords));
+            WritableArray items = new WritableNativeArray();
+            long lastSeq = (long) afterSeq;
+            for (EventJournal.Record record : records) {
+                WritableMap item = new WritableNativeMap();
+                item.putDouble("seq", record.seq);
+                item.putDouble("timestamp", record.timestamp);
+                item.putString("event", record.event);
+                item.putString("payload", record.payload);
+                items.pushMap(item);
+                lastSeq = record.seq;
+            }
+            WritableMap result = new WritableNativeMap();
+            result.putArray("records", items);
+            result.putDouble("lastSeq", lastSeq);
+            promise.resolve(result);
+        } catch (IOException e) {
+            Log.e(TAG, "Error replaying journal", e);
+            promise.reject("JOURNAL_ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Everything up to and including {@code seq} reached the server.
+     */
+    @ReactMethod
+    public void ack(double seq, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EventJournal.ack", jsPromise);
+        try {
+            journal().ack((long) seq);
+            promise.resolve(true);
+        } catch (IOException e) {
+            Log.e(TAG, "Error acknowledging journal", e);
+            promise.reject("JOURNAL_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void compact(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EventJournal.compact", jsPromise);
+        try {
+            journal().compact();
+            promise.resolve(true);
+        } catch (IOException e) {
+            Log.e(TAG, "Error compacting journal", e);
+            promise.reject("JOURNAL_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void getStats(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("EventJournal.getStats", jsPromise);
+        EventJournal.Stats stats = new EventJournal.Stats();
+        try {
+            journal().fill(stats);
+        } catch (IOException e) {
+            promise.reject("JOURNAL_ERROR", e.getMessage());
+            return;
+        }
+
+        double uptimeSec = Math.max(0.001, (System.currentTimeMillis() - stats.openedAt) / 1000.0);
+        WritableMap result = new WritableNativeMap();
+        result.putDouble("lastSeq", stats.lastSeq);
+        result.putDouble("ackedSeq", stats.ackedSeq);
+        result.putDouble("unacknowledged", stats.lastSeq - stats.ackedSeq);
+        result.putInt("pendingCommit", stats.pending);
+        result.putDouble("appended", stats.appended);
+        result.putDouble("deduplicated", stats.deduplicated);
+        result.putDouble("committed", stats.committed);
+        result.putDouble("commits", stats.commits);
+        result.putDouble("avgBatchSize", stats.commits > 0 ? (double) stats.committed / stats.commits : 0);
+        result.putDouble("avgCommitMicros", stats.commits > 0 ? stats.commitNanos / 1000.0 / stats.commits : 0);
+        result.putDouble("maxCommitMicros", stats.maxCommitNanos / 1000.0);
+        result.putDouble("bytesWritten", stats.bytesWritten);
+        result.putDouble("recordsPerSec", stats.committed / uptimeSec);
+        result.putDouble("bytesPerSec", stats.bytesWritten / uptimeSec);
+        result.putDouble("replayed", stats.replayed);
+        result.putDouble("acked", stats.acked);
+        result.putDouble("dropped", stats.dropped);
+        result.putDouble("compactions", stats.compactions);
+        result.putDouble("recovered", stats.recovered);
+        result.putDouble("truncatedBytes", stats.truncatedBytes);
+        result.putInt("segments", stats.segments);
+        result.putDouble("liveBytes", stats.liveBytes);
+        result.putDouble("maxBytes", MAX_BYTES);
+        promise.resolve(result);
+    }
+
+    @Override
+    public void invalidate() {
+        synchronized (this) {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        }
+        super.invalidate();
+    }
+
+    private synchronized EventJournal journal() throws IOException {
+        if (journal == null) {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+                // The journal's file handling is java.nio.file, which came with API 26
+                throw new IOException("Event journal needs Android 8.0 or newer");
+            }
+            File directory = new File(reactContext.getFilesDir(), DIRECTORY);
+            journal = new EventJournal(directory, SEGMENT_BYTES, MAX_BYTES, COMMIT_DELAY_MS);
+            EventJournal.Stats stats = new EventJournal.Stats();
+            journal.fill(stats);
+            Log.d(TAG, "Journal opened with " + (stats.lastSeq - stats.ackedSeq) + " unacknowledged events");
+        }
+        return journal;
+    }
+}
@@ -0,0 +1,57 @@
+package com.anonymous.ratownictwo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue depth, wait time (submit to start) and run time of one
+ * ModuleExecutor. Lock-free like LatencyHistogram, so it can sit on every
+ * task. Plain Java, so it runs on the JVM.
+ */
+final class ExecutorStats {
+    final LatencyHistogram wait = new LatencyHistogram();
+    final LatencyHistogram run = new LatencyHistogram();
+
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    void submitted() {
+        int now = depth.incrementAndGet();
+        int max = maxDepth.get();
+        while (now > max && !maxDepth.compareAndSet(max, now)) {
+            max = maxDepth.get();
+        }
+    }
+
+    /**
+     * A task was submitted but could not be queued (the thread is gone).
+     */
+    void rejected() {
+        depth.decrementAndGet();
+    }
+
+    void started(long waitNanos) {
+        depth.decrementAndGet();
+        wait.record(waitNanos, true);
+    }
+
+    void finished(long runNanos, boolean ok) {
+        run.record(runNanos, ok);
+    }
+
+    /**
+     * Tasks submitted and not yet started.
+     */
+    int getDepth() {
+        return depth.get();
+    }
+
+    int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    void reset() {
+        wait.reset();
+        run.reset();
+        maxDepth.set(depth.get());
+    }
+}
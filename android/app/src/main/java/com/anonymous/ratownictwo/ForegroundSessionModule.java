@@ -0,0 +1,208 @@
+package com.anonymous.ratownictwo;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.module.annotations.ReactModule;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Starts and stops SessionForegroundService and hands JS the events that
+ * were buffered while it was suspended.
+ *
+ * JS counts as suspended between onHostPause and onHostResume (or when set
+ * explicitly with setJsActive). On resume everything buffered is delivered
+ * as a single "sessionEventBatch" event, oldest first.
+ */
+@ReactModule(name = ForegroundSessionModule.NAME)
+public class ForegroundSessionModule extends ReactContextBaseJavaModule implements LifecycleEventListener {
+    public static final String NAME = "ForegroundSession";
+    private static final String TAG = "ForegroundSessionModule";
+
+    private final ReactApplicationContext reactContext;
+    private final SessionRuntime runtime;
+
+    public ForegroundSessionModule(ReactApplicationContext context) {
+        super(context);
+        this.reactContext = context;
+        this.runtime = SessionRuntime.get(context);
+        context.addLifecycleEventListener(this);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Options: {title, text, bufferCapacity, coalesce: [eventName...]}.
+     */
+    @ReactMethod
+    public void startSession(ReadableMap options, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("ForegroundSession.startSession", jsPromise);
+        String title = null;
+        String text = null;
+        int capacity = SessionEventBuffer.DEFAULT_CAPACITY;
+        Set<String> coalesce = new HashSet<>();
+        if (options != null) {
+            if (options.hasKey("title") && !options.isNull("title")) {
+                title = options.getString("title");
+            }
+            if (options.hasKey("text") && !options.isNull("text")) {
+                text = options.getString("text");
+            }
+            if (options.hasKey("bufferCapacity")) {
+                capacity = options.getInt("bufferCapacity");
+            }
+            if (options.hasKey("coalesce") && !options.isNull("coalesce")) {
+                ReadableArray names = options.getArray("coalesce");
+                for (int i = 0; i < names.size(); i++) {
+                    coalesce.add(names.getString(i));
+                }
+            }
+        }
+
+        try {
+            runtime.getBuffer().configure(capacity, coalesce);
+            SessionForegroundService.start(reactContext, title, text);
+            promise.resolve(true);
+        } catch (Exception e) {
+            // Android 12+ refuses foreground starts from the background
+            Log.e(TAG, "Error starting session service", e);
+            promise.reject("START_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void stopSession(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("ForegroundSession.stopSession", jsPromise);
+        try {
+            SessionForegroundService.stop(reactContext);
+            deliverBuffered();
+            promise.resolve(true);
+        } catch (Exception e) {
+            Log.e(TAG, "Error stopping session service", e);
+            promise.reject("STOP_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void updateNotification(String title, String text) {
+        long started = System.nanoTime();
+        try {
+            if (runtime.isServiceRunning()) {
+                SessionForegroundService.update(reactContext, title, text);
+            }
+        } finally {
+            NativeMetrics.get().recordMethod("ForegroundSession.updateNotification", started);
+        }
+    }
+
+    /**
+     * Overrides the lifecycle-based suspended flag, e.g. from AppState.
+     */
+    @ReactMethod
+    public void setJsActive(boolean active) {
+        long started = System.nanoTime();
+        try {
+            runtime.setJsActive(active);
+            if (active) {
+                deliverBuffered();
+            }
+        } finally {
+            NativeMetrics.get().recordMethod("ForegroundSession.setJsActive", started);
+        }
+    }
+
+    /**
+     * Delivers whatever is buffered now. Resolves with the number of events.
+     */
+    @ReactMethod
+    public void flushEvents(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("ForegroundSession.flushEvents", jsPromise);
+        promise.resolve(deliverBuffered());
+    }
+
+    @ReactMethod
+    public void getStatus(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("ForegroundSession.getStatus", jsPromise);
+        SessionEventBuffer buffer = runtime.getBuffer();
+        WritableMap status = new WritableNativeMap();
+        status.putBoolean("running", runtime.isServiceRunning());
+        status.putBoolean("jsActive", runtime.isJsActive());
+        status.putDouble("uptimeMs", runtime.getServiceUptimeMs());
+        status.putInt("pendingEvents", buffer.size());
+        status.putDouble("bufferedEvents", buffer.getBuffered());
+        status.putDouble("droppedEvents", buffer.getDropped());
+        status.putDouble("coalescedEvents", buffer.getCoalesced());
+        status.putDouble("batchesDelivered", runtime.getBatchesDelivered());
+        status.putDouble("eventsDelivered", runtime.getEventsDelivered());
+        status.putBoolean("wakeLockHeld", runtime.getLeases().isWakeLockHeld());
+        status.putBoolean("wifiLockHeld", runtime.getLeases().isWifiLockHeld());
+        promise.resolve(status);
+    }
+
+    @ReactMethod
+    public void addListener(String eventName) {
+        // Required for NativeEventEmitter
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+        // Required for NativeEventEmitter
+    }
+
+    @Override
+    public void onHostResume() {
+        runtime.setJsActive(true);
+        deliverBuffered();
+    }
+
+    @Override
+    public void onHostPause() {
+        runtime.setJsActive(false);
+    }
+
+    @Override
+    public void onHostDestroy() {
+        runtime.setJsActive(false);
+    }
+
+    @Override
+    public void invalidate() {
+        reactContext.removeLifecycleEventListener(this);
+        // The service deliberately survives a JS reload; the next context picks up the buffer
+        runtime.setJsActive(false);
+        super.invalidate();
+    }
+
+    private int deliverBuffered() {
+        WritableMap batch = runtime.drainBatch();
+        if (batch == null) {
+            return 0;
+        }
+        int count = batch.getInt("count");
+        Log.d(TAG, "Delivering " + count + " buffered events");
+        long started = System.nanoTime();
+        try {
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit("sessionEventBatch", batch);
+            NativeMetrics.get().recordEvent("sessionEventBatch", started);
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending event", e);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,139 @@
+package com.anonymous.ratownictwo;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed power-of-two buckets.
+ *
+ * Bucket 0 holds durations under 1 µs and bucket i durations in
+ * [2^(i-1), 2^i) µs, up to bucket 31 for everything from about 18 minutes.
+ * Recording is a handful of atomic adds and never allocates, so it can sit
+ * on every bridge call and event.
+ */
+final class LatencyHistogram {
+    static final int BUCKETS = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    static int bucketFor(long nanos) {
+        long micros = nanos / 1000;
+        return micros <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * Upper bound of a bucket in microseconds.
+     */
+    static long bucketLimitMicros(int bucket) {
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    void record(long nanos, boolean ok) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucketFor(nanos));
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+        if (!ok) {
+            errors.incrementAndGet();
+        }
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Marks a call as started; paired with {@link #finish}.
+     */
+    void begin() {
+        inFlight.incrementAndGet();
+    }
+
+    void finish(long nanos, boolean ok) {
+        inFlight.decrementAndGet();
+        record(nanos, ok);
+    }
+
+    /**
+     * Finishes a call that missed its deadline; counts as an error too.
+     */
+    void timeout(long nanos) {
+        timeouts.incrementAndGet();
+        finish(nanos, false);
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    long getTimeouts() {
+        return timeouts.get();
+    }
+
+    long getSumNanos() {
+        return sumNanos.get();
+    }
+
+    long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    long getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Copies the bucket counts into {@code out} (at least BUCKETS long).
+     */
+    void copyBuckets(long[] out) {
+        for (int i = 0; i < BUCKETS; i++) {
+            out[i] = buckets.get(i);
+        }
+    }
+
+    /**
+     * Upper bucket bound in microseconds below which {@code percentile} of
+     * the recorded samples fall, from a bucket snapshot.
+     */
+    static long percentileMicros(long[] bucketCounts, float percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += bucketCounts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return bucketLimitMicros(i);
+            }
+        }
+        return bucketLimitMicros(BUCKETS - 1);
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        errors.set(0);
+        timeouts.set(0);
+        sumNanos.set(0);
+        maxNanos.set(0);
+    }
+}
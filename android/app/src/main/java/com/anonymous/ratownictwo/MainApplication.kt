@@ -2,6 +2,8 @@ package com.anonymous.ratownictwo
 
 import android.app.Application
 import android.content.res.Configuration
+import android.os.Process
+import android.os.SystemClock
 
 import com.facebook.react.PackageList
 import com.facebook.react.ReactApplication
@@ -16,6 +18,7 @@ import com.facebook.soloader.SoLoader
 import expo.modules.ApplicationLifecycleDispatcher
 import expo.modules.ReactNativeHostWrapper
 import com.anonymous.ratownictwo.RatownictwoPackage
+import java.io.File
 
 class MainApplication : Application(), ReactApplication {
 
@@ -26,6 +29,7 @@ class MainApplication : Application(), ReactApplication {
             val packages = PackageList(this).packages
             // Use our consolidated package that registers all custom modules
             packages.add(RatownictwoPackage())
+            packages.add(RatownictwoTurboPackage())
             return packages
           }
 
@@ -42,13 +46,22 @@ class MainApplication : Application(), ReactApplication {
     get() = ReactNativeHostWrapper.createReactHost(applicationContext, reactNativeHost)
 
   override fun onCreate() {
+    // Each phase and every native module created later go to startup-trace.json
+    val trace = StartupTrace.get()
+    trace.begin(SystemClock.uptimeMillis() - Process.getStartUptimeMillis())
+    var started = System.nanoTime()
     super.onCreate()
+    started = trace.phase("Application.onCreate", started)
     SoLoader.init(this, OpenSourceMergedSoMapping)
+    started = trace.phase("SoLoader.init", started)
     if (BuildConfig.IS_NEW_ARCHITECTURE_ENABLED) {
       // If you opted-in for the New Architecture, we load the native entry point for this app.
       load()
+      started = trace.phase("DefaultNewArchitectureEntryPoint.load", started)
     }
     ApplicationLifecycleDispatcher.onApplicationCreate(this)
+    trace.phase("ApplicationLifecycleDispatcher.onApplicationCreate", started)
+    trace.writeTo { File(getExternalFilesDir(null) ?: filesDir, StartupTrace.FILE_NAME) }
   }
 
   override fun onConfigurationChanged(newConfig: Configuration) {
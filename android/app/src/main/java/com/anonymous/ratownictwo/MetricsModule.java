@@ -0,0 +1,204 @@
+package com.anonymous.ratownictwo;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.module.annotations.ReactModule;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes NativeMetrics to JS and optionally writes it to
+ * native-metrics.json in the app's external files directory on a timer
+ * (readable with adb without root).
+ */
+@ReactModule(name = MetricsModule.NAME)
+public class MetricsModule extends ReactContextBaseJavaModule {
+    public static final String NAME = "NativeMetrics";
+    private static final String TAG = "MetricsModule";
+    private static final String DUMP_FILE = "native-metrics.json";
+
+    private final ReactApplicationContext reactContext;
+    private final NativeMetrics metrics = NativeMetrics.get();
+    private ScheduledExecutorService dumpExecutor;
+    private ScheduledFuture<?> dumpTask;
+    private File dumpFile;
+
+    public MetricsModule(ReactApplicationContext context) {
+        super(context);
+        this.reactContext = context;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Resolves {since, methods: {name: stats}, events: {name: stats},
+     * executors: {name: {depth, maxDepth, wait: stats, run: stats}}} where
+     * stats are count, errors, timeouts, inFlight, avg/max/p50/p90/p99 in µs
+     * and the raw bucket counts.
+     */
+    @ReactMethod
+    public void getMetrics(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("NativeMetrics.getMetrics", jsPromise);
+        long[] buckets = new long[LatencyHistogram.BUCKETS];
+        WritableMap result = new WritableNativeMap();
+        result.putDouble("since", metrics.getResetAt());
+        result.putMap("methods", toMap(metrics.methodsSnapshot(), buckets));
+        result.putMap("events", toMap(metrics.eventsSnapshot(), buckets));
+        WritableMap executors = new WritableNativeMap();
+        for (Map.Entry<String, ExecutorStats> entry : metrics.executorsSnapshot().entrySet()) {
+            ExecutorStats stats = entry.getValue();
+            WritableMap executor = new WritableNativeMap();
+            executor.putInt("depth", stats.getDepth());
+            executor.putInt("maxDepth", stats.getMaxDepth());
+            executor.putMap("wait", toStats(stats.wait, buckets));
+            executor.putMap("run", toStats(stats.run, buckets));
+            executors.putMap(entry.getKey(), executor);
+        }
+        result.putMap("executors", executors);
+        WritableArray limits = new WritableNativeArray();
+        for (int i = 0; i < LatencyHistogram.BUCKETS - 1; i++) {
+            limits.pushDouble(LatencyHistogram.bucketLimitMicros(i));
+        }
+        result.putArray("bucketLimitsMicros", limits);
+        promise.resolve(result);
+    }
+
+    @ReactMethod
+    public void resetMetrics(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("NativeMetrics.resetMetrics", jsPromise);
+        metrics.reset();
+        promise.resolve(true);
+    }
+
+    /**
+     * Writes the metrics every {@code intervalMs}. Resolves with the file path.
+     */
+    @ReactMethod
+    public void startDump(double intervalMs, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("NativeMetrics.startDump", jsPromise);
+        try {
+            synchronized (this) {
+                stopDumpLocked();
+                File directory = reactContext.getExternalFilesDir(null);
+                if (directory == null) {
+                    directory = reactContext.getFilesDir();
+                }
+                dumpFile = new File(directory, DUMP_FILE);
+                if (dumpExecutor == null) {
+                    dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "MetricsDump");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                long period = Math.max(1000, (long) intervalMs);
+                dumpTask = dumpExecutor.scheduleWithFixedDelay(this::dump, period, period, TimeUnit.MILLISECONDS);
+                promise.resolve(dumpFile.getAbsolutePath());
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting metrics dump", e);
+            promise.reject("DUMP_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void stopDump(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("NativeMetrics.stopDump", jsPromise);
+        synchronized (this) {
+            stopDumpLocked();
+        }
+        promise.resolve(true);
+    }
+
+    @Override
+    public void invalidate() {
+        synchronized (this) {
+            stopDumpLocked();
+            if (dumpExecutor != null) {
+                dumpExecutor.shutdown();
+                dumpExecutor = null;
+            }
+        }
+        super.invalidate();
+    }
+
+    private void stopDumpLocked() {
+        if (dumpTask != null) {
+            dumpTask.cancel(false);
+            dumpTask = null;
+        }
+    }
+
+    private void dump() {
+        File target;
+        synchronized (this) {
+            target = dumpFile;
+        }
+        if (target == null) {
+            return;
+        }
+        File temp = new File(target.getParentFile(), DUMP_FILE + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(metrics.toJson().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Error writing metrics dump", e);
+            return;
+        }
+        if (!temp.renameTo(target)) {
+            Log.w(TAG, "Could not replace " + target);
+        }
+    }
+
+    private static WritableMap toMap(Map<String, LatencyHistogram> section, long[] buckets) {
+        WritableMap map = new WritableNativeMap();
+        for (Map.Entry<String, LatencyHistogram> entry : section.entrySet()) {
+            map.putMap(entry.getKey(), toStats(entry.getValue(), buckets));
+        }
+        return map;
+    }
+
+    private static WritableMap toStats(LatencyHistogram histogram, long[] buckets) {
+        WritableMap stats = new WritableNativeMap();
+        NativeMetrics.histogramStats(histogram, buckets, new NativeMetrics.StatsSink() {
+            @Override
+            public void putLong(String key, long value) {
+                stats.putDouble(key, value);
+            }
+
+            @Override
+            public void putDouble(String key, double value) {
+                stats.putDouble(key, value);
+            }
+
+            @Override
+            public void putBuckets(long[] counts) {
+                WritableArray array = new WritableNativeArray();
+                for (long bucket : counts) {
+                    array.pushDouble(bucket);
+                }
+                stats.putArray("buckets", array);
+            }
+        });
+        return stats;
+    }
+}
@@ -0,0 +1,79 @@
+package com.anonymous.ratownictwo;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Serial executor for one subsystem, on its own looper thread, so neither
+ * the main looper nor the native modules thread waits on Bluetooth, network
+ * or lock calls. One per subsystem for the life of the process; modules
+ * created again after a reload reuse it, so nobody quits the thread.
+ *
+ * Tasks given to {@link #execute} are counted in NativeMetrics under the
+ * executor's name: queue depth, time from submit to start, and run time. A
+ * task that throws is logged and counted as failed; the thread carries on.
+ * {@link #handler()} is for APIs that deliver callbacks to a Handler and for
+ * timers that are removed again; those are not counted.
+ */
+final class ModuleExecutor implements Executor {
+    private static final String TAG = "ModuleExecutor";
+
+    static final String BLUETOOTH = "bluetooth";
+    static final String NETWORK = "network";
+    static final String LOCKS = "locks";
+    static final String REALTIME = "realtime";
+
+    private static final ConcurrentHashMap<String, ModuleExecutor> EXECUTORS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final Handler handler;
+    private final ExecutorStats stats;
+
+    private ModuleExecutor(String name) {
+        this.name = name;
+        HandlerThread thread = new HandlerThread("Module-" + name);
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+        this.stats = NativeMetrics.get().executor(name);
+    }
+
+    /**
+     * The thread is started the first time a subsystem asks for it.
+     */
+    static ModuleExecutor get(String name) {
+        ModuleExecutor executor = EXECUTORS.get(name);
+        return executor != null ? executor : EXECUTORS.computeIfAbsent(name, ModuleExecutor::new);
+    }
+
+    Handler handler() {
+        return handler;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long submitted = System.nanoTime();
+        stats.submitted();
+        if (!handler.post(() -> run(task, submitted))) {
+            stats.rejected();
+        }
+    }
+
+    private void run(Runnable task, long submitted) {
+        long started = System.nanoTime();
+        stats.started(started - submitted);
+        boolean ok = false;
+        try {
+            task.run();
+            ok = true;
+        } catch (RuntimeException e) {
+            // Thrown out of Looper.loop it would end the thread and the process
+            Log.e(TAG, "Task failed on the " + name + " executor", e);
+        } finally {
+            stats.finished(System.nanoTime() - started, ok);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.anonymous.ratownictwo;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide latency histograms for native module calls and events, and
+ * the queue statistics of the ModuleExecutors.
+ *
+ * Methods are keyed "Module.method", events and executors by their name. A histogram
+ * is created the first time a name is seen; after that recording is a
+ * lookup of a constant string plus the atomic adds in LatencyHistogram, with
+ * no allocation. Plain Java, so it runs on the JVM.
+ */
+final class NativeMetrics {
+    private static final NativeMetrics INSTANCE = new NativeMetrics();
+    private static final float[] PERCENTILES = {50f, 90f, 99f};
+
+    /**
+     * Receives the stats of one histogram. The dump writes them as JSON and
+     * MetricsModule into a WritableMap, so JS and the file always agree.
+     */
+    interface StatsSink {
+        void putLong(String key, long value);
+
+        void putDouble(String key, double value);
+
+        void putBuckets(long[] buckets);
+    }
+
+    private final ConcurrentHashMap<String, LatencyHistogram> methods = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> events = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ExecutorStats> executors = new ConcurrentHashMap<>();
+    private volatile long resetAt = System.currentTimeMillis();
+
+    static NativeMetrics get() {
+        return INSTANCE;
+    }
+
+    LatencyHistogram method(String name) {
+        return histogram(methods, name);
+    }
+
+    LatencyHistogram event(String name) {
+        return histogram(events, name);
+    }
+
+    ExecutorStats executor(String name) {
+        ExecutorStats stats = executors.get(name);
+        if (stats == null) {
+            ExecutorStats created = new ExecutorStats();
+            stats = executors.putIfAbsent(name, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Records a synchronous method body that started at {@code startNanos}.
+     */
+    void recordMethod(String name, long startNanos) {
+        method(name).record(System.nanoTime() - startNanos, true);
+    }
+
+    /**
+     * Records one emitted event and how long handing it to JS took.
+     */
+    void recordEvent(String name, long startNanos) {
+        event(name).record(System.nanoTime() - startNanos, true);
+    }
+
+    void reset() {
+        for (LatencyHistogram histogram : methods.values()) {
+            histogram.reset();
+        }
+        for (LatencyHistogram histogram : events.values()) {
+            histogram.reset();
+        }
+        for (ExecutorStats stats : executors.values()) {
+            stats.reset();
+        }
+        resetAt = System.currentTimeMillis();
+    }
+
+    long getResetAt() {
+        return resetAt;
+    }
+
+    /**
+     * Names and histograms in name order, for reporting.
+     */
+    Map<String, LatencyHistogram> methodsSnapshot() {
+        return new TreeMap<>(methods);
+    }
+
+    Map<String, LatencyHistogram> eventsSnapshot() {
+        return new TreeMap<>(events);
+    }
+
+    Map<String, ExecutorStats> executorsSnapshot() {
+        return new TreeMap<>(executors);
+    }
+
+    /**
+     * The whole registry as JSON, for the periodic dump file.
+     */
+    String toJson() {
+        StringBuilder out = new StringBuilder(4096);
+        long[] buckets = new long[LatencyHistogram.BUCKETS];
+        out.append("{\"timestamp\":").append(System.currentTimeMillis())
+            .append(",\"since\":").append(resetAt)
+            .append(",\"methods\":");
+        appendSection(out, methodsSnapshot(), buckets);
+        out.append(",\"events\":");
+        appendSection(out, eventsSnapshot(), buckets);
+        out.append(",\"executors\":{");
+        boolean first = true;
+        for (Map.Entry<String, ExecutorStats> entry : executorsSnapshot().entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            ExecutorStats stats = entry.getValue();
+            out.append('"').append(entry.getKey()).append("\":{")
+                .append("\"depth\":").append(stats.getDepth())
+                .append(",\"maxDepth\":").append(stats.getMaxDepth())
+                .append(",\"wait\":");
+            appendHistogram(out, stats.wait, buckets);
+            out.append(",\"run\":");
+            appendHistogram(out, stats.run, buckets);
+            out.append('}');
+        }
+        return out.append("}}").toString();
+    }
+
+    private static void appendSection(StringBuilder out, Map<String, LatencyHistogram> section, long[] buckets) {
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : section.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            long count = histogram.getCount();
+            if (count == 0 && histogram.getInFlight() == 0) {
+                continue;
+            }
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            out.append('"').append(entry.getKey()).append("\":");
+            appendHistogram(out, histogram, buckets);
+        }
+        out.append('}');
+    }
+
+    /**
+     * count, errors, timeouts, inFlight, avg/max/p50/p90/p99 in µs and the
+     * bucket counts; {@code buckets} is scratch space of BUCKETS entries.
+     */
+    static void histogramStats(LatencyHistogram histogram, long[] buckets, StatsSink sink) {
+        long count = histogram.getCount();
+        histogram.copyBuckets(buckets);
+        sink.putLong("count", count);
+        sink.putLong("errors", histogram.getErrors());
+        sink.putLong("timeouts", histogram.getTimeouts());
+        sink.putLong("inFlight", histogram.getInFlight());
+        sink.putDouble("avgMicros", count > 0 ? histogram.getSumNanos() / 1000.0 / count : 0);
+        sink.putDouble("maxMicros", histogram.getMaxNanos() / 1000.0);
+        for (float percentile : PERCENTILES) {
+            sink.putLong("p" + (int) percentile + "Micros", LatencyHistogram.percentileMicros(buckets, percentile));
+        }
+        sink.putBuckets(buckets);
+    }
+
+    private static void appendHistogram(StringBuilder out, LatencyHistogram histogram, long[] buckets) {
+        out.append('{');
+        histogramStats(histogram, buckets, new StatsSink() {
+            private boolean first = true;
+
+            @Override
+            public void putLong(String key, long value) {
+                key(key).append(value);
+            }
+
+            @Override
+            public void putDouble(String key, double value) {
+                key(key).append(value);
+            }
+
+            @Override
+            public void putBuckets(long[] counts) {
+                key("buckets").append('[');
+                // Trailing empty buckets are left out
+                int last = counts.length - 1;
+                while (last > 0 && counts[last] == 0) {
+                    last--;
+                }
+                for (int i = 0; i <= last; i++) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    out.append(counts[i]);
+                }
+                out.append(']');
+            }
+
+            private StringBuilder key(String key) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                return out.append('"').append(key).append("\":");
+            }
+        });
+        out.append('}');
+    }
+
+    private static LatencyHistogram histogram(ConcurrentHashMap<String, LatencyHistogram> map, String name) {
+        LatencyHistogram histogram = map.get(name);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = map.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+}
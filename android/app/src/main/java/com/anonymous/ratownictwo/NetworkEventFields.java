@@ -0,0 +1,54 @@
+package com.anonymous.ratownictwo;
+
+/**
+ * Fields of the networkChanged and networkQuality events.
+ *
+ * Kept free of React Native types so the benchmarks can build the same
+ * events off-device; NetworkUtilsModule passes a sink over a WritableMap.
+ */
+final class NetworkEventFields {
+    interface Sink {
+        void putBoolean(String key, boolean value);
+
+        void putInt(String key, int value);
+
+        void putDouble(String key, double value);
+
+        void putString(String key, String value);
+
+        void putNull(String key);
+    }
+
+    private NetworkEventFields() {
+    }
+
+    static void networkChanged(NetworkStateStore.Snapshot snapshot, Sink sink) {
+        sink.putBoolean("isConnected", snapshot.connected);
+        sink.putString("connectionType", snapshot.transportName());
+        sink.putBoolean("validated", snapshot.validated);
+        sink.putDouble("timestamp", snapshot.wallTime);
+    }
+
+    /**
+     * The probe summary shared by the networkQuality event and getQualityStats.
+     */
+    static void quality(NetworkProbe.Stats stats, Sink sink) {
+        sink.putInt("score", stats.score);
+        sink.putString("level", NetworkQualityScore.levelName(stats.level));
+        sink.putDouble("p50Ms", stats.percentilesMs[0]);
+        sink.putDouble("p95Ms", stats.percentilesMs[2]);
+        sink.putDouble("jitterMs", stats.jitterMs);
+        sink.putDouble("lossRate", stats.lossRate);
+        sink.putString("transport", stats.link.transport);
+        if (stats.link.rssiDbm == Integer.MIN_VALUE) {
+            sink.putNull("rssi");
+        } else {
+            sink.putInt("rssi", stats.link.rssiDbm);
+        }
+    }
+
+    static void qualityChanged(NetworkProbe.Stats stats, int previousLevel, Sink sink) {
+        quality(stats, sink);
+        sink.putString("previousLevel", NetworkQualityScore.levelName(previousLevel));
+    }
+}
@@ -0,0 +1,334 @@
+package com.anonymous.ratownictwo;
+
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Keeps a standby network (cellular, or ethernet) requested and warm, and
+ * binds the process to it as soon as the default network degrades.
+ *
+ * Without this the socket waits for the system to validate and switch the
+ * default network, which takes seconds; with the standby already up the
+ * switch is a single bindProcessToNetwork call. Binding only affects new
+ * sockets, so the JS side reconnects on the handover event.
+ *
+ * Runs on the NetworkUtilsModule state thread: every method must be called
+ * there, and the standby callback is delivered there too.
+ */
+final class NetworkHandoverManager {
+    private static final String TAG = "NetworkHandover";
+
+    static final String TYPE_HANDOVER = "handover";
+    static final String TYPE_RESTORE = "restore";
+    static final String TYPE_FAILED = "failed";
+
+    static final String REASON_PRIMARY_LOST = "primaryLost";
+    static final String REASON_PRIMARY_UNVALIDATED = "primaryUnvalidated";
+    static final String REASON_QUALITY = "qualityBad";
+    static final String REASON_PRIMARY_RESTORED = "primaryRestored";
+    static final String REASON_STANDBY_LOST = "standbyLost";
+    static final String REASON_DISABLED = "disabled";
+
+    interface Listener {
+        void onHandover(Event event);
+    }
+
+    static final class Event {
+        String type;
+        String reason;
+        String fromTransport;
+        String toTransport;
+        long detectedAt;
+        long boundAt;
+        long standbyWarmMs;
+        boolean standbyValidated;
+        long wallTime;
+
+        long decisionMs() {
+            return boundAt - detectedAt;
+        }
+    }
+
+    private final ConnectivityManager connectivityManager;
+    private final Handler handler;
+    private final Listener listener;
+    private final Runnable restore = () -> unbind(REASON_PRIMARY_RESTORED, SystemClock.elapsedRealtime());
+
+    private boolean enabled = false;
+    private boolean includeEthernet = true;
+    private long minHoldMs = 30_000;
+    private long restoreStableMs = 3_000;
+    private ConnectivityManager.NetworkCallback standbyCallback;
+
+    private Network standby;
+    private int standbyTransport = NetworkStateStore.TRANSPORT_NONE;
+    private boolean standbyValidated = false;
+    private long standbyUpSince;
+
+    private boolean bound = false;
+    private String boundReason;
+    private long boundAt;
+    private NetworkStateStore.Snapshot lastDefault;
+    private long handovers;
+    private long restores;
+    private long failures;
+    private Event lastEvent;
+
+    NetworkHandoverManager(ConnectivityManager connectivityManager, Handler handler, Listener listener) {
+        this.connectivityManager = connectivityManager;
+        this.handler = handler;
+        this.listener = listener;
+    }
+
+    void enable(boolean includeEthernet, long minHoldMs, long restoreStableMs) {
+        this.includeEthernet = includeEthernet;
+        this.minHoldMs = Math.max(0, minHoldMs);
+        this.restoreStableMs = Math.max(0, restoreStableMs);
+        if (enabled) {
+            return;
+        }
+        enabled = true;
+        requestStandby();
+    }
+
+    void disable() {
+        if (!enabled) {
+            return;
+        }
+        enabled = false;
+        handler.removeCallbacks(restore);
+        if (bound) {
+            unbind(REASON_DISABLED, SystemClock.elapsedRealtime());
+        }
+        if (standbyCallback != null) {
+            try {
+                connectivityManager.unregisterNetworkCallback(standbyCallback);
+            } catch (Exception e) {
+                Log.e(TAG, "Error releasing standby network", e);
+            }
+            standbyCallback = null;
+        }
+        standby = null;
+        standbyValidated = false;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * A new default-network snapshot (connectivity or transport changed, or
+     * validation changed).
+     */
+    void onDefaultNetwork(NetworkStateStore.Snapshot snapshot, long detectedAt) {
+        NetworkStateStore.Snapshot previous = lastDefault;
+        lastDefault = snapshot;
+        if (!enabled) {
+            return;
+        }
+
+        boolean isStandby = standby != null && snapshot.networkHandle == standby.getNetworkHandle();
+        if (snapshot.connected && snapshot.validated && !isStandby) {
+            // Primary is healthy: go back once it has stayed that way
+            if (bound) {
+                long heldMs = detectedAt - boundAt;
+                long wait = REASON_QUALITY.equals(boundReason)
+                    ? Math.max(restoreStableMs, minHoldMs - heldMs) : restoreStableMs;
+                handler.removeCallbacks(restore);
+                handler.postDelayed(restore, Math.max(0, wait));
+            }
+            return;
+        }
+
+        handler.removeCallbacks(restore);
+        if (isStandby) {
+            // The system already switched over to the standby itself
+            return;
+        }
+        if (!snapshot.connected) {
+            handover(REASON_PRIMARY_LOST, previous, detectedAt);
+        } else if (previous != null && previous.validated && previous.networkHandle == snapshot.networkHandle) {
+            handover(REASON_PRIMARY_UNVALIDATED, previous, detectedAt);
+        }
+    }
+
+    /**
+     * The quality probe fell to the given level.
+     */
+    void onQualityLevel(int level, long detectedAt) {
+        if (enabled && level == NetworkQualityScore.LEVEL_BAD && !bound) {
+            handover(REASON_QUALITY, lastDefault, detectedAt);
+        }
+    }
+
+    boolean isBound() {
+        return bound;
+    }
+
+    String getBoundReason() {
+        return boundReason;
+    }
+
+    long getBoundMs() {
+        return bound ? SystemClock.elapsedRealtime() - boundAt : 0;
+    }
+
+    boolean hasStandby() {
+        return standby != null;
+    }
+
+    boolean isStandbyValidated() {
+        return standbyValidated;
+    }
+
+    String getStandbyTransport() {
+        return NetworkStateStore.transportName(standbyTransport);
+    }
+
+    long getStandbyWarmMs() {
+        return standby != null ? SystemClock.elapsedRealtime() - standbyUpSince : 0;
+    }
+
+    long getHandovers() {
+        return handovers;
+    }
+
+    long getRestores() {
+        return restores;
+    }
+
+    long getFailures() {
+        return failures;
+    }
+
+    Event getLastEvent() {
+        return lastEvent;
+    }
+
+    private void requestStandby() {
+        NetworkRequest.Builder builder = new NetworkRequest.Builder()
+            .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+            .addTransportType(NetworkCapabilities.TRANSPORT_CELLULAR);
+        if (includeEthernet) {
+            // Transport types in one request are alternatives
+            builder.addTransportType(NetworkCapabilities.TRANSPORT_ETHERNET);
+        }
+
+        standbyCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                if (standby == null || !standby.equals(network)) {
+                    standby = network;
+                    standbyUpSince = SystemClock.elapsedRealtime();
+                    standbyValidated = false;
+                    Log.d(TAG, "Standby network up");
+                }
+            }
+
+            @Override
+            public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities capabilities) {
+                if (!network.equals(standby)) {
+                    return;
+                }
+                standbyValidated = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+                standbyTransport = capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)
+                    ? NetworkStateStore.TRANSPORT_CELLULAR
+                    : capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)
+                        ? NetworkStateStore.TRANSPORT_ETHERNET : NetworkStateStore.TRANSPORT_OTHER;
+            }
+
+            @Override
+            public void onLost(@NonNull Network network) {
+                if (!network.equals(standby)) {
+                    return;
+                }
+                Log.d(TAG, "Standby network lost");
+                standby = null;
+                standbyValidated = false;
+                if (bound) {
+                    unbind(REASON_STANDBY_LOST, SystemClock.elapsedRealtime());
+                }
+            }
+        };
+
+        try {
+            // Kept requested for as long as handover is enabled, which is what keeps the radio warm
+            connectivityManager.requestNetwork(builder.build(), standbyCallback, handler);
+        } catch (SecurityException e) {
+            Log.e(TAG, "Missing CHANGE_NETWORK_STATE permission", e);
+            standbyCallback = null;
+        }
+    }
+
+    private void handover(String reason, NetworkStateStore.Snapshot from, long detectedAt) {
+        if (bound) {
+            return;
+        }
+        Event event = new Event();
+        event.reason = reason;
+        event.detectedAt = detectedAt;
+        event.fromTransport = from != null ? from.transportName() : "none";
+        event.toTransport = getStandbyTransport();
+        event.standbyValidated = standbyValidated;
+        event.standbyWarmMs = getStandbyWarmMs();
+        event.wallTime = System.currentTimeMillis();
+
+        boolean ok = standby != null && connectivityManager.bindProcessToNetwork(standby);
+        event.boundAt = SystemClock.elapsedRealtime();
+        if (ok) {
+            bound = true;
+            boundReason = reason;
+            boundAt = event.boundAt;
+            handovers++;
+            event.type = TYPE_HANDOVER;
+            if (REASON_QUALITY.equals(reason)) {
+                // The default network never changed, so nothing else would bring us back
+                handler.postDelayed(restore, minHoldMs);
+            }
+            Log.d(TAG, "Handover (" + reason + ") to " + event.toTransport + " in " + event.decisionMs() + " ms");
+        } else {
+            failures++;
+            event.type = TYPE_FAILED;
+            event.toTransport = "none";
+            Log.w(TAG, "Handover (" + reason + ") failed, standby " + (standby != null ? "refused" : "not available"));
+        }
+        publish(event);
+    }
+
+    private void unbind(String reason, long detectedAt) {
+        if (!bound) {
+            return;
+        }
+        connectivityManager.bindProcessToNetwork(null);
+        bound = false;
+        restores++;
+
+        Event event = new Event();
+        event.type = TYPE_RESTORE;
+        event.reason = reason;
+        event.detectedAt = detectedAt;
+        event.boundAt = SystemClock.elapsedRealtime();
+        event.fromTransport = getStandbyTransport();
+        event.toTransport = lastDefault != null ? lastDefault.transportName() : "none";
+        event.standbyValidated = standbyValidated;
+        event.standbyWarmMs = getStandbyWarmMs();
+        event.wallTime = System.currentTimeMillis();
+        Log.d(TAG, "Back on the default network (" + reason + ") after " + (event.boundAt - boundAt) + " ms");
+        boundReason = null;
+        publish(event);
+    }
+
+    private void publish(Event event) {
+        lastEvent = event;
+        if (listener != null) {
+            listener.onHandover(event);
+        }
+    }
+}
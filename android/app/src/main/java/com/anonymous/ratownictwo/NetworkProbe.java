@@ -0,0 +1,287 @@
+package com.anonymous.ratownictwo;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Measures RTT to the session server on its own thread and scores the link.
+ *
+ * Two modes:
+ * <ul>
+ *   <li>{@link #MODE_CONNECT}: times the TCP handshake to host:port, which
+ *       works against any listening server;</li>
+ *   <li>{@link #MODE_ECHO}: keeps one socket open and times an 8-byte
+ *       sequence number echoed back, for a stand-in echo server.</li>
+ * </ul>
+ * Plain Java apart from what the LinkSource reads, so it runs on the JVM
+ * against a local ServerSocket.
+ */
+final class NetworkProbe {
+    static final int MODE_CONNECT = 0;
+    static final int MODE_ECHO = 1;
+
+    private static final float[] PERCENTILES = {50f, 90f, 95f, 99f};
+
+    interface LinkSource {
+        void sample(LinkSample sample);
+    }
+
+    interface Listener {
+        void onLevelChanged(NetworkProbe probe, int previousLevel);
+    }
+
+    static final class LinkSample {
+        String transport = "unknown";
+        int rssiDbm = Integer.MIN_VALUE;
+        int linkSpeedMbps = -1;
+        int downstreamKbps = -1;
+        int upstreamKbps = -1;
+
+        void reset() {
+            transport = "unknown";
+            rssiDbm = Integer.MIN_VALUE;
+            linkSpeedMbps = -1;
+            downstreamKbps = -1;
+            upstreamKbps = -1;
+        }
+
+        void copyFrom(LinkSample other) {
+            transport = other.transport;
+            rssiDbm = other.rssiDbm;
+            linkSpeedMbps = other.linkSpeedMbps;
+            downstreamKbps = other.downstreamKbps;
+            upstreamKbps = other.upstreamKbps;
+        }
+    }
+
+    static final class Stats {
+        final float[] percentilesMs = new float[PERCENTILES.length];
+        final LinkSample link = new LinkSample();
+        float lastMs;
+        float jitterMs;
+        float lossRate;
+        int samples;
+        long totalProbes;
+        long totalLost;
+        int score;
+        int level;
+        boolean running;
+    }
+
+    final String host;
+    final int port;
+    final int mode;
+    private final long intervalMs;
+    private final int timeoutMs;
+    private final LinkSource linkSource;
+    private final Listener listener;
+
+    // Guarded by this
+    private final NetworkRttWindow window;
+    private final NetworkQualityScore quality = new NetworkQualityScore();
+    private final float[] percentiles = new float[PERCENTILES.length];
+    private final LinkSample link = new LinkSample();
+
+    // Probe thread only
+    private final LinkSample scratchLink = new LinkSample();
+    private InetAddress address;
+    private Socket echoSocket;
+    private DataInputStream echoIn;
+    private DataOutputStream echoOut;
+    private long sequence;
+
+    private volatile boolean running = false;
+    private Thread thread;
+
+    NetworkProbe(String host, int port, int mode, long intervalMs, int timeoutMs, int windowSize,
+                 LinkSource linkSource, Listener listener) {
+        this.host = host;
+        this.port = port;
+        this.mode = mode;
+        this.intervalMs = Math.max(100, intervalMs);
+        this.timeoutMs = Math.max(100, timeoutMs);
+        this.window = new NetworkRttWindow(windowSize);
+        this.linkSource = linkSource;
+        this.listener = listener;
+    }
+
+    synchronized void setThresholds(int poor, int fair, int good, int hysteresis) {
+        quality.setThresholds(poor, fair, good, hysteresis);
+    }
+
+    synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "NetworkProbe");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+            thread = null;
+        }
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Forgets the window and level, e.g. after traffic moved to another
+     * network; the next probe reports a fresh level.
+     */
+    synchronized void reset() {
+        window.clear();
+        quality.reset();
+    }
+
+    synchronized void fill(Stats stats) {
+        window.percentiles(PERCENTILES, stats.percentilesMs);
+        stats.link.copyFrom(link);
+        stats.lastMs = window.getLastMs();
+        stats.jitterMs = window.getJitterMs();
+        stats.lossRate = window.getLossRate();
+        stats.samples = window.size();
+        stats.totalProbes = window.getTotalProbes();
+        stats.totalLost = window.getTotalLost();
+        stats.score = quality.getScore();
+        stats.level = quality.getLevel();
+        stats.running = running;
+    }
+
+    /**
+     * Runs one probe round on the calling thread.
+     */
+    void probeOnce() {
+        long rttMicros = mode == MODE_ECHO ? echo() : connect();
+
+        scratchLink.reset();
+        if (linkSource != null) {
+            try {
+                linkSource.sample(scratchLink);
+            } catch (RuntimeException e) {
+                // Missing permission or radio off: score without signal data
+            }
+        }
+
+        int previousLevel;
+        boolean changed;
+        synchronized (this) {
+            if (rttMicros >= 0) {
+                window.addRtt(rttMicros);
+            } else {
+                window.addLoss();
+            }
+            link.copyFrom(scratchLink);
+            window.percentiles(PERCENTILES, percentiles);
+            previousLevel = quality.getLevel();
+            changed = quality.update(percentiles[0], percentiles[2], window.getJitterMs(),
+                window.getLossRate(), link.rssiDbm);
+        }
+        if (changed && listener != null) {
+            listener.onLevelChanged(this, previousLevel);
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                long started = System.nanoTime();
+                probeOnce();
+                long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+                Thread.sleep(Math.max(10, intervalMs - elapsedMs));
+            }
+        } catch (InterruptedException e) {
+            // stop()
+        } finally {
+            closeEcho();
+        }
+    }
+
+    /**
+     * @return handshake time in microseconds, or -1 when the probe was lost
+     */
+    private long connect() {
+        try {
+            return connectMicros(resolve(), port, timeoutMs);
+        } catch (IOException e) {
+            address = null;
+            return -1;
+        }
+    }
+
+    /**
+     * Times one TCP handshake, in microseconds.
+     */
+    static long connectMicros(InetAddress address, int port, int timeoutMs) throws IOException {
+        try (Socket socket = new Socket()) {
+            InetSocketAddress target = new InetSocketAddress(address, port);
+            long start = System.nanoTime();
+            socket.connect(target, timeoutMs);
+            return (System.nanoTime() - start) / 1_000;
+        }
+    }
+
+    private long echo() {
+        try {
+            if (echoSocket == null) {
+                echoSocket = new Socket();
+                echoSocket.setTcpNoDelay(true);
+                echoSocket.setSoTimeout(timeoutMs);
+                echoSocket.connect(new InetSocketAddress(resolve(), port), timeoutMs);
+                echoIn = new DataInputStream(echoSocket.getInputStream());
+                echoOut = new DataOutputStream(echoSocket.getOutputStream());
+            }
+            long seq = ++sequence;
+            long start = System.nanoTime();
+            echoOut.writeLong(seq);
+            echoOut.flush();
+            // Late echoes of earlier lost probes are skipped
+            long reply;
+            do {
+                reply = echoIn.readLong();
+            } while (reply < seq);
+            if (reply != seq) {
+                throw new IOException("Unexpected echo " + reply + " for " + seq);
+            }
+            return (System.nanoTime() - start) / 1_000;
+        } catch (IOException e) {
+            closeEcho();
+            address = null;
+            return -1;
+        }
+    }
+
+    private InetAddress resolve() throws IOException {
+        if (address == null) {
+            address = InetAddress.getByName(host);
+        }
+        return address;
+    }
+
+    private void closeEcho() {
+        if (echoSocket != null) {
+            try {
+                echoSocket.close();
+            } catch (IOException e) {
+                // Already broken
+            }
+            echoSocket = null;
+            echoIn = null;
+            echoOut = null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.anonymous.ratownictwo;
+
+/**
+ * Folds RTT, jitter, loss and signal strength into a 0-100 score and a
+ * coarse level.
+ *
+ * The level only moves once the score has cleared a threshold by the
+ * hysteresis margin, so a link sitting on a boundary does not flap between
+ * two levels on every probe.
+ */
+final class NetworkQualityScore {
+    static final int LEVEL_UNKNOWN = -1;
+    static final int LEVEL_BAD = 0;
+    static final int LEVEL_POOR = 1;
+    static final int LEVEL_FAIR = 2;
+    static final int LEVEL_GOOD = 3;
+
+    private static final String[] LEVEL_NAMES = {"bad", "poor", "fair", "good"};
+
+    // Lower bounds of POOR, FAIR and GOOD
+    private final int[] thresholds = {25, 50, 75};
+    private int hysteresis = 5;
+    private int level = LEVEL_UNKNOWN;
+    private int score = -1;
+
+    void setThresholds(int poor, int fair, int good, int hysteresis) {
+        thresholds[0] = poor;
+        thresholds[1] = fair;
+        thresholds[2] = good;
+        this.hysteresis = Math.max(0, hysteresis);
+    }
+
+    static String levelName(int level) {
+        return level >= 0 && level < LEVEL_NAMES.length ? LEVEL_NAMES[level] : "unknown";
+    }
+
+    /**
+     * @param p50Ms   median RTT, or below zero when every probe was lost
+     * @param rssiDbm Wi-Fi RSSI, or {@link Integer#MIN_VALUE} when not on Wi-Fi
+     * @return true when the level changed
+     */
+    boolean update(float p50Ms, float p95Ms, float jitterMs, float lossRate, int rssiDbm) {
+        score = compute(p50Ms, p95Ms, jitterMs, lossRate, rssiDbm);
+        if (level == LEVEL_UNKNOWN) {
+            level = levelFor(score);
+            return true;
+        }
+        // Moving up has to clear the bound by the margin, and so does moving down
+        int up = levelFor(score - hysteresis);
+        int down = levelFor(score + hysteresis);
+        int target = up > level ? up : down < level ? down : level;
+        if (target == level) {
+            return false;
+        }
+        level = target;
+        return true;
+    }
+
+    void reset() {
+        level = LEVEL_UNKNOWN;
+        score = -1;
+    }
+
+    int getScore() {
+        return score;
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    static int compute(float p50Ms, float p95Ms, float jitterMs, float lossRate, int rssiDbm) {
+        if (p50Ms < 0) {
+            return 0;
+        }
+        // Penalties tuned for realtime session traffic on a LAN: 20 ms is
+        // free, 300 ms median or 100 ms jitter is unusable
+        float penalty = 0f;
+        penalty += clamp((p50Ms - 20f) / 280f) * 40f;
+        penalty += clamp((p95Ms - p50Ms) / 400f) * 15f;
+        penalty += clamp(jitterMs / 100f) * 15f;
+        penalty += clamp(lossRate / 0.2f) * 25f;
+        if (rssiDbm != Integer.MIN_VALUE) {
+            penalty += clamp((-60f - rssiDbm) / 25f) * 5f;
+        }
+        return Math.round(100f - penalty);
+    }
+
+    private int levelFor(int value) {
+        int result = LEVEL_BAD;
+        for (int i = 0; i < thresholds.length; i++) {
+            if (value >= thresholds[i]) {
+                result = i + 1;
+            }
+        }
+        return result;
+    }
+
+    private static float clamp(float value) {
+        return Math.max(0f, Math.min(1f, value));
+    }
+}
@@ -0,0 +1,114 @@
+package com.anonymous.ratownictwo;
+
+import java.util.Arrays;
+
+/**
+ * Rolling window of probe results in fixed primitive arrays.
+ *
+ * RTTs are kept in microseconds; lost probes take a slot too, so the loss
+ * rate covers the same window as the percentiles. Jitter is the RFC 3550
+ * running estimate (1/16 gain) over consecutive successful probes.
+ */
+final class NetworkRttWindow {
+    private static final int LOST = -1;
+
+    private final int[] rttMicros;
+    private final int[] sorted;
+    private int next;
+    private int count;
+    private int lost;
+    private int lastRtt = LOST;
+    private double jitterMicros;
+    private long totalProbes;
+    private long totalLost;
+
+    NetworkRttWindow(int size) {
+        this.rttMicros = new int[Math.max(4, size)];
+        this.sorted = new int[rttMicros.length];
+    }
+
+    void addRtt(long micros) {
+        int rtt = (int) Math.min(Integer.MAX_VALUE, Math.max(0, micros));
+        if (lastRtt != LOST) {
+            jitterMicros += (Math.abs(rtt - lastRtt) - jitterMicros) / 16.0;
+        }
+        lastRtt = rtt;
+        put(rtt);
+    }
+
+    void addLoss() {
+        put(LOST);
+        totalLost++;
+    }
+
+    void clear() {
+        next = 0;
+        count = 0;
+        lost = 0;
+        lastRtt = LOST;
+        jitterMicros = 0;
+    }
+
+    int size() {
+        return count;
+    }
+
+    long getTotalProbes() {
+        return totalProbes;
+    }
+
+    long getTotalLost() {
+        return totalLost;
+    }
+
+    float getLossRate() {
+        return count == 0 ? 0f : (float) lost / count;
+    }
+
+    float getJitterMs() {
+        return (float) (jitterMicros / 1000.0);
+    }
+
+    float getLastMs() {
+        return lastRtt == LOST ? -1f : lastRtt / 1000f;
+    }
+
+    /**
+     * Fills {@code out} with the RTT in ms at each requested percentile
+     * (0..100), or -1 when the window has no successful probe.
+     */
+    void percentiles(float[] percentiles, float[] out) {
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (rttMicros[i] != LOST) {
+                sorted[n++] = rttMicros[i];
+            }
+        }
+        if (n == 0) {
+            Arrays.fill(out, 0, percentiles.length, -1f);
+            return;
+        }
+        Arrays.sort(sorted, 0, n);
+        for (int i = 0; i < percentiles.length; i++) {
+            // Nearest rank
+            int rank = (int) Math.ceil(percentiles[i] / 100f * n) - 1;
+            out[i] = sorted[Math.max(0, Math.min(n - 1, rank))] / 1000f;
+        }
+    }
+
+    private void put(int value) {
+        if (count == rttMicros.length) {
+            if (rttMicros[next] == LOST) {
+                lost--;
+            }
+        } else {
+            count++;
+        }
+        rttMicros[next] = value;
+        if (value == LOST) {
+            lost++;
+        }
+        next = (next + 1) % rttMicros.length;
+        totalProbes++;
+    }
+}
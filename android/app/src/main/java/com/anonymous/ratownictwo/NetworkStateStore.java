@@ -0,0 +1,146 @@
+package com.anonymous.ratownictwo;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Latest default-network state plus the last N connectivity transitions.
+ *
+ * The snapshot is immutable and swapped atomically, so readers on any
+ * thread get a consistent view without a lock. Transitions (connected or
+ * transport changed) go into a fixed ring of primitive arrays with both wall
+ * and elapsed-realtime timestamps, so a drop can be lined up exactly with
+ * server-side logs.
+ */
+final class NetworkStateStore {
+    static final int TRANSPORT_NONE = 0;
+    static final int TRANSPORT_WIFI = 1;
+    static final int TRANSPORT_CELLULAR = 2;
+    static final int TRANSPORT_ETHERNET = 3;
+    static final int TRANSPORT_OTHER = 4;
+
+    private static final String[] TRANSPORT_NAMES = {"none", "wifi", "cellular", "ethernet", "unknown"};
+
+    static final class Snapshot {
+        final boolean connected;
+        final int transport;
+        final boolean validated;
+        final boolean metered;
+        final long networkHandle;
+        final long wallTime;
+        final long elapsedTime;
+
+        Snapshot(boolean connected, int transport, boolean validated, boolean metered,
+                 long networkHandle, long wallTime, long elapsedTime) {
+            this.connected = connected;
+            this.transport = transport;
+            this.validated = validated;
+            this.metered = metered;
+            this.networkHandle = networkHandle;
+            this.wallTime = wallTime;
+            this.elapsedTime = elapsedTime;
+        }
+
+        /**
+         * What JS acts on: connectivity and transport, not bandwidth or signal.
+         */
+        boolean sameConnectivity(Snapshot other) {
+            return other != null && connected == other.connected && transport == other.transport;
+        }
+
+        String transportName() {
+            return NetworkStateStore.transportName(transport);
+        }
+    }
+
+    static final class Transition {
+        long wallTime;
+        long elapsedTime;
+        boolean connected;
+        int transport;
+        int previousTransport;
+        long networkHandle;
+    }
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    // Ring guarded by this
+    private final long[] wallTimes;
+    private final long[] elapsedTimes;
+    private final boolean[] connectedFlags;
+    private final int[] transports;
+    private final int[] previousTransports;
+    private final long[] handles;
+    private int next;
+    private int count;
+    private long totalTransitions;
+
+    NetworkStateStore(int capacity) {
+        int size = Math.max(1, capacity);
+        wallTimes = new long[size];
+        elapsedTimes = new long[size];
+        connectedFlags = new boolean[size];
+        transports = new int[size];
+        previousTransports = new int[size];
+        handles = new long[size];
+    }
+
+    static String transportName(int transport) {
+        return transport >= 0 && transport < TRANSPORT_NAMES.length ? TRANSPORT_NAMES[transport] : "unknown";
+    }
+
+    Snapshot get() {
+        return current.get();
+    }
+
+    /**
+     * Swaps in a new snapshot; records a transition when connectivity or
+     * transport changed.
+     *
+     * @return true when this was such a transition
+     */
+    boolean update(Snapshot snapshot) {
+        Snapshot previous = current.getAndSet(snapshot);
+        if (snapshot.sameConnectivity(previous)) {
+            return false;
+        }
+        synchronized (this) {
+            wallTimes[next] = snapshot.wallTime;
+            elapsedTimes[next] = snapshot.elapsedTime;
+            connectedFlags[next] = snapshot.connected;
+            transports[next] = snapshot.transport;
+            previousTransports[next] = previous != null ? previous.transport : TRANSPORT_NONE;
+            handles[next] = snapshot.networkHandle;
+            next = (next + 1) % wallTimes.length;
+            count = Math.min(count + 1, wallTimes.length);
+            totalTransitions++;
+        }
+        return true;
+    }
+
+    synchronized int getTransitionCount() {
+        return count;
+    }
+
+    synchronized long getTotalTransitions() {
+        return totalTransitions;
+    }
+
+    /**
+     * Kept transitions, oldest first.
+     */
+    synchronized Transition[] getTransitions() {
+        Transition[] copies = new Transition[count];
+        for (int i = 0; i < count; i++) {
+            int slot = (next - count + i + wallTimes.length) % wallTimes.length;
+            Transition transition = new Transition();
+            transition.wallTime = wallTimes[slot];
+            transition.elapsedTime = elapsedTimes[slot];
+            transition.connected = connectedFlags[slot];
+            transition.transport = transports[slot];
+            transition.previousTransport = previousTransports[slot];
+            transition.networkHandle = handles[slot];
+            copies[i] = transition;
+        }
+        return copies;
+    }
+}
@@ -1,157 +1,832 @@
 package com.anonymous.ratownictwo;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
+import android.net.LinkProperties;
 import android.net.Network;
 import android.net.NetworkCapabilities;
-import android.net.NetworkInfo;
-import android.net.NetworkRequest;
+import android.net.RouteInfo;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import com.facebook.react.bridge.Callback;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
 import com.facebook.react.bridge.WritableNativeMap;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.module.annotations.ReactModule;
 
-public class NetworkUtilsModule extends ReactContextBaseJavaModule {
+import java.net.Inet4Address;
+import java.util.List;
+
+@ReactModule(name = NetworkUtilsSpec.NAME)
+public class NetworkUtilsModule extends NetworkUtilsSpec {
     private static final String TAG = "NetworkUtilsModule";
     private final ReactApplicationContext reactContext;
-    private ConnectivityManager.NetworkCallback networkCallback;
+    private static final int TRANSITION_HISTORY = 64;
+    private static final long EVENT_DEBOUNCE_MS = 250;
+    private static final long DEADLINE_MARGIN_MS = 5000;
+
+    private ConnectivityManager.NetworkCallback stateCallback;
     private ConnectivityManager connectivityManager;
+    private final NetworkStateStore stateStore = new NetworkStateStore(TRANSITION_HISTORY);
+    private final Runnable emitChange = this::emitChange;
+    // State thread only
+    private boolean monitoring = false;
+    private NetworkStateStore.Snapshot lastEmitted;
+    private NetworkHandoverManager handover;
+
+    private static final String SERVER_CACHE_PREFS = "ServerEndpointCache";
+    private static final long SERVER_CACHE_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+    private ServerEndpointCache serverCache;
+    private ServerDiscovery serverDiscovery;
+    private ServerLocator serverLocator;
+    private NetworkProbe probe;
+    // Guarded by this; applied to every probe started
+    private int thresholdPoor = 25;
+    private int thresholdFair = 50;
+    private int thresholdGood = 75;
+    private int thresholdHysteresis = 5;
+    // Reused by getQualityStats and quality events
+    private final NetworkProbe.Stats probeStats = new NetworkProbe.Stats();
 
     public NetworkUtilsModule(ReactApplicationContext context) {
         super(context);
         this.reactContext = context;
-        this.connectivityManager = (ConnectivityManager) reactContext.getSystemService(Context.CONNECTIVITY_SERVICE);
-    }    @Override
-    public String getName() {
-        return "NetworkUtils";
+    }
+
+    /**
+     * The system service and the handover manager are acquired on first use
+     * so constructing the module costs nothing at startup.
+     */
+    private synchronized ConnectivityManager connectivity() {
+        if (connectivityManager == null) {
+            connectivityManager = (ConnectivityManager) reactContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        }
+        return connectivityManager;
+    }
+
+    // State, callbacks and handover all run on the shared network executor
+    private static ModuleExecutor network() {
+        return ModuleExecutor.get(ModuleExecutor.NETWORK);
+    }
+
+    private synchronized NetworkHandoverManager handover() {
+        if (handover == null) {
+            handover = new NetworkHandoverManager(connectivity(), network().handler(), this::onHandover);
+        }
+        return handover;
+    }
+
+    // State changes only matter to a manager that exists
+    @Nullable
+    private synchronized NetworkHandoverManager existingHandover() {
+        return handover;
+    }
+
+    /**
+     * Served from the cached snapshot; the ConnectivityManager is only asked
+     * once, when tracking starts.
+     */
+    @Override
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getNetworkInfo() {
+        long started = System.nanoTime();
+        try {
+            NetworkStateStore.Snapshot snapshot = ensureTracking();
+            WritableMap networkInfo = new WritableNativeMap();
+            networkInfo.putBoolean("isConnected", snapshot.connected);
+            networkInfo.putString("connectionType", snapshot.transportName());
+            return networkInfo;
+        } finally {
+            NativeMetrics.get().recordMethod("NetworkUtils.getNetworkInfo", started);
+        }
+    }
+
+    @Override
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getNetworkState() {
+        long started = System.nanoTime();
+        try {
+            NetworkStateStore.Snapshot snapshot = ensureTracking();
+            WritableMap state = new WritableNativeMap();
+            state.putBoolean("isConnected", snapshot.connected);
+            state.putString("connectionType", snapshot.transportName());
+            state.putBoolean("validated", snapshot.validated);
+            state.putBoolean("metered", snapshot.metered);
+            state.putDouble("updatedAt", snapshot.wallTime);
+            state.putDouble("transitions", stateStore.getTotalTransitions());
+            return state;
+        } finally {
+            NativeMetrics.get().recordMethod("NetworkUtils.getNetworkState", started);
+        }
+    }
+
+    /**
+     * The last transitions, oldest first. {@code elapsedRealtime} is
+     * monotonic, {@code timestamp} is wall-clock for lining up with server logs.
+     */
+    @Override
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableArray getNetworkTransitions() {
+        long started = System.nanoTime();
+        try {
+            ensureTracking();
+            WritableArray transitions = new WritableNativeArray();
+            for (NetworkStateStore.Transition transition : stateStore.getTransitions()) {
+                WritableMap entry = new WritableNativeMap();
+                entry.putDouble("timestamp", transition.wallTime);
+                entry.putDouble("elapsedRealtime", transition.elapsedTime);
+                entry.putBoolean("isConnected", transition.connected);
+                entry.putString("connectionType", NetworkStateStore.transportName(transition.transport));
+                entry.putString("previousType", NetworkStateStore.transportName(transition.previousTransport));
+                entry.putDouble("networkHandle", transition.networkHandle);
+                transitions.pushMap(entry);
+            }
+            return transitions;
+        } finally {
+            NativeMetrics.get().recordMethod("NetworkUtils.getNetworkTransitions", started);
+        }
+    }
+
+    /**
+     * Emits "networkChanged" for connectivity or transport changes only,
+     * debounced so roaming between access points does not flood the bridge.
+     * The current state is emitted once on start.
+     */
+    @Override
+    @ReactMethod
+    public void startNetworkMonitoring() {
+        long started = System.nanoTime();
+        try {
+            try {
+                ensureTracking();
+                network().execute(() -> {
+                    monitoring = true;
+                    lastEmitted = null;
+                    scheduleEmit(0);
+                });
+                Log.d(TAG, "Network monitoring started");
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting network monitoring", e);
+            }
+        } finally {
+            NativeMetrics.get().recordMethod("NetworkUtils.startNetworkMonitoring", started);
+        }
     }
     
+    /**
+     * Stops the events; the snapshot keeps tracking the default network.
+     */
+    @Override
     @ReactMethod
-    public void getNetworkInfo(Promise promise) {
+    public void stopNetworkMonitoring() {
+        long started = System.nanoTime();
         try {
-            WritableMap networkInfo = new WritableNativeMap();
-            boolean isConnected = false;
-            String connectionType = "unknown";
-            
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                Network network = connectivityManager.getActiveNetwork();
-                if (network != null) {
-                    NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
-                    isConnected = capabilities != null;
-                    
-                    if (capabilities != null) {
-                        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
-                            connectionType = "wifi";
-                        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
-                            connectionType = "cellular";
-                        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
-                            connectionType = "ethernet";
-                        }
-                    }
+            network().execute(() -> {
+                if (monitoring) {
+                    monitoring = false;
+                    network().handler().removeCallbacks(emitChange);
+                    Log.d(TAG, "Network monitoring stopped");
                 }
-            } else {
-                NetworkInfo activeNetworkInfo = connectivityManager.getActiveNetworkInfo();
-                isConnected = activeNetworkInfo != null && activeNetworkInfo.isConnected();
-                
-                if (activeNetworkInfo != null) {
-                    if (activeNetworkInfo.getType() == ConnectivityManager.TYPE_WIFI) {
-                        connectionType = "wifi";
-                    } else if (activeNetworkInfo.getType() == ConnectivityManager.TYPE_MOBILE) {
-                        connectionType = "cellular";
-                    } else if (activeNetworkInfo.getType() == ConnectivityManager.TYPE_ETHERNET) {
-                        connectionType = "ethernet";
-                    }
+            });
+        } finally {
+            NativeMetrics.get().recordMethod("NetworkUtils.stopNetworkMonitoring", started);
+        }
+    }
+    
+    /**
+     * Starts measuring RTT and jitter to host:port on a background thread.
+     * {@code mode} is "connect" or "echo"; intervalMs, timeoutMs and
+     * windowSize of zero or below use the defaults. A "networkQuality"
+     * event is sent only when the quality level changes.
+     */
+    @Override
+    @ReactMethod
+    public void startQualityProbe(String host, double port, String mode, double intervalMs,
+                                  double timeoutMs, double windowSize, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("NetworkUtils.startQualityProbe", jsPromise);
+        if (host == null || port <= 0) {
+            promise.reject("INVALID_ARGUMENT", "host and port are required");
+            return;
+        }
+        try {
+            stopQualityProbe();
+            NetworkProbe created = new NetworkProbe(host, (int) port,
+                "echo".equals(mode) ? NetworkProbe.MODE_ECHO : NetworkProbe.MODE_CONNECT,
+                intervalMs > 0 ? (long) intervalMs : 2000,
+                timeoutMs > 0 ? (int) timeoutMs : 2000,
+                windowSize > 0 ? (int) windowSize : 64,
+                this::sampleLink, this::onQualityLevelChanged);
+            synchronized (this) {
+                created.setThresholds(thresholdPoor, thresholdFair, thresholdGood, thresholdHysteresis);
+                probe = created;
+            }
+            created.start();
+            Log.d(TAG, "Quality probe started for " + created.host + ":" + created.port);
+            promise.resolve(true);
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting quality probe", e);
+            promise.reject("PROBE_ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Score thresholds for the quality levels, kept for later probes too.
+     */
+    @Override
+    @ReactMethod
+    public void setQualityThresholds(double poor, double fair, double good, double hysteresis) {
+        long started = System.nanoTime();
+        try {
+            synchronized (this) {
+                thresholdPoor = (int) poor;
+                thresholdFair = (int) fair;
+                thresholdGood = (int) good;
+                thresholdHysteresis = (int) hysteresis;
+                if (probe != null) {
+                    probe.setThresholds(thresholdPoor, thresholdFair, thresholdGood, thresholdHysteresis);
                 }
             }
-            
-            networkInfo.putBoolean("isConnected", isConnected);
-            networkInfo.putString("connectionType", connectionType);
-            
-            promise.resolve(networkInfo);
+        } finally {
+            NativeMetrics.get().recordMethod("NetworkUtils.setQualityThresholds", started);
+        }
+    }
+
+    @Override
+    @ReactMethod
+    public void stopQualityProbe() {
+        long started = System.nanoTime();
+        try {
+            NetworkProbe current;
+            synchronized (this) {
+                current = probe;
+                probe = null;
+            }
+            if (current != null) {
+                current.stop();
+                Log.d(TAG, "Quality probe stopped");
+            }
+        } finally {
+            NativeMetrics.get().recordMethod("NetworkUtils.stopQualityProbe", started);
+        }
+    }
+
+    /**
+     * Synchronous: a copy of the probe's window, no measurement.
+     */
+    @Override
+    @Nullable
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getQualityStats() {
+        long started = System.nanoTime();
+        try {
+            NetworkProbe current;
+            synchronized (this) {
+                current = probe;
+            }
+            if (current == null) {
+                return null;
+            }
+            synchronized (probeStats) {
+                current.fill(probeStats);
+                WritableMap stats = toQualityMap(probeStats);
+                stats.putBoolean("running", probeStats.running);
+                stats.putDouble("lastMs", probeStats.lastMs);
+                stats.putDouble("p90Ms", probeStats.percentilesMs[1]);
+                stats.putDouble("p99Ms", probeStats.percentilesMs[3]);
+                stats.putInt("samples", probeStats.samples);
+                stats.putDouble("totalProbes", probeStats.totalProbes);
+                stats.putDouble("totalLost", probeStats.totalLost);
+                stats.putInt("linkSpeedMbps", probeStats.link.linkSpeedMbps);
+                stats.putInt("downstreamKbps", probeStats.link.downstreamKbps);
+                stats.putInt("upstreamKbps", probeStats.link.upstreamKbps);
+                return stats;
+            }
+        } finally {
+            NativeMetrics.get().recordMethod("NetworkUtils.getQualityStats", started);
+        }
+    }
+
+    /**
+     * Keeps a cellular (or ethernet) network requested and binds the app to
+     * it as soon as the default network is lost, stops validating, or the
+     * quality probe reports "bad". minHoldMs and restoreStableMs of zero or
+     * below use the defaults. Each switch sends a "networkHandover" event.
+     */
+    @Override
+    @ReactMethod
+    public void enableHandover(boolean includeEthernet, double minHoldMs, double restoreStableMs,
+                               Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("NetworkUtils.enableHandover", jsPromise);
+        long holdMs = minHoldMs > 0 ? (long) minHoldMs : 30_000;
+        long stableMs = restoreStableMs > 0 ? (long) restoreStableMs : 3_000;
+        try {
+            NetworkStateStore.Snapshot snapshot = ensureTracking();
+            NetworkHandoverManager manager = handover();
+            network().execute(() -> {
+                manager.enable(includeEthernet, holdMs, stableMs);
+                manager.onDefaultNetwork(snapshot, SystemClock.elapsedRealtime());
+                promise.resolve(true);
+            });
         } catch (Exception e) {
-            Log.e(TAG, "Error getting network info", e);
-            promise.reject("NETWORK_ERROR", e.getMessage());
+            Log.e(TAG, "Error enabling handover", e);
+            promise.reject("HANDOVER_ERROR", e.getMessage());
         }
     }
-    
+
+    @Override
     @ReactMethod
-    public void startNetworkMonitoring() {
+    public void disableHandover() {
+        long started = System.nanoTime();
         try {
-            // Remove any existing callbacks to avoid duplicates
-            stopNetworkMonitoring();
-            
-            // Create a new callback
-            networkCallback = new ConnectivityManager.NetworkCallback() {
+            NetworkHandoverManager manager = existingHandover();
+            if (manager != null) {
+                network().execute(manager::disable);
+            }
+        } finally {
+            NativeMetrics.get().recordMethod("NetworkUtils.disableHandover", started);
+        }
+    }
+
+    @Override
+    @ReactMethod
+    public void getHandoverStatus(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("NetworkUtils.getHandoverStatus", jsPromise);
+        NetworkHandoverManager manager = handover();
+        network().execute(() -> {
+            WritableMap status = new WritableNativeMap();
+            status.putBoolean("enabled", manager.isEnabled());
+            status.putBoolean("bound", manager.isBound());
+            status.putString("boundReason", manager.getBoundReason());
+            status.putDouble("boundMs", manager.getBoundMs());
+            status.putBoolean("standbyAvailable", manager.hasStandby());
+            status.putBoolean("standbyValidated", manager.isStandbyValidated());
+            status.putString("standbyTransport", manager.getStandbyTransport());
+            status.putDouble("standbyWarmMs", manager.getStandbyWarmMs());
+            status.putDouble("handovers", manager.getHandovers());
+            status.putDouble("restores", manager.getRestores());
+            status.putDouble("failures", manager.getFailures());
+            NetworkHandoverManager.Event last = manager.getLastEvent();
+            if (last != null) {
+                status.putMap("lastEvent", toHandoverMap(last));
+            } else {
+                status.putNull("lastEvent");
+            }
+            promise.resolve(status);
+        });
+    }
+
+    /**
+     * Finds the examiner server on the current network. A network seen before
+     * is answered from the cache without browsing; otherwise NSD discovery
+     * runs and the reachable candidates are cached, lowest RTT first.
+     * A null serviceType and durations of zero or below use the defaults.
+     */
+    @Override
+    @ReactMethod
+    public void discoverServer(@Nullable String serviceType, double timeoutMs, double settleMs,
+                               double probeTimeoutMs, boolean forceRefresh, double maxAgeMs,
+                               Promise jsPromise) {
+        String type = serviceType != null ? serviceType : ServerDiscovery.DEFAULT_SERVICE_TYPE;
+        long browseMs = timeoutMs > 0 ? (long) timeoutMs : 3000;
+        long quietMs = settleMs > 0 ? (long) settleMs : 400;
+        int connectMs = probeTimeoutMs > 0 ? (int) probeTimeoutMs : 1000;
+        long maxAge = maxAgeMs > 0 ? (long) maxAgeMs : SERVER_CACHE_MAX_AGE_MS;
+        // Browsing ends at browseMs; a probe still running may add one connect timeout
+        Promise promise = TimedPromise.wrap("NetworkUtils.discoverServer", jsPromise,
+            browseMs + connectMs + DEADLINE_MARGIN_MS);
+
+        try {
+            String networkId = currentNetworkId();
+            getServerLocator().locate(networkId, type, browseMs, quietMs, connectMs, forceRefresh, maxAge,
+                System.currentTimeMillis(), new ServerLocator.Result() {
+                    @Override
+                    public void onFound(ServerEndpointCache.Endpoint best,
+                                        List<ServerEndpointCache.Endpoint> candidates,
+                                        String origin, long elapsedMs) {
+                        promise.resolve(toServerMap(best, networkId, origin, elapsedMs, candidates));
+                    }
+
+                    @Override
+                    public void onFailed(String code, String message) {
+                        promise.reject(code, message);
+                    }
+                });
+        } catch (Exception e) {
+            Log.e(TAG, "Error discovering server", e);
+            promise.reject("DISCOVERY_ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets the endpoints of one network (e.g. after connecting to the
+     * cached one failed), or of all networks when networkId is null.
+     */
+    @Override
+    @ReactMethod
+    public void clearServerCache(@Nullable String networkId) {
+        long started = System.nanoTime();
+        try {
+            ServerEndpointCache cache = getServerCache();
+            if (networkId == null) {
+                cache.clear();
+            } else {
+                cache.remove(networkId);
+            }
+            saveServerCache();
+        } finally {
+            NativeMetrics.get().recordMethod("NetworkUtils.clearServerCache", started);
+        }
+    }
+
+    @Override
+    @ReactMethod
+    public void getCachedServers(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("NetworkUtils.getCachedServers", jsPromise);
+        ServerEndpointCache cache = getServerCache();
+        WritableMap result = new WritableNativeMap();
+        result.putString("currentNetworkId", currentNetworkId());
+        WritableMap networks = new WritableNativeMap();
+        for (String networkId : cache.networkIds()) {
+            networks.putArray(networkId, toEndpointArray(cache.get(networkId)));
+        }
+        result.putMap("networks", networks);
+        promise.resolve(result);
+    }
+
+    @Override
+    @ReactMethod
+    public void addListener(String eventName) {
+        // Required for NativeEventEmitter
+    }
+
+    @Override
+    @ReactMethod
+    public void removeListeners(double count) {
+        // Required for NativeEventEmitter
+    }
+
+    @Override
+    public void invalidate() {
+        stopQualityProbe();
+        network().handler().removeCallbacks(emitChange);
+        synchronized (this) {
+            if (handover != null) {
+                network().execute(handover::disable);
+            }
+            if (serverDiscovery != null) {
+                serverDiscovery.close();
+                serverDiscovery = null;
+                serverLocator = null;
+            }
+            if (stateCallback != null) {
+                try {
+                    connectivity().unregisterNetworkCallback(stateCallback);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error unregistering network callback", e);
+                }
+                stateCallback = null;
+            }
+        }
+        super.invalidate();
+    }
+
+    /**
+     * Registers the default-network callback on first use and seeds the
+     * snapshot synchronously, so the first read is already valid.
+     */
+    private synchronized NetworkStateStore.Snapshot ensureTracking() {
+        if (stateCallback == null) {
+            Network active = connectivity().getActiveNetwork();
+            publish(active, active != null ? connectivity().getNetworkCapabilities(active) : null);
+
+            stateCallback = new ConnectivityManager.NetworkCallback() {
                 @Override
                 public void onAvailable(@NonNull Network network) {
-                    WritableMap params = new WritableNativeMap();
-                    params.putBoolean("isConnected", true);
-                    sendEvent("networkChanged", params);
+                    publish(network, connectivity().getNetworkCapabilities(network));
                 }
-                
+
                 @Override
-                public void onLost(@NonNull Network network) {
-                    WritableMap params = new WritableNativeMap();
-                    params.putBoolean("isConnected", false);
-                    sendEvent("networkChanged", params);
+                public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities networkCapabilities) {
+                    publish(network, networkCapabilities);
                 }
-                
+
                 @Override
-                public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities networkCapabilities) {
-                    WritableMap params = new WritableNativeMap();
-                    params.putBoolean("isConnected", true);
-                    
-                    String connectionType = "unknown";
-                    if (networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
-                        connectionType = "wifi";
-                    } else if (networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
-                        connectionType = "cellular";
-                    } else if (networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
-                        connectionType = "ethernet";
+                public void onLost(@NonNull Network network) {
+                    NetworkStateStore.Snapshot current = stateStore.get();
+                    // A stale loss of the previous default network must not clear the new one
+                    if (current == null || current.networkHandle == network.getNetworkHandle()) {
+                        publish(null, null);
                     }
-                    
-                    params.putString("connectionType", connectionType);
-                    sendEvent("networkChanged", params);
                 }
             };
-            
-            // Register the callback
-            NetworkRequest.Builder builder = new NetworkRequest.Builder();
-            connectivityManager.registerNetworkCallback(builder.build(), networkCallback);
-            
-            Log.d(TAG, "Network monitoring started");
-        } catch (Exception e) {
-            Log.e(TAG, "Error starting network monitoring", e);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                connectivity().registerDefaultNetworkCallback(stateCallback, network().handler());
+            } else {
+                connectivity().registerDefaultNetworkCallback(stateCallback);
+            }
         }
+        return stateStore.get();
     }
-    
-    @ReactMethod
-    public void stopNetworkMonitoring() {
-        if (networkCallback != null) {
-            try {
-                connectivityManager.unregisterNetworkCallback(networkCallback);
-                networkCallback = null;
-                Log.d(TAG, "Network monitoring stopped");
-            } catch (Exception e) {
-                Log.e(TAG, "Error stopping network monitoring", e);
+
+    private void publish(Network network, NetworkCapabilities capabilities) {
+        boolean connected = network != null && capabilities != null;
+        int transport = NetworkStateStore.TRANSPORT_NONE;
+        boolean validated = false;
+        boolean metered = false;
+        if (connected) {
+            if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+                transport = NetworkStateStore.TRANSPORT_WIFI;
+            } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+                transport = NetworkStateStore.TRANSPORT_CELLULAR;
+            } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+                transport = NetworkStateStore.TRANSPORT_ETHERNET;
+            } else {
+                transport = NetworkStateStore.TRANSPORT_OTHER;
+            }
+            validated = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+            metered = !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+        }
+
+        NetworkStateStore.Snapshot snapshot = new NetworkStateStore.Snapshot(connected, transport, validated,
+            metered, connected ? network.getNetworkHandle() : 0, System.currentTimeMillis(),
+            SystemClock.elapsedRealtime());
+        NetworkStateStore.Snapshot previous = stateStore.get();
+        boolean transition = stateStore.update(snapshot);
+        if (transition) {
+            Log.d(TAG, "Network " + (connected ? snapshot.transportName() : "lost"));
+            network().execute(() -> scheduleEmit(EVENT_DEBOUNCE_MS));
+        }
+        // Handover also cares about validation and a switch between networks of one transport
+        if (transition || previous.validated != snapshot.validated
+                || previous.networkHandle != snapshot.networkHandle) {
+            NetworkHandoverManager manager = existingHandover();
+            if (manager != null) {
+                network().execute(() -> manager.onDefaultNetwork(snapshot, snapshot.elapsedTime));
             }
         }
     }
-    
+
+    private synchronized ServerEndpointCache getServerCache() {
+        if (serverCache == null) {
+            serverCache = new ServerEndpointCache(16);
+            SharedPreferences prefs = reactContext.getSharedPreferences(SERVER_CACHE_PREFS, Context.MODE_PRIVATE);
+            serverCache.load(prefs.getString("endpoints", null));
+        }
+        return serverCache;
+    }
+
+    private void saveServerCache() {
+        reactContext.getSharedPreferences(SERVER_CACHE_PREFS, Context.MODE_PRIVATE)
+            .edit()
+            .putString("endpoints", getServerCache().serialize())
+            .apply();
+    }
+
+    private synchronized ServerLocator getServerLocator() {
+        if (serverDiscovery == null) {
+            serverDiscovery = new ServerDiscovery(reactContext);
+            serverLocator = new ServerLocator(getServerCache(), serverDiscovery, this::saveServerCache);
+        }
+        return serverLocator;
+    }
+
+    /**
+     * Identifies the current network by transport, SSID when it is readable,
+     * IPv4 gateway and DNS search domains. Stable across reconnects, unlike
+     * the network handle. Null when offline.
+     */
+    private String currentNetworkId() {
+        Network network = connectivity().getActiveNetwork();
+        if (network == null) {
+            return null;
+        }
+        NetworkCapabilities capabilities = connectivity().getNetworkCapabilities(network);
+        LinkProperties properties = connectivity().getLinkProperties(network);
+        if (capabilities == null || properties == null) {
+            return null;
+        }
+
+        StringBuilder id = new StringBuilder(ensureTracking().transportName());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && capabilities.getTransportInfo() instanceof WifiInfo) {
+            String ssid = ((WifiInfo) capabilities.getTransportInfo()).getSSID();
+            // Redacted to <unknown ssid> without location access
+            if (ssid != null && !ssid.contains("<unknown ssid>")) {
+                id.append(':').append(ssid.replace("\"", ""));
+            }
+        }
+        for (RouteInfo route : properties.getRoutes()) {
+            if (route.isDefaultRoute() && route.getGateway() instanceof Inet4Address) {
+                id.append('@').append(route.getGateway().getHostAddress());
+                break;
+            }
+        }
+        if (properties.getDomains() != null) {
+            id.append('#').append(properties.getDomains());
+        }
+        return id.toString();
+    }
+
+    private static WritableMap toServerMap(ServerEndpointCache.Endpoint best, String networkId, String source,
+                                           long elapsedMs, List<ServerEndpointCache.Endpoint> candidates) {
+        WritableMap map = toEndpointMap(best);
+        map.putString("networkId", networkId);
+        map.putString("source", source);
+        map.putDouble("elapsedMs", elapsedMs);
+        map.putArray("candidates", toEndpointArray(candidates));
+        return map;
+    }
+
+    private static WritableArray toEndpointArray(List<ServerEndpointCache.Endpoint> endpoints) {
+        WritableArray array = new WritableNativeArray();
+        for (ServerEndpointCache.Endpoint endpoint : endpoints) {
+            array.pushMap(toEndpointMap(endpoint));
+        }
+        return array;
+    }
+
+    private static WritableMap toEndpointMap(ServerEndpointCache.Endpoint endpoint) {
+        WritableMap map = new WritableNativeMap();
+        map.putString("name", endpoint.name);
+        map.putString("host", endpoint.host);
+        map.putInt("port", endpoint.port);
+        map.putDouble("rttMs", endpoint.rttMs);
+        map.putDouble("resolvedAt", endpoint.resolvedAt);
+        return map;
+    }
+
+    /**
+     * State thread.
+     */
+    private void onHandover(NetworkHandoverManager.Event event) {
+        if (NetworkHandoverManager.TYPE_RESTORE.equals(event.type) || NetworkHandoverManager.TYPE_HANDOVER.equals(event.type)) {
+            NetworkProbe current;
+            synchronized (this) {
+                current = probe;
+            }
+            if (current != null) {
+                // Traffic moved; old RTTs describe the other network
+                current.reset();
+            }
+        }
+        sendEvent("networkHandover", toHandoverMap(event));
+    }
+
+    private static WritableMap toHandoverMap(NetworkHandoverManager.Event event) {
+        WritableMap map = new WritableNativeMap();
+        map.putString("type", event.type);
+        map.putString("reason", event.reason);
+        map.putString("from", event.fromTransport);
+        map.putString("to", event.toTransport);
+        map.putDouble("decisionMs", event.decisionMs());
+        map.putDouble("standbyWarmMs", event.standbyWarmMs);
+        map.putBoolean("standbyValidated", event.standbyValidated);
+        map.putDouble("timestamp", event.wallTime);
+        return map;
+    }
+
+    /**
+     * State thread: restarts the debounce window.
+     */
+    private void scheduleEmit(long delayMs) {
+        if (monitoring) {
+            network().handler().removeCallbacks(emitChange);
+            network().handler().postDelayed(emitChange, delayMs);
+        }
+    }
+
+    /**
+     * State thread: sends the settled state unless it is what JS already has.
+     */
+    private void emitChange() {
+        NetworkStateStore.Snapshot snapshot = stateStore.get();
+        if (!monitoring || snapshot == null || snapshot.sameConnectivity(lastEmitted)) {
+            return;
+        }
+        lastEmitted = snapshot;
+        WritableMap params = new WritableNativeMap();
+        NetworkEventFields.networkChanged(snapshot, new MapSink(params));
+        sendEvent("networkChanged", params);
+    }
+
+    /**
+     * Probe thread: signal and bandwidth of the active network.
+     */
+    private void sampleLink(NetworkProbe.LinkSample sample) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return;
+        }
+        Network network = connectivity().getActiveNetwork();
+        NetworkCapabilities capabilities = network != null ? connectivity().getNetworkCapabilities(network) : null;
+        if (capabilities == null) {
+            return;
+        }
+        sample.downstreamKbps = capabilities.getLinkDownstreamBandwidthKbps();
+        sample.upstreamKbps = capabilities.getLinkUpstreamBandwidthKbps();
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            sample.transport = "wifi";
+            WifiInfo wifiInfo = null;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                    && capabilities.getTransportInfo() instanceof WifiInfo) {
+                wifiInfo = (WifiInfo) capabilities.getTransportInfo();
+            } else {
+                WifiManager wifiManager = (WifiManager) reactContext.getApplicationContext()
+                    .getSystemService(Context.WIFI_SERVICE);
+                if (wifiManager != null) {
+                    wifiInfo = wifiManager.getConnectionInfo();
+                }
+            }
+            if (wifiInfo != null) {
+                sample.rssiDbm = wifiInfo.getRssi();
+                sample.linkSpeedMbps = wifiInfo.getLinkSpeed();
+            }
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            sample.transport = "cellular";
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            sample.transport = "ethernet";
+        }
+    }
+
+    /**
+     * Probe thread, only when the level crossed a threshold.
+     */
+    private void onQualityLevelChanged(NetworkProbe source, int previousLevel) {
+        WritableMap params = new WritableNativeMap();
+        synchronized (probeStats) {
+            source.fill(probeStats);
+            NetworkEventFields.qualityChanged(probeStats, previousLevel, new MapSink(params));
+        }
+        sendEvent("networkQuality", params);
+
+        int level = probeStats.level;
+        long detectedAt = SystemClock.elapsedRealtime();
+        NetworkHandoverManager manager = existingHandover();
+        if (manager != null) {
+            network().execute(() -> manager.onQualityLevel(level, detectedAt));
+        }
+    }
+
+    private static WritableMap toQualityMap(NetworkProbe.Stats stats) {
+        WritableMap map = new WritableNativeMap();
+        NetworkEventFields.quality(stats, new MapSink(map));
+        return map;
+    }
+
+    private static final class MapSink implements NetworkEventFields.Sink {
+        private final WritableMap map;
+
+        MapSink(WritableMap map) {
+            this.map = map;
+        }
+
+        @Override
+        public void putBoolean(String key, boolean value) {
+            map.putBoolean(key, value);
+        }
+
+        @Override
+        public void putInt(String key, int value) {
+            map.putInt(key, value);
+        }
+
+        @Override
+        public void putDouble(String key, double value) {
+            map.putDouble(key, value);
+        }
+
+        @Override
+        public void putString(String key, String value) {
+            map.putString(key, value);
+        }
+
+        @Override
+        public void putNull(String key) {
+            map.putNull(key);
+        }
+    }
+
     private void sendEvent(String eventName, WritableMap params) {
+        // Held back while JS is suspended during a background session
+        if (SessionRuntime.get(reactContext).offer(eventName, params)) {
+            return;
+        }
+        long started = System.nanoTime();
         try {
             reactContext
                 .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
                 .emit(eventName, params);
+            NativeMetrics.get().recordEvent(eventName, started);
         } catch (Exception e) {
             Log.e(TAG, "Error sending event", e);
         }
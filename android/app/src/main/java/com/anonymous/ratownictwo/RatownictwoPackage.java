@@ -1,33 +1,99 @@
 package com.anonymous.ratownictwo;
 
-import com.facebook.react.ReactPackage;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.BaseReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 import com.facebook.react.uimanager.ViewManager;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A single package that registers all our native modules.
  * This helps ensure our modules are properly registered with React Native.
+ *
+ * Modules are created the first time JS (or another module) asks for them,
+ * not when the React instance starts. Modules with a spec are in
+ * RatownictwoTurboPackage.
  */
-public class RatownictwoPackage implements ReactPackage {
+public class RatownictwoPackage extends BaseReactPackage {
     @Override
     public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+        List<ViewManager> managers = new ArrayList<>();
+        managers.add(new VitalsMonitorManager());
+        return managers;
+    }
+
+    @Nullable
+    @Override
+    public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+        long started = System.nanoTime();
+        NativeModule module = createModule(name, reactContext);
+        if (module != null) {
+            StartupTrace.get().module(name, started);
+        }
+        return module;
     }
 
     @Override
-    public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        List<NativeModule> modules = new ArrayList<>();
-        
-        // Add all our custom native modules here
-        modules.add(new WifiKeepAliveModule(reactContext));
-        modules.add(new NetworkUtilsModule(reactContext));
-        modules.add(new BluetoothModule(reactContext));
-        
-        return modules;
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            Map<String, ReactModuleInfo> infos = new HashMap<>();
+            addInfo(infos, BleColorSensorModule.NAME, BleColorSensorModule.class);
+            addInfo(infos, BleSensorHubModule.NAME, BleSensorHubModule.class);
+            addInfo(infos, ColorClassifierModule.NAME, ColorClassifierModule.class);
+            addInfo(infos, CueSoundModule.NAME, CueSoundModule.class);
+            addInfo(infos, EkgEngineModule.NAME, EkgEngineModule.class);
+            addInfo(infos, ForegroundSessionModule.NAME, ForegroundSessionModule.class);
+            addInfo(infos, RealtimeTransportModule.NAME, RealtimeTransportModule.class);
+            addInfo(infos, SessionCodecModule.NAME, SessionCodecModule.class);
+            addInfo(infos, EventJournalModule.NAME, EventJournalModule.class);
+            addInfo(infos, MetricsModule.NAME, MetricsModule.class);
+            return infos;
+        };
+    }
+
+    @Nullable
+    private static NativeModule createModule(String name, ReactApplicationContext reactContext) {
+        switch (name) {
+            case BleColorSensorModule.NAME:
+                return new BleColorSensorModule(reactContext);
+            case BleSensorHubModule.NAME:
+                return new BleSensorHubModule(reactContext);
+            case ColorClassifierModule.NAME:
+                return new ColorClassifierModule(reactContext);
+            case CueSoundModule.NAME:
+                return new CueSoundModule(reactContext);
+            case EkgEngineModule.NAME:
+                return new EkgEngineModule(reactContext);
+            case ForegroundSessionModule.NAME:
+                return new ForegroundSessionModule(reactContext);
+            case RealtimeTransportModule.NAME:
+                return new RealtimeTransportModule(reactContext);
+            case SessionCodecModule.NAME:
+                return new SessionCodecModule(reactContext);
+            case EventJournalModule.NAME:
+                return new EventJournalModule(reactContext);
+            case MetricsModule.NAME:
+                return new MetricsModule(reactContext);
+            default:
+                return null;
+        }
+    }
+
+    private static void addInfo(Map<String, ReactModuleInfo> infos, String name, Class<?> moduleClass) {
+        infos.put(name, new ReactModuleInfo(
+            name,
+            moduleClass.getName(),
+            false, // canOverrideExistingModule
+            false, // needsEagerInit
+            false, // isCxxModule
+            false)); // isTurboModule: plain bridge modules, served through the interop layer
     }
 }
@@ -0,0 +1,65 @@
+package com.anonymous.ratownictwo;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.BaseReactPackage;
+import com.facebook.react.bridge.NativeModule;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registers the modules that have a spec in specs/. They are created the
+ * first time JS asks for them, and on the new architecture they are
+ * TurboModules with synchronous JSI getters.
+ */
+public class RatownictwoTurboPackage extends BaseReactPackage {
+    @Nullable
+    @Override
+    public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+        long started = System.nanoTime();
+        NativeModule module = createModule(name, reactContext);
+        if (module != null) {
+            StartupTrace.get().module(name, started);
+        }
+        return module;
+    }
+
+    @Override
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            Map<String, ReactModuleInfo> infos = new HashMap<>();
+            addInfo(infos, WifiKeepAliveModule.NAME, WifiKeepAliveModule.class);
+            addInfo(infos, NetworkUtilsModule.NAME, NetworkUtilsModule.class);
+            addInfo(infos, BluetoothModule.NAME, BluetoothModule.class);
+            return infos;
+        };
+    }
+
+    @Nullable
+    private static NativeModule createModule(String name, ReactApplicationContext reactContext) {
+        switch (name) {
+            case WifiKeepAliveModule.NAME:
+                return new WifiKeepAliveModule(reactContext);
+            case NetworkUtilsModule.NAME:
+                return new NetworkUtilsModule(reactContext);
+            case BluetoothModule.NAME:
+                return new BluetoothModule(reactContext);
+            default:
+                return null;
+        }
+    }
+
+    private static void addInfo(Map<String, ReactModuleInfo> infos, String name, Class<?> moduleClass) {
+        infos.put(name, new ReactModuleInfo(
+            name,
+            moduleClass.getName(),
+            false, // canOverrideExistingModule
+            false, // needsEagerInit
+            false, // isCxxModule
+            BuildConfig.IS_NEW_ARCHITECTURE_ENABLED));
+    }
+}
@@ -0,0 +1,120 @@
+package com.anonymous.ratownictwo;
+
+import java.util.ArrayDeque;
+
+/**
+ * Outbound frames waiting for the socket, one FIFO per priority.
+ *
+ * {@link #poll} always takes from the highest non-empty priority, so an
+ * audio command queued behind a burst of bulk state updates goes out next.
+ * Each priority has its own bound; when one is full its oldest frame is
+ * dropped, which for bulk state is the one a newer update supersedes anyway.
+ */
+final class RealtimeOutboundQueue {
+    static final int PRIORITY_HIGH = 0;
+    static final int PRIORITY_NORMAL = 1;
+    static final int PRIORITY_BULK = 2;
+    static final int PRIORITIES = 3;
+
+    /** One priority's FIFO with its bound and counters. */
+    private static final class Lane {
+        final ArrayDeque<String> frames = new ArrayDeque<>();
+        final int capacity;
+        long enqueued;
+        long sent;
+        long dropped;
+
+        Lane(int capacity) {
+            this.capacity = Math.max(1, capacity);
+        }
+    }
+
+    private final Lane[] lanes;
+    private long queuedChars;
+
+    RealtimeOutboundQueue(int highCapacity, int normalCapacity, int bulkCapacity) {
+        lanes = new Lane[] {new Lane(highCapacity), new Lane(normalCapacity), new Lane(bulkCapacity)};
+    }
+
+    static int clampPriority(int priority) {
+        return Math.max(PRIORITY_HIGH, Math.min(PRIORITY_BULK, priority));
+    }
+
+    /**
+     * @return false when an older frame of this priority had to be dropped
+     */
+    synchronized boolean offer(int priority, String frame) {
+        Lane lane = lanes[clampPriority(priority)];
+        boolean kept = true;
+        if (lane.frames.size() >= lane.capacity) {
+            queuedChars -= lane.frames.pollFirst().length();
+            lane.dropped++;
+            kept = false;
+        }
+        lane.frames.addLast(frame);
+        queuedChars += frame.length();
+        lane.enqueued++;
+        return kept;
+    }
+
+    /**
+     * Removes the next frame to send, or returns null when all are empty.
+     */
+    synchronized String poll() {
+        for (Lane lane : lanes) {
+            String frame = lane.frames.pollFirst();
+            if (frame != null) {
+                queuedChars -= frame.length();
+                lane.sent++;
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts back a frame the socket refused, at the head of its priority.
+     */
+    synchronized void requeue(int priority, String frame) {
+        Lane lane = lanes[clampPriority(priority)];
+        lane.frames.addFirst(frame);
+        queuedChars += frame.length();
+        lane.sent--;
+    }
+
+    /**
+     * Priority of the frame {@link #poll} would return next, or -1.
+     */
+    synchronized int peekPriority() {
+        for (int level = 0; level < PRIORITIES; level++) {
+            if (!lanes[level].frames.isEmpty()) {
+                return level;
+            }
+        }
+        return -1;
+    }
+
+    synchronized boolean isEmpty() {
+        return peekPriority() < 0;
+    }
+
+    synchronized int size(int priority) {
+        return lanes[clampPriority(priority)].frames.size();
+    }
+
+    synchronized long getQueuedChars() {
+        return queuedChars;
+    }
+
+    synchronized long getEnqueued(int priority) {
+        return lanes[priority].enqueued;
+    }
+
+    synchronized long getSent(int priority) {
+        return lanes[priority].sent;
+    }
+
+    synchronized long getDropped(int priority) {
+        return lanes[priority].dropped;
+    }
+}
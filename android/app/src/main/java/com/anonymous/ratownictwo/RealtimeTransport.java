@@ -0,0 +1,482 @@
+package com.anonymous.ratownictwo;
+
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+/**
+ * One WebSocket to the session server, driven from its own thread.
+ *
+ * Connect, heartbeat, reconnect and the outbound pump all run on a single
+ * scheduler thread, so connection state needs no locking; OkHttp callbacks
+ * are posted onto it. Two framings:
+ * <ul>
+ *   <li>{@link #MODE_SOCKETIO}: Engine.IO v4 / Socket.IO v5 text frames,
+ *       answering server pings and treating a missing ping as a dead link;</li>
+ *   <li>{@link #MODE_RAW}: every text frame is one message and OkHttp's own
+ *       ping frames are the heartbeat, for a plain WebSocket stand-in.</li>
+ * </ul>
+ * Reconnects back off exponentially with equal jitter. Frames are handed to
+ * OkHttp only while its send buffer is below a low-water mark, so queued
+ * bulk updates never sit in front of a later high-priority frame for long.
+ * No Android dependencies, so it runs on the JVM against a local server.
+ */
+final class RealtimeTransport {
+    static final int MODE_SOCKETIO = 0;
+    static final int MODE_RAW = 1;
+
+    static final int STATE_IDLE = 0;
+    static final int STATE_CONNECTING = 1;
+    static final int STATE_OPEN = 2;
+    static final int STATE_WAITING = 3;
+
+    static final String[] STATE_NAMES = {"idle", "connecting", "open", "waiting"};
+
+    private static final long SEND_LOW_WATER_BYTES = 16 * 1024;
+    private static final long PUMP_RETRY_MS = 5;
+    private static final long DEFAULT_PING_INTERVAL_MS = 25_000;
+    private static final long DEFAULT_PING_TIMEOUT_MS = 20_000;
+
+    interface Listener {
+        void onStateChanged(int state, String reason);
+
+        /**
+         * @param event  event name, or null in raw mode
+         * @param body   JSON argument array after the name (socketio) or the
+         *               whole frame (raw)
+         */
+        void onMessage(String event, String body);
+    }
+
+    static final class Options {
+        int mode = MODE_SOCKETIO;
+        long backoffBaseMs = 500;
+        long backoffMaxMs = 15_000;
+        long rawPingIntervalMs = 10_000;
+        long connectTimeoutMs = 10_000;
+        int highCapacity = 256;
+        int normalCapacity = 1024;
+        int bulkCapacity = 256;
+    }
+
+    static final class Stats {
+        int state;
+        int attempt;
+        long connects;
+        long disconnects;
+        long framesIn;
+        long framesOut;
+        long charsIn;
+        long pingsAnswered;
+        long lastOpenAt;
+        long lastCloseAt;
+        long backoffMs;
+        long socketQueueBytes;
+        long queuedChars;
+        final int[] queued = new int[RealtimeOutboundQueue.PRIORITIES];
+        final long[] sent = new long[RealtimeOutboundQueue.PRIORITIES];
+        final long[] dropped = new long[RealtimeOutboundQueue.PRIORITIES];
+        String lastError;
+    }
+
+    private final OkHttpClient client;
+    private final String url;
+    private final Options options;
+    private final Listener listener;
+    private final RealtimeOutboundQueue queue;
+    private final ScheduledExecutorService executor;
+    private final Random random = new Random();
+
+    // Transport thread only
+    private WebSocket socket;
+    private int generation;
+    private boolean wanted;
+    private long pingTimeoutMs = DEFAULT_PING_INTERVAL_MS + DEFAULT_PING_TIMEOUT_MS;
+    private ScheduledFuture<?> reconnect;
+    private ScheduledFuture<?> watchdog;
+    private ScheduledFuture<?> pump;
+    private String lastError;
+
+    // Written on the transport thread, read by getStats
+    private volatile int state = STATE_IDLE;
+    private volatile int attempt;
+    private volatile long backoffMs;
+    private volatile long connects;
+    private volatile long disconnects;
+    private volatile long framesIn;
+    private volatile long framesOut;
+    private volatile long charsIn;
+    private volatile long pingsAnswered;
+    private volatile long lastOpenAt;
+    private volatile long lastCloseAt;
+
+    RealtimeTransport(OkHttpClient client, String url, Options options, Listener listener) {
+        this.options = options;
+        this.url = options.mode == MODE_SOCKETIO ? socketIoUrl(url) : url;
+        this.client = client.newBuilder()
+            .pingInterval(options.mode == MODE_RAW ? options.rawPingIntervalMs : 0, TimeUnit.MILLISECONDS)
+            .connectTimeout(options.connectTimeoutMs, TimeUnit.MILLISECONDS)
+            .readTimeout(0, TimeUnit.MILLISECONDS)
+            .build();
+        this.listener = listener;
+        this.queue = new RealtimeOutboundQueue(options.highCapacity, options.normalCapacity, options.bulkCapacity);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RealtimeTransport");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * http(s)://host:port[/path] to the Socket.IO WebSocket endpoint.
+     */
+    static String socketIoUrl(String base) {
+        String trimmed = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+        if (trimmed.startsWith("http://")) {
+            trimmed = "ws://" + trimmed.substring(7);
+        } else if (trimmed.startsWith("https://")) {
+            trimmed = "wss://" + trimmed.substring(8);
+        }
+        if (trimmed.contains("/socket.io")) {
+            return trimmed;
+        }
+        return trimmed + "/socket.io/?EIO=4&transport=websocket";
+    }
+
+    /**
+     * Equal jitter: half the exponential step is fixed, half random, so
+     * clients that dropped together do not come back together.
+     */
+    static long backoffFor(int attempt, long baseMs, long maxMs, Random random) {
+        long ceiling = Math.min(maxMs, baseMs << Math.min(20, Math.max(0, attempt - 1)));
+        long half = ceiling / 2;
+        return half + (half > 0 ? (long) (random.nextDouble() * (ceiling - half)) : 0);
+    }
+
+    void connect() {
+        executor.execute(() -> {
+            wanted = true;
+            if (state == STATE_IDLE) {
+                attempt = 0;
+                open();
+            }
+        });
+    }
+
+    /**
+     * Drops the current socket and connects again right away, e.g. after the
+     * process moved to another network.
+     */
+    void reconnectNow() {
+        executor.execute(() -> {
+            if (!wanted) {
+                return;
+            }
+            cancel(reconnect);
+            closeSocket(1001, "reconnect");
+            attempt = 0;
+            open();
+        });
+    }
+
+    void disconnect() {
+        executor.execute(() -> {
+            wanted = false;
+            cancel(reconnect);
+            closeSocket(1000, "client disconnect");
+            setState(STATE_IDLE, "client disconnect");
+        });
+    }
+
+    /**
+     * Stops the transport thread; the instance cannot be reused.
+     */
+    void shutdown() {
+        disconnect();
+        executor.shutdown();
+    }
+
+    /**
+     * Queues an event. Safe from any thread.
+     *
+     * @return false when an older frame of the same priority was dropped
+     */
+    boolean send(String event, String payloadJson, int priority) {
+        String frame = options.mode == MODE_SOCKETIO ? EngineIoFrames.encodeEvent(event, payloadJson) : payloadJson;
+        boolean kept = queue.offer(priority, frame);
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // Shut down; the frame stays queued and is never sent
+        }
+        return kept;
+    }
+
+    int getState() {
+        return state;
+    }
+
+    void fill(Stats stats) {
+        WebSocket current = socket;
+        stats.state = state;
+        stats.attempt = attempt;
+        stats.backoffMs = backoffMs;
+        stats.connects = connects;
+        stats.disconnects = disconnects;
+        stats.framesIn = framesIn;
+        stats.framesOut = framesOut;
+        stats.charsIn = charsIn;
+        stats.pingsAnswered = pingsAnswered;
+        stats.lastOpenAt = lastOpenAt;
+        stats.lastCloseAt = lastCloseAt;
+        stats.socketQueueBytes = current != null ? current.queueSize() : 0;
+        stats.queuedChars = queue.getQueuedChars();
+        for (int p = 0; p < RealtimeOutboundQueue.PRIORITIES; p++) {
+            stats.queued[p] = queue.size(p);
+            stats.sent[p] = queue.getSent(p);
+            stats.dropped[p] = queue.getDropped(p);
+        }
+        stats.lastError = lastError;
+    }
+
+    private void open() {
+        final int current = ++generation;
+        setState(STATE_CONNECTING, null);
+        Request request = new Request.Builder().url(url).build();
+        socket = client.newWebSocket(request, new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                post(current, RealtimeTransport.this::onOpen);
+            }
+
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                post(current, () -> onFrame(text));
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(1000, null);
+                post(current, () -> onLost("closed by server (" + code + ")"));
+            }
+
+            @Override
+            public void onClosed(WebSocket webSocket, int code, String reason) {
+                post(current, () -> onLost("closed (" + code + ")"));
+            }
+
+            @Override
+            public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+                post(current, () -> onLost(t.getClass().getSimpleName() + ": " + t.getMessage()));
+            }
+        });
+    }
+
+    private void post(int forGeneration, Runnable task) {
+        try {
+            executor.execute(() -> {
+                // Ignore callbacks from a socket that was already replaced
+                if (forGeneration == generation) {
+                    task.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shut down
+        }
+    }
+
+    private void onOpen() {
+        if (options.mode == MODE_RAW) {
+            onConnected();
+        } else {
+            // Connected once the Engine.IO open packet and "40" ack arrive
+            armWatchdog(options.connectTimeoutMs);
+        }
+    }
+
+    private void onConnected() {
+        attempt = 0;
+        backoffMs = 0;
+        connects++;
+        lastOpenAt = System.currentTimeMillis();
+        lastError = null;
+        setState(STATE_OPEN, null);
+        drain();
+    }
+
+    private void onFrame(String text) {
+        framesIn++;
+        charsIn += text.length();
+        if (options.mode == MODE_RAW) {
+            listener.onMessage(null, text);
+            return;
+        }
+        if (text.isEmpty()) {
+            return;
+        }
+        switch (text.charAt(0)) {
+            case EngineIoFrames.OPEN:
+                long interval = EngineIoFrames.readNumber(text, "pingInterval", DEFAULT_PING_INTERVAL_MS);
+                long timeout = EngineIoFrames.readNumber(text, "pingTimeout", DEFAULT_PING_TIMEOUT_MS);
+                pingTimeoutMs = interval + timeout;
+                socket.send(EngineIoFrames.CONNECT_FRAME);
+                armWatchdog(pingTimeoutMs);
+                break;
+            case EngineIoFrames.PING:
+                socket.send(EngineIoFrames.PONG_FRAME);
+                pingsAnswered++;
+                armWatchdog(pingTimeoutMs);
+                break;
+            case EngineIoFrames.CLOSE:
+                onLost("closed by server");
+                break;
+            case EngineIoFrames.MESSAGE:
+                onSocketIoPacket(text);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onSocketIoPacket(String text) {
+        if (text.length() < 2) {
+            return;
+        }
+        switch (text.charAt(1)) {
+            case EngineIoFrames.SIO_CONNECT:
+                if (state != STATE_OPEN) {
+                    onConnected();
+                }
+                break;
+            case EngineIoFrames.SIO_DISCONNECT:
+                onLost("disconnected by server");
+                break;
+            case EngineIoFrames.SIO_CONNECT_ERROR:
+                lastError = text.substring(2);
+                onLost("connect error");
+                break;
+            case EngineIoFrames.SIO_EVENT:
+                int start = EngineIoFrames.argumentsStart(text);
+                if (start < 0) {
+                    return;
+                }
+                String event = EngineIoFrames.eventName(text, start);
+                if (event != null) {
+                    listener.onMessage(event, text.substring(start));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onLost(String reason) {
+        if (socket == null) {
+            return;
+        }
+        if (lastError == null) {
+            lastError = reason;
+        }
+        boolean wasOpen = state == STATE_OPEN;
+        closeSocket(1001, null);
+        if (wasOpen) {
+            disconnects++;
+            lastCloseAt = System.currentTimeMillis();
+        }
+        if (!wanted) {
+            setState(STATE_IDLE, reason);
+            return;
+        }
+        attempt++;
+        backoffMs = backoffFor(attempt, options.backoffBaseMs, options.backoffMaxMs, random);
+        setState(STATE_WAITING, reason);
+        reconnect = executor.schedule(() -> {
+            reconnect = null;
+            if (wanted && socket == null) {
+                open();
+            }
+        }, backoffMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void closeSocket(int code, String reason) {
+        cancel(watchdog);
+        cancel(pump);
+        watchdog = null;
+        pump = null;
+        if (socket != null) {
+            if (options.mode == MODE_SOCKETIO && state == STATE_OPEN && code == 1000) {
+                socket.send(EngineIoFrames.DISCONNECT_FRAME);
+            }
+            socket.close(code, reason);
+            socket = null;
+            // Late callbacks of the closed socket are dropped by post()
+            generation++;
+        }
+    }
+
+    /**
+     * Hands queued frames to OkHttp while its buffer is below the low-water
+     * mark; past it, retries shortly so newer high-priority frames can still
+     * overtake what is waiting here.
+     */
+    private void drain() {
+        if (state != STATE_OPEN || socket == null) {
+            return;
+        }
+        while (socket.queueSize() < SEND_LOW_WATER_BYTES) {
+            int priority;
+            String frame;
+            // Senders on other threads may offer in between; keep peek and poll together
+            synchronized (queue) {
+                priority = queue.peekPriority();
+                frame = priority >= 0 ? queue.poll() : null;
+            }
+            if (frame == null) {
+                return;
+            }
+            if (!socket.send(frame)) {
+                // Socket is closing; keep the frame for the next connection
+                queue.requeue(priority, frame);
+                return;
+            }
+            framesOut++;
+        }
+        if (pump == null) {
+            pump = executor.schedule(() -> {
+                pump = null;
+                drain();
+            }, PUMP_RETRY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void armWatchdog(long timeoutMs) {
+        cancel(watchdog);
+        watchdog = executor.schedule(() -> {
+            watchdog = null;
+            onLost("heartbeat timeout");
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void setState(int next, String reason) {
+        if (state == next) {
+            return;
+        }
+        state = next;
+        listener.onStateChanged(next, reason);
+    }
+
+    private static void cancel(ScheduledFuture<?> future) {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+}
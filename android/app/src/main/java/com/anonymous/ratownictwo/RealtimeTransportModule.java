@@ -0,0 +1,337 @@
+package com.anonymous.ratownictwo;
+
+import android.os.Handler;
+import android.util.Log;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.modules.network.OkHttpClientProvider;
+import com.facebook.react.module.annotations.ReactModule;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Native WebSocket to the session server (see RealtimeTransport).
+ *
+ * Inbound messages are collected off the JS thread and delivered every
+ * DELIVERY_INTERVAL_MS as a single "realtimeMessages" event, so a burst of
+ * updates costs one bridge crossing instead of one per message. Delivery
+ * runs on the realtime module thread rather than on display frames, which
+ * stop with the screen off. The inbound buffer is bounded; past
+ * MAX_PENDING_INBOUND the oldest messages are dropped and counted in
+ * getStats. Outbound events go
+ * through a priority queue; audio commands are sent as high priority. The
+ * WiFi and wake locks are held through the "realtimeTransport" lease while
+ * the socket is open.
+ */
+@ReactModule(name = RealtimeTransportModule.NAME)
+public class RealtimeTransportModule extends ReactContextBaseJavaModule {
+    public static final String NAME = "RealtimeTransport";
+    private static final String TAG = "RealtimeTransportModule";
+    private static final String LEASE = "realtimeTransport";
+    // About one display frame, so a burst still lands in a single event
+    private static final long DELIVERY_INTERVAL_MS = 16;
+    private static final int MAX_MESSAGES_PER_BATCH = 512;
+    private static final int MAX_PENDING_INBOUND = 4096;
+
+    private final ReactApplicationContext reactContext;
+    private final SessionRuntime runtime;
+    private final SessionEventBuffer inbound = new SessionEventBuffer();
+    private final Handler deliveryHandler = ModuleExecutor.get(ModuleExecutor.REALTIME).handler();
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean(false);
+    private final Runnable deliverTask = this::deliverInbound;
+
+    private RealtimeTransport transport;
+    private boolean leaseHeld = false;
+    private volatile long batchesDelivered = 0;
+    private volatile long messagesDelivered = 0;
+
+    public RealtimeTransportModule(ReactApplicationContext context) {
+        super(context);
+        this.reactContext = context;
+        this.runtime = SessionRuntime.get(context);
+        inbound.configure(MAX_PENDING_INBOUND, Collections.emptySet());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Options: {mode: 'socketio' | 'raw', backoffBaseMs, backoffMaxMs,
+     * pingIntervalMs (raw), connectTimeoutMs, highCapacity, normalCapacity,
+     * bulkCapacity}. Replaces an existing connection.
+     */
+    @ReactMethod
+    public void connect(String url, ReadableMap options, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("RealtimeTransport.connect", jsPromise);
+        if (url == null || url.isEmpty()) {
+            promise.reject("INVALID_URL", "A server URL is required");
+            return;
+        }
+
+        RealtimeTransport.Options parsed = new RealtimeTransport.Options();
+        if (options != null) {
+            if (options.hasKey("mode") && "raw".equals(options.getString("mode"))) {
+                parsed.mode = RealtimeTransport.MODE_RAW;
+            }
+            if (options.hasKey("backoffBaseMs")) {
+                parsed.backoffBaseMs = Math.max(50, (long) options.getDouble("backoffBaseMs"));
+            }
+            if (options.hasKey("backoffMaxMs")) {
+                parsed.backoffMaxMs = Math.max(parsed.backoffBaseMs, (long) options.getDouble("backoffMaxMs"));
+            }
+            if (options.hasKey("pingIntervalMs")) {
+                parsed.rawPingIntervalMs = Math.max(1000, (long) options.getDouble("pingIntervalMs"));
+            }
+            if (options.hasKey("connectTimeoutMs")) {
+                parsed.connectTimeoutMs = Math.max(1000, (long) options.getDouble("connectTimeoutMs"));
+            }
+            if (options.hasKey("highCapacity")) {
+                parsed.highCapacity = options.getInt("highCapacity");
+            }
+            if (options.hasKey("normalCapacity")) {
+                parsed.normalCapacity = options.getInt("normalCapacity");
+            }
+            if (options.hasKey("bulkCapacity")) {
+                parsed.bulkCapacity = options.getInt("bulkCapacity");
+            }
+        }
+
+        try {
+            synchronized (this) {
+                if (transport != null) {
+                    transport.shutdown();
+                }
+                // Before connect: the new transport may open and take the lease at once
+                setLeaseHeld(false);
+                TransportListener listener = new TransportListener();
+                transport = new RealtimeTransport(OkHttpClientProvider.getOkHttpClient(), url, parsed, listener);
+                listener.owner = transport;
+                transport.connect();
+            }
+            promise.resolve(true);
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting transport", e);
+            promise.reject("CONNECT_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void disconnect(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("RealtimeTransport.disconnect", jsPromise);
+        synchronized (this) {
+            if (transport != null) {
+                transport.shutdown();
+                transport = null;
+            }
+        }
+        setLeaseHeld(false);
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void reconnectNow() {
+        long started = System.nanoTime();
+        try {
+            RealtimeTransport current = currentTransport();
+            if (current != null) {
+                current.reconnectNow();
+            }
+        } finally {
+            NativeMetrics.get().recordMethod("RealtimeTransport.reconnectNow", started);
+        }
+    }
+
+    /**
+     * Queues an event; priority 0 = high, 1 = normal, 2 = bulk. Fire and
+     * forget, like socket.emit, so the call itself never waits on the bridge.
+     */
+    @ReactMethod
+    public void send(String event, String payloadJson, int priority) {
+        long started = System.nanoTime();
+        try {
+            RealtimeTransport current = currentTransport();
+            if (current == null) {
+                Log.w(TAG, "Dropping " + event + ", transport not started");
+                return;
+            }
+            if (!current.send(event, payloadJson, priority)) {
+                Log.w(TAG, "Outbound queue full at priority " + priority + ", dropped oldest frame");
+            }
+        } finally {
+            NativeMetrics.get().recordMethod("RealtimeTransport.send", started);
+        }
+    }
+
+    @ReactMethod
+    public void getStats(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("RealtimeTransport.getStats", jsPromise);
+        RealtimeTransport current = currentTransport();
+        WritableMap result = new WritableNativeMap();
+        if (current == null) {
+            result.putString("state", "idle");
+            result.putBoolean("started", false);
+            promise.resolve(result);
+            return;
+        }
+
+        RealtimeTransport.Stats stats = new RealtimeTransport.Stats();
+        current.fill(stats);
+        result.putBoolean("started", true);
+        result.putString("state", RealtimeTransport.STATE_NAMES[stats.state]);
+        result.putInt("attempt", stats.attempt);
+        result.putDouble("backoffMs", stats.backoffMs);
+        result.putDouble("connects", stats.connects);
+        result.putDouble("disconnects", stats.disconnects);
+        result.putDouble("framesIn", stats.framesIn);
+        result.putDouble("framesOut", stats.framesOut);
+        result.putDouble("charsIn", stats.charsIn);
+        result.putDouble("pingsAnswered", stats.pingsAnswered);
+        result.putDouble("lastOpenAt", stats.lastOpenAt);
+        result.putDouble("lastCloseAt", stats.lastCloseAt);
+        result.putDouble("socketQueueBytes", stats.socketQueueBytes);
+        result.putDouble("queuedChars", stats.queuedChars);
+        result.putDouble("batchesDelivered", batchesDelivered);
+        result.putDouble("messagesDelivered", messagesDelivered);
+        result.putInt("pendingInbound", inbound.size());
+        result.putDouble("inboundDropped", inbound.getDropped());
+        result.putBoolean("leaseHeld", leaseHeld);
+        if (stats.lastError != null) {
+            result.putString("lastError", stats.lastError);
+        }
+
+        String[] names = {"high", "normal", "bulk"};
+        WritableMap queues = new WritableNativeMap();
+        for (int p = 0; p < RealtimeOutboundQueue.PRIORITIES; p++) {
+            WritableMap queue = new WritableNativeMap();
+            queue.putInt("queued", stats.queued[p]);
+            queue.putDouble("sent", stats.sent[p]);
+            queue.putDouble("dropped", stats.dropped[p]);
+            queues.putMap(names[p], queue);
+        }
+        result.putMap("queues", queues);
+        promise.resolve(result);
+    }
+
+    @ReactMethod
+    public void addListener(String eventName) {
+        // Required for NativeEventEmitter
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+        // Required for NativeEventEmitter
+    }
+
+    @Override
+    public void invalidate() {
+        synchronized (this) {
+            if (transport != null) {
+                transport.shutdown();
+                transport = null;
+            }
+        }
+        setLeaseHeld(false);
+        deliveryHandler.removeCallbacks(deliverTask);
+        inbound.drain();
+        super.invalidate();
+    }
+
+    private synchronized RealtimeTransport currentTransport() {
+        return transport;
+    }
+
+    private synchronized void setLeaseHeld(boolean held) {
+        if (held == leaseHeld) {
+            return;
+        }
+        leaseHeld = held;
+        try {
+            if (held) {
+                runtime.getLeases().hold(LEASE);
+            } else {
+                runtime.getLeases().release(LEASE, true);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error updating WiFi lease", e);
+        }
+    }
+
+    private final class TransportListener implements RealtimeTransport.Listener {
+        volatile RealtimeTransport owner;
+
+        @Override
+        public void onStateChanged(int state, String reason) {
+            // A replaced or stopped transport no longer owns the lease
+            if (owner != currentTransport()) {
+                return;
+            }
+            setLeaseHeld(state == RealtimeTransport.STATE_OPEN);
+            WritableMap params = new WritableNativeMap();
+            params.putString("state", RealtimeTransport.STATE_NAMES[state]);
+            if (reason != null) {
+                params.putString("reason", reason);
+            }
+            sendEvent("realtimeState", params);
+        }
+
+        @Override
+        public void onMessage(String event, String body) {
+            inbound.add(event, body, System.currentTimeMillis());
+            if (deliveryScheduled.compareAndSet(false, true)) {
+                deliveryHandler.postDelayed(deliverTask, DELIVERY_INTERVAL_MS);
+            }
+        }
+    }
+
+    private void deliverInbound() {
+        // Clear first: a message added while draining schedules the next run
+        deliveryScheduled.set(false);
+        List<SessionEventBuffer.Entry> pending = inbound.drain();
+        for (int from = 0; from < pending.size(); from += MAX_MESSAGES_PER_BATCH) {
+            int to = Math.min(pending.size(), from + MAX_MESSAGES_PER_BATCH);
+            WritableArray messages = new WritableNativeArray();
+            for (SessionEventBuffer.Entry message : pending.subList(from, to)) {
+                WritableArray pair = new WritableNativeArray();
+                pair.pushString(message.name);
+                pair.pushString((String) message.payload);
+                messages.pushArray(pair);
+            }
+
+            batchesDelivered++;
+            messagesDelivered += to - from;
+            WritableMap params = new WritableNativeMap();
+            params.putArray("messages", messages);
+            params.putInt("count", to - from);
+            sendEvent("realtimeMessages", params);
+        }
+    }
+
+    private void sendEvent(String eventName, WritableMap params) {
+        // Held back while JS is suspended during a background session
+        if (runtime.offer(eventName, params)) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, params);
+            NativeMetrics.get().recordEvent(eventName, started);
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending event", e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.anonymous.ratownictwo;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Colour readings from several sensors in one queue, each tagged with the
+ * index of the sensor it came from, kept in primitive arrays.
+ *
+ * Single producer, single consumer, no locks: the sensor loop offers and the
+ * batch flush drains, and each side only writes its own end. Readings are
+ * stamped by the producer as they are offered, so the queue is in time
+ * order across sensors. When the consumer falls behind the new reading is
+ * refused and counted against its sensor instead of overwriting one that
+ * may be half read.
+ */
+final class SensorSampleQueue {
+    private final int capacity;
+    private final int mask;
+    private final int[] sensors;
+    private final int[] red;
+    private final int[] green;
+    private final int[] blue;
+    private final long[] timestamps;
+
+    // Next slot to read, written by the consumer only
+    private final AtomicLong head = new AtomicLong();
+    // Next slot to write, written by the producer only
+    private final AtomicLong tail = new AtomicLong();
+    // Producer's last look at head, refreshed only when the queue seems full
+    private long cachedHead;
+
+    private final AtomicLongArray accepted;
+    private final AtomicLongArray dropped;
+
+    /**
+     * @param capacity rounded up to a power of two
+     * @param sensorCount number of sensor indices that will be offered
+     */
+    SensorSampleQueue(int capacity, int sensorCount) {
+        int size = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        this.capacity = size;
+        this.mask = size - 1;
+        this.sensors = new int[size];
+        this.red = new int[size];
+        this.green = new int[size];
+        this.blue = new int[size];
+        this.timestamps = new long[size];
+        this.accepted = new AtomicLongArray(sensorCount);
+        this.dropped = new AtomicLongArray(sensorCount);
+    }
+
+    /**
+     * Producer side. Timestamps must not go backwards between calls.
+     *
+     * @return false if the queue was full and the reading was dropped
+     */
+    boolean offer(int sensor, int r, int g, int b, long timestampNanos) {
+        long t = tail.get();
+        if (t - cachedHead >= capacity) {
+            cachedHead = head.get();
+            if (t - cachedHead >= capacity) {
+                dropped.lazySet(sensor, dropped.get(sensor) + 1);
+                return false;
+            }
+        }
+        int index = (int) t & mask;
+        sensors[index] = sensor;
+        red[index] = r;
+        green[index] = g;
+        blue[index] = b;
+        timestamps[index] = timestampNanos;
+        // Publishes the slot to the consumer
+        tail.lazySet(t + 1);
+        accepted.lazySet(sensor, accepted.get(sensor) + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side. Moves up to {@code outR.length} readings into the given
+     * arrays, oldest first.
+     *
+     * @return number of readings copied
+     */
+    int drain(int[] outSensor, int[] outR, int[] outG, int[] outB, long[] outT) {
+        long h = head.get();
+        int count = (int) Math.min(tail.get() - h, outR.length);
+        for (int i = 0; i < count; i++) {
+            int index = (int) (h + i) & mask;
+            outSensor[i] = sensors[index];
+            outR[i] = red[index];
+            outG[i] = green[index];
+            outB[i] = blue[index];
+            outT[i] = timestamps[index];
+        }
+        // Hands the slots back to the producer
+        head.lazySet(h + count);
+        return count;
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long getAccepted(int sensor) {
+        return accepted.get(sensor);
+    }
+
+    long getDropped(int sensor) {
+        return dropped.get(sensor);
+    }
+}
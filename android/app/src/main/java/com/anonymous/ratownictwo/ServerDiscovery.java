@@ -0,0 +1,224 @@
+package com.anonymous.ratownictwo;
+
+import android.content.Context;
+import android.net.nsd.NsdManager;
+import android.net.nsd.NsdServiceInfo;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Browses for the examiner server over NSD (DNS-SD / mDNS) and times a TCP
+ * handshake to every instance it resolves.
+ *
+ * NsdManager resolves one service at a time, so found services are queued
+ * and resolved in turn. A session ends at the timeout, or earlier once the
+ * queue is empty and nothing new has shown up for the settle time. Any
+ * advertiser of the same service type works, e.g.
+ * {@code avahi-publish -s examiner _ratownictwo._tcp 3000}.
+ */
+final class ServerDiscovery implements ServerLocator.Source {
+    private static final String TAG = "ServerDiscovery";
+    static final String DEFAULT_SERVICE_TYPE = "_ratownictwo._tcp";
+
+    private final NsdManager nsdManager;
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    // Discovery thread only
+    private Session session;
+
+    private final class Session {
+        final String serviceType;
+        final long startedAt = SystemClock.elapsedRealtime();
+        final long settleMs;
+        final int probeTimeoutMs;
+        final List<Callback> callbacks = new ArrayList<>();
+        final Set<String> seen = new HashSet<>();
+        final ArrayDeque<NsdServiceInfo> toResolve = new ArrayDeque<>();
+        final List<ServerEndpointCache.Endpoint> endpoints = new ArrayList<>();
+        final Runnable timeout = () -> finish(this, null);
+        final Runnable settle = () -> finish(this, null);
+        NsdManager.DiscoveryListener listener;
+        boolean startFailed;
+        boolean resolving;
+
+        Session(String serviceType, long settleMs, int probeTimeoutMs) {
+            this.serviceType = serviceType;
+            this.settleMs = settleMs;
+            this.probeTimeoutMs = probeTimeoutMs;
+        }
+    }
+
+    ServerDiscovery(Context context) {
+        this.nsdManager = (NsdManager) context.getApplicationContext().getSystemService(Context.NSD_SERVICE);
+        this.thread = new HandlerThread("ServerDiscovery");
+        this.thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Joins the running session when there is one for the same type.
+     */
+    @Override
+    public void discover(String serviceType, long timeoutMs, long settleMs, int probeTimeoutMs, Callback callback) {
+        handler.post(() -> {
+            if (session != null && session.serviceType.equals(serviceType)) {
+                session.callbacks.add(callback);
+                return;
+            }
+            if (session != null) {
+                finish(session, "Superseded by a discovery for another service type");
+            }
+            Session created = new Session(serviceType, settleMs, probeTimeoutMs);
+            created.callbacks.add(callback);
+            session = created;
+            start(created, timeoutMs);
+        });
+    }
+
+    void close() {
+        handler.post(() -> {
+            if (session != null) {
+                finish(session, "Discovery closed");
+            }
+            thread.quitSafely();
+        });
+    }
+
+    private void start(Session current, long timeoutMs) {
+        current.listener = new NsdManager.DiscoveryListener() {
+            @Override
+            public void onDiscoveryStarted(String serviceType) {
+            }
+
+            @Override
+            public void onServiceFound(NsdServiceInfo info) {
+                handler.post(() -> onFound(current, info));
+            }
+
+            @Override
+            public void onServiceLost(NsdServiceInfo info) {
+                // Anything already resolved is still worth a connect attempt
+            }
+
+            @Override
+            public void onDiscoveryStopped(String serviceType) {
+            }
+
+            @Override
+            public void onStartDiscoveryFailed(String serviceType, int errorCode) {
+                handler.post(() -> {
+                    current.startFailed = true;
+                    finish(current, "Discovery failed to start (" + errorCode + ")");
+                });
+            }
+
+            @Override
+            public void onStopDiscoveryFailed(String serviceType, int errorCode) {
+                Log.w(TAG, "Stopping discovery failed (" + errorCode + ")");
+            }
+        };
+
+        try {
+            nsdManager.discoverServices(current.serviceType, NsdManager.PROTOCOL_DNS_SD, current.listener);
+            handler.postDelayed(current.timeout, timeoutMs);
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting discovery", e);
+            current.listener = null;
+            finish(current, e.getMessage());
+        }
+    }
+
+    private void onFound(Session current, NsdServiceInfo info) {
+        if (session != current || !current.seen.add(info.getServiceName())) {
+            return;
+        }
+        handler.removeCallbacks(current.settle);
+        current.toResolve.add(info);
+        resolveNext(current);
+    }
+
+    private void resolveNext(Session current) {
+        if (current.resolving) {
+            return;
+        }
+        NsdServiceInfo next = current.toResolve.poll();
+        if (next == null) {
+            if (!current.endpoints.isEmpty()) {
+                handler.postDelayed(current.settle, current.settleMs);
+            }
+            return;
+        }
+
+        current.resolving = true;
+        // One listener per request: NsdManager rejects a listener that is still in use
+        nsdManager.resolveService(next, new NsdManager.ResolveListener() {
+            @Override
+            public void onServiceResolved(NsdServiceInfo info) {
+                handler.post(() -> onResolved(current, info));
+            }
+
+            @Override
+            public void onResolveFailed(NsdServiceInfo info, int errorCode) {
+                handler.post(() -> {
+                    Log.w(TAG, "Could not resolve " + info.getServiceName() + " (" + errorCode + ")");
+                    current.resolving = false;
+                    if (session == current) {
+                        resolveNext(current);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onResolved(Session current, NsdServiceInfo info) {
+        current.resolving = false;
+        if (session != current) {
+            return;
+        }
+        InetAddress host = info.getHost();
+        if (host != null) {
+            float rttMs;
+            try {
+                rttMs = NetworkProbe.connectMicros(host, info.getPort(), current.probeTimeoutMs) / 1000f;
+            } catch (IOException e) {
+                rttMs = -1f;
+            }
+            current.endpoints.add(new ServerEndpointCache.Endpoint(info.getServiceName(),
+                host.getHostAddress(), info.getPort(), rttMs, System.currentTimeMillis()));
+            Log.d(TAG, "Found " + info.getServiceName() + " at " + host.getHostAddress() + ":" + info.getPort()
+                + (rttMs >= 0 ? " (" + rttMs + " ms)" : " (unreachable)"));
+        }
+        resolveNext(current);
+    }
+
+    private void finish(Session current, String error) {
+        if (session != current) {
+            return;
+        }
+        session = null;
+        handler.removeCallbacks(current.timeout);
+        handler.removeCallbacks(current.settle);
+        if (current.listener != null && !current.startFailed) {
+            try {
+                nsdManager.stopServiceDiscovery(current.listener);
+            } catch (Exception e) {
+                Log.w(TAG, "Error stopping discovery", e);
+            }
+        }
+        long elapsedMs = SystemClock.elapsedRealtime() - current.startedAt;
+        for (Callback callback : current.callbacks) {
+            callback.onComplete(current.endpoints, elapsedMs, error);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.anonymous.ratownictwo;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Examiner server endpoints found by discovery, per network identifier.
+ *
+ * Each network keeps the candidates of its last discovery sorted by RTT, so
+ * {@link #best} is the first entry. The least recently used networks are
+ * evicted past {@code maxNetworks}. The whole cache round-trips through a
+ * tab-separated string for SharedPreferences.
+ */
+final class ServerEndpointCache {
+    static final class Endpoint {
+        final String name;
+        final String host;
+        final int port;
+        final float rttMs;
+        final long resolvedAt;
+
+        Endpoint(String name, String host, int port, float rttMs, long resolvedAt) {
+            this.name = name;
+            this.host = host;
+            this.port = port;
+            this.rttMs = rttMs;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    private final int maxNetworks;
+    // Access order, so iteration starts at the least recently used network
+    private final Map<String, List<Endpoint>> networks = new LinkedHashMap<>(16, 0.75f, true);
+
+    ServerEndpointCache(int maxNetworks) {
+        this.maxNetworks = Math.max(1, maxNetworks);
+    }
+
+    /**
+     * @return the lowest-RTT endpoint resolved within {@code maxAgeMs}, or null
+     */
+    synchronized Endpoint best(String networkId, long now, long maxAgeMs) {
+        List<Endpoint> endpoints = networks.get(networkId);
+        if (endpoints == null) {
+            return null;
+        }
+        for (Endpoint endpoint : endpoints) {
+            if (now - endpoint.resolvedAt <= maxAgeMs) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    synchronized List<Endpoint> get(String networkId) {
+        List<Endpoint> endpoints = networks.get(networkId);
+        return endpoints != null ? new ArrayList<>(endpoints) : new ArrayList<>();
+    }
+
+    /**
+     * Replaces the candidates of a network; unreachable ones (rtt below 0)
+     * are not kept.
+     */
+    synchronized void put(String networkId, List<Endpoint> endpoints) {
+        List<Endpoint> sorted = rank(endpoints);
+        if (sorted.isEmpty()) {
+            networks.remove(networkId);
+            return;
+        }
+        networks.put(networkId, sorted);
+        Iterator<String> oldest = networks.keySet().iterator();
+        while (networks.size() > maxNetworks && oldest.hasNext()) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    /**
+     * Reachable endpoints, lowest RTT first.
+     */
+    static List<Endpoint> rank(List<Endpoint> endpoints) {
+        List<Endpoint> sorted = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.rttMs >= 0) {
+                sorted.add(endpoint);
+            }
+        }
+        sorted.sort((a, b) -> Float.compare(a.rttMs, b.rttMs));
+        return sorted;
+    }
+
+    synchronized void remove(String networkId) {
+        networks.remove(networkId);
+    }
+
+    synchronized void clear() {
+        networks.clear();
+    }
+
+    synchronized List<String> networkIds() {
+        return new ArrayList<>(networks.keySet());
+    }
+
+    synchronized String serialize() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, List<Endpoint>> entry : networks.entrySet()) {
+            for (Endpoint endpoint : entry.getValue()) {
+                out.append(clean(entry.getKey())).append('\t')
+                    .append(clean(endpoint.name)).append('\t')
+                    .append(clean(endpoint.host)).append('\t')
+                    .append(endpoint.port).append('\t')
+                    .append(endpoint.rttMs).append('\t')
+                    .append(endpoint.resolvedAt).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    synchronized void load(String serialized) {
+        networks.clear();
+        if (serialized == null) {
+            return;
+        }
+        for (String line : serialized.split("\n")) {
+            String[] fields = line.split("\t");
+            if (fields.length != 6) {
+                continue;
+            }
+            try {
+                Endpoint endpoint = new Endpoint(fields[1], fields[2], Integer.parseInt(fields[3]),
+                    Float.parseFloat(fields[4]), Long.parseLong(fields[5]));
+                List<Endpoint> endpoints = networks.get(fields[0]);
+                if (endpoints == null) {
+                    endpoints = new ArrayList<>();
+                    networks.put(fields[0], endpoints);
+                }
+                endpoints.add(endpoint);
+            } catch (NumberFormatException e) {
+                // Skip a damaged line, keep the rest
+            }
+        }
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ');
+    }
+}
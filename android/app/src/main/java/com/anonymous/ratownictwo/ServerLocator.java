@@ -0,0 +1,72 @@
+package com.anonymous.ratownictwo;
+
+import java.util.List;
+
+/**
+ * Chooses the examiner endpoint for a network: the cached one while it is
+ * fresh, otherwise the best candidate of a discovery run, which then
+ * replaces the network's cache entry. A run that finds nothing reachable
+ * leaves the cache as it was and fails with NOT_FOUND, or DISCOVERY_ERROR
+ * when the source reported an error, so JS falls back to its configured URL.
+ *
+ * The NSD side is behind {@link Source}; ServerDiscovery is the real one.
+ */
+final class ServerLocator {
+    interface Source {
+        interface Callback {
+            void onComplete(List<ServerEndpointCache.Endpoint> endpoints, long elapsedMs, String error);
+        }
+
+        void discover(String serviceType, long timeoutMs, long settleMs, int probeTimeoutMs, Callback callback);
+    }
+
+    interface Result {
+        /**
+         * @param origin "cache" or "discovery"
+         * @param candidates reachable endpoints, lowest RTT first
+         */
+        void onFound(ServerEndpointCache.Endpoint best, List<ServerEndpointCache.Endpoint> candidates,
+                     String origin, long elapsedMs);
+
+        void onFailed(String code, String message);
+    }
+
+    private final ServerEndpointCache cache;
+    private final Source source;
+    private final Runnable onCacheChanged;
+
+    ServerLocator(ServerEndpointCache cache, Source source, Runnable onCacheChanged) {
+        this.cache = cache;
+        this.source = source;
+        this.onCacheChanged = onCacheChanged;
+    }
+
+    /**
+     * A null networkId (offline or unidentified network) always browses and
+     * caches nothing.
+     */
+    void locate(String networkId, String serviceType, long timeoutMs, long settleMs, int probeTimeoutMs,
+                boolean forceRefresh, long maxAgeMs, long now, Result result) {
+        if (!forceRefresh && networkId != null) {
+            ServerEndpointCache.Endpoint cached = cache.best(networkId, now, maxAgeMs);
+            if (cached != null) {
+                result.onFound(cached, cache.get(networkId), "cache", 0);
+                return;
+            }
+        }
+
+        source.discover(serviceType, timeoutMs, settleMs, probeTimeoutMs, (endpoints, elapsedMs, error) -> {
+            List<ServerEndpointCache.Endpoint> ranked = ServerEndpointCache.rank(endpoints);
+            if (ranked.isEmpty()) {
+                result.onFailed(error != null ? "DISCOVERY_ERROR" : "NOT_FOUND",
+                    error != null ? error : "No reachable " + serviceType + " server on this network");
+                return;
+            }
+            if (networkId != null) {
+                cache.put(networkId, ranked);
+                onCacheChanged.run();
+            }
+            result.onFound(ranked.get(0), ranked, "discovery", elapsedMs);
+        });
+    }
+}
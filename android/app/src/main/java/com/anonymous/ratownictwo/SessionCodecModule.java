@@ -0,0 +1,412 @@
+package com.anonymous.ratownictwo;
+
+import android.util.Base64;
+import android.util.Log;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.module.annotations.ReactModule;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Encodes session state, audio commands and vitals with SessionStateCodec
+ * for sending over the socket, and decodes what peers send back.
+ *
+ * A stream is one kind of message to or from one peer ("student-12",
+ * "examiner", ...). Once the peer acknowledges a frame, later frames on the
+ * stream are deltas against it. Frames cross the bridge as base64.
+ */
+@ReactModule(name = SessionCodecModule.NAME)
+public class SessionCodecModule extends ReactContextBaseJavaModule {
+    public static final String NAME = "SessionCodec";
+    private static final String TAG = "SessionCodecModule";
+
+    private final ReactApplicationContext reactContext;
+
+    // Guarded by this
+    private final Map<String, SessionStateCodec.Encoder> encoders = new HashMap<>();
+    private final Map<String, SessionStateCodec.Decoder> decoders = new HashMap<>();
+    private final SessionStateCodec.Buffer buffer = new SessionStateCodec.Buffer(1024);
+    private final Map<Integer, SessionStateCodec.State> inputs = new HashMap<>();
+
+    private long encodeCount = 0;
+    private long deltaCount = 0;
+    private long encodedBytes = 0;
+    private long jsonBytes = 0;
+    private long encodeNanos = 0;
+    private long maxEncodeNanos = 0;
+    private long decodeCount = 0;
+    private long decodedBytes = 0;
+    private long decodeNanos = 0;
+    private long maxDecodeNanos = 0;
+    private long baseMisses = 0;
+    private long acks = 0;
+
+    public SessionCodecModule(ReactApplicationContext context) {
+        super(context);
+        this.reactContext = context;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Resolves {data (base64), seq, delta, bytes, jsonBytes, ratio}.
+     */
+    @ReactMethod
+    public void encode(String kind, String streamId, ReadableMap payload, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("SessionCodec.encode", jsPromise);
+        try {
+            int kindCode = kindCode(kind);
+            WritableMap result = new WritableNativeMap();
+            synchronized (this) {
+                SessionStateCodec.Encoder encoder = encoders.get(streamKey(kindCode, streamId));
+                if (encoder == null) {
+                    encoder = new SessionStateCodec.Encoder(SessionStateCodec.schema(kindCode));
+                    encoders.put(streamKey(kindCode, streamId), encoder);
+                }
+                SessionStateCodec.State input = inputs.get(kindCode);
+                if (input == null) {
+                    input = new SessionStateCodec.State(encoder.schema);
+                    inputs.put(kindCode, input);
+                }
+                input.clear();
+                fill(input, payload);
+
+                boolean delta = encoder.hasBase();
+                long started = System.nanoTime();
+                int seq = encoder.encode(input, buffer);
+                long elapsed = System.nanoTime() - started;
+
+                int json = encoder.getLastJsonLength();
+                encodeCount++;
+                if (delta) {
+                    deltaCount++;
+                }
+                encodedBytes += buffer.length;
+                jsonBytes += json;
+                encodeNanos += elapsed;
+                maxEncodeNanos = Math.max(maxEncodeNanos, elapsed);
+
+                result.putString("data", Base64.encodeToString(buffer.data, 0, buffer.length, Base64.NO_WRAP));
+                result.putInt("seq", seq);
+                result.putBoolean("delta", delta);
+                result.putInt("bytes", buffer.length);
+                result.putInt("jsonBytes", json);
+                result.putDouble("ratio", buffer.length > 0 ? (double) json / buffer.length : 0);
+                result.putDouble("encodeMicros", elapsed / 1000.0);
+            }
+            promise.resolve(result);
+        } catch (IllegalArgumentException e) {
+            promise.reject("INVALID_ARGUMENT", e.getMessage());
+        } catch (Exception e) {
+            Log.e(TAG, "Error encoding " + kind, e);
+            promise.reject("ENCODE_ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves {seq, delta, payload}. Rejects with BASE_MISSING when a delta
+     * refers to a frame this side no longer holds; the sender should reset
+     * the stream and send a full state.
+     */
+    @ReactMethod
+    public void decode(String kind, String streamId, String data, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("SessionCodec.decode", jsPromise);
+        try {
+            int kindCode = kindCode(kind);
+            byte[] bytes = Base64.decode(data, Base64.NO_WRAP);
+            WritableMap result = new WritableNativeMap();
+            synchronized (this) {
+                SessionStateCodec.Decoder decoder = decoders.get(streamKey(kindCode, streamId));
+                if (decoder == null) {
+                    decoder = new SessionStateCodec.Decoder(SessionStateCodec.schema(kindCode));
+                    decoders.put(streamKey(kindCode, streamId), decoder);
+                }
+
+                long started = System.nanoTime();
+                SessionStateCodec.State state;
+                try {
+                    state = decoder.decode(bytes, 0, bytes.length);
+                } catch (IllegalStateException e) {
+                    baseMisses++;
+                    promise.reject("BASE_MISSING", e.getMessage());
+                    return;
+                }
+                long elapsed = System.nanoTime() - started;
+                decodeCount++;
+                decodedBytes += bytes.length;
+                decodeNanos += elapsed;
+                maxDecodeNanos = Math.max(maxDecodeNanos, elapsed);
+
+                result.putInt("seq", state.seq);
+                result.putBoolean("delta", decoder.wasDelta());
+                result.putMap("payload", toMap(state));
+                result.putDouble("decodeMicros", elapsed / 1000.0);
+            }
+            promise.resolve(result);
+        } catch (IllegalArgumentException e) {
+            promise.reject("DECODE_ERROR", e.getMessage());
+        } catch (Exception e) {
+            Log.e(TAG, "Error decoding " + kind, e);
+            promise.reject("DECODE_ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * The peer decoded frame {@code seq}. Resolves false when the frame is
+     * too old to serve as a base.
+     */
+    @ReactMethod
+    public void ack(String kind, String streamId, int seq, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("SessionCodec.ack", jsPromise);
+        try {
+            int kindCode = kindCode(kind);
+            synchronized (this) {
+                SessionStateCodec.Encoder encoder = encoders.get(streamKey(kindCode, streamId));
+                boolean accepted = encoder != null && encoder.ack(seq);
+                if (accepted) {
+                    acks++;
+                }
+                promise.resolve(accepted);
+            }
+        } catch (IllegalArgumentException e) {
+            promise.reject("INVALID_ARGUMENT", e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the state of one stream, or of every stream of the peer when
+     * kind is null, so the next frame is sent in full.
+     */
+    @ReactMethod
+    public void resetStream(String kind, String streamId) {
+        long started = System.nanoTime();
+        try {
+            synchronized (this) {
+                if (kind != null) {
+                    int kindCode = kindCode(kind);
+                    encoders.remove(streamKey(kindCode, streamId));
+                    decoders.remove(streamKey(kindCode, streamId));
+                    return;
+                }
+                String suffix = ":" + streamId;
+                encoders.keySet().removeIf(key -> key.endsWith(suffix));
+                decoders.keySet().removeIf(key -> key.endsWith(suffix));
+            }
+        } finally {
+            NativeMetrics.get().recordMethod("SessionCodec.resetStream", started);
+        }
+    }
+
+    @ReactMethod
+    public void getStats(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("SessionCodec.getStats", jsPromise);
+        WritableMap stats = new WritableNativeMap();
+        synchronized (this) {
+            stats.putDouble("encodeCount", encodeCount);
+            stats.putDouble("deltaCount", deltaCount);
+            stats.putDouble("fullCount", encodeCount - deltaCount);
+            stats.putDouble("encodedBytes", encodedBytes);
+            stats.putDouble("jsonBytes", jsonBytes);
+            stats.putDouble("compressionRatio", encodedBytes > 0 ? (double) jsonBytes / encodedBytes : 0);
+            stats.putDouble("avgEncodeMicros", encodeCount > 0 ? encodeNanos / 1000.0 / encodeCount : 0);
+            stats.putDouble("maxEncodeMicros", maxEncodeNanos / 1000.0);
+            stats.putDouble("decodeCount", decodeCount);
+            stats.putDouble("decodedBytes", decodedBytes);
+            stats.putDouble("avgDecodeMicros", decodeCount > 0 ? decodeNanos / 1000.0 / decodeCount : 0);
+            stats.putDouble("maxDecodeMicros", maxDecodeNanos / 1000.0);
+            stats.putDouble("baseMisses", baseMisses);
+            stats.putDouble("acks", acks);
+            stats.putInt("encoderStreams", encoders.size());
+            stats.putInt("decoderStreams", decoders.size());
+        }
+        promise.resolve(stats);
+    }
+
+    @Override
+    public void invalidate() {
+        synchronized (this) {
+            encoders.clear();
+            decoders.clear();
+        }
+        super.invalidate();
+    }
+
+    private static int kindCode(String kind) {
+        if ("state".equals(kind)) {
+            return SessionStateCodec.KIND_STATE;
+        }
+        if ("audio".equals(kind)) {
+            return SessionStateCodec.KIND_AUDIO;
+        }
+        if ("vitals".equals(kind)) {
+            return SessionStateCodec.KIND_VITALS;
+        }
+        throw new IllegalArgumentException("Unknown message kind: " + kind);
+    }
+
+    private static String streamKey(int kind, String streamId) {
+        return kind + ":" + streamId;
+    }
+
+    private static void fill(SessionStateCodec.State state, ReadableMap payload) throws JSONException {
+        SessionStateCodec.Schema schema = state.schema;
+        ReadableMapKeySetIterator keys = payload.keySetIterator();
+        while (keys.hasNextKey()) {
+            String key = keys.nextKey();
+            int field = schema.indexOf(key);
+            ReadableType type = payload.getType(key);
+            switch (type) {
+                case Null:
+                    if (field >= 0) {
+                        state.setNull(field);
+                    } else {
+                        state.extras.put(key, SessionStateCodec.tagged('n', null));
+                    }
+                    break;
+                case Boolean:
+                    if (field < 0 || !state.setBoolean(field, payload.getBoolean(key))) {
+                        state.extras.put(key, SessionStateCodec.tagged('b', payload.getBoolean(key) ? "1" : "0"));
+                    }
+                    break;
+                case Number:
+                    if (field < 0 || !state.setNumber(field, payload.getDouble(key))) {
+                        state.extras.put(key,
+                            SessionStateCodec.tagged('d', JSONObject.numberToString(payload.getDouble(key))));
+                    }
+                    break;
+                case String:
+                    if (field < 0 || !state.setString(field, payload.getString(key))) {
+                        state.extras.put(key, SessionStateCodec.tagged('s', payload.getString(key)));
+                    }
+                    break;
+                case Map:
+                    state.extras.put(key, SessionStateCodec.tagged('j',
+                        new JSONObject(payload.getMap(key).toHashMap()).toString()));
+                    break;
+                case Array:
+                    state.extras.put(key, SessionStateCodec.tagged('j',
+                        new JSONArray(payload.getArray(key).toArrayList()).toString()));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static WritableMap toMap(SessionStateCodec.State state) throws JSONException {
+        SessionStateCodec.Schema schema = state.schema;
+        WritableMap map = new WritableNativeMap();
+        for (int i = 0; i < schema.size(); i++) {
+            if (!state.has(i)) {
+                continue;
+            }
+            if (state.isNull(i)) {
+                map.putNull(schema.names[i]);
+                continue;
+            }
+            switch (schema.types[i]) {
+                case SessionStateCodec.TYPE_STRING:
+                    map.putString(schema.names[i], state.strings[i]);
+                    break;
+                case SessionStateCodec.TYPE_BOOL:
+                    map.putBoolean(schema.names[i], state.numbers[i] != 0);
+                    break;
+                default:
+                    map.putDouble(schema.names[i], state.getNumber(i));
+                    break;
+            }
+        }
+        for (int e = 0; e < state.extras.size(); e++) {
+            String name = state.extras.name(e);
+            String value = state.extras.value(e);
+            char tag = value.isEmpty() ? 'n' : value.charAt(0);
+            String text = value.substring(Math.min(1, value.length()));
+            switch (tag) {
+                case 'b':
+                    map.putBoolean(name, "1".equals(text));
+                    break;
+                case 'd':
+                    map.putDouble(name, Double.parseDouble(text));
+                    break;
+                case 's':
+                    map.putString(name, text);
+                    break;
+                case 'j':
+                    if (text.startsWith("[")) {
+                        map.putArray(name, toArray(new JSONArray(text)));
+                    } else {
+                        map.putMap(name, toMap(new JSONObject(text)));
+                    }
+                    break;
+                default:
+                    map.putNull(name);
+                    break;
+            }
+        }
+        return map;
+    }
+
+    private static WritableMap toMap(JSONObject object) throws JSONException {
+        WritableMap map = new WritableNativeMap();
+        Iterator<String> keys = object.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = object.get(key);
+            if (value instanceof JSONObject) {
+                map.putMap(key, toMap((JSONObject) value));
+            } else if (value instanceof JSONArray) {
+                map.putArray(key, toArray((JSONArray) value));
+            } else if (value instanceof Boolean) {
+                map.putBoolean(key, (Boolean) value);
+            } else if (value instanceof Number) {
+                map.putDouble(key, ((Number) value).doubleValue());
+            } else if (value instanceof String) {
+                map.putString(key, (String) value);
+            } else {
+                map.putNull(key);
+            }
+        }
+        return map;
+    }
+
+    private static WritableArray toArray(JSONArray array) throws JSONException {
+        WritableArray out = new WritableNativeArray();
+        for (int i = 0; i < array.length(); i++) {
+            Object value = array.get(i);
+            if (value instanceof JSONObject) {
+                out.pushMap(toMap((JSONObject) value));
+            } else if (value instanceof JSONArray) {
+                out.pushArray(toArray((JSONArray) value));
+            } else if (value instanceof Boolean) {
+                out.pushBoolean((Boolean) value);
+            } else if (value instanceof Number) {
+                out.pushDouble(((Number) value).doubleValue());
+            } else if (value instanceof String) {
+                out.pushString((String) value);
+            } else {
+                out.pushNull();
+            }
+        }
+        return out;
+    }
+}
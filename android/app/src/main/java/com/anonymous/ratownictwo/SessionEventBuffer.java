@@ -0,0 +1,120 @@
+package com.anonymous.ratownictwo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Events held back while JS is suspended, in the order they were emitted.
+ *
+ * The buffer is bounded: once full the oldest entry is dropped. Event names
+ * marked as coalesced keep only their latest payload, so state-style events
+ * (sensor state, connection state) do not crowd out the stream data.
+ */
+final class SessionEventBuffer {
+    static final int DEFAULT_CAPACITY = 4096;
+
+    static final class Entry {
+        final String name;
+        final Object payload;
+        final long timestamp;
+        boolean superseded;
+
+        Entry(String name, Object payload, long timestamp) {
+            this.name = name;
+            this.payload = payload;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final Map<String, Entry> latest = new HashMap<>();
+    private final Set<String> coalesced = new HashSet<>();
+    private int capacity = DEFAULT_CAPACITY;
+    // Live entries, i.e. not superseded
+    private int size;
+    private long dropped;
+    private long coalescedCount;
+    private long buffered;
+
+    synchronized void configure(int capacity, Set<String> coalescedNames) {
+        this.capacity = Math.max(1, capacity);
+        coalesced.clear();
+        coalesced.addAll(coalescedNames);
+        trim();
+    }
+
+    synchronized void add(String name, Object payload, long timestamp) {
+        if (coalesced.contains(name)) {
+            Entry previous = latest.get(name);
+            if (previous != null) {
+                previous.superseded = true;
+                size--;
+                coalescedCount++;
+            }
+        }
+        Entry entry = new Entry(name, payload, timestamp);
+        entries.addLast(entry);
+        latest.put(name, entry);
+        size++;
+        buffered++;
+        trim();
+    }
+
+    /**
+     * Removes and returns the live entries, oldest first.
+     */
+    synchronized List<Entry> drain() {
+        List<Entry> live = new ArrayList<>(size);
+        for (Entry entry : entries) {
+            if (!entry.superseded) {
+                live.add(entry);
+            }
+        }
+        entries.clear();
+        latest.clear();
+        size = 0;
+        return live;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized long getDropped() {
+        return dropped;
+    }
+
+    synchronized long getCoalesced() {
+        return coalescedCount;
+    }
+
+    synchronized long getBuffered() {
+        return buffered;
+    }
+
+    private void trim() {
+        while (size > capacity) {
+            Entry oldest = entries.pollFirst();
+            if (oldest.superseded) {
+                continue;
+            }
+            if (latest.get(oldest.name) == oldest) {
+                latest.remove(oldest.name);
+            }
+            size--;
+            dropped++;
+        }
+        // Superseded entries are dead weight; sweep them once they pile up
+        while (!entries.isEmpty() && entries.peekFirst().superseded) {
+            entries.pollFirst();
+        }
+        if (entries.size() > 2 * capacity) {
+            entries.removeIf(entry -> entry.superseded);
+        }
+    }
+}
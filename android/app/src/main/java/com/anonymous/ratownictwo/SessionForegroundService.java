@@ -0,0 +1,183 @@
+package com.anonymous.ratownictwo;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+
+import androidx.core.app.NotificationChannelCompat;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Foreground service that keeps a training session running while the app is
+ * in the background.
+ *
+ * While it runs the process is not throttled, so the GATT threads, profile
+ * manager and keep-alive leases keep working, and SessionRuntime buffers the
+ * events JS cannot take yet. It holds its own "foregroundSession" lease, so
+ * the wake and Wi-Fi locks stay up for as long as the service does.
+ */
+public class SessionForegroundService extends Service {
+    private static final String TAG = "SessionForegroundSvc";
+
+    static final String ACTION_START = "com.anonymous.ratownictwo.session.START";
+    static final String EXTRA_TITLE = "title";
+    static final String EXTRA_TEXT = "text";
+
+    private static final String CHANNEL_ID = "training_session";
+    private static final int NOTIFICATION_ID = 4201;
+    private static final String DEFAULT_TITLE = "Sesja szkoleniowa";
+    private static final String DEFAULT_TEXT = "Połączenie z sesją jest aktywne";
+
+    private SessionRuntime runtime;
+    private String title = DEFAULT_TITLE;
+    private String text = DEFAULT_TEXT;
+
+    static void start(Context context, String title, String text) {
+        Intent intent = new Intent(context, SessionForegroundService.class);
+        intent.setAction(ACTION_START);
+        intent.putExtra(EXTRA_TITLE, title);
+        intent.putExtra(EXTRA_TEXT, text);
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    /**
+     * Replaces the notification of the running service in place. This does
+     * not go through startService, which throws IllegalStateException on
+     * Android 8+ while the app is in the background.
+     */
+    static void update(Context context, String title, String text) {
+        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
+        if (!manager.areNotificationsEnabled()) {
+            return;
+        }
+        try {
+            manager.notify(NOTIFICATION_ID, buildNotification(context,
+                title != null ? title : DEFAULT_TITLE, text != null ? text : DEFAULT_TEXT));
+        } catch (SecurityException e) {
+            Log.w(TAG, "Notification permission missing", e);
+        }
+    }
+
+    static void stop(Context context) {
+        context.stopService(new Intent(context, SessionForegroundService.class));
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        runtime = SessionRuntime.get(this);
+        createChannel();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null) {
+            if (intent.getStringExtra(EXTRA_TITLE) != null) {
+                title = intent.getStringExtra(EXTRA_TITLE);
+            }
+            if (intent.getStringExtra(EXTRA_TEXT) != null) {
+                text = intent.getStringExtra(EXTRA_TEXT);
+            }
+        }
+
+        if (!enterForeground()) {
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        runtime.onServiceStarted();
+        Log.d(TAG, "Session service running");
+        // Without JS there is nothing to deliver to, so do not come back on our own
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onTaskRemoved(Intent rootIntent) {
+        // The user swiped the app away: end the session with it
+        stopSelf();
+        super.onTaskRemoved(rootIntent);
+    }
+
+    @Override
+    public void onDestroy() {
+        runtime.onServiceStopped();
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        Log.d(TAG, "Session service stopped");
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private boolean enterForeground() {
+        Notification notification = buildNotification(this, title, text);
+        try {
+            ServiceCompat.startForeground(this, NOTIFICATION_ID, notification, foregroundTypes(true));
+            return true;
+        } catch (SecurityException e) {
+            // connectedDevice needs a granted Bluetooth permission on Android 14+
+            Log.w(TAG, "Falling back to dataSync foreground type", e);
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Not allowed to start in the foreground now", e);
+            return false;
+        }
+        try {
+            ServiceCompat.startForeground(this, NOTIFICATION_ID, notification, foregroundTypes(false));
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error entering foreground", e);
+            return false;
+        }
+    }
+
+    private static int foregroundTypes(boolean connectedDevice) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return 0;
+        }
+        int types = ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC;
+        if (connectedDevice) {
+            types |= ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE;
+        }
+        return types;
+    }
+
+    private void createChannel() {
+        NotificationChannelCompat channel = new NotificationChannelCompat.Builder(
+                CHANNEL_ID, NotificationManagerCompat.IMPORTANCE_LOW)
+            .setName("Sesja szkoleniowa")
+            .setDescription("Utrzymuje połączenie z sesją w tle")
+            .setShowBadge(false)
+            .build();
+        NotificationManagerCompat.from(this).createNotificationChannel(channel);
+    }
+
+    private static Notification buildNotification(Context context, String title, String text) {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+            .setSmallIcon(context.getApplicationInfo().icon)
+            .setContentTitle(title)
+            .setContentText(text)
+            .setOngoing(true)
+            .setOnlyAlertOnce(true)
+            .setCategory(NotificationCompat.CATEGORY_SERVICE)
+            .setPriority(NotificationCompat.PRIORITY_LOW)
+            .setForegroundServiceBehavior(NotificationCompat.FOREGROUND_SERVICE_IMMEDIATE);
+
+        Intent launch = context.getPackageManager().getLaunchIntentForPackage(context.getPackageName());
+        if (launch != null) {
+            launch.setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP | Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
+            builder.setContentIntent(PendingIntent.getActivity(context, 0, launch,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE));
+        }
+        return builder.build();
+    }
+}
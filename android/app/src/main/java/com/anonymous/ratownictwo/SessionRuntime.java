@@ -0,0 +1,155 @@
+package com.anonymous.ratownictwo;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.List;
+
+/**
+ * Process-wide state shared by SessionForegroundService and the modules.
+ *
+ * It outlives any single React context: the lease manager (and with it the
+ * wake and Wi-Fi locks) and the event buffer stay put across JS reloads and
+ * while the activity is in the background. Modules route their events
+ * through {@link #offer}, which holds them back while the service is running
+ * and JS is suspended.
+ */
+final class SessionRuntime {
+    private static final String TAG = "SessionRuntime";
+    static final String SERVICE_LEASE = "foregroundSession";
+
+    private static SessionRuntime instance;
+
+    private final WifiLeaseManager leases;
+    private final SessionEventBuffer buffer = new SessionEventBuffer();
+    private volatile boolean serviceRunning = false;
+    private volatile boolean jsActive = true;
+    private long serviceStartedAt;
+    private long batchesDelivered;
+    private long eventsDelivered;
+    // Buffer totals already reported, so each batch carries only its own share
+    private long droppedReported;
+    private long coalescedReported;
+
+    private SessionRuntime(Context context) {
+        this.leases = new WifiLeaseManager(context);
+    }
+
+    static synchronized SessionRuntime get(Context context) {
+        if (instance == null) {
+            instance = new SessionRuntime(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    WifiLeaseManager getLeases() {
+        return leases;
+    }
+
+    SessionEventBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return true when the event was buffered and must not be emitted now
+     */
+    boolean offer(String eventName, WritableMap params) {
+        if (!serviceRunning || jsActive) {
+            return false;
+        }
+        buffer.add(eventName, params, System.currentTimeMillis());
+        return true;
+    }
+
+    void setJsActive(boolean active) {
+        jsActive = active;
+        Log.d(TAG, "JS " + (active ? "active" : "suspended") + ", " + buffer.size() + " events buffered");
+    }
+
+    boolean isJsActive() {
+        return jsActive;
+    }
+
+    synchronized void onServiceStarted() {
+        if (serviceRunning) {
+            return;
+        }
+        serviceRunning = true;
+        serviceStartedAt = SystemClock.elapsedRealtime();
+        leases.hold(SERVICE_LEASE);
+        leases.setSessionActive(SERVICE_LEASE, true);
+    }
+
+    synchronized void onServiceStopped() {
+        if (!serviceRunning) {
+            return;
+        }
+        serviceRunning = false;
+        serviceStartedAt = 0;
+        leases.release(SERVICE_LEASE, true);
+        leases.setSessionActive(SERVICE_LEASE, false);
+    }
+
+    boolean isServiceRunning() {
+        return serviceRunning;
+    }
+
+    synchronized long getServiceUptimeMs() {
+        return serviceStartedAt > 0 ? SystemClock.elapsedRealtime() - serviceStartedAt : 0;
+    }
+
+    /**
+     * Drains the buffer into one batch payload, or null when it is empty.
+     * Its dropped and coalesced counts cover only the time since the last batch.
+     */
+    WritableMap drainBatch() {
+        List<SessionEventBuffer.Entry> entries = buffer.drain();
+        if (entries.isEmpty()) {
+            return null;
+        }
+
+        WritableArray events = new WritableNativeArray();
+        for (SessionEventBuffer.Entry entry : entries) {
+            WritableMap event = new WritableNativeMap();
+            event.putString("name", entry.name);
+            event.putDouble("timestamp", entry.timestamp);
+            if (entry.payload instanceof WritableMap) {
+                event.putMap("payload", (WritableMap) entry.payload);
+            } else {
+                event.putNull("payload");
+            }
+            events.pushMap(event);
+        }
+
+        WritableMap batch = new WritableNativeMap();
+        batch.putArray("events", events);
+        batch.putInt("count", entries.size());
+        batch.putDouble("firstTimestamp", entries.get(0).timestamp);
+        batch.putDouble("lastTimestamp", entries.get(entries.size() - 1).timestamp);
+        synchronized (this) {
+            long dropped = buffer.getDropped();
+            long coalesced = buffer.getCoalesced();
+            batch.putDouble("dropped", dropped - droppedReported);
+            batch.putDouble("coalesced", coalesced - coalescedReported);
+            droppedReported = dropped;
+            coalescedReported = coalesced;
+            batchesDelivered++;
+            eventsDelivered += entries.size();
+        }
+        return batch;
+    }
+
+    synchronized long getBatchesDelivered() {
+        return batchesDelivered;
+    }
+
+    synchronized long getEventsDelivered() {
+        return eventsDelivered;
+    }
+}
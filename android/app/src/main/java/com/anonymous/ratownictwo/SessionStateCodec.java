@@ -0,0 +1,813 @@
+package com.anonymous.ratownictwo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary form of session state, audio commands and vitals, with
+ * per-field deltas against the last state the peer acknowledged.
+ *
+ * Each kind has a fixed field table; numbers are zigzag varints (fixed point
+ * where the field has a scale), so a delta of an unchanged vital costs
+ * nothing and a changed one usually a byte. Keys outside the table, and
+ * values that do not fit it (fractions in an integer field, nested objects),
+ * travel as named extras holding type-tagged text. A field set to null is
+ * sent as such, distinct from one that is absent.
+ *
+ * Frame layout:
+ * <pre>
+ *   u8 version, u8 kind, u8 flags (bit 0: delta)
+ *   varint seq, [varint baseSeq if delta]
+ *   varint changedMask, varint clearedMask, varint nullMask
+ *   one value per bit of changedMask not in nullMask, lowest field first
+ *   varint extrasChanged, (string name, string value) each
+ *   varint extrasRemoved, string name each
+ * </pre>
+ * Decoding writes into states and extras tables owned by the decoder, and
+ * reuses the previous String of a field or extra whose bytes did not change.
+ * Plain Java, so it runs on the JVM.
+ */
+final class SessionStateCodec {
+    static final int VERSION = 0x52;
+    static final int KIND_STATE = 1;
+    static final int KIND_AUDIO = 2;
+    static final int KIND_VITALS = 3;
+
+    static final int TYPE_INT = 0;
+    static final int TYPE_FIXED = 1;
+    static final int TYPE_BOOL = 2;
+    static final int TYPE_STRING = 3;
+
+    private static final int FLAG_DELTA = 1;
+    // Encoder states kept until acknowledged, decoder states kept as bases
+    static final int HISTORY = 32;
+    // Distinct extra names a decoder keeps Strings of for reuse
+    private static final int MAX_REMEMBERED_EXTRAS = 32;
+
+    static final class Schema {
+        final int kind;
+        final String[] names;
+        final int[] types;
+        final int[] scales;
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        Schema(int kind, Object... fields) {
+            this.kind = kind;
+            int count = fields.length / 3;
+            names = new String[count];
+            types = new int[count];
+            scales = new int[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = (String) fields[i * 3];
+                types[i] = (Integer) fields[i * 3 + 1];
+                scales[i] = (Integer) fields[i * 3 + 2];
+                indexes.put(names[i], i);
+            }
+        }
+
+        int indexOf(String name) {
+            Integer index = indexes.get(name);
+            return index != null ? index : -1;
+        }
+
+        int size() {
+            return names.length;
+        }
+    }
+
+    static final Schema STATE = new Schema(KIND_STATE,
+        "sessionCode", TYPE_STRING, 1,
+        "sessionId", TYPE_STRING, 1,
+        "name", TYPE_STRING, 1,
+        "temperature", TYPE_FIXED, 100,
+        "rhythmType", TYPE_INT, 1,
+        "beatsPerMinute", TYPE_INT, 1,
+        "noiseLevel", TYPE_INT, 1,
+        "isActive", TYPE_BOOL, 1,
+        "isEkdDisplayHidden", TYPE_BOOL, 1,
+        "showColorsConfig", TYPE_BOOL, 1,
+        "hr", TYPE_INT, 1,
+        "bp", TYPE_STRING, 1,
+        "spo2", TYPE_INT, 1,
+        "etco2", TYPE_INT, 1,
+        "rr", TYPE_INT, 1,
+        "examiner_id", TYPE_INT, 1,
+        "createdAt", TYPE_STRING, 1,
+        "updatedAt", TYPE_STRING, 1);
+
+    static final Schema AUDIO = new Schema(KIND_AUDIO,
+        "code", TYPE_STRING, 1,
+        "studentId", TYPE_INT, 1,
+        "command", TYPE_STRING, 1,
+        "soundName", TYPE_STRING, 1,
+        "audioId", TYPE_STRING, 1,
+        "loop", TYPE_BOOL, 1);
+
+    static final Schema VITALS = new Schema(KIND_VITALS,
+        "hr", TYPE_INT, 1,
+        "bp", TYPE_STRING, 1,
+        "spo2", TYPE_INT, 1,
+        "etco2", TYPE_INT, 1,
+        "rr", TYPE_INT, 1,
+        "temperature", TYPE_FIXED, 100,
+        "rhythmType", TYPE_INT, 1,
+        "beatsPerMinute", TYPE_INT, 1,
+        "noiseLevel", TYPE_INT, 1);
+
+    static Schema schema(int kind) {
+        switch (kind) {
+            case KIND_STATE:
+                return STATE;
+            case KIND_AUDIO:
+                return AUDIO;
+            case KIND_VITALS:
+                return VITALS;
+            default:
+                throw new IllegalArgumentException("Unknown kind " + kind);
+        }
+    }
+
+    /**
+     * Named extras in insertion order, on parallel arrays so copying a state
+     * allocates nothing once the arrays have grown to the usual size. Lookups
+     * are linear; a message carries a handful of extras at most.
+     */
+    static final class Extras {
+        private String[] names = new String[4];
+        private String[] values = new String[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        String name(int index) {
+            return names[index];
+        }
+
+        String value(int index) {
+            return values[index];
+        }
+
+        int indexOf(String name) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String get(String name) {
+            int index = indexOf(name);
+            return index >= 0 ? values[index] : null;
+        }
+
+        void put(String name, String value) {
+            int index = indexOf(name);
+            if (index >= 0) {
+                values[index] = value;
+                return;
+            }
+            ensure(size + 1);
+            names[size] = name;
+            values[size] = value;
+            size++;
+        }
+
+        void remove(String name) {
+            int index = indexOf(name);
+            if (index < 0) {
+                return;
+            }
+            size--;
+            System.arraycopy(names, index + 1, names, index, size - index);
+            System.arraycopy(values, index + 1, values, index, size - index);
+            names[size] = null;
+            values[size] = null;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                names[i] = null;
+                values[i] = null;
+            }
+            size = 0;
+        }
+
+        void copyFrom(Extras other) {
+            ensure(other.size);
+            for (int i = other.size; i < size; i++) {
+                names[i] = null;
+                values[i] = null;
+            }
+            System.arraycopy(other.names, 0, names, 0, other.size);
+            System.arraycopy(other.values, 0, values, 0, other.size);
+            size = other.size;
+        }
+
+        private void ensure(int capacity) {
+            if (capacity > names.length) {
+                int grown = Math.max(capacity, names.length * 2);
+                String[] newNames = new String[grown];
+                String[] newValues = new String[grown];
+                System.arraycopy(names, 0, newNames, 0, size);
+                System.arraycopy(values, 0, newValues, 0, size);
+                names = newNames;
+                values = newValues;
+            }
+        }
+    }
+
+    /**
+     * Field values of one message. Numbers are stored scaled, booleans as
+     * 0/1; a present field in {@code nulls} is null. Extras map a name to
+     * type-tagged text (see {@link #tagged}).
+     */
+    static final class State {
+        final Schema schema;
+        long present;
+        long nulls;
+        final long[] numbers;
+        final String[] strings;
+        final Extras extras = new Extras();
+        int seq = -1;
+
+        State(Schema schema) {
+            this.schema = schema;
+            this.numbers = new long[schema.size()];
+            this.strings = new String[schema.size()];
+        }
+
+        void clear() {
+            present = 0;
+            nulls = 0;
+            extras.clear();
+            seq = -1;
+            for (int i = 0; i < strings.length; i++) {
+                numbers[i] = 0;
+                strings[i] = null;
+            }
+        }
+
+        void copyFrom(State other) {
+            present = other.present;
+            nulls = other.nulls;
+            seq = other.seq;
+            System.arraycopy(other.numbers, 0, numbers, 0, numbers.length);
+            System.arraycopy(other.strings, 0, strings, 0, strings.length);
+            extras.copyFrom(other.extras);
+        }
+
+        boolean has(int field) {
+            return (present & (1L << field)) != 0;
+        }
+
+        boolean isNull(int field) {
+            return (nulls & (1L << field)) != 0;
+        }
+
+        void setNull(int field) {
+            numbers[field] = 0;
+            strings[field] = null;
+            present |= 1L << field;
+            nulls |= 1L << field;
+        }
+
+        /**
+         * @return false when the value does not fit the field, e.g. a
+         *         fraction in an integer field; the caller keeps it as an extra
+         */
+        boolean setNumber(int field, double value) {
+            int type = schema.types[field];
+            if (type != TYPE_INT && type != TYPE_FIXED) {
+                return false;
+            }
+            double scaled = value * schema.scales[field];
+            long rounded = Math.round(scaled);
+            if (Math.abs(scaled - rounded) > 1e-6 || Math.abs(scaled) > 1e15) {
+                return false;
+            }
+            numbers[field] = rounded;
+            present |= 1L << field;
+            nulls &= ~(1L << field);
+            return true;
+        }
+
+        boolean setBoolean(int field, boolean value) {
+            if (schema.types[field] != TYPE_BOOL) {
+                return false;
+            }
+            numbers[field] = value ? 1 : 0;
+            present |= 1L << field;
+            nulls &= ~(1L << field);
+            return true;
+        }
+
+        boolean setString(int field, String value) {
+            if (schema.types[field] != TYPE_STRING) {
+                return false;
+            }
+            if (value == null) {
+                setNull(field);
+                return true;
+            }
+            strings[field] = value;
+            present |= 1L << field;
+            nulls &= ~(1L << field);
+            return true;
+        }
+
+        double getNumber(int field) {
+            return schema.scales[field] == 1 ? numbers[field] : (double) numbers[field] / schema.scales[field];
+        }
+    }
+
+    /**
+     * Extra values: 'n' null, 'b' boolean ("b1"/"b0"), 'd' number, 's'
+     * string, 'j' JSON text of an object or array.
+     */
+    static String tagged(char tag, String text) {
+        return tag + (text != null ? text : "");
+    }
+
+    /**
+     * Growable output buffer, reused across frames.
+     */
+    static final class Buffer {
+        byte[] data;
+        int length;
+
+        Buffer(int capacity) {
+            data = new byte[Math.max(16, capacity)];
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        void ensure(int extra) {
+            if (length + extra > data.length) {
+                byte[] grown = new byte[Math.max(data.length * 2, length + extra)];
+                System.arraycopy(data, 0, grown, 0, length);
+                data = grown;
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            data[length++] = (byte) value;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        void writeZigzag(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, data, length, bytes.length);
+            length += bytes.length;
+        }
+    }
+
+    /**
+     * Sequential reader over a frame; reset per frame instead of allocated.
+     */
+    static final class Reader {
+        private byte[] data;
+        private int position;
+        private int end;
+
+        void reset(byte[] data, int offset, int length) {
+            this.data = data;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        int readByte() {
+            if (position >= end) {
+                throw new IllegalArgumentException("Truncated frame");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Varint too long");
+        }
+
+        long readZigzag() {
+            long raw = readVarint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        String readString() {
+            return readString(null, 0, 0);
+        }
+
+        /**
+         * Reads a string, returning the one of {@code candidates[from..to)}
+         * with the same (ASCII) content instead of allocating a new one.
+         */
+        String readString(String[] candidates, int from, int to) {
+            long length = readVarint();
+            if (length < 0 || length > end - position) {
+                throw new IllegalArgumentException("Bad string length " + length);
+            }
+            int count = (int) length;
+            for (int i = from; i < to; i++) {
+                if (matches(candidates[i], count)) {
+                    position += count;
+                    return candidates[i];
+                }
+            }
+            String value = new String(data, position, count, StandardCharsets.UTF_8);
+            position += count;
+            return value;
+        }
+
+        private boolean matches(String candidate, int count) {
+            if (candidate == null || candidate.length() != count) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                int b = data[position + i];
+                // Non-ASCII bytes decode to fewer chars; those strings are not reused
+                if (b < 0 || candidate.charAt(i) != b) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Sending side of one stream (one kind to one peer).
+     */
+    static final class Encoder {
+        final Schema schema;
+        private final State base;
+        private final State[] pending = new State[HISTORY];
+        private boolean hasBase = false;
+        private int nextSeq = 1;
+        private int lastJsonLength;
+
+        Encoder(Schema schema) {
+            this.schema = schema;
+            this.base = new State(schema);
+            for (int i = 0; i < HISTORY; i++) {
+                pending[i] = new State(schema);
+            }
+        }
+
+        /**
+         * Encodes {@code current} into {@code out}: a delta when the peer
+         * has acknowledged an earlier frame, otherwise the full state.
+         *
+         * @return the sequence number given to the frame
+         */
+        int encode(State current, Buffer out) {
+            int seq = nextSeq++;
+            boolean delta = hasBase;
+            out.reset();
+            out.writeByte(VERSION);
+            out.writeByte(schema.kind);
+            out.writeByte(delta ? FLAG_DELTA : 0);
+            out.writeVarint(seq);
+            if (delta) {
+                out.writeVarint(base.seq);
+            }
+
+            long changed = 0;
+            long cleared = 0;
+            for (int i = 0; i < schema.size(); i++) {
+                boolean now = current.has(i);
+                boolean before = delta && base.has(i);
+                if (now && (!before || !sameValue(current, base, i))) {
+                    changed |= 1L << i;
+                } else if (!now && before) {
+                    cleared |= 1L << i;
+                }
+            }
+            long nulls = changed & current.nulls;
+            out.writeVarint(changed);
+            out.writeVarint(cleared);
+            out.writeVarint(nulls);
+            for (int i = 0; i < schema.size(); i++) {
+                long bit = 1L << i;
+                if ((changed & bit) == 0 || (nulls & bit) != 0) {
+                    continue;
+                }
+                if (schema.types[i] == TYPE_STRING) {
+                    out.writeString(current.strings[i]);
+                } else if (schema.types[i] == TYPE_BOOL) {
+                    out.writeByte((int) current.numbers[i]);
+                } else {
+                    long reference = delta && base.has(i) && !base.isNull(i) ? base.numbers[i] : 0;
+                    out.writeZigzag(current.numbers[i] - reference);
+                }
+            }
+
+            Extras extras = current.extras;
+            int extrasChanged = 0;
+            for (int i = 0; i < extras.size(); i++) {
+                if (!delta || !extras.value(i).equals(base.extras.get(extras.name(i)))) {
+                    extrasChanged++;
+                }
+            }
+            out.writeVarint(extrasChanged);
+            for (int i = 0; i < extras.size(); i++) {
+                if (!delta || !extras.value(i).equals(base.extras.get(extras.name(i)))) {
+                    out.writeString(extras.name(i));
+                    out.writeString(extras.value(i));
+                }
+            }
+            int extrasRemoved = 0;
+            if (delta) {
+                for (int i = 0; i < base.extras.size(); i++) {
+                    if (extras.indexOf(base.extras.name(i)) < 0) {
+                        extrasRemoved++;
+                    }
+                }
+            }
+            out.writeVarint(extrasRemoved);
+            if (extrasRemoved > 0) {
+                for (int i = 0; i < base.extras.size(); i++) {
+                    if (extras.indexOf(base.extras.name(i)) < 0) {
+                        out.writeString(base.extras.name(i));
+                    }
+                }
+            }
+
+            State sent = pending[seq % HISTORY];
+            sent.copyFrom(current);
+            sent.seq = seq;
+            lastJsonLength = jsonLength(current);
+            return seq;
+        }
+
+        /**
+         * The peer decoded frame {@code seq}; later frames are deltas against it.
+         *
+         * @return false when the frame is no longer remembered (or older than
+         *         the current base), in which case nothing changes
+         */
+        boolean ack(int seq) {
+            State sent = pending[seq % HISTORY];
+            if (sent.seq != seq || (hasBase && seq <= base.seq)) {
+                return false;
+            }
+            base.copyFrom(sent);
+            hasBase = true;
+            return true;
+        }
+
+        /**
+         * Forgets the acknowledged base, so the next frame is a full state,
+         * e.g. after the peer reconnected or reported a missing base.
+         */
+        void reset() {
+            hasBase = false;
+            base.clear();
+        }
+
+        boolean hasBase() {
+            return hasBase;
+        }
+
+        /**
+         * Size of the same state as a JSON object, for the compression ratio.
+         */
+        int getLastJsonLength() {
+            return lastJsonLength;
+        }
+    }
+
+    /**
+     * Receiving side of one stream. Decoded states stay in a ring so a delta
+     * can name any recently acknowledged base.
+     */
+    static final class Decoder {
+        final Schema schema;
+        private final State[] history = new State[HISTORY];
+        private final Reader reader = new Reader();
+        // Last value seen per string field and per extra, handed out again
+        // while unchanged
+        private final String[] lastStrings;
+        private final Extras lastExtras = new Extras();
+        private boolean lastDelta;
+
+        Decoder(Schema schema) {
+            this.schema = schema;
+            this.lastStrings = new String[schema.size()];
+            for (int i = 0; i < HISTORY; i++) {
+                history[i] = new State(schema);
+            }
+        }
+
+        /**
+         * Decodes a frame into a state owned by this decoder, valid until the
+         * same sequence slot is reused {@value #HISTORY} frames later.
+         *
+         * @throws IllegalStateException when a delta names a base that is
+         *         not held any more; the sender has to reset
+         * @throws IllegalArgumentException on a malformed frame
+         */
+        State decode(byte[] data, int offset, int length) {
+            reader.reset(data, offset, length);
+            if (reader.readByte() != VERSION) {
+                throw new IllegalArgumentException("Unknown codec version");
+            }
+            int kind = reader.readByte();
+            if (kind != schema.kind) {
+                throw new IllegalArgumentException("Frame kind " + kind + " on a stream of kind " + schema.kind);
+            }
+            boolean delta = (reader.readByte() & FLAG_DELTA) != 0;
+            int seq = (int) reader.readVarint();
+            // Decoded in place into the slot this frame takes over
+            State target = history[seq % HISTORY];
+            if (delta) {
+                int baseSeq = (int) reader.readVarint();
+                State base = history[baseSeq % HISTORY];
+                if (base.seq != baseSeq) {
+                    throw new IllegalStateException("Base " + baseSeq + " is not available");
+                }
+                if (base != target) {
+                    target.copyFrom(base);
+                }
+            } else {
+                target.clear();
+            }
+            // Invalid until complete, so a malformed frame never serves as a base
+            target.seq = -1;
+
+            long changed = reader.readVarint();
+            long cleared = reader.readVarint();
+            long nulls = reader.readVarint();
+            if ((changed | cleared) >>> schema.size() != 0 || (nulls & ~changed) != 0) {
+                throw new IllegalArgumentException("Field mask out of range");
+            }
+            target.present &= ~cleared;
+            target.nulls &= ~(cleared | changed);
+            for (int i = 0; i < schema.size(); i++) {
+                long bit = 1L << i;
+                if ((cleared & bit) != 0) {
+                    target.numbers[i] = 0;
+                    target.strings[i] = null;
+                }
+                if ((changed & bit) == 0) {
+                    continue;
+                }
+                if ((nulls & bit) != 0) {
+                    target.setNull(i);
+                    continue;
+                }
+                if (schema.types[i] == TYPE_STRING) {
+                    String value = reader.readString(lastStrings, i, i + 1);
+                    lastStrings[i] = value;
+                    target.strings[i] = value;
+                } else if (schema.types[i] == TYPE_BOOL) {
+                    target.numbers[i] = reader.readByte() != 0 ? 1 : 0;
+                } else {
+                    long reference = delta && target.has(i) ? target.numbers[i] : 0;
+                    target.numbers[i] = reference + reader.readZigzag();
+                }
+                target.present |= bit;
+            }
+
+            long extrasChanged = reader.readVarint();
+            for (long i = 0; i < extrasChanged; i++) {
+                String name = reader.readString(lastExtras.names, 0, lastExtras.size());
+                int index = lastExtras.indexOf(name);
+                String value = index >= 0
+                    ? reader.readString(lastExtras.values, index, index + 1)
+                    : reader.readString();
+                if (index >= 0 || lastExtras.size() < MAX_REMEMBERED_EXTRAS) {
+                    lastExtras.put(name, value);
+                }
+                target.extras.put(name, value);
+            }
+            long extrasRemoved = reader.readVarint();
+            for (long i = 0; i < extrasRemoved; i++) {
+                target.extras.remove(reader.readString(lastExtras.names, 0, lastExtras.size()));
+            }
+
+            target.seq = seq;
+            lastDelta = delta;
+            return target;
+        }
+
+        boolean wasDelta() {
+            return lastDelta;
+        }
+    }
+
+    private SessionStateCodec() {
+    }
+
+    private static boolean sameValue(State a, State b, int field) {
+        if (a.isNull(field) || b.isNull(field)) {
+            return a.isNull(field) && b.isNull(field);
+        }
+        if (a.schema.types[field] == TYPE_STRING) {
+            return a.strings[field].equals(b.strings[field]);
+        }
+        return a.numbers[field] == b.numbers[field];
+    }
+
+    /**
+     * Length of the state as compact JSON (ASCII, no escapes counted),
+     * computed without building it.
+     */
+    static int jsonLength(State state) {
+        Schema schema = state.schema;
+        int length = 2;
+        int members = 0;
+        for (int i = 0; i < schema.size(); i++) {
+            if (!state.has(i)) {
+                continue;
+            }
+            length += schema.names[i].length() + 3;
+            if (state.isNull(i)) {
+                length += 4;
+                members++;
+                continue;
+            }
+            switch (schema.types[i]) {
+                case TYPE_STRING:
+                    length += utf8Length(state.strings[i]) + 2;
+                    break;
+                case TYPE_BOOL:
+                    length += state.numbers[i] != 0 ? 4 : 5;
+                    break;
+                default:
+                    length += numberLength(state.numbers[i], schema.scales[i]);
+                    break;
+            }
+            members++;
+        }
+        for (int i = 0; i < state.extras.size(); i++) {
+            String value = state.extras.value(i);
+            length += state.extras.name(i).length() + 3;
+            char tag = value.isEmpty() ? 'n' : value.charAt(0);
+            // Tag dropped; strings gain their quotes, null is "null"
+            length += tag == 's' ? utf8Length(value) + 1 : tag == 'n' ? 4 : tag == 'b' ? (value.equals("b1") ? 4 : 5)
+                : value.length() - 1;
+            members++;
+        }
+        return length + Math.max(0, members - 1);
+    }
+
+    private static int numberLength(long scaled, int scale) {
+        long whole = Math.abs(scaled / scale);
+        long fraction = Math.abs(scaled % scale);
+        int length = scaled < 0 ? 1 : 0;
+        length += whole == 0 ? 1 : (int) Math.log10(whole) + 1;
+        if (fraction != 0) {
+            int digits = (int) Math.log10(scale);
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            length += 1 + digits;
+        }
+        return length;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,187 @@
+package com.anonymous.ratownictwo;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cold-start timeline: the phases of MainApplication.onCreate and the
+ * construction of every native module, in the order they happened.
+ *
+ * Offsets are relative to the start of onCreate. The trace is written as
+ * JSON shortly after onCreate and again whenever a module is created later,
+ * so modules built on first use show up too. Plain Java apart from writing
+ * the file, so it runs on the JVM.
+ */
+final class StartupTrace {
+    static final String FILE_NAME = "startup-trace.json";
+    private static final String TAG = "StartupTrace";
+
+    private static final StartupTrace INSTANCE = new StartupTrace();
+    // onCreate is over by then; later modules are batched for a second
+    private static final long FIRST_WRITE_DELAY_MS = 3000;
+    private static final long REWRITE_DELAY_MS = 1000;
+
+    private static final class Entry {
+        final String kind;
+        final String name;
+        final String thread;
+        final long startNanos;
+        final long durationNanos;
+
+        Entry(String kind, String name, String thread, long startNanos, long durationNanos) {
+            this.kind = kind;
+            this.name = name;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private long originNanos = -1;
+    private long processStartMs = -1;
+    private Supplier<File> target;
+    private ScheduledExecutorService writer;
+    private boolean writePending;
+
+    static StartupTrace get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Marks the start of onCreate.
+     *
+     * @param processStartMs time from the process being forked to now, or -1
+     */
+    synchronized void begin(long processStartMs) {
+        this.originNanos = System.nanoTime();
+        this.processStartMs = processStartMs;
+    }
+
+    /**
+     * Records a phase that started at {@code startNanos}.
+     *
+     * @return now, to chain into the next phase
+     */
+    long phase(String name, long startNanos) {
+        return record("phase", name, startNanos);
+    }
+
+    /**
+     * Records the construction of a native module.
+     */
+    void module(String name, long startNanos) {
+        record("module", name, startNanos);
+    }
+
+    /**
+     * Starts writing the trace. The file is resolved on the writer thread,
+     * so finding the directory does not add to startup.
+     */
+    synchronized void writeTo(Supplier<File> file) {
+        target = file;
+        scheduleWriteLocked(FIRST_WRITE_DELAY_MS);
+    }
+
+    private long record(String kind, String name, long startNanos) {
+        long now = System.nanoTime();
+        Entry entry = new Entry(kind, name, Thread.currentThread().getName(), startNanos, now - startNanos);
+        synchronized (this) {
+            if (originNanos < 0) {
+                originNanos = startNanos;
+            }
+            entries.add(entry);
+            scheduleWriteLocked(REWRITE_DELAY_MS);
+        }
+        return now;
+    }
+
+    private void scheduleWriteLocked(long delayMs) {
+        if (target == null || writePending) {
+            return;
+        }
+        if (writer == null) {
+            writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "StartupTrace");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        writePending = true;
+        writer.schedule(this::write, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void write() {
+        String json;
+        Supplier<File> file;
+        synchronized (this) {
+            writePending = false;
+            json = toJson();
+            file = target;
+        }
+        File out = file.get();
+        if (out == null) {
+            return;
+        }
+        File temp = new File(out.getParentFile(), out.getName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp)) {
+            stream.write(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.w(TAG, "Error writing startup trace", e);
+            return;
+        }
+        if (!temp.renameTo(out)) {
+            Log.w(TAG, "Could not replace " + out);
+        }
+    }
+
+    /**
+     * {processStartMs, totals: {phasesMs, modulesMs}, entries: [...]}, with
+     * entries in the order they finished.
+     */
+    synchronized String toJson() {
+        StringBuilder out = new StringBuilder(256 + entries.size() * 128);
+        long phases = 0;
+        long modules = 0;
+        for (Entry entry : entries) {
+            if ("phase".equals(entry.kind)) {
+                phases += entry.durationNanos;
+            } else {
+                modules += entry.durationNanos;
+            }
+        }
+        out.append("{\"timestamp\":").append(System.currentTimeMillis())
+            .append(",\"processStartMs\":").append(processStartMs)
+            .append(",\"totals\":{\"phasesMs\":").append(millis(phases))
+            .append(",\"modulesMs\":").append(millis(modules))
+            .append("},\"entries\":[");
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"kind\":\"").append(entry.kind)
+                .append("\",\"name\":\"").append(entry.name)
+                .append("\",\"thread\":\"").append(entry.thread)
+                .append("\",\"offsetMs\":").append(millis(entry.startNanos - originNanos))
+                .append(",\"durationMs\":").append(millis(entry.durationNanos))
+                .append('}');
+        }
+        return out.append("]}").toString();
+    }
+
+    // Milliseconds with microsecond precision
+    private static String millis(long nanos) {
+        return String.valueOf(nanos / 1000 / 1000.0);
+    }
+}
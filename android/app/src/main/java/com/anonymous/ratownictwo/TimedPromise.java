@@ -0,0 +1,212 @@
+package com.anonymous.ratownictwo;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableMap;
+
+import android.util.Log;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Promise wrapper that records the time from the call reaching the module
+ * to its resolution or rejection in NativeMetrics. Rejections count as
+ * errors; calls not yet settled show up as in flight.
+ *
+ * Every promise has a deadline. One that has not settled by then is
+ * rejected with {@link #DEADLINE_EXCEEDED}, counted as a timeout, and its
+ * cancel action (see {@link #onCancel}) runs so the work behind it stops.
+ * Whatever settles later is dropped.
+ */
+final class TimedPromise implements Promise {
+    static final String DEADLINE_EXCEEDED = "DEADLINE_EXCEEDED";
+    static final long DEFAULT_DEADLINE_MS = 30_000;
+
+    private static final String TAG = "TimedPromise";
+    private static final AtomicIntegerFieldUpdater<TimedPromise> SETTLED =
+        AtomicIntegerFieldUpdater.newUpdater(TimedPromise.class, "settled");
+
+    private final Promise delegate;
+    private final String name;
+    private final LatencyHistogram histogram;
+    private final long startNanos;
+    private final long deadlineMs;
+    private final ScheduledFuture<?> deadline;
+    private volatile int settled;
+    private Runnable cancel;
+
+    private TimedPromise(Promise delegate, String name, LatencyHistogram histogram, long deadlineMs) {
+        this.delegate = delegate;
+        this.name = name;
+        this.histogram = histogram;
+        this.startNanos = System.nanoTime();
+        this.deadlineMs = deadlineMs;
+        histogram.begin();
+        this.deadline = Deadlines.TIMER.schedule(this::expire, deadlineMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param name "Module.method", a constant so the lookup does not allocate
+     */
+    static TimedPromise wrap(String name, Promise promise) {
+        return wrap(name, promise, DEFAULT_DEADLINE_MS);
+    }
+
+    /**
+     * For calls that legitimately take longer than the default, e.g. ones
+     * with their own timeout argument: pass that plus a margin.
+     */
+    static TimedPromise wrap(String name, Promise promise, long deadlineMs) {
+        return new TimedPromise(promise, name, NativeMetrics.get().method(name), deadlineMs);
+    }
+
+    /**
+     * Runs {@code action} if the deadline passes before the promise settles,
+     * right away when it already has. Called from the deadline thread; post
+     * to the subsystem's executor from there.
+     */
+    void onCancel(Runnable action) {
+        boolean expired;
+        synchronized (this) {
+            cancel = action;
+            expired = settled == 2;
+        }
+        if (expired) {
+            runCancel();
+        }
+    }
+
+    private void expire() {
+        if (!SETTLED.compareAndSet(this, 0, 2)) {
+            return;
+        }
+        histogram.timeout(System.nanoTime() - startNanos);
+        String message = name + " did not settle within " + deadlineMs + " ms";
+        Log.w(TAG, message);
+        delegate.reject(DEADLINE_EXCEEDED, message);
+        runCancel();
+    }
+
+    private void runCancel() {
+        Runnable action;
+        synchronized (this) {
+            action = cancel;
+            cancel = null;
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    /**
+     * @return false when the promise already settled or expired
+     */
+    private boolean settle(boolean ok) {
+        // A promise settles once; later calls are dropped
+        if (!SETTLED.compareAndSet(this, 0, 1)) {
+            return false;
+        }
+        deadline.cancel(false);
+        histogram.finish(System.nanoTime() - startNanos, ok);
+        synchronized (this) {
+            cancel = null;
+        }
+        return true;
+    }
+
+    // One daemon thread for all deadlines, created with the first promise
+    private static final class Deadlines {
+        static final ScheduledThreadPoolExecutor TIMER = create();
+
+        private static ScheduledThreadPoolExecutor create() {
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "PromiseDeadlines");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Settled promises take their timer out of the queue right away
+            timer.setRemoveOnCancelPolicy(true);
+            return timer;
+        }
+    }
+
+    @Override
+    public void resolve(Object value) {
+        if (settle(true)) {
+            delegate.resolve(value);
+        }
+    }
+
+    @Override
+    public void reject(String code, String message) {
+        if (settle(false)) {
+            delegate.reject(code, message);
+        }
+    }
+
+    @Override
+    public void reject(String code, Throwable throwable) {
+        if (settle(false)) {
+            delegate.reject(code, throwable);
+        }
+    }
+
+    @Override
+    public void reject(String code, String message, Throwable throwable) {
+        if (settle(false)) {
+            delegate.reject(code, message, throwable);
+        }
+    }
+
+    @Override
+    public void reject(Throwable throwable) {
+        if (settle(false)) {
+            delegate.reject(throwable);
+        }
+    }
+
+    @Override
+    public void reject(Throwable throwable, WritableMap userInfo) {
+        if (settle(false)) {
+            delegate.reject(throwable, userInfo);
+        }
+    }
+
+    @Override
+    public void reject(String code, WritableMap userInfo) {
+        if (settle(false)) {
+            delegate.reject(code, userInfo);
+        }
+    }
+
+    @Override
+    public void reject(String code, Throwable throwable, WritableMap userInfo) {
+        if (settle(false)) {
+            delegate.reject(code, throwable, userInfo);
+        }
+    }
+
+    @Override
+    public void reject(String code, String message, WritableMap userInfo) {
+        if (settle(false)) {
+            delegate.reject(code, message, userInfo);
+        }
+    }
+
+    @Override
+    public void reject(String code, String message, Throwable throwable, WritableMap userInfo) {
+        if (settle(false)) {
+            delegate.reject(code, message, throwable, userInfo);
+        }
+    }
+
+    @Override
+    @Deprecated
+    public void reject(String message) {
+        if (settle(false)) {
+            delegate.reject(message);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.anonymous.ratownictwo;
+
+/**
+ * One trace of the vitals monitor: its configuration and sweep position.
+ *
+ * Samples come from one of three places:
+ * <ul>
+ *   <li>{@link #SOURCE_ENGINE}: a ring attached to the native EkgEngine,</li>
+ *   <li>{@link #SOURCE_WAVEFORM}: a pleth or capnogram generated on the render thread,</li>
+ *   <li>{@link #SOURCE_JS}: batches pushed from JS with the pushSamples command.</li>
+ * </ul>
+ * Ring-backed channels are drained at their nominal sample rate rather than
+ * all at once, so bursty producers still give an even sweep.
+ */
+final class VitalsChannel {
+    static final int SOURCE_ENGINE = 0;
+    static final int SOURCE_WAVEFORM = 1;
+    static final int SOURCE_JS = 2;
+
+    static final int MAX_SAMPLES_PER_FRAME = 512;
+    // Older samples are dropped once the reader is this far behind; JS
+    // batches arrive less often, so they get a deeper buffer
+    private static final float MAX_BACKLOG_SECONDS = 0.25f;
+    private static final float MAX_JS_BACKLOG_SECONDS = 1f;
+    // A starved channel does not bank more than this many seconds of catch-up
+    private static final float MAX_DUE_SECONDS = 0.1f;
+
+    final String type;
+    final int source;
+    final int color;
+    // min is drawn at the bottom of the band, max at the top
+    final float min;
+    final float max;
+    final float sweepSeconds;
+    final float lineWidth;
+    final EkgSampleRing ring;
+    final VitalsWaveform waveform;
+    final float[] samples = new float[MAX_SAMPLES_PER_FRAME];
+
+    float sampleRate;
+
+    // Render thread state
+    float x;
+    float clearedTo;
+    float lastY;
+    boolean hasLast;
+    private double due;
+    private long skipped;
+
+    VitalsChannel(String type, int source, int color, float min, float max,
+                  float sampleRate, float sweepSeconds, float lineWidth) {
+        this.type = type;
+        this.source = source;
+        this.color = color;
+        this.min = min;
+        this.max = max;
+        this.sampleRate = Math.max(1f, sampleRate);
+        this.sweepSeconds = Math.max(0.5f, sweepSeconds);
+        this.lineWidth = Math.max(0.5f, lineWidth);
+        this.ring = source == SOURCE_WAVEFORM ? null : new EkgSampleRing((int) (this.sampleRate * 4));
+        this.waveform = source != SOURCE_WAVEFORM ? null
+            : new VitalsWaveform("capno".equals(type) ? VitalsWaveform.CAPNO : VitalsWaveform.PLETH);
+    }
+
+    /**
+     * Moves the samples due after {@code elapsedSeconds} into {@link #samples}.
+     *
+     * @return number of samples to draw this frame
+     */
+    int take(float elapsedSeconds, float value, float ratePerMinute) {
+        due += elapsedSeconds * sampleRate;
+        int wanted = (int) Math.min(due, MAX_SAMPLES_PER_FRAME);
+        if (wanted <= 0) {
+            return 0;
+        }
+
+        if (waveform != null) {
+            waveform.generate(samples, wanted, sampleRate, value, ratePerMinute);
+            due -= wanted;
+            return wanted;
+        }
+
+        int backlog = (int) (sampleRate * (source == SOURCE_JS ? MAX_JS_BACKLOG_SECONDS : MAX_BACKLOG_SECONDS));
+        int available = ring.available();
+        if (available - wanted > backlog) {
+            ring.skipTo(backlog + wanted);
+            skipped += available - backlog - wanted;
+        }
+
+        int read = ring.read(samples, 0, wanted);
+        due -= read;
+        due = Math.min(due, sampleRate * MAX_DUE_SECONDS);
+        return read;
+    }
+
+    /**
+     * Producer side for JS pushes (UI thread).
+     */
+    int push(float[] values, int count) {
+        return source == SOURCE_JS ? ring.write(values, 0, count) : 0;
+    }
+
+    void resetSweep() {
+        x = 0f;
+        clearedTo = 0f;
+        hasLast = false;
+        due = 0;
+    }
+
+    long getSkipped() {
+        return skipped;
+    }
+
+    long getOverruns() {
+        return ring != null ? ring.getOverruns() : 0;
+    }
+
+    int getBuffered() {
+        return ring != null ? ring.available() : 0;
+    }
+}
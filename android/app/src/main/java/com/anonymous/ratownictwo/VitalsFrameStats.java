@@ -0,0 +1,95 @@
+package com.anonymous.ratownictwo;
+
+import java.util.Arrays;
+
+/**
+ * Frame timing for one monitor view, kept in primitive windows.
+ *
+ * Only the render thread records and reads it. A frame counts as dropped
+ * when it came more than 1.5 vsync periods after the previous one.
+ */
+final class VitalsFrameStats {
+    private static final int WINDOW = 256;
+
+    private final long[] intervals = new long[WINDOW];
+    private final long[] drawTimes = new long[WINDOW];
+    private final long[] sorted = new long[WINDOW];
+    private int count;
+    private int next;
+
+    private long frames;
+    private long droppedFrames;
+    private long lastFrameNanos;
+
+    void record(long frameTimeNanos, long drawNanos, long vsyncNanos) {
+        if (lastFrameNanos != 0) {
+            long interval = frameTimeNanos - lastFrameNanos;
+            intervals[next] = interval;
+            drawTimes[next] = drawNanos;
+            next = (next + 1) % WINDOW;
+            if (count < WINDOW) {
+                count++;
+            }
+            if (interval > vsyncNanos + vsyncNanos / 2) {
+                droppedFrames += interval / vsyncNanos - 1;
+            }
+        }
+        lastFrameNanos = frameTimeNanos;
+        frames++;
+    }
+
+    /**
+     * Forgets the previous frame time, e.g. after the view was paused.
+     */
+    void resetClock() {
+        lastFrameNanos = 0;
+    }
+
+    long getFrames() {
+        return frames;
+    }
+
+    long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    double averageFrameMs() {
+        return average(intervals);
+    }
+
+    double averageDrawMs() {
+        return average(drawTimes);
+    }
+
+    double maxDrawMs() {
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, drawTimes[i]);
+        }
+        return max / 1_000_000.0;
+    }
+
+    /**
+     * Frame interval percentile over the window, e.g. 0.95 for p95.
+     */
+    double frameMsPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        System.arraycopy(intervals, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+        int index = (int) Math.min(count - 1, Math.round(percentile * (count - 1)));
+        return sorted[index] / 1_000_000.0;
+    }
+
+    private double average(long[] values) {
+        if (count == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        return sum / (double) count / 1_000_000.0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.anonymous.ratownictwo;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+
+/**
+ * Periodic frame-time report from a VitalsMonitorView (onFrameStats).
+ */
+final class VitalsFrameStatsEvent extends Event<VitalsFrameStatsEvent> {
+    static final String EVENT_NAME = "topFrameStats";
+
+    private final WritableMap data;
+
+    VitalsFrameStatsEvent(int surfaceId, int viewTag, WritableMap data) {
+        super(surfaceId, viewTag);
+        this.data = data;
+    }
+
+    @Override
+    public String getEventName() {
+        return EVENT_NAME;
+    }
+
+    @Override
+    protected WritableMap getEventData() {
+        return data;
+    }
+}
@@ -0,0 +1,175 @@
+package com.anonymous.ratownictwo;
+
+import android.graphics.Color;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.common.MapBuilder;
+import com.facebook.react.uimanager.SimpleViewManager;
+import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.annotations.ReactProp;
+
+import java.util.Map;
+
+/**
+ * Native vitals monitor ("VitalsMonitor").
+ *
+ * Props: channels [{type: "ekg"|"pleth"|"capno"|string, source:
+ * "native"|"js", color, min, max, sampleRate, sweepSeconds, lineWidth}],
+ * running, spo2, etco2, heartRate, respiratoryRate, gridColor,
+ * statsIntervalMs. Commands: pushSamples(channelIndex, samples), clear,
+ * requestStats. Event: onFrameStats.
+ *
+ * "native" means the EkgEngine ring for "ekg" and the built-in generator for
+ * "pleth" and "capno". Without a channels prop all three are shown.
+ */
+public class VitalsMonitorManager extends SimpleViewManager<VitalsMonitorView> {
+    private static final String TAG = "VitalsMonitorManager";
+    private static final String NAME = "VitalsMonitor";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    protected VitalsMonitorView createViewInstance(ThemedReactContext context) {
+        VitalsMonitorView view = new VitalsMonitorView(context);
+        view.setChannels(new VitalsChannel[]{
+            defaultChannel("ekg", VitalsChannel.SOURCE_ENGINE),
+            defaultChannel("pleth", VitalsChannel.SOURCE_WAVEFORM),
+            defaultChannel("capno", VitalsChannel.SOURCE_WAVEFORM),
+        });
+        return view;
+    }
+
+    @Override
+    public void onDropViewInstance(VitalsMonitorView view) {
+        view.dispose();
+        super.onDropViewInstance(view);
+    }
+
+    @ReactProp(name = "channels")
+    public void setChannels(VitalsMonitorView view, @Nullable ReadableArray channels) {
+        if (channels == null) {
+            return;
+        }
+        VitalsChannel[] parsed = new VitalsChannel[channels.size()];
+        for (int i = 0; i < channels.size(); i++) {
+            parsed[i] = parseChannel(channels.getMap(i));
+        }
+        view.setChannels(parsed);
+    }
+
+    @ReactProp(name = "running", defaultBoolean = true)
+    public void setRunning(VitalsMonitorView view, boolean running) {
+        view.setRunning(running);
+    }
+
+    @ReactProp(name = "spo2", defaultFloat = 98f)
+    public void setSpo2(VitalsMonitorView view, float spo2) {
+        view.setSpo2(spo2);
+    }
+
+    @ReactProp(name = "etco2", defaultFloat = 35f)
+    public void setEtco2(VitalsMonitorView view, float etco2) {
+        view.setEtco2(etco2);
+    }
+
+    @ReactProp(name = "heartRate", defaultFloat = 72f)
+    public void setHeartRate(VitalsMonitorView view, float heartRate) {
+        view.setHeartRate(heartRate);
+    }
+
+    @ReactProp(name = "respiratoryRate", defaultFloat = 12f)
+    public void setRespiratoryRate(VitalsMonitorView view, float respiratoryRate) {
+        view.setRespiratoryRate(respiratoryRate);
+    }
+
+    @ReactProp(name = "gridColor", customType = "Color")
+    public void setGridColor(VitalsMonitorView view, @Nullable Integer color) {
+        view.setGridColor(color != null ? color : Color.GREEN);
+    }
+
+    @ReactProp(name = "statsIntervalMs", defaultInt = 1000)
+    public void setStatsIntervalMs(VitalsMonitorView view, int intervalMs) {
+        view.setStatsInterval(intervalMs);
+    }
+
+    @Override
+    public void receiveCommand(VitalsMonitorView view, String commandId, @Nullable ReadableArray args) {
+        switch (commandId) {
+            case "pushSamples":
+                if (args == null || args.size() < 2) {
+                    Log.w(TAG, "pushSamples needs a channel index and samples");
+                    return;
+                }
+                ReadableArray samples = args.getArray(1);
+                double[] values = new double[samples.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = samples.getDouble(i);
+                }
+                view.pushSamples(args.getInt(0), values);
+                break;
+            case "clear":
+                view.clearTraces();
+                break;
+            case "requestStats":
+                view.requestStats();
+                break;
+            default:
+                Log.w(TAG, "Unknown command " + commandId);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getExportedCustomDirectEventTypeConstants() {
+        return MapBuilder.<String, Object>of(
+            VitalsFrameStatsEvent.EVENT_NAME, MapBuilder.of("registrationName", "onFrameStats"));
+    }
+
+    private static VitalsChannel defaultChannel(String type, int source) {
+        switch (type) {
+            case "ekg":
+                // heart_beat_data values grow downwards like SVG y, hence min above max
+                return new VitalsChannel(type, source, Color.parseColor("#00ff00"), 250f, 50f,
+                    EkgEngine.DEFAULT_SAMPLE_RATE, 4f, 2f);
+            case "pleth":
+                return new VitalsChannel(type, source, Color.parseColor("#00e5ff"), 0f, 1f, 125f, 4f, 2f);
+            case "capno":
+                return new VitalsChannel(type, source, Color.parseColor("#ffeb3b"), 0f, 50f, 50f, 8f, 2f);
+            default:
+                return new VitalsChannel(type, source, Color.WHITE, 0f, 100f, 125f, 4f, 2f);
+        }
+    }
+
+    private static VitalsChannel parseChannel(ReadableMap map) {
+        String type = map.hasKey("type") ? map.getString("type") : "ekg";
+        boolean fromJs = map.hasKey("source") && "js".equals(map.getString("source"));
+        int source = fromJs ? VitalsChannel.SOURCE_JS
+            : "ekg".equals(type) ? VitalsChannel.SOURCE_ENGINE
+            : "pleth".equals(type) || "capno".equals(type) ? VitalsChannel.SOURCE_WAVEFORM
+            : VitalsChannel.SOURCE_JS;
+
+        VitalsChannel defaults = defaultChannel(type, source);
+        int color = defaults.color;
+        if (map.hasKey("color") && !map.isNull("color")) {
+            color = map.getType("color") == ReadableType.Number
+                ? map.getInt("color") : Color.parseColor(map.getString("color"));
+        }
+        return new VitalsChannel(type, source, color,
+            readFloat(map, "min", defaults.min),
+            readFloat(map, "max", defaults.max),
+            readFloat(map, "sampleRate", defaults.sampleRate),
+            readFloat(map, "sweepSeconds", defaults.sweepSeconds),
+            readFloat(map, "lineWidth", defaults.lineWidth));
+    }
+
+    private static float readFloat(ReadableMap map, String key, float fallback) {
+        return map.hasKey(key) && !map.isNull(key) ? (float) map.getDouble(key) : fallback;
+    }
+}
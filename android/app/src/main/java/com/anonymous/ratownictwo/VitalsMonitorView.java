@@ -0,0 +1,467 @@
+package com.anonymous.ratownictwo;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.Surface;
+import android.view.TextureView;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.UIManagerHelper;
+import com.facebook.react.uimanager.events.EventDispatcher;
+
+/**
+ * Sweep-and-erase monitor for EKG, pleth and capnogram traces.
+ *
+ * Everything is drawn on a per-view render thread paced by its own
+ * Choreographer, so JS and UI thread load do not touch the frame rate. New
+ * segments are drawn into a persistent trace bitmap and only a narrow strip
+ * ahead of the sweep is erased; each frame just composites the grid and the
+ * trace onto the TextureView. Nothing is allocated per frame.
+ */
+public class VitalsMonitorView extends TextureView
+        implements TextureView.SurfaceTextureListener, Choreographer.FrameCallback {
+    private static final String TAG = "VitalsMonitorView";
+    private static final float ERASE_GAP = 12f;
+    private static final int MAJOR_GRID = 50;
+    private static final int MINOR_GRID = 10;
+
+    private final ThemedReactContext reactContext;
+    private final HandlerThread renderThread;
+    private final Handler renderHandler;
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint clearPaint = new Paint();
+    private final Paint gridPaint = new Paint();
+    private final float[] points = new float[VitalsChannel.MAX_SAMPLES_PER_FRAME * 4];
+    private final float[] pushBuffer = new float[VitalsChannel.MAX_SAMPLES_PER_FRAME * 8];
+    private final VitalsFrameStats stats = new VitalsFrameStats();
+
+    private volatile VitalsChannel[] channels;
+    private volatile boolean running = true;
+    private volatile float spo2 = 98f;
+    private volatile float etco2 = 35f;
+    private volatile float heartRate = 72f;
+    private volatile float respiratoryRate = 12f;
+    private volatile int backgroundColor = Color.BLACK;
+    private volatile int gridColor = Color.GREEN;
+    private volatile int statsIntervalMs = 1000;
+
+    // Render thread state
+    private Choreographer choreographer;
+    private Surface surface;
+    private VitalsChannel[] active = new VitalsChannel[0];
+    private Bitmap grid;
+    private Bitmap trace;
+    private Canvas traceCanvas;
+    private int width;
+    private int height;
+    private boolean framesScheduled;
+    private boolean gridDirty = true;
+    private long lastFrameNanos;
+    private long lastStatsNanos;
+    private long vsyncNanos = 16_666_667L;
+
+    public VitalsMonitorView(ThemedReactContext context) {
+        super(context);
+        this.reactContext = context;
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeCap(Paint.Cap.ROUND);
+        clearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+        gridPaint.setStrokeWidth(1f);
+
+        renderThread = new HandlerThread("VitalsMonitorRender", Process.THREAD_PRIORITY_DISPLAY);
+        renderThread.start();
+        renderHandler = new Handler(renderThread.getLooper());
+        renderHandler.post(() -> choreographer = Choreographer.getInstance());
+    }
+
+    void setChannels(VitalsChannel[] next) {
+        channels = next;
+        renderHandler.post(this::applyChannels);
+    }
+
+    void setRunning(boolean running) {
+        this.running = running;
+        renderHandler.post(this::resumeFrames);
+    }
+
+    void setSpo2(float spo2) {
+        this.spo2 = spo2;
+    }
+
+    void setEtco2(float etco2) {
+        this.etco2 = etco2;
+    }
+
+    void setHeartRate(float heartRate) {
+        this.heartRate = heartRate;
+    }
+
+    void setRespiratoryRate(float respiratoryRate) {
+        this.respiratoryRate = respiratoryRate;
+    }
+
+    void setGridColor(int color) {
+        gridColor = color;
+        renderHandler.post(() -> gridDirty = true);
+    }
+
+    void setStatsInterval(int intervalMs) {
+        statsIntervalMs = intervalMs;
+    }
+
+    /**
+     * TextureView cannot draw a background drawable, so the style colour is
+     * painted under the grid instead.
+     */
+    @Override
+    public void setBackgroundColor(int color) {
+        backgroundColor = color;
+        renderHandler.post(() -> gridDirty = true);
+    }
+
+    /**
+     * Queues samples pushed from JS for a channel with source "js".
+     */
+    void pushSamples(int channelIndex, double[] values) {
+        VitalsChannel[] current = channels;
+        if (current == null || channelIndex < 0 || channelIndex >= current.length) {
+            return;
+        }
+        int count = Math.min(values.length, pushBuffer.length);
+        for (int i = 0; i < count; i++) {
+            pushBuffer[i] = (float) values[i];
+        }
+        current[channelIndex].push(pushBuffer, count);
+    }
+
+    void clearTraces() {
+        renderHandler.post(() -> {
+            if (traceCanvas != null) {
+                traceCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            }
+            for (VitalsChannel channel : active) {
+                channel.resetSweep();
+            }
+        });
+    }
+
+    void requestStats() {
+        renderHandler.post(this::dispatchStats);
+    }
+
+    /**
+     * Called by the manager when the view is dropped.
+     */
+    void dispose() {
+        renderHandler.post(() -> {
+            detachChannels(active);
+            active = new VitalsChannel[0];
+            stopFrames();
+            releaseSurface();
+        });
+        renderThread.quitSafely();
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture texture, int width, int height) {
+        Display display = getDisplay();
+        if (display != null && display.getRefreshRate() > 0) {
+            vsyncNanos = (long) (1_000_000_000L / display.getRefreshRate());
+        }
+        renderHandler.post(() -> {
+            surface = new Surface(texture);
+            resize(width, height);
+            resumeFrames();
+        });
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture texture, int width, int height) {
+        renderHandler.post(() -> resize(width, height));
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture texture) {
+        // The render thread may still be drawing, so it releases the texture itself
+        return !renderHandler.post(() -> {
+            stopFrames();
+            releaseSurface();
+            texture.release();
+        });
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture texture) {
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        framesScheduled = false;
+        if (surface == null || !running) {
+            return;
+        }
+
+        long drawStart = System.nanoTime();
+        float elapsed = lastFrameNanos == 0 ? 0f : (frameTimeNanos - lastFrameNanos) / 1_000_000_000f;
+        lastFrameNanos = frameTimeNanos;
+
+        if (gridDirty) {
+            drawGrid();
+        }
+        if (traceCanvas != null) {
+            int count = active.length;
+            for (int i = 0; i < count; i++) {
+                drawChannel(active[i], i * height / count, height / count, elapsed);
+            }
+        }
+
+        try {
+            Canvas canvas = surface.lockHardwareCanvas();
+            try {
+                if (grid != null) {
+                    canvas.drawBitmap(grid, 0f, 0f, null);
+                    canvas.drawBitmap(trace, 0f, 0f, null);
+                } else {
+                    canvas.drawColor(backgroundColor);
+                }
+            } finally {
+                surface.unlockCanvasAndPost(canvas);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error drawing vitals frame", e);
+        }
+
+        stats.record(frameTimeNanos, System.nanoTime() - drawStart, vsyncNanos);
+        int interval = statsIntervalMs;
+        if (interval > 0 && frameTimeNanos - lastStatsNanos >= interval * 1_000_000L) {
+            lastStatsNanos = frameTimeNanos;
+            dispatchStats();
+        }
+
+        scheduleFrames();
+    }
+
+    private void drawChannel(VitalsChannel channel, int top, int bandHeight, float elapsed) {
+        float value = "capno".equals(channel.type) ? etco2 : spo2;
+        float rate = "capno".equals(channel.type) ? respiratoryRate : heartRate;
+        int count = channel.take(elapsed, value, rate);
+        if (count == 0) {
+            return;
+        }
+
+        float step = width / (channel.sweepSeconds * channel.sampleRate);
+        float bottom = top + bandHeight;
+
+        // Erase ahead of where this frame ends before drawing into it
+        float target = channel.x + count * step + ERASE_GAP;
+        if (target > channel.clearedTo) {
+            clearStrip(channel.clearedTo, target, top, bottom);
+            channel.clearedTo = target;
+        }
+
+        float range = channel.max - channel.min;
+        float scale = range != 0f ? (bandHeight - channel.lineWidth * 2) / range : 0f;
+        int p = 0;
+        for (int i = 0; i < count; i++) {
+            float y = bottom - channel.lineWidth - (channel.samples[i] - channel.min) * scale;
+            if (y < top) {
+                y = top;
+            } else if (y > bottom) {
+                y = bottom;
+            }
+            float nextX = channel.x + step;
+            if (nextX > width) {
+                // Wrap to the left edge; the strip there was already erased
+                nextX -= width;
+                channel.clearedTo -= width;
+                channel.hasLast = false;
+            }
+            if (channel.hasLast) {
+                points[p++] = channel.x;
+                points[p++] = channel.lastY;
+                points[p++] = nextX;
+                points[p++] = y;
+            }
+            channel.x = nextX;
+            channel.lastY = y;
+            channel.hasLast = true;
+        }
+
+        if (p > 0) {
+            linePaint.setColor(channel.color);
+            linePaint.setStrokeWidth(channel.lineWidth);
+            traceCanvas.drawLines(points, 0, p, linePaint);
+        }
+    }
+
+    private void clearStrip(float from, float to, float top, float bottom) {
+        if (to <= width) {
+            traceCanvas.drawRect(from, top, to, bottom, clearPaint);
+        } else {
+            traceCanvas.drawRect(from, top, width, bottom, clearPaint);
+            traceCanvas.drawRect(0f, top, Math.min(to - width, width), bottom, clearPaint);
+        }
+    }
+
+    private void drawGrid() {
+        gridDirty = false;
+        if (grid == null) {
+            return;
+        }
+        Canvas canvas = new Canvas(grid);
+        canvas.drawColor(backgroundColor, PorterDuff.Mode.SRC);
+        int color = gridColor;
+        int alpha = Color.alpha(color);
+        for (int pass = 0; pass < 2; pass++) {
+            int spacing = pass == 0 ? MINOR_GRID : MAJOR_GRID;
+            // Same weights as the SVG grids: 5% minor, 15% major
+            gridPaint.setColor(color);
+            gridPaint.setAlpha(alpha * (pass == 0 ? 5 : 15) / 100);
+            for (int x = 0; x <= width; x += spacing) {
+                canvas.drawLine(x, 0, x, height, gridPaint);
+            }
+            for (int y = 0; y <= height; y += spacing) {
+                canvas.drawLine(0, y, width, y, gridPaint);
+            }
+        }
+    }
+
+    private void resize(int width, int height) {
+        if (width <= 0 || height <= 0 || (width == this.width && height == this.height && trace != null)) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        if (grid != null) {
+            grid.recycle();
+            trace.recycle();
+        }
+        grid = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        trace = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        traceCanvas = new Canvas(trace);
+        gridDirty = true;
+        for (VitalsChannel channel : active) {
+            channel.resetSweep();
+        }
+    }
+
+    private void applyChannels() {
+        VitalsChannel[] next = channels;
+        detachChannels(active);
+        EkgEngineModule ekg = ekgModule();
+        for (VitalsChannel channel : next) {
+            if (channel.source == VitalsChannel.SOURCE_ENGINE && ekg != null) {
+                EkgEngine engine = ekg.getEngine();
+                channel.sampleRate = engine.getSampleRate();
+                engine.addSink(channel.ring);
+            }
+        }
+        active = next;
+        if (traceCanvas != null) {
+            traceCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        }
+    }
+
+    private void detachChannels(VitalsChannel[] old) {
+        EkgEngineModule ekg = ekgModule();
+        if (ekg == null) {
+            return;
+        }
+        for (VitalsChannel channel : old) {
+            if (channel.source == VitalsChannel.SOURCE_ENGINE) {
+                ekg.getEngine().removeSink(channel.ring);
+            }
+        }
+    }
+
+    private EkgEngineModule ekgModule() {
+        try {
+            return reactContext.getReactApplicationContext().getNativeModule(EkgEngineModule.class);
+        } catch (Exception e) {
+            Log.e(TAG, "EkgEngine module not available", e);
+            return null;
+        }
+    }
+
+    /**
+     * Starts frames again after a pause without counting the gap as dropped.
+     */
+    private void resumeFrames() {
+        if (!framesScheduled) {
+            lastFrameNanos = 0;
+            stats.resetClock();
+        }
+        scheduleFrames();
+    }
+
+    private void scheduleFrames() {
+        if (framesScheduled || choreographer == null || surface == null || !running) {
+            return;
+        }
+        framesScheduled = true;
+        choreographer.postFrameCallback(this);
+    }
+
+    private void stopFrames() {
+        if (framesScheduled && choreographer != null) {
+            choreographer.removeFrameCallback(this);
+        }
+        framesScheduled = false;
+        lastFrameNanos = 0;
+        stats.resetClock();
+    }
+
+    private void releaseSurface() {
+        if (surface != null) {
+            surface.release();
+            surface = null;
+        }
+    }
+
+    private void dispatchStats() {
+        WritableMap map = new WritableNativeMap();
+        map.putDouble("frames", stats.getFrames());
+        map.putDouble("droppedFrames", stats.getDroppedFrames());
+        double averageFrameMs = stats.averageFrameMs();
+        map.putDouble("fps", averageFrameMs > 0 ? 1000.0 / averageFrameMs : 0);
+        map.putDouble("avgFrameMs", averageFrameMs);
+        map.putDouble("p95FrameMs", stats.frameMsPercentile(0.95));
+        map.putDouble("maxFrameMs", stats.frameMsPercentile(1.0));
+        map.putDouble("avgDrawMs", stats.averageDrawMs());
+        map.putDouble("maxDrawMs", stats.maxDrawMs());
+
+        WritableArray channelStats = new WritableNativeArray();
+        for (VitalsChannel channel : active) {
+            WritableMap entry = new WritableNativeMap();
+            entry.putString("type", channel.type);
+            entry.putInt("buffered", channel.getBuffered());
+            entry.putDouble("overruns", channel.getOverruns());
+            entry.putDouble("skipped", channel.getSkipped());
+            channelStats.pushMap(entry);
+        }
+        map.putArray("channels", channelStats);
+
+        EventDispatcher dispatcher = UIManagerHelper.getEventDispatcherForReactTag(reactContext, getId());
+        if (dispatcher != null) {
+            dispatcher.dispatchEvent(new VitalsFrameStatsEvent(UIManagerHelper.getSurfaceId(this), getId(), map));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.anonymous.ratownictwo;
+
+/**
+ * Generates pleth (SpO2) and capnogram (EtCO2) waveforms sample by sample.
+ *
+ * The pleth shape is the one drawn by components/ekg/Spo2Chart.tsx; the
+ * capnogram is a simple upstroke / alveolar plateau / washout cycle whose
+ * plateau height is the EtCO2 value. Both only keep a phase accumulator.
+ */
+final class VitalsWaveform {
+    static final int PLETH = 0;
+    static final int CAPNO = 1;
+
+    private final int kind;
+    private float phase;
+
+    VitalsWaveform(int kind) {
+        this.kind = kind;
+    }
+
+    /**
+     * Writes {@code count} samples.
+     *
+     * @param value SpO2 in % (scales the pulse amplitude) or EtCO2 in mmHg
+     * @param ratePerMinute heart rate for pleth, respiratory rate for capno
+     */
+    void generate(float[] out, int count, float sampleRate, float value, float ratePerMinute) {
+        float step = Math.max(1f, ratePerMinute) / (60f * sampleRate);
+        for (int i = 0; i < count; i++) {
+            out[i] = kind == PLETH ? pleth(phase, value) : capno(phase, value);
+            phase += step;
+            if (phase >= 1f) {
+                phase -= (int) phase;
+            }
+        }
+    }
+
+    private static float pleth(float phase, float spo2) {
+        // Lower saturation gives a weaker pulse, like the perfusion index on a monitor
+        float amplitude = spo2 <= 0f ? 0f : 0.4f + 0.6f * clamp((spo2 - 70f) / 30f);
+        float shape;
+        if (phase < 0.2f) {
+            float t = phase / 0.2f;
+            shape = t * t;
+        } else if (phase < 0.25f) {
+            shape = 1f;
+        } else if (phase < 0.5f) {
+            shape = 1f - (phase - 0.25f) / 0.25f * 0.8f;
+        } else if (phase < 0.7f) {
+            shape = 0.2f + (phase - 0.5f) / 0.2f * 0.15f;
+        } else {
+            shape = 0.35f * (1f - (phase - 0.7f) / 0.3f);
+        }
+        return shape * amplitude;
+    }
+
+    private static float capno(float phase, float etco2) {
+        // Inspiration baseline, expiratory upstroke, plateau with a slight slope, washout
+        if (phase < 0.4f) {
+            return 0f;
+        } else if (phase < 0.47f) {
+            return etco2 * 0.9f * (phase - 0.4f) / 0.07f;
+        } else if (phase < 0.85f) {
+            return etco2 * (0.9f + 0.1f * (phase - 0.47f) / 0.38f);
+        } else if (phase < 0.92f) {
+            return etco2 * (1f - (phase - 0.85f) / 0.07f);
+        }
+        return 0f;
+    }
+
+    private static float clamp(float value) {
+        return value < 0f ? 0f : value > 1f ? 1f : value;
+    }
+}
@@ -1,34 +1,52 @@
 package com.anonymous.ratownictwo;
 
 import android.Manifest;
-import android.content.Context;
 import android.content.pm.PackageManager;
-import android.net.wifi.WifiManager;
 import android.os.Build;
-import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.core.content.ContextCompat;
 
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.module.annotations.ReactModule;
 
-public class WifiKeepAliveModule extends ReactContextBaseJavaModule {
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the CPU and Wi-Fi radio awake for sockets and streams through named
+ * leases (see WifiLeaseManager), so independent callers no longer release
+ * each other's locks.
+ *
+ * The lease manager itself belongs to SessionRuntime, next to the foreground
+ * session service's own lease, so the locks survive a JS reload.
+ */
+@ReactModule(name = WifiKeepAliveSpec.NAME)
+public class WifiKeepAliveModule extends WifiKeepAliveSpec {
     private final ReactApplicationContext reactContext;
     private static final String TAG = "WifiKeepAliveModule";
     
-    private PowerManager.WakeLock wakeLock;
-    private WifiManager.WifiLock wifiLock;
+    private static final String LEGACY_LEASE = "default";
+    private static final String SESSION_OWNER = "js";
+
+    private final WifiLeaseManager leases;
+    // Leases taken through this module, released when the context goes away
+    private final Set<String> granted = Collections.synchronizedSet(new HashSet<>());
 
     public WifiKeepAliveModule(ReactApplicationContext context) {
         super(context);
         this.reactContext = context;
-    }    @Override
-    public String getName() {
-        return "WifiKeepAlive";
+        this.leases = SessionRuntime.get(context).getLeases();
     }
-      /**
+
+    /**
      * Check if we have the required permissions
      */
     private boolean checkPermissions() {
@@ -55,82 +73,186 @@ public class WifiKeepAliveModule extends ReactContextBaseJavaModule {
         return true;
     }
     
+    /**
+     * Takes (or adds a holder to) a named lease; {@code ttlMs} of zero or
+     * below uses the default TTL. Resolves with the lease's holder count.
+     */
+    @Override
     @ReactMethod
-    public void acquireWifiLock(Promise promise) {
-        try {
-            if (!checkPermissions()) {
-                Log.e(TAG, "Missing required permissions");
-                promise.reject("PERMISSION_ERROR", "Missing required permissions");
-                return;
-            }
-            
-            // Create wake lock to keep CPU running
-            PowerManager powerManager = (PowerManager) reactContext.getSystemService(Context.POWER_SERVICE);
-            if (powerManager == null) {
-                promise.reject("SERVICE_ERROR", "PowerManager service not available");
-                return;
-            }
-            
-            if (wakeLock == null || !wakeLock.isHeld()) {
-                wakeLock = powerManager.newWakeLock(
-                    PowerManager.PARTIAL_WAKE_LOCK,
-                    "RatownictwoApp:WebSocketWakeLock"
-                );
-                wakeLock.acquire();
-                Log.d(TAG, "Wake lock acquired");
+    public void acquireLease(String name, double ttlMs, boolean autoRenew, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("WifiKeepAlive.acquireLease", jsPromise);
+        if (!checkPermissions()) {
+            Log.e(TAG, "Missing required permissions");
+            promise.reject("PERMISSION_ERROR", "Missing required permissions");
+            return;
+        }
+        locks().execute(() -> {
+            try {
+                int holders = leases.acquire(name, ttlMs > 0 ? (long) ttlMs : WifiLeaseManager.DEFAULT_TTL_MS, autoRenew);
+                granted.add(name);
+                promise.resolve(holders);
+            } catch (Exception e) {
+                Log.e(TAG, "Error acquiring lease " + name, e);
+                promise.reject("LOCK_ERROR", e.getMessage());
             }
-            
-            // Create wifi lock to keep WiFi radio active
-            WifiManager wifiManager = (WifiManager) reactContext.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
-            if (wifiManager == null) {
-                promise.reject("SERVICE_ERROR", "WifiManager service not available");
-                return;
+        });
+    }
+
+    /**
+     * Extends a lease by its TTL (or by {@code ttlMs} when above zero).
+     */
+    @Override
+    @ReactMethod
+    public void renewLease(String name, double ttlMs, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("WifiKeepAlive.renewLease", jsPromise);
+        locks().execute(() -> {
+            if (leases.renew(name, (long) ttlMs)) {
+                promise.resolve(true);
+            } else {
+                promise.reject("NO_LEASE", "Lease " + name + " is not held");
             }
-            
-            if (wifiLock == null || !wifiLock.isHeld()) {
-                wifiLock = wifiManager.createWifiLock(
-                    WifiManager.WIFI_MODE_FULL_HIGH_PERF,
-                    "RatownictwoApp:WebSocketWifiLock"
-                );
-                wifiLock.acquire();
-                Log.d(TAG, "WiFi lock acquired");
+        });
+    }
+
+    /**
+     * Drops one holder of a lease. Resolves with the holders left.
+     */
+    @Override
+    @ReactMethod
+    public void releaseLease(String name, Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("WifiKeepAlive.releaseLease", jsPromise);
+        locks().execute(() -> {
+            try {
+                int holders = leases.release(name, false);
+                if (holders == 0) {
+                    granted.remove(name);
+                }
+                promise.resolve(holders);
+            } catch (Exception e) {
+                Log.e(TAG, "Error releasing lease " + name, e);
+                promise.reject("LOCK_ERROR", e.getMessage());
             }
-            
-            promise.resolve(true);
-        } catch (Exception e) {
-            Log.e(TAG, "Error acquiring locks", e);
-            promise.reject("LOCK_ERROR", e.getMessage());
-        }
+        });
     }
-    
+
+    /**
+     * JS's own session flag; the foreground service keeps a separate one, so
+     * either can end without cutting renewal for the other. Auto-renew
+     * leases are only extended while some session is active.
+     */
+    @Override
     @ReactMethod
-    public void releaseWifiLock(Promise promise) {
+    public void setSessionActive(boolean active) {
+        long started = System.nanoTime();
         try {
-            if (wakeLock != null && wakeLock.isHeld()) {
-                wakeLock.release();
-                wakeLock = null;
-                Log.d(TAG, "Wake lock released");
+            locks().execute(() -> leases.setSessionActive(SESSION_OWNER, active));
+        } finally {
+            NativeMetrics.get().recordMethod("WifiKeepAlive.setSessionActive", started);
+        }
+    }
+
+    /**
+     * Legacy entry point: a lease named "default" held until releaseWifiLock,
+     * as the lock itself used to be.
+     */
+    @Override
+    @ReactMethod
+    public void acquireWifiLock(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("WifiKeepAlive.acquireWifiLock", jsPromise);
+        if (!checkPermissions()) {
+            Log.e(TAG, "Missing required permissions");
+            promise.reject("PERMISSION_ERROR", "Missing required permissions");
+            return;
+        }
+        locks().execute(() -> {
+            try {
+                // A repeated call keeps the one holder instead of stacking more
+                if (granted.add(LEGACY_LEASE)) {
+                    leases.hold(LEGACY_LEASE);
+                }
+                promise.resolve(true);
+            } catch (Exception e) {
+                Log.e(TAG, "Error acquiring locks", e);
+                promise.reject("LOCK_ERROR", e.getMessage());
             }
-            
-            if (wifiLock != null && wifiLock.isHeld()) {
-                wifiLock.release();
-                wifiLock = null;
-                Log.d(TAG, "WiFi lock released");
+        });
+    }
+
+    /**
+     * Releases only the "default" lease; other leases keep the locks held.
+     */
+    @Override
+    @ReactMethod
+    public void releaseWifiLock(Promise jsPromise) {
+        Promise promise = TimedPromise.wrap("WifiKeepAlive.releaseWifiLock", jsPromise);
+        locks().execute(() -> {
+            try {
+                leases.release(LEGACY_LEASE, true);
+                granted.remove(LEGACY_LEASE);
+                promise.resolve(true);
+            } catch (Exception e) {
+                Log.e(TAG, "Error releasing locks", e);
+                promise.reject("LOCK_ERROR", e.getMessage());
             }
-            
-            promise.resolve(true);
-        } catch (Exception e) {
-            Log.e(TAG, "Error releasing locks", e);
-            promise.reject("LOCK_ERROR", e.getMessage());
+        });
+    }
+
+    /**
+     * Synchronous: everything comes from the lease manager's fields.
+     */
+    @Override
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getStatus() {
+        long started = System.nanoTime();
+        try {
+            WritableMap status = new WritableNativeMap();
+            status.putBoolean("wakeLockHeld", leases.isWakeLockHeld());
+            status.putBoolean("wifiLockHeld", leases.isWifiLockHeld());
+            status.putString("wifiMode", WifiLeaseManager.usesLowLatencyMode() ? "LOW_LATENCY" : "HIGH_PERF");
+            status.putBoolean("sessionActive", leases.isSessionActive());
+            status.putDouble("heldMs", leases.getHeldMs());
+            status.putDouble("totalHeldMs", leases.getTotalHeldMs());
+            status.putDouble("acquireCount", leases.getLockAcquisitions());
+            status.putDouble("releaseCount", leases.getLockReleases());
+            status.putDouble("leaseGrants", leases.getLeaseGrants());
+            status.putDouble("leaseRenewals", leases.getLeaseRenewals());
+            status.putDouble("leaseExpirations", leases.getLeaseExpirations());
+
+            long now = SystemClock.elapsedRealtime();
+            WritableArray active = new WritableNativeArray();
+            for (WifiLeaseManager.Lease lease : leases.getLeases()) {
+                WritableMap entry = new WritableNativeMap();
+                entry.putString("name", lease.name);
+                entry.putInt("holders", lease.holders);
+                entry.putDouble("ttlMs", lease.ttlMs);
+                entry.putDouble("expiresInMs", Math.max(0, lease.expiresAt - now));
+                entry.putDouble("heldMs", now - lease.grantedAt);
+                entry.putBoolean("autoRenew", lease.autoRenew);
+                entry.putBoolean("pinned", lease.pinned);
+                entry.putInt("renewals", lease.renewals);
+                active.pushMap(entry);
+            }
+            status.putArray("activeLeases", active);
+            return status;
+        } finally {
+            NativeMetrics.get().recordMethod("WifiKeepAlive.getStatus", started);
         }
     }
-    
-    @ReactMethod
-    public void getStatus(Promise promise) {
-        boolean wakeLockHeld = wakeLock != null && wakeLock.isHeld();
-        boolean wifiLockHeld = wifiLock != null && wifiLock.isHeld();
-        
-        promise.resolve("Wake lock: " + (wakeLockHeld ? "Held" : "Not held") +
-                        ", WiFi lock: " + (wifiLockHeld ? "Held" : "Not held"));
+
+    // Wake and Wi-Fi lock calls are binder calls; they run on the locks executor
+    private static ModuleExecutor locks() {
+        return ModuleExecutor.get(ModuleExecutor.LOCKS);
+    }
+
+    @Override
+    public void invalidate() {
+        // Only our own leases: the session service keeps its lease across reloads
+        synchronized (granted) {
+            for (String name : granted) {
+                leases.release(name, true);
+            }
+            granted.clear();
+        }
+        super.invalidate();
     }
 }
@@ -0,0 +1,343 @@
+package com.anonymous.ratownictwo;
+
+import android.content.Context;
+import android.net.wifi.WifiManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the wake lock and Wi-Fi lock on behalf of named leases.
+ *
+ * Each caller (socket, BLE stream, audio...) takes a lease with a TTL. The
+ * locks are held while at least one lease is alive and released as soon as
+ * the last one is released or expires. Acquiring a name that is already held
+ * adds a holder and extends it; releasing removes one holder. Leases with
+ * autoRenew are extended at half their TTL while a session is active, so
+ * a crashed or forgotten caller costs at most one TTL of battery. A session
+ * is active while any owner (the foreground service, JS) marks it so; each
+ * owner sets only its own flag. Leases taken with {@link #hold} are renewed
+ * until released whether or not a session is active.
+ *
+ * The wake lock is always taken with a timeout slightly past the last lease
+ * expiry, so the OS releases it even if the reconcile timer on the locks
+ * ModuleExecutor stops running.
+ */
+final class WifiLeaseManager {
+    private static final String TAG = "WifiLeaseManager";
+    static final long DEFAULT_TTL_MS = 60_000;
+    private static final long MIN_TTL_MS = 1_000;
+    private static final long WAKE_LOCK_MARGIN_MS = 5_000;
+
+    static final class Lease {
+        final String name;
+        final long grantedAt;
+        long ttlMs;
+        long expiresAt;
+        boolean autoRenew;
+        boolean pinned;
+        int holders;
+        int renewals;
+
+        Lease(String name, long now) {
+            this.name = name;
+            this.grantedAt = now;
+        }
+
+        Lease copy() {
+            Lease copy = new Lease(name, grantedAt);
+            copy.ttlMs = ttlMs;
+            copy.expiresAt = expiresAt;
+            copy.autoRenew = autoRenew;
+            copy.pinned = pinned;
+            copy.holders = holders;
+            copy.renewals = renewals;
+            return copy;
+        }
+    }
+
+    private final Context context;
+    private final Handler handler;
+    private final Runnable reconcile = this::reconcile;
+    private final Map<String, Lease> leases = new LinkedHashMap<>();
+
+    private PowerManager.WakeLock wakeLock;
+    private WifiManager.WifiLock wifiLock;
+    private final Set<String> sessionOwners = new HashSet<>();
+    private long heldSince;
+    private long totalHeldMs;
+    private long lockAcquisitions;
+    private long lockReleases;
+    private long leaseGrants;
+    private long leaseRenewals;
+    private long leaseExpirations;
+
+    WifiLeaseManager(Context context) {
+        this.context = context.getApplicationContext();
+        this.handler = ModuleExecutor.get(ModuleExecutor.LOCKS).handler();
+    }
+
+    /**
+     * Low-latency mode on Android 10+, high-performance mode before that.
+     */
+    static boolean usesLowLatencyMode() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+    }
+
+    /**
+     * @return number of holders of this lease after acquiring
+     */
+    synchronized int acquire(String name, long ttlMs, boolean autoRenew) {
+        return grant(name, ttlMs, autoRenew, false);
+    }
+
+    /**
+     * Takes a lease that lasts until it is released, for callers that know
+     * exactly when they stop (an open socket, a running service). It is still
+     * renewed in TTL steps so the wake lock keeps its timeout.
+     *
+     * @return number of holders of this lease after acquiring
+     */
+    synchronized int hold(String name) {
+        return grant(name, DEFAULT_TTL_MS, true, true);
+    }
+
+    private int grant(String name, long ttlMs, boolean autoRenew, boolean pinned) {
+        long now = SystemClock.elapsedRealtime();
+        Lease lease = leases.get(name);
+        if (lease == null) {
+            lease = new Lease(name, now);
+            leases.put(name, lease);
+        }
+        lease.ttlMs = Math.max(MIN_TTL_MS, ttlMs);
+        lease.expiresAt = Math.max(lease.expiresAt, now + lease.ttlMs);
+        lease.autoRenew |= autoRenew;
+        lease.pinned |= pinned;
+        lease.holders++;
+        leaseGrants++;
+        Log.d(TAG, "Lease " + name + " acquired (" + lease.holders + " holders, ttl " + lease.ttlMs + " ms)");
+        applyLocks(now);
+        return lease.holders;
+    }
+
+    /**
+     * Extends a lease without adding a holder.
+     *
+     * @return false when there is no such lease
+     */
+    synchronized boolean renew(String name, long ttlMs) {
+        Lease lease = leases.get(name);
+        if (lease == null) {
+            return false;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (ttlMs > 0) {
+            lease.ttlMs = Math.max(MIN_TTL_MS, ttlMs);
+        }
+        lease.expiresAt = now + lease.ttlMs;
+        lease.renewals++;
+        leaseRenewals++;
+        applyLocks(now);
+        return true;
+    }
+
+    /**
+     * Drops one holder, or the whole lease when {@code all} is set.
+     *
+     * @return holders left on this lease
+     */
+    synchronized int release(String name, boolean all) {
+        Lease lease = leases.get(name);
+        if (lease == null) {
+            return 0;
+        }
+        lease.holders = all ? 0 : lease.holders - 1;
+        if (lease.holders <= 0) {
+            leases.remove(name);
+            Log.d(TAG, "Lease " + name + " released");
+        }
+        applyLocks(SystemClock.elapsedRealtime());
+        return Math.max(0, lease.holders);
+    }
+
+    synchronized void releaseAll() {
+        leases.clear();
+        applyLocks(SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Sets one owner's flag; the session stays active while any owner has it
+     * set. While inactive, auto-renew leases run out at their TTL like any
+     * other.
+     */
+    synchronized void setSessionActive(String owner, boolean active) {
+        if (active) {
+            sessionOwners.add(owner);
+        } else {
+            sessionOwners.remove(owner);
+        }
+        applyLocks(SystemClock.elapsedRealtime());
+    }
+
+    synchronized boolean isSessionActive() {
+        return !sessionOwners.isEmpty();
+    }
+
+    synchronized boolean isWakeLockHeld() {
+        return wakeLock != null && wakeLock.isHeld();
+    }
+
+    synchronized boolean isWifiLockHeld() {
+        return wifiLock != null && wifiLock.isHeld();
+    }
+
+    synchronized List<Lease> getLeases() {
+        List<Lease> copies = new ArrayList<>(leases.size());
+        for (Lease lease : leases.values()) {
+            copies.add(lease.copy());
+        }
+        return copies;
+    }
+
+    synchronized long getHeldMs() {
+        return heldSince > 0 ? SystemClock.elapsedRealtime() - heldSince : 0;
+    }
+
+    synchronized long getTotalHeldMs() {
+        return totalHeldMs + getHeldMs();
+    }
+
+    synchronized long getLockAcquisitions() {
+        return lockAcquisitions;
+    }
+
+    synchronized long getLockReleases() {
+        return lockReleases;
+    }
+
+    synchronized long getLeaseGrants() {
+        return leaseGrants;
+    }
+
+    synchronized long getLeaseRenewals() {
+        return leaseRenewals;
+    }
+
+    synchronized long getLeaseExpirations() {
+        return leaseExpirations;
+    }
+
+    private void reconcile() {
+        synchronized (this) {
+            applyLocks(SystemClock.elapsedRealtime());
+        }
+    }
+
+    /**
+     * Renews or expires leases, takes or drops the locks to match, and
+     * schedules the next check. Caller holds the monitor.
+     */
+    private void applyLocks(long now) {
+        long nextCheck = Long.MAX_VALUE;
+        long lastExpiry = 0;
+        boolean sessionActive = !sessionOwners.isEmpty();
+
+        Iterator<Lease> iterator = leases.values().iterator();
+        while (iterator.hasNext()) {
+            Lease lease = iterator.next();
+            boolean renewing = lease.pinned || (lease.autoRenew && sessionActive);
+            if (renewing && lease.expiresAt - now <= lease.ttlMs / 2) {
+                lease.expiresAt = now + lease.ttlMs;
+                lease.renewals++;
+                leaseRenewals++;
+            }
+            if (lease.expiresAt <= now) {
+                Log.d(TAG, "Lease " + lease.name + " expired");
+                iterator.remove();
+                leaseExpirations++;
+                continue;
+            }
+            long check = renewing ? lease.expiresAt - lease.ttlMs / 2 : lease.expiresAt;
+            nextCheck = Math.min(nextCheck, check);
+            lastExpiry = Math.max(lastExpiry, lease.expiresAt);
+        }
+
+        if (leases.isEmpty()) {
+            releaseLocks(now);
+        } else {
+            holdLocks(now, lastExpiry - now + WAKE_LOCK_MARGIN_MS);
+        }
+
+        handler.removeCallbacks(reconcile);
+        if (nextCheck != Long.MAX_VALUE) {
+            handler.postDelayed(reconcile, Math.max(0, nextCheck - now));
+        }
+    }
+
+    private void holdLocks(long now, long wakeTimeoutMs) {
+        try {
+            if (wakeLock == null) {
+                PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+                wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK,
+                    "RatownictwoApp:WebSocketWakeLock");
+                wakeLock.setReferenceCounted(false);
+            }
+            if (wifiLock == null) {
+                WifiManager wifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
+                int mode = usesLowLatencyMode()
+                    ? WifiManager.WIFI_MODE_FULL_LOW_LATENCY
+                    : WifiManager.WIFI_MODE_FULL_HIGH_PERF;
+                wifiLock = wifiManager.createWifiLock(mode, "RatownictwoApp:WebSocketWifiLock");
+                wifiLock.setReferenceCounted(false);
+            }
+
+            boolean wasHeld = wakeLock.isHeld();
+            // Not reference counted: re-acquiring just moves the timeout
+            wakeLock.acquire(wakeTimeoutMs);
+            if (!wifiLock.isHeld()) {
+                wifiLock.acquire();
+            }
+            if (!wasHeld) {
+                heldSince = now;
+                lockAcquisitions++;
+                Log.d(TAG, "Wake and WiFi locks acquired");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error acquiring locks", e);
+        }
+    }
+
+    private void releaseLocks(long now) {
+        boolean released = false;
+        try {
+            if (wakeLock != null && wakeLock.isHeld()) {
+                wakeLock.release();
+                released = true;
+            }
+            if (wifiLock != null && wifiLock.isHeld()) {
+                wifiLock.release();
+                released = true;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error releasing locks", e);
+        }
+        if (released) {
+            lockReleases++;
+            Log.d(TAG, "Wake and WiFi locks released");
+        }
+        if (heldSince > 0) {
+            totalHeldMs += now - heldSince;
+            heldSince = 0;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.anonymous.ratownictwo;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+
+/**
+ * New architecture: the codegen spec from specs/NativeBluetoothModule.ts, so the
+ * module is a TurboModule called through JSI.
+ */
+public abstract class BluetoothSpec extends NativeBluetoothModuleSpec {
+    BluetoothSpec(ReactApplicationContext context) {
+        super(context);
+    }
+}
@@ -0,0 +1,13 @@
+package com.anonymous.ratownictwo;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+
+/**
+ * New architecture: the codegen spec from specs/NativeNetworkUtils.ts, so the
+ * module is a TurboModule called through JSI.
+ */
+public abstract class NetworkUtilsSpec extends NativeNetworkUtilsSpec {
+    NetworkUtilsSpec(ReactApplicationContext context) {
+        super(context);
+    }
+}
@@ -0,0 +1,48 @@
+package com.anonymous.ratownictwo;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+
+/**
+ * Old architecture: the same methods as specs/NativeBluetoothModule.ts on a
+ * bridge module. Keep in step with the spec.
+ */
+public abstract class BluetoothSpec extends ReactContextBaseJavaModule {
+    public static final String NAME = "BluetoothModule";
+
+    BluetoothSpec(ReactApplicationContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    public abstract void connectToDevice(String deviceAddress, Promise promise);
+
+    public abstract void disconnectAudioDevice(String deviceAddress, Promise promise);
+
+    public abstract void disconnectAudio(Promise promise);
+
+    public abstract void getDeviceProfiles(String deviceAddress, Promise promise);
+
+    public abstract void getDeviceProfilesBatch(ReadableArray deviceAddresses, Promise promise);
+
+    public abstract void connectDevices(ReadableArray deviceAddresses, double concurrency, double timeoutMs,
+                                        @Nullable String batchId, Promise promise);
+
+    public abstract void disconnectDevices(ReadableArray deviceAddresses, double concurrency, double timeoutMs,
+                                           @Nullable String batchId, Promise promise);
+
+    public abstract WritableArray getDeviceStates();
+
+    public abstract void addListener(String eventName);
+
+    public abstract void removeListeners(double count);
+}
@@ -0,0 +1,65 @@
+package com.anonymous.ratownictwo;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Old architecture: the same methods as specs/NativeNetworkUtils.ts on a
+ * bridge module. Keep in step with the spec.
+ */
+public abstract class NetworkUtilsSpec extends ReactContextBaseJavaModule {
+    public static final String NAME = "NetworkUtils";
+
+    NetworkUtilsSpec(ReactApplicationContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    public abstract WritableMap getNetworkInfo();
+
+    public abstract WritableMap getNetworkState();
+
+    public abstract WritableArray getNetworkTransitions();
+
+    public abstract void startNetworkMonitoring();
+
+    public abstract void stopNetworkMonitoring();
+
+    public abstract void startQualityProbe(String host, double port, String mode, double intervalMs,
+                                           double timeoutMs, double windowSize, Promise promise);
+
+    public abstract void setQualityThresholds(double poor, double fair, double good, double hysteresis);
+
+    public abstract void stopQualityProbe();
+
+    @Nullable
+    public abstract WritableMap getQualityStats();
+
+    public abstract void enableHandover(boolean includeEthernet, double minHoldMs, double restoreStableMs,
+                                        Promise promise);
+
+    public abstract void disableHandover();
+
+    public abstract void getHandoverStatus(Promise promise);
+
+    public abstract void discoverServer(@Nullable String serviceType, double timeoutMs, double settleMs,
+                                        double probeTimeoutMs, boolean forceRefresh, double maxAgeMs,
+                                        Promise promise);
+
+    public abstract void clearServerCache(@Nullable String networkId);
+
+    public abstract void getCachedServers(Promise promise);
+
+    public abstract void addListener(String eventName);
+
+    public abstract void removeListeners(double count);
+}
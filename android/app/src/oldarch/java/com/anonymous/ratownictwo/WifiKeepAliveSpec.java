@@ -0,0 +1,37 @@
+package com.anonymous.ratownictwo;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Old architecture: the same methods as specs/NativeWifiKeepAlive.ts on a
+ * bridge module. Keep in step with the spec.
+ */
+public abstract class WifiKeepAliveSpec extends ReactContextBaseJavaModule {
+    public static final String NAME = "WifiKeepAlive";
+
+    WifiKeepAliveSpec(ReactApplicationContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    public abstract void acquireLease(String name, double ttlMs, boolean autoRenew, Promise promise);
+
+    public abstract void renewLease(String name, double ttlMs, Promise promise);
+
+    public abstract void releaseLease(String name, Promise promise);
+
+    public abstract void setSessionActive(boolean active);
+
+    public abstract void acquireWifiLock(Promise promise);
+
+    public abstract void releaseWifiLock(Promise promise);
+
+    public abstract WritableMap getStatus();
+}
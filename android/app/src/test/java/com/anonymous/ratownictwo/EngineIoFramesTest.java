@@ -0,0 +1,45 @@
+package com.anonymous.ratownictwo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class EngineIoFramesTest {
+    @Test
+    public void encodedEventsParseBack() {
+        String frame = EngineIoFrames.encodeEvent("say \"hi\"\n", "{\"a\":1}");
+        int start = EngineIoFrames.argumentsStart(frame);
+        assertEquals(2, start);
+        assertEquals("say \"hi\"\n", EngineIoFrames.eventName(frame, start));
+    }
+
+    @Test
+    public void namespaceAndAckIdAreSkipped() {
+        String frame = "42/admin,17[\"ping\",{}]";
+        int start = EngineIoFrames.argumentsStart(frame);
+        assertEquals('[', frame.charAt(start));
+        assertEquals("ping", EngineIoFrames.eventName(frame, start));
+    }
+
+    @Test
+    public void unicodeEscapesAreDecoded() {
+        String frame = "42[\"a\\u0142b\"]";
+        assertEquals("ałb", EngineIoFrames.eventName(frame, 2));
+    }
+
+    @Test
+    public void malformedEscapeDropsTheName() {
+        assertNull(EngineIoFrames.eventName("42[\"a\\uZZZZ\"]", 2));
+        assertNull(EngineIoFrames.eventName("42[\"unterminated", 2));
+        assertNull(EngineIoFrames.eventName("42[1,2]", 2));
+    }
+
+    @Test
+    public void numbersAreReadFromTheOpenPacket() {
+        String open = "0{\"sid\":\"x\",\"pingInterval\": 25000,\"pingTimeout\":20000}";
+        assertEquals(25000, EngineIoFrames.readNumber(open, "pingInterval", -1));
+        assertEquals(20000, EngineIoFrames.readNumber(open, "pingTimeout", -1));
+        assertEquals(-1, EngineIoFrames.readNumber(open, "maxPayload", -1));
+    }
+}
@@ -0,0 +1,220 @@
+package com.anonymous.ratownictwo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class EventJournalTest {
+    private static final long SEGMENT_BYTES = 4096;
+    private static final long MAX_BYTES = 1 << 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsSurviveReopenUntilAcknowledged() throws Exception {
+        File directory = folder.newFolder();
+        EventJournal journal = open(directory);
+        appendAll(journal, 3, 16);
+        assertEquals(Arrays.asList(1L, 2L, 3L), seqs(journal.replay(0, 100)));
+        journal.ack(2);
+        journal.close();
+
+        journal = open(directory);
+        List<EventJournal.Record> records = journal.replay(0, 100);
+        assertEquals(Arrays.asList(3L), seqs(records));
+        assertEquals("audio-command", records.get(0).event);
+        assertEquals("key-3", records.get(0).dedupKey);
+        journal.close();
+    }
+
+    @Test
+    public void duplicateKeyIsNotWrittenTwice() throws Exception {
+        EventJournal journal = open(folder.newFolder());
+        long first = journal.append("audio-command", "{}", "cmd-1", null);
+        long again = journal.append("audio-command", "{}", "cmd-1", null);
+        assertEquals(-first, again);
+        assertTrue(journal.append("audio-command", "{}", null, null) > first);
+        journal.close();
+    }
+
+    @Test
+    public void segmentsRollWithinOneBatch() throws Exception {
+        File directory = folder.newFolder();
+        // A long commit delay puts every append into the same batch
+        EventJournal journal = new EventJournal(directory, SEGMENT_BYTES, MAX_BYTES, 200);
+        appendAll(journal, 12, 1000);
+        journal.close();
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".log"));
+        assertTrue(files.length > 1);
+        for (File file : files) {
+            assertTrue(file.length() < SEGMENT_BYTES + 1100);
+        }
+        journal = open(directory);
+        assertEquals(12, journal.replay(0, 100).size());
+        journal.close();
+    }
+
+    @Test
+    public void crashAfterCompactionMoveKeepsEachRecordOnce() throws Exception {
+        File directory = folder.newFolder();
+        Map<String, byte[]> before = writeSegments(directory);
+        compact(directory);
+
+        // The old segments were not deleted yet
+        for (Map.Entry<String, byte[]> segment : before.entrySet()) {
+            File file = new File(directory, segment.getKey());
+            if (!file.exists()) {
+                Files.write(file.toPath(), segment.getValue());
+            }
+        }
+
+        EventJournal journal = open(directory);
+        assertEquals(range(3, 10), seqs(journal.replay(0, 100)));
+        assertEquals(1, stats(journal).segments);
+        journal.close();
+    }
+
+    @Test
+    public void completeCompactionFileIsInstalled() throws Exception {
+        File directory = folder.newFolder();
+        Map<String, byte[]> before = writeSegments(directory);
+        byte[] compacted = compact(directory);
+
+        // The compaction was written but never moved into place
+        restore(directory, before);
+        Files.write(new File(directory, "compact.tmp").toPath(), compacted);
+
+        EventJournal journal = open(directory);
+        assertEquals(range(3, 10), seqs(journal.replay(0, 100)));
+        assertEquals(1, stats(journal).segments);
+        assertFalse(new File(directory, "compact.tmp").exists());
+        journal.close();
+    }
+
+    @Test
+    public void incompleteCompactionFileIsDiscarded() throws Exception {
+        File directory = folder.newFolder();
+        Map<String, byte[]> before = writeSegments(directory);
+        byte[] compacted = compact(directory);
+
+        restore(directory, before);
+        Files.write(new File(directory, "compact.tmp").toPath(),
+            Arrays.copyOf(compacted, compacted.length / 2));
+
+        EventJournal journal = open(directory);
+        assertEquals(range(3, 10), seqs(journal.replay(0, 100)));
+        assertEquals(before.size(), stats(journal).segments);
+        assertFalse(new File(directory, "compact.tmp").exists());
+        journal.close();
+    }
+
+    @Test
+    public void unknownFilesAreIgnored() throws Exception {
+        File directory = folder.newFolder();
+        Files.write(new File(directory, "notes.log").toPath(), new byte[] {1, 2, 3});
+        EventJournal journal = open(directory);
+        appendAll(journal, 1, 8);
+        assertEquals(Arrays.asList(1L), seqs(journal.replay(0, 100)));
+        journal.close();
+    }
+
+    /**
+     * Ten records over several segments, the first two acknowledged.
+     */
+    private Map<String, byte[]> writeSegments(File directory) throws Exception {
+        EventJournal journal = open(directory);
+        appendAll(journal, 10, 1000);
+        journal.ack(2);
+        journal.close();
+        Map<String, byte[]> files = new HashMap<>();
+        for (File file : directory.listFiles((dir, name) -> name.endsWith(".log"))) {
+            files.put(file.getName(), Files.readAllBytes(file.toPath()));
+        }
+        assertTrue(files.size() > 1);
+        return files;
+    }
+
+    /**
+     * Compacts the journal and returns the bytes of the one segment left.
+     */
+    private byte[] compact(File directory) throws Exception {
+        EventJournal journal = open(directory);
+        journal.compact();
+        journal.close();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".log"));
+        assertEquals(1, files.length);
+        return Files.readAllBytes(files[0].toPath());
+    }
+
+    private static void restore(File directory, Map<String, byte[]> segments) throws IOException {
+        for (File file : directory.listFiles((dir, name) -> name.endsWith(".log"))) {
+            assertTrue(file.delete());
+        }
+        for (Map.Entry<String, byte[]> segment : segments.entrySet()) {
+            Files.write(new File(directory, segment.getKey()).toPath(), segment.getValue());
+        }
+    }
+
+    private static EventJournal open(File directory) throws IOException {
+        return new EventJournal(directory, SEGMENT_BYTES, MAX_BYTES, 0);
+    }
+
+    private static void appendAll(EventJournal journal, int count, int payloadBytes) throws Exception {
+        CountDownLatch committed = new CountDownLatch(count);
+        List<IOException> errors = new ArrayList<>();
+        char[] payload = new char[payloadBytes];
+        Arrays.fill(payload, 'x');
+        for (int i = 0; i < count; i++) {
+            long seq = journal.append("audio-command", new String(payload), "key-" + (i + 1), (s, error) -> {
+                if (error != null) {
+                    synchronized (errors) {
+                        errors.add(error);
+                    }
+                }
+                committed.countDown();
+            });
+            assertTrue(seq > 0);
+        }
+        assertTrue(committed.await(5, TimeUnit.SECONDS));
+        assertTrue(errors.isEmpty());
+    }
+
+    private static EventJournal.Stats stats(EventJournal journal) {
+        EventJournal.Stats stats = new EventJournal.Stats();
+        journal.fill(stats);
+        return stats;
+    }
+
+    private static List<Long> seqs(List<EventJournal.Record> records) {
+        List<Long> seqs = new ArrayList<>();
+        for (EventJournal.Record record : records) {
+            seqs.add(record.seq);
+        }
+        return seqs;
+    }
+
+    private static List<Long> range(long from, long to) {
+        List<Long> values = new ArrayList<>();
+        for (long value = from; value <= to; value++) {
+            values.add(value);
+        }
+        return values;
+    }
+}
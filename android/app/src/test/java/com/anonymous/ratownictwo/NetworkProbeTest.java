@@ -0,0 +1,103 @@
+package com.anonymous.ratownictwo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+public class NetworkProbeTest {
+    private ServerSocket server;
+    private Thread echoThread;
+
+    @Before
+    public void startEchoServer() throws IOException {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        echoThread = new Thread(() -> {
+            try (Socket socket = server.accept()) {
+                InputStream in = socket.getInputStream();
+                OutputStream out = socket.getOutputStream();
+                byte[] buffer = new byte[64];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, read);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Server closed by the test
+            }
+        }, "EchoServer");
+        echoThread.setDaemon(true);
+        echoThread.start();
+    }
+
+    @After
+    public void stopEchoServer() throws Exception {
+        server.close();
+        echoThread.join(1_000);
+    }
+
+    @Test
+    public void echoProbesAreTimedOverOneSocket() {
+        NetworkProbe probe = probe(NetworkProbe.MODE_ECHO, server.getLocalPort());
+        for (int i = 0; i < 20; i++) {
+            probe.probeOnce();
+        }
+
+        NetworkProbe.Stats stats = new NetworkProbe.Stats();
+        probe.fill(stats);
+        assertEquals(20, stats.samples);
+        assertEquals(20, stats.totalProbes);
+        assertEquals(0, stats.totalLost);
+        assertEquals(0f, stats.lossRate, 0f);
+        assertTrue(stats.percentilesMs[0] >= 0f);
+        assertTrue(stats.percentilesMs[0] <= stats.percentilesMs[3]);
+        // Loopback with no loss and no signal data scores as a good link
+        assertEquals(NetworkQualityScore.LEVEL_GOOD, stats.level);
+    }
+
+    @Test
+    public void connectProbesAgainstAClosedPortAreLost() throws IOException {
+        int port;
+        try (ServerSocket closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = closed.getLocalPort();
+        }
+        NetworkProbe probe = probe(NetworkProbe.MODE_CONNECT, port);
+        for (int i = 0; i < 5; i++) {
+            probe.probeOnce();
+        }
+
+        NetworkProbe.Stats stats = new NetworkProbe.Stats();
+        probe.fill(stats);
+        assertEquals(5, stats.totalProbes);
+        assertEquals(5, stats.totalLost);
+        assertEquals(1f, stats.lossRate, 0f);
+    }
+
+    @Test
+    public void unansweredEchoTimesOutAsLoss() throws IOException {
+        // Connects through the backlog but nobody ever reads or replies
+        try (ServerSocket silent = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            NetworkProbe probe = probe(NetworkProbe.MODE_ECHO, silent.getLocalPort());
+            probe.probeOnce();
+
+            NetworkProbe.Stats stats = new NetworkProbe.Stats();
+            probe.fill(stats);
+            assertEquals(1, stats.totalProbes);
+            assertEquals(1, stats.totalLost);
+        }
+    }
+
+    private static NetworkProbe probe(int mode, int port) {
+        return new NetworkProbe(InetAddress.getLoopbackAddress().getHostAddress(), port, mode,
+            100, 500, 32, null, null);
+    }
+}
@@ -0,0 +1,51 @@
+package com.anonymous.ratownictwo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RealtimeOutboundQueueTest {
+    @Test
+    public void highestPriorityIsPolledFirst() {
+        RealtimeOutboundQueue queue = new RealtimeOutboundQueue(4, 4, 4);
+        queue.offer(RealtimeOutboundQueue.PRIORITY_BULK, "b");
+        queue.offer(RealtimeOutboundQueue.PRIORITY_NORMAL, "n");
+        queue.offer(RealtimeOutboundQueue.PRIORITY_HIGH, "h");
+
+        assertEquals(RealtimeOutboundQueue.PRIORITY_HIGH, queue.peekPriority());
+        assertEquals("h", queue.poll());
+        assertEquals("n", queue.poll());
+        assertEquals("b", queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void fullPriorityDropsItsOldestFrame() {
+        RealtimeOutboundQueue queue = new RealtimeOutboundQueue(4, 4, 2);
+        assertTrue(queue.offer(RealtimeOutboundQueue.PRIORITY_BULK, "1"));
+        assertTrue(queue.offer(RealtimeOutboundQueue.PRIORITY_BULK, "2"));
+        assertFalse(queue.offer(RealtimeOutboundQueue.PRIORITY_BULK, "3"));
+
+        assertEquals(1, queue.getDropped(RealtimeOutboundQueue.PRIORITY_BULK));
+        assertEquals(2, queue.getQueuedChars());
+        assertEquals("2", queue.poll());
+        assertEquals("3", queue.poll());
+    }
+
+    @Test
+    public void requeuedFrameGoesBackToTheHead() {
+        RealtimeOutboundQueue queue = new RealtimeOutboundQueue(4, 4, 4);
+        queue.offer(RealtimeOutboundQueue.PRIORITY_NORMAL, "first");
+        queue.offer(RealtimeOutboundQueue.PRIORITY_NORMAL, "second");
+        String frame = queue.poll();
+        queue.requeue(RealtimeOutboundQueue.PRIORITY_NORMAL, frame);
+
+        assertEquals(0, queue.getSent(RealtimeOutboundQueue.PRIORITY_NORMAL));
+        assertEquals(2, queue.size(RealtimeOutboundQueue.PRIORITY_NORMAL));
+        assertEquals("first", queue.poll());
+    }
+}
@@ -0,0 +1,178 @@
+package com.anonymous.ratownictwo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class RealtimeTransportTest {
+    private static final long TIMEOUT_MS = 5_000;
+    private static final String OPEN_PACKET = "0{\"sid\":\"s1\",\"pingInterval\":25000,\"pingTimeout\":20000}";
+
+    private final MockWebServer server = new MockWebServer();
+    private final BlockingQueue<String> serverReceived = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String[]> clientReceived = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Integer> states = new LinkedBlockingQueue<>();
+    private RealtimeTransport transport;
+
+    @After
+    public void tearDown() throws IOException {
+        if (transport != null) {
+            transport.shutdown();
+        }
+        server.shutdown();
+    }
+
+    @Test
+    public void socketIoHandshakePingsAndEvents() throws Exception {
+        AtomicReference<WebSocket> serverSocket = new AtomicReference<>();
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new ServerListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                serverSocket.set(webSocket);
+                webSocket.send(OPEN_PACKET);
+            }
+
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                if (EngineIoFrames.CONNECT_FRAME.equals(text)) {
+                    webSocket.send("40{\"sid\":\"n1\"}");
+                } else {
+                    serverReceived.add(text);
+                }
+            }
+        }));
+
+        transport = start(RealtimeTransport.MODE_SOCKETIO);
+        awaitState(RealtimeTransport.STATE_OPEN);
+
+        transport.send("audio-command", "{\"command\":\"PLAY\"}", RealtimeOutboundQueue.PRIORITY_HIGH);
+        assertEquals("42[\"audio-command\",{\"command\":\"PLAY\"}]", take(serverReceived));
+
+        serverSocket.get().send("2");
+        assertEquals(EngineIoFrames.PONG_FRAME, take(serverReceived));
+
+        // A malformed frame is dropped and the next one still arrives
+        serverSocket.get().send("42[\"bad\\uZZZZ\",1]");
+        serverSocket.get().send("42[\"session-update\",{\"a\":1}]");
+        String[] message = take(clientReceived);
+        assertEquals("session-update", message[0]);
+        assertEquals("[\"session-update\",{\"a\":1}]", message[1]);
+    }
+
+    @Test
+    public void framesQueuedBeforeConnectGoOutByPriority() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new ServerListener() {
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                serverReceived.add(text);
+            }
+        }));
+
+        transport = new RealtimeTransport(new OkHttpClient(), server.url("/").toString(),
+            options(RealtimeTransport.MODE_RAW), new RecordingListener());
+        transport.send("state", "bulk-1", RealtimeOutboundQueue.PRIORITY_BULK);
+        transport.send("state", "bulk-2", RealtimeOutboundQueue.PRIORITY_BULK);
+        transport.send("update", "normal-1", RealtimeOutboundQueue.PRIORITY_NORMAL);
+        transport.send("audio-command", "high-1", RealtimeOutboundQueue.PRIORITY_HIGH);
+        transport.connect();
+
+        assertEquals("high-1", take(serverReceived));
+        assertEquals("normal-1", take(serverReceived));
+        assertEquals("bulk-1", take(serverReceived));
+        assertEquals("bulk-2", take(serverReceived));
+    }
+
+    @Test
+    public void reconnectsAfterTheServerCloses() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new ServerListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                webSocket.close(1001, "restart");
+            }
+        }));
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new ServerListener() {
+        }));
+
+        transport = start(RealtimeTransport.MODE_RAW);
+        awaitState(RealtimeTransport.STATE_OPEN);
+        awaitState(RealtimeTransport.STATE_WAITING);
+        awaitState(RealtimeTransport.STATE_OPEN);
+
+        RealtimeTransport.Stats stats = new RealtimeTransport.Stats();
+        transport.fill(stats);
+        assertEquals(2, stats.connects);
+        assertEquals(1, stats.disconnects);
+    }
+
+    private RealtimeTransport start(int mode) {
+        RealtimeTransport started = new RealtimeTransport(new OkHttpClient(), server.url("/").toString(),
+            options(mode), new RecordingListener());
+        started.connect();
+        return started;
+    }
+
+    private static RealtimeTransport.Options options(int mode) {
+        RealtimeTransport.Options options = new RealtimeTransport.Options();
+        options.mode = mode;
+        options.backoffBaseMs = 50;
+        options.backoffMaxMs = 100;
+        options.connectTimeoutMs = TIMEOUT_MS;
+        return options;
+    }
+
+    private void awaitState(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            Integer state = states.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            if (state != null && state == expected) {
+                return;
+            }
+        }
+        fail("Never reached state " + RealtimeTransport.STATE_NAMES[expected]);
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+        T value = queue.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull("Timed out waiting for a frame", value);
+        return value;
+    }
+
+    /**
+     * Answers the client's close frame, so server.shutdown() does not wait
+     * for a closing handshake that never finishes.
+     */
+    private static class ServerListener extends WebSocketListener {
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(code, null);
+        }
+    }
+
+    private final class RecordingListener implements RealtimeTransport.Listener {
+        @Override
+        public void onStateChanged(int state, String reason) {
+            states.add(state);
+        }
+
+        @Override
+        public void onMessage(String event, String body) {
+            clientReceived.add(new String[] {event, body});
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.anonymous.ratownictwo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ServerEndpointCacheTest {
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    public void bestIsTheLowestRttReachableEndpoint() {
+        ServerEndpointCache cache = new ServerEndpointCache(4);
+        cache.put("wifi:lab", Arrays.asList(
+            endpoint("slow", 12f, 1_000),
+            endpoint("down", -1f, 1_000),
+            endpoint("fast", 3f, 1_000)));
+
+        assertEquals("fast", cache.best("wifi:lab", 2_000, HOUR).name);
+        assertEquals(2, cache.get("wifi:lab").size());
+        assertNull(cache.best("wifi:other", 2_000, HOUR));
+    }
+
+    @Test
+    public void staleEndpointsAreSkipped() {
+        ServerEndpointCache cache = new ServerEndpointCache(4);
+        cache.put("wifi:lab", Arrays.asList(
+            endpoint("fast-but-old", 3f, 0),
+            endpoint("fresh", 8f, HOUR)));
+
+        assertEquals("fresh", cache.best("wifi:lab", HOUR + 10, HOUR / 2).name);
+        assertNull(cache.best("wifi:lab", 3 * HOUR, HOUR / 2));
+    }
+
+    @Test
+    public void leastRecentlyUsedNetworkIsEvicted() {
+        ServerEndpointCache cache = new ServerEndpointCache(2);
+        cache.put("a", Arrays.asList(endpoint("a", 1f, 0)));
+        cache.put("b", Arrays.asList(endpoint("b", 1f, 0)));
+        cache.best("a", 0, HOUR);
+        cache.put("c", Arrays.asList(endpoint("c", 1f, 0)));
+
+        List<String> ids = cache.networkIds();
+        assertEquals(Arrays.asList("a", "c"), ids);
+    }
+
+    @Test
+    public void serializedCacheLoadsBack() {
+        ServerEndpointCache cache = new ServerEndpointCache(4);
+        cache.put("wifi:lab\tx", Arrays.asList(endpoint("one", 2.5f, 42), endpoint("two", 7f, 43)));
+        cache.put("cell", Arrays.asList(endpoint("three", 30f, 44)));
+
+        ServerEndpointCache loaded = new ServerEndpointCache(4);
+        loaded.load(cache.serialize() + "damaged\tline\n");
+
+        assertEquals(cache.serialize(), loaded.serialize());
+        ServerEndpointCache.Endpoint best = loaded.best("wifi:lab x", 50, HOUR);
+        assertEquals("one", best.name);
+        assertEquals("10.0.0.2", best.host);
+        assertEquals(3000, best.port);
+        assertEquals(2.5f, best.rttMs, 0f);
+        assertEquals(42, best.resolvedAt);
+    }
+
+    @Test
+    public void loadingNothingEmptiesTheCache() {
+        ServerEndpointCache cache = new ServerEndpointCache(4);
+        cache.put("cell", Arrays.asList(endpoint("one", 1f, 0)));
+        cache.load(null);
+        assertTrue(cache.networkIds().isEmpty());
+    }
+
+    private static ServerEndpointCache.Endpoint endpoint(String name, float rttMs, long resolvedAt) {
+        return new ServerEndpointCache.Endpoint(name, "10.0.0.2", 3000, rttMs, resolvedAt);
+    }
+}
@@ -0,0 +1,146 @@
+package com.anonymous.ratownictwo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ServerLocatorTest {
+    private static final long HOUR = 3_600_000L;
+    private static final String TYPE = "_ratownictwo._tcp";
+
+    /**
+     * Stands in for NSD: answers every browse with a fixed result.
+     */
+    private static final class FakeSource implements ServerLocator.Source {
+        List<ServerEndpointCache.Endpoint> endpoints = new ArrayList<>();
+        String error;
+        int browses;
+
+        @Override
+        public void discover(String serviceType, long timeoutMs, long settleMs, int probeTimeoutMs,
+                             Callback callback) {
+            browses++;
+            callback.onComplete(endpoints, 120, error);
+        }
+    }
+
+    private static final class Outcome implements ServerLocator.Result {
+        ServerEndpointCache.Endpoint best;
+        List<ServerEndpointCache.Endpoint> candidates;
+        String origin;
+        String code;
+
+        @Override
+        public void onFound(ServerEndpointCache.Endpoint best, List<ServerEndpointCache.Endpoint> candidates,
+                            String origin, long elapsedMs) {
+            this.best = best;
+            this.candidates = candidates;
+            this.origin = origin;
+        }
+
+        @Override
+        public void onFailed(String code, String message) {
+            this.code = code;
+        }
+    }
+
+    private ServerEndpointCache cache;
+    private FakeSource source;
+    private ServerLocator locator;
+    private int saves;
+
+    @Before
+    public void setUp() {
+        cache = new ServerEndpointCache(4);
+        source = new FakeSource();
+        locator = new ServerLocator(cache, source, () -> saves++);
+    }
+
+    @Test
+    public void freshCacheEntryAnswersWithoutBrowsing() {
+        cache.put("wifi:lab", Arrays.asList(endpoint("cached", 4f, HOUR)));
+
+        Outcome outcome = locate("wifi:lab", false, HOUR + 10);
+
+        assertEquals("cache", outcome.origin);
+        assertEquals("cached", outcome.best.name);
+        assertEquals(0, source.browses);
+    }
+
+    @Test
+    public void staleCacheBrowsesAndReplacesTheEntry() {
+        cache.put("wifi:lab", Arrays.asList(endpoint("old", 4f, 0)));
+        source.endpoints = Arrays.asList(
+            endpoint("slow", 15f, 3 * HOUR),
+            endpoint("down", -1f, 3 * HOUR),
+            endpoint("fast", 2f, 3 * HOUR));
+
+        Outcome outcome = locate("wifi:lab", false, 3 * HOUR);
+
+        assertEquals("discovery", outcome.origin);
+        assertEquals("fast", outcome.best.name);
+        assertEquals(2, outcome.candidates.size());
+        assertEquals("fast", cache.best("wifi:lab", 3 * HOUR, HOUR).name);
+        assertEquals(1, saves);
+    }
+
+    @Test
+    public void forceRefreshBrowsesDespiteAFreshEntry() {
+        cache.put("wifi:lab", Arrays.asList(endpoint("cached", 4f, HOUR)));
+        source.endpoints = Arrays.asList(endpoint("new", 6f, HOUR));
+
+        Outcome outcome = locate("wifi:lab", true, HOUR);
+
+        assertEquals("discovery", outcome.origin);
+        assertEquals("new", outcome.best.name);
+        assertEquals(1, source.browses);
+    }
+
+    @Test
+    public void nothingReachableFallsBackAndKeepsTheCache() {
+        cache.put("wifi:lab", Arrays.asList(endpoint("cached", 4f, HOUR)));
+        source.endpoints = Arrays.asList(endpoint("down", -1f, HOUR));
+
+        Outcome outcome = locate("wifi:lab", true, HOUR);
+
+        assertEquals("NOT_FOUND", outcome.code);
+        assertNull(outcome.best);
+        assertEquals("cached", cache.best("wifi:lab", HOUR, HOUR).name);
+        assertEquals(0, saves);
+    }
+
+    @Test
+    public void browseErrorIsReportedWhenNothingWasFound() {
+        source.error = "Discovery failed to start (3)";
+
+        assertEquals("DISCOVERY_ERROR", locate("wifi:lab", false, 0).code);
+    }
+
+    @Test
+    public void unidentifiedNetworkBrowsesButCachesNothing() {
+        source.endpoints = Arrays.asList(endpoint("found", 3f, 0));
+
+        Outcome outcome = locate(null, false, 0);
+
+        assertEquals("found", outcome.best.name);
+        assertTrue(cache.networkIds().isEmpty());
+        assertEquals(0, saves);
+    }
+
+    private Outcome locate(String networkId, boolean forceRefresh, long now) {
+        Outcome outcome = new Outcome();
+        locator.locate(networkId, TYPE, 3000, 400, 1000, forceRefresh, HOUR, now, outcome);
+        return outcome;
+    }
+
+    private static ServerEndpointCache.Endpoint endpoint(String name, float rttMs, long resolvedAt) {
+        return new ServerEndpointCache.Endpoint(name, "192.168.1.10", 3000, rttMs, resolvedAt);
+    }
+}
@@ -0,0 +1,150 @@
+package com.anonymous.ratownictwo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class SessionStateCodecTest {
+    private static final SessionStateCodec.Schema SCHEMA = SessionStateCodec.STATE;
+
+    private final SessionStateCodec.Encoder encoder = new SessionStateCodec.Encoder(SCHEMA);
+    private final SessionStateCodec.Decoder decoder = new SessionStateCodec.Decoder(SCHEMA);
+    private final SessionStateCodec.Buffer out = new SessionStateCodec.Buffer(64);
+
+    @Test
+    public void fullStateRoundTrips() {
+        SessionStateCodec.State state = session();
+        state.extras.put("note", SessionStateCodec.tagged('s', "zielony"));
+
+        encoder.encode(state, out);
+        SessionStateCodec.State decoded = decode();
+
+        assertEquals("ABC123", decoded.strings[field("sessionCode")]);
+        assertEquals(36.6, decoded.getNumber(field("temperature")), 1e-9);
+        assertEquals(72, decoded.getNumber(field("hr")), 0);
+        assertEquals(1, decoded.numbers[field("isActive")]);
+        assertFalse(decoded.has(field("bp")));
+        assertEquals("szielony", decoded.extras.get("note"));
+        assertFalse(decoder.wasDelta());
+    }
+
+    @Test
+    public void acknowledgedStateTurnsLaterFramesIntoDeltas() {
+        SessionStateCodec.State state = session();
+        state.extras.put("note", SessionStateCodec.tagged('s', "a"));
+        int first = encoder.encode(state, out);
+        int fullLength = out.length;
+        decode();
+        assertTrue(encoder.ack(first));
+
+        state.setNumber(field("hr"), 80);
+        state.present &= ~(1L << field("name"));
+        state.extras.remove("note");
+        state.extras.put("extra", SessionStateCodec.tagged('b', "1"));
+        encoder.encode(state, out);
+        assertTrue(out.length < fullLength);
+
+        SessionStateCodec.State decoded = decode();
+        assertTrue(decoder.wasDelta());
+        assertEquals(80, decoded.getNumber(field("hr")), 0);
+        assertFalse(decoded.has(field("name")));
+        assertEquals("ABC123", decoded.strings[field("sessionCode")]);
+        assertNull(decoded.extras.get("note"));
+        assertEquals("b1", decoded.extras.get("extra"));
+    }
+
+    @Test
+    public void nullIsSentAsNullNotAsAbsent() {
+        SessionStateCodec.State state = session();
+        int first = encoder.encode(state, out);
+        decode();
+        encoder.ack(first);
+
+        state.setNull(field("name"));
+        state.setNull(field("hr"));
+        encoder.encode(state, out);
+        SessionStateCodec.State decoded = decode();
+        assertTrue(decoded.has(field("name")));
+        assertTrue(decoded.isNull(field("name")));
+        assertNull(decoded.strings[field("name")]);
+        assertTrue(decoded.isNull(field("hr")));
+
+        // And back to a value: the number is not a delta against the null
+        state.setNumber(field("hr"), 64);
+        encoder.encode(state, out);
+        decoded = decode();
+        assertFalse(decoded.isNull(field("hr")));
+        assertEquals(64, decoded.getNumber(field("hr")), 0);
+    }
+
+    @Test
+    public void unchangedStringsAreNotAllocatedAgain() {
+        SessionStateCodec.State state = session();
+        state.extras.put("note", SessionStateCodec.tagged('s', "abc"));
+        int first = encoder.encode(state, out);
+        SessionStateCodec.State decoded = decode();
+        String code = decoded.strings[field("sessionCode")];
+        String note = decoded.extras.get("note");
+        encoder.ack(first);
+
+        // A reset forces a full frame that repeats every value
+        encoder.reset();
+        state.setNumber(field("hr"), 90);
+        encoder.encode(state, out);
+        decoded = decode();
+        assertSame(code, decoded.strings[field("sessionCode")]);
+        assertSame(note, decoded.extras.get("note"));
+    }
+
+    @Test
+    public void deltaAgainstAForgottenBaseIsRejected() {
+        SessionStateCodec.State state = session();
+        int first = encoder.encode(state, out);
+        encoder.ack(first);
+        state.setNumber(field("hr"), 99);
+        encoder.encode(state, out);
+        try {
+            decode();
+            fail("Expected a missing base");
+        } catch (IllegalStateException expected) {
+            // The receiver never saw the full frame
+        }
+    }
+
+    @Test
+    public void truncatedFrameIsRejected() {
+        encoder.encode(session(), out);
+        byte[] frame = Arrays.copyOf(out.data, out.length - 2);
+        try {
+            decoder.decode(frame, 0, frame.length);
+            fail("Expected a malformed frame");
+        } catch (IllegalArgumentException expected) {
+            // Ran out of bytes inside the values
+        }
+    }
+
+    private SessionStateCodec.State decode() {
+        return decoder.decode(Arrays.copyOf(out.data, out.length), 0, out.length);
+    }
+
+    private static int field(String name) {
+        return SCHEMA.indexOf(name);
+    }
+
+    private static SessionStateCodec.State session() {
+        SessionStateCodec.State state = new SessionStateCodec.State(SCHEMA);
+        state.setString(field("sessionCode"), "ABC123");
+        state.setString(field("name"), "Scenariusz 1");
+        state.setNumber(field("temperature"), 36.6);
+        state.setNumber(field("hr"), 72);
+        state.setBoolean(field("isActive"), true);
+        return state;
+    }
+}
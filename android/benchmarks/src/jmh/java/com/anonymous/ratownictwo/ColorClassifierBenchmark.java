@@ -0,0 +1,89 @@
+package com.anonymous.ratownictwo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-reading cost of ColorClassifierModule.onReading (table lookup plus
+ * hysteresis) and the cost of rebuilding the table when JS edits a colour.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ColorClassifierBenchmark {
+    private static final int READINGS = 1024;
+    private static final int DEBOUNCE_SAMPLES = 3;
+
+    // The colours configured in the training scenarios
+    private static final int[][] PROTOTYPES = {
+        {255, 0, 0}, {0, 255, 0}, {0, 0, 255}, {255, 255, 0},
+        {255, 0, 255}, {0, 255, 255}, {255, 128, 0}, {128, 0, 255},
+    };
+
+    private final ColorLookupTable table = new ColorLookupTable();
+    private final ColorClassTracker tracker = new ColorClassTracker();
+    private final int[] red = new int[READINGS];
+    private final int[] green = new int[READINGS];
+    private final int[] blue = new int[READINGS];
+    private int edits;
+
+    @Setup
+    public void setUp() {
+        int n = PROTOTYPES.length;
+        int[] ids = new int[n];
+        int[] r = new int[n];
+        int[] g = new int[n];
+        int[] b = new int[n];
+        float[] tolerance = new float[n];
+        boolean[] enabled = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+            r[i] = PROTOTYPES[i][0];
+            g[i] = PROTOTYPES[i][1];
+            b[i] = PROTOTYPES[i][2];
+            tolerance[i] = 0.15f;
+            enabled[i] = true;
+        }
+        table.setAll(n, ids, r, g, b, tolerance, enabled);
+
+        // Runs of readings around one colour, like a sensor held over a marker
+        Random random = new Random(42);
+        int[] current = PROTOTYPES[0];
+        for (int i = 0; i < READINGS; i++) {
+            if (i % 64 == 0) {
+                current = PROTOTYPES[random.nextInt(n)];
+            }
+            red[i] = Math.max(0, current[0] * 8 + random.nextInt(200) - 100);
+            green[i] = Math.max(0, current[1] * 8 + random.nextInt(200) - 100);
+            blue[i] = Math.max(0, current[2] * 8 + random.nextInt(200) - 100);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public int classify() {
+        int changes = 0;
+        for (int i = 0; i < READINGS; i++) {
+            int cell = table.cellOf(red[i], green[i], blue[i]);
+            if (tracker.update(table.strictAt(cell), table.looseAt(cell), DEBOUNCE_SAMPLES) != ColorClassTracker.UNCHANGED) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    @Benchmark
+    public boolean updatePrototype() {
+        int shift = (edits++ & 15) * 4;
+        return table.update(1, 255, shift, shift, 0.15f, true);
+    }
+}
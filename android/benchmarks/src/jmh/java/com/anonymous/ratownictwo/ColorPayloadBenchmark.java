@@ -0,0 +1,77 @@
+package com.anonymous.ratownictwo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-notification cost of BleColorSensorModule.onNotification without the
+ * GATT callback: decoding the payload and writing it to the sample ring.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ColorPayloadBenchmark {
+    private static final int PAYLOADS = 1024;
+
+    private final byte[][] payloads = new byte[PAYLOADS][];
+    private final int[] decoded = new int[3];
+    private ColorSampleBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < PAYLOADS; i++) {
+            int r;
+            int g;
+            int b;
+            // Mostly real readings, with the sentinel and idle LED frames the sensor also sends
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                r = g = b = 1000;
+            } else if (kind == 1) {
+                r = g = b = 480 + random.nextInt(5);
+            } else {
+                r = random.nextInt(4096);
+                g = random.nextInt(4096);
+                b = random.nextInt(4096);
+            }
+            payloads[i] = new byte[] {
+                (byte) (r >> 8), (byte) r, (byte) (g >> 8), (byte) g, (byte) (b >> 8), (byte) b
+            };
+        }
+        buffer = new ColorSampleBuffer(256);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAYLOADS)
+    public int decode() {
+        int valid = 0;
+        for (byte[] payload : payloads) {
+            if (ColorPayloadDecoder.decode(payload, payload.length, decoded)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAYLOADS)
+    public long decodeAndBuffer() {
+        long timestamp = 0;
+        for (byte[] payload : payloads) {
+            if (ColorPayloadDecoder.decode(payload, payload.length, decoded)) {
+                buffer.write(decoded[0], decoded[1], decoded[2], timestamp++);
+            }
+        }
+        return buffer.getTotalWritten();
+    }
+}
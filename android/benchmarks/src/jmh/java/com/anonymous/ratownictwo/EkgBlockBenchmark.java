@@ -0,0 +1,79 @@
+package com.anonymous.ratownictwo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one EKG block from EkgEngine.generate, with and without noise.
+ * Divide by blockSize for the per-sample cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EkgBlockBenchmark {
+    private static final int RECORDING_POINTS = 500;
+    private static final float RECORDING_RATE = 500f;
+
+    @Param({"16", "250"})
+    public int blockSize;
+
+    @Param({"0", "3"})
+    public int noiseType;
+
+    private EkgEngine engine;
+    private float[] block;
+
+    @Setup
+    public void setUp() {
+        engine = new EkgEngine(EkgEngine.DEFAULT_SAMPLE_RATE);
+        engine.setRhythm(syntheticBeat());
+        engine.setBpm(EkgEngine.DEFAULT_BPM);
+        engine.getSynthesizer().setNoise(EkgNoiseProfile.preset(noiseType));
+        block = new float[blockSize];
+        // Past the rhythm crossfade and BPM glide
+        for (int i = 0; i < 100; i++) {
+            engine.generate(block, blockSize);
+        }
+    }
+
+    @Benchmark
+    public float[] generate() {
+        engine.generate(block, blockSize);
+        return block;
+    }
+
+    /**
+     * One beat of roughly P, QRS and T waves, in the same units as the
+     * bundled recordings (timestamps / sample rate are milliseconds).
+     */
+    private static EkgRhythm syntheticBeat() {
+        float beatMs = 60000f / EkgEngine.DEFAULT_BPM;
+        float[] timestamps = new float[RECORDING_POINTS];
+        float[] values = new float[RECORDING_POINTS];
+        for (int i = 0; i < RECORDING_POINTS; i++) {
+            float t = (float) i / (RECORDING_POINTS - 1);
+            timestamps[i] = t * beatMs * RECORDING_RATE;
+            values[i] = EkgRhythm.DEFAULT_MIDPOINT
+                + wave(t, 0.15f, 0.025f, 8f)
+                - wave(t, 0.28f, 0.008f, 6f)
+                + wave(t, 0.30f, 0.010f, 60f)
+                - wave(t, 0.32f, 0.008f, 12f)
+                + wave(t, 0.50f, 0.040f, 15f);
+        }
+        return new EkgRhythm("benchmark", RECORDING_RATE, 1, EkgRhythm.DEFAULT_MIDPOINT,
+            timestamps, values, RECORDING_POINTS);
+    }
+
+    private static float wave(float t, float center, float width, float height) {
+        float d = (t - center) / width;
+        return (float) (height * Math.exp(-0.5 * d * d));
+    }
+}
@@ -0,0 +1,114 @@
+package com.anonymous.ratownictwo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the networkChanged and networkQuality events that
+ * NetworkUtilsModule.sendEvent sends, including the probe statistics they
+ * are made from.
+ *
+ * WritableNativeMap is backed by JNI and cannot be created off-device, so
+ * NetworkEventFields writes into a HashMap sink here, which is what React
+ * Native's JavaOnlyMap uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NetworkEventBenchmark {
+    private static final float[] PERCENTILES = {50f, 90f, 95f, 99f};
+    private static final int WINDOW = 20;
+
+    private final NetworkRttWindow window = new NetworkRttWindow(WINDOW);
+    private final NetworkQualityScore quality = new NetworkQualityScore();
+    private final NetworkProbe.Stats stats = new NetworkProbe.Stats();
+    private final long[] rtts = new long[256];
+    private NetworkStateStore.Snapshot snapshot;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < rtts.length; i++) {
+            // Mostly 5-40 ms on the training Wi-Fi with the occasional loss
+            rtts[i] = random.nextInt(50) == 0 ? -1 : 5_000 + random.nextInt(35_000);
+        }
+        for (int i = 0; i < WINDOW; i++) {
+            window.addRtt(rtts[i]);
+        }
+        stats.link.transport = "wifi";
+        stats.link.rssiDbm = -58;
+        snapshot = new NetworkStateStore.Snapshot(true, 1, true, false, 101L, System.currentTimeMillis(), 0L);
+    }
+
+    @Benchmark
+    public Map<String, Object> networkChanged() {
+        HashMapSink params = new HashMapSink();
+        NetworkEventFields.networkChanged(snapshot, params);
+        return params.map;
+    }
+
+    /**
+     * One probe result: window update, scoring and the event built from it.
+     */
+    @Benchmark
+    public Map<String, Object> networkQuality() {
+        long rtt = rtts[next++ & (rtts.length - 1)];
+        if (rtt >= 0) {
+            window.addRtt(rtt);
+        } else {
+            window.addLoss();
+        }
+        window.percentiles(PERCENTILES, stats.percentilesMs);
+        int previousLevel = quality.getLevel();
+        quality.update(stats.percentilesMs[0], stats.percentilesMs[2], window.getJitterMs(),
+            window.getLossRate(), stats.link.rssiDbm);
+        stats.jitterMs = window.getJitterMs();
+        stats.lossRate = window.getLossRate();
+        stats.score = quality.getScore();
+        stats.level = quality.getLevel();
+
+        HashMapSink params = new HashMapSink();
+        NetworkEventFields.qualityChanged(stats, previousLevel, params);
+        return params.map;
+    }
+
+    private static final class HashMapSink implements NetworkEventFields.Sink {
+        final Map<String, Object> map = new HashMap<>();
+
+        @Override
+        public void putBoolean(String key, boolean value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public void putInt(String key, int value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public void putDouble(String key, double value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public void putString(String key, String value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public void putNull(String key) {
+            map.put(key, null);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.anonymous.ratownictwo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-reading cost of the BleSensorHubModule queue: the sensor loop offering
+ * readings from several sensors and the flush draining them in batches.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SensorQueueBenchmark {
+    private static final int READINGS = 1024;
+    private static final int BATCH = 256;
+
+    @Param({"1", "4"})
+    public int sensorCount;
+
+    private final int[] outSensor = new int[BATCH];
+    private final int[] outR = new int[BATCH];
+    private final int[] outG = new int[BATCH];
+    private final int[] outB = new int[BATCH];
+    private final long[] outT = new long[BATCH];
+    private SensorSampleQueue queue;
+    private long timestamp;
+
+    @Setup
+    public void setUp() {
+        queue = new SensorSampleQueue(1024, sensorCount);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public int offerAndDrain() {
+        int drained = 0;
+        for (int i = 0; i < READINGS; i++) {
+            queue.offer(i % sensorCount, i, i + 1, i + 2, timestamp++);
+            // One flush per batch, as the interval timer would
+            if ((i + 1) % BATCH == 0) {
+                drained += queue.drain(outSensor, outR, outG, outB, outT);
+            }
+        }
+        return drained;
+    }
+}
@@ -3,10 +3,12 @@ import { Platform } from 'react-native';
 import { Audio, InterruptionModeAndroid, InterruptionModeIOS } from 'expo-av';
 import { useFocusEffect } from '@react-navigation/native';
 import { socketService } from '@/services/SocketService';
+import { cueSoundService } from '@/services/CueSoundService';
 import {
   loadAudioWithRetry,
   loadAudioFromServer,
   debugMobileAudio,
+  localSoundAsset,
 } from '../utils/audioUtils';
 import type {
   SoundQueueItem,
@@ -21,6 +23,10 @@ export const useAudioManager = (
   const [audioReady, setAudioReady] = useState(false);
   const [isPlayingServerAudio, setIsPlayingServerAudio] = useState(false);
   const soundInstances = useRef<Record<string, Audio.Sound>>({});
+  // Bundled cues played by the native engine, by sound name
+  const cueVoices = useRef<
+    Record<string, { voiceId: number; durationMs: number }>
+  >({});
   const [currentLocalSound, setCurrentLocalSound] = useState<string | null>(
     null
   );
@@ -86,6 +92,11 @@ export const useAudioManager = (
       'Adult/Female/Screaming.wav',
     ];
     for (const soundName of criticalSounds) {
+      const asset = localSoundAsset(soundName);
+      if (cueSoundService.isAvailable && asset) {
+        await cueSoundService.preload(soundName, asset);
+        continue;
+      }
       if (!soundInstances.current[soundName]) {
         try {
           const sound = await loadAudioWithRetry(soundName);
@@ -117,6 +128,20 @@ export const useAudioManager = (
           } catch {}
           delete soundInstances.current[key];
         }
+        if (Object.keys(cueVoices.current).length > 0) {
+          cueVoices.current = {};
+          await cueSoundService.stopAll();
+        }
+
+        const asset = localSoundAsset(soundName);
+        if (cueSoundService.isAvailable && asset) {
+          const cue = await cueSoundService.play(soundName, asset, { loop });
+          if (cue) {
+            cueVoices.current[soundName] = cue;
+            setCurrentLocalSound(soundName);
+            return;
+          }
+        }
 
         let sound = soundInstances.current[soundName];
         if (!sound) {
@@ -154,6 +179,13 @@ export const useAudioManager = (
 
   const handleSoundStop = useCallback(
     async (soundName: string) => {
+      const cue = cueVoices.current[soundName];
+      if (cue) {
+        delete cueVoices.current[soundName];
+        await cueSoundService.stop(cue.voiceId);
+        if (currentLocalSound === soundName) setCurrentLocalSound(null);
+        return;
+      }
       const sound = soundInstances.current[soundName];
       if (!sound) return;
       try {
@@ -169,6 +201,11 @@ export const useAudioManager = (
   );
 
   const handleSoundPause = useCallback(async (soundName: string) => {
+    const cue = cueVoices.current[soundName];
+    if (cue) {
+      await cueSoundService.pause(cue.voiceId);
+      return;
+    }
     const sound = soundInstances.current[soundName];
     if (!sound) return;
     try {
@@ -179,6 +216,11 @@ export const useAudioManager = (
   }, []);
 
   const handleSoundResume = useCallback(async (soundName: string) => {
+    const cue = cueVoices.current[soundName];
+    if (cue) {
+      await cueSoundService.resume(cue.voiceId);
+      return;
+    }
     const sound = soundInstances.current[soundName];
     if (!sound) return;
     try {
@@ -240,6 +282,11 @@ export const useAudioManager = (
             for (const item of payload.soundName) {
               if (item.delay) await new Promise(r => setTimeout(r, item.delay));
               await handleSoundPlayback(item.soundName, false);
+              const cue = cueVoices.current[item.soundName];
+              if (cue) {
+                await new Promise(r => setTimeout(r, cue.durationMs));
+                continue;
+              }
               await new Promise<void>(resolve => {
                 const inst = soundInstances.current[item.soundName];
                 if (!inst) return resolve();
@@ -318,6 +365,8 @@ export const useAudioManager = (
         } catch {}
       });
       soundInstances.current = {};
+      cueVoices.current = {};
+      cueSoundService.stopAll().catch(() => {});
     };
   }, []);
 
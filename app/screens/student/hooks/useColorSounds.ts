@@ -1,7 +1,12 @@
 import { useState, useEffect, useCallback, useRef } from 'react';
 import { Audio } from 'expo-av';
 import { ColorConfig } from '@/services/ColorConfigService';
-import { loadAudioFromLocal, loadAudioFromServer } from '../utils/audioUtils';
+import { cueSoundService } from '@/services/CueSoundService';
+import {
+  loadAudioFromLocal,
+  loadAudioFromServer,
+  localSoundAsset,
+} from '../utils/audioUtils';
 
 interface UseColorSoundsReturn {
   playColorSound: (config: ColorConfig) => Promise<void>;
@@ -29,6 +34,9 @@ export const useColorSounds = (): UseColorSoundsReturn => {
 
   const currentSoundKeyRef = useRef<string | null>(null);
 
+  // Voice of a bundled sound playing in the native cue engine
+  const cueVoiceRef = useRef<number | null>(null);
+
   const MAX_SOUND_PLAY_TIME = 500;
 
   useEffect(() => {
@@ -67,6 +75,7 @@ export const useColorSounds = (): UseColorSoundsReturn => {
     const soundToStop = currentSoundRef.current || currentSound;
     const soundName = currentSoundKeyRef.current || playingSound;
     const colorName = playingColor;
+    const cueVoice = cueVoiceRef.current;
 
     setCurrentSound(null);
     setPlayingSound(null);
@@ -76,8 +85,14 @@ export const useColorSounds = (): UseColorSoundsReturn => {
     currentSoundKeyRef.current = null;
     isPlayingToCompletionRef.current = false;
     soundStartTimeRef.current = 0;
+    cueVoiceRef.current = null;
 
     try {
+      if (cueVoice !== null) {
+        await cueSoundService
+          .stop(cueVoice)
+          .catch(e => console.warn(`⚠️ [${stopId}] Error stopping cue:`, e));
+      }
       if (soundToStop) {
         try {
           const status = await soundToStop.getStatusAsync();
@@ -146,6 +161,50 @@ export const useColorSounds = (): UseColorSoundsReturn => {
 
       setIsLoadingAudio(true);
 
+      const asset = config.serverAudioId
+        ? undefined
+        : localSoundAsset(config.soundName || '');
+      if (cueSoundService.isAvailable && asset) {
+        if (
+          cueVoiceRef.current !== null &&
+          currentSoundKeyRef.current === soundKey
+        ) {
+          setPlayingColor(config.color);
+          return;
+        }
+        await stopAllAudio();
+
+        const cue = await cueSoundService.play(soundKey, asset, {
+          loop: config.isLooping || false,
+          volume:
+            typeof config.volume === 'number'
+              ? Math.min(1, Math.max(0, config.volume))
+              : undefined,
+        });
+        if (cue) {
+          cueVoiceRef.current = cue.voiceId;
+          currentSoundKeyRef.current = soundKey;
+          setPlayingSound(soundKey);
+          setPlayingColor(config.color);
+          isPlayingToCompletionRef.current = true;
+          soundStartTimeRef.current = Date.now();
+
+          if (!config.isLooping) {
+            setTimeout(() => {
+              if (cueVoiceRef.current === cue.voiceId) {
+                cueVoiceRef.current = null;
+                currentSoundKeyRef.current = null;
+                setPlayingSound(null);
+                setPlayingColor(null);
+                isPlayingToCompletionRef.current = false;
+                soundStartTimeRef.current = 0;
+              }
+            }, cue.durationMs);
+          }
+          return;
+        }
+      }
+
       const currentSoundInstance = currentSoundRef.current;
       if (currentSoundKeyRef.current && currentSoundInstance) {
         try {
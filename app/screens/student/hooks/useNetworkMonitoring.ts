@@ -3,6 +3,7 @@ import { Platform } from 'react-native';
 import { socketService } from '@/services/SocketService';
 import { networkMonitorService } from '@/services/NetworkMonitorService';
 import { wifiKeepAliveService } from '@/services/WifiKeepAliveService';
+import { foregroundSessionService } from '@/services/ForegroundSessionService';
 
 export const useNetworkMonitoring = () => {
   useEffect(() => {
@@ -14,9 +15,15 @@ export const useNetworkMonitoring = () => {
 
         await socketService.connect();
 
+        try {
+          await foregroundSessionService.start();
+        } catch (error) {
+          console.error('Error starting foreground session:', error);
+        }
+
         setTimeout(async () => {
           try {
-            await wifiKeepAliveService.enableWebSocketKeepAlive();
+            await wifiKeepAliveService.enableWebSocketKeepAlive('networkMonitoring');
             console.log('WebSocket keep-alive enabled');
           } catch (error) {
             console.error('Error enabling WebSocket keep-alive:', error);
@@ -41,8 +48,12 @@ export const useNetworkMonitoring = () => {
 
       try {
         Promise.all([
+          foregroundSessionService
+            .stop()
+            .catch(e => console.error('Error stopping foreground session:', e)),
+
           wifiKeepAliveService
-            .disableWebSocketKeepAlive()
+            .disableWebSocketKeepAlive('networkMonitoring')
             .then(() => console.log('WebSocket keep-alive disabled'))
             .catch(e =>
               console.error('Error disabling WebSocket keep-alive:', e)
@@ -165,6 +165,16 @@ export const loadAudioFromServer = async (
   }
 };
 
+/**
+ * The bundled asset for a sound name, with or without the .wav extension.
+ */
+export const localSoundAsset = (soundName: string): any => {
+  const soundNameWithExt = soundName.endsWith('.wav')
+    ? soundName
+    : `${soundName}.wav`;
+  return soundFiles[soundNameWithExt] ?? soundFiles[soundName];
+};
+
 export const loadAudioFromLocal = async (
   soundName: string
 ): Promise<Audio.Sound | null> => {
@@ -1,6 +1,7 @@
 import React, {
   useState,
   useEffect,
+  useMemo,
   forwardRef,
   useImperativeHandle,
 } from 'react';
@@ -14,43 +15,61 @@ import {
   RefreshControl,
   Platform,
   ScrollView,
-  NativeModules,
   Linking,
+  NativeEventEmitter,
 } from 'react-native';
 import BluetoothSerial from 'react-native-bluetooth-classic';
 import { Audio } from 'expo-av';
 import { Picker } from '@react-native-picker/picker';
 import sounds from '../soundList';
 import { useTheme } from 'react-native-paper';
+import NativeBluetoothModule, {
+  BluetoothBatchSummary,
+  BluetoothDeviceState,
+  Spec,
+} from '@/specs/NativeBluetoothModule';
 
 interface Device {
   id: string;
   name: string | null;
   address: string;
-  connected: boolean;
-  deviceClass: number | null;
+  deviceClass?: number | null;
+  isComputer?: boolean;
   profiles?: string[];
 }
 export interface BluetoothComponentRef {
   playSound: (soundName: string) => Promise<void>;
   disconnectAll: () => Promise<void>;
 }
-type NativeBluetoothModule = {
-  disconnectAudio(): void;
-  getDeviceProfiles(deviceAddress: string): Promise<string[]>;
-  connectToDevice(deviceAddress: string): Promise<string>;
-  openBluetoothSettings(): Promise<void>;
-};
-
-const { BluetoothModule } = NativeModules;
-const nativeBluetoothModule = BluetoothModule as NativeBluetoothModule;
+// Null where the native module is not registered (web, old builds)
+const nativeBluetoothModule: Spec | null = NativeBluetoothModule;
+
+const hasAudioProfile = (device: Device): boolean =>
+  !!device.profiles?.includes('A2DP') || !!device.profiles?.includes('HFP');
+
+// Native state is keyed by the upper-case MAC address
+const addressKey = (address: string): string => address.toUpperCase();
+
+const deviceFromState = (state: BluetoothDeviceState): Device => ({
+  id: state.address,
+  name: state.name,
+  address: state.address,
+  profiles: [
+    ...(state.a2dp === 'connected' ? ['A2DP'] : []),
+    ...(state.hfp === 'connected' ? ['HFP'] : []),
+  ],
+});
 
 export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
   (props, ref) => {
     const [devices, setDevices] = useState<Device[]>([]);
     const [isScanning, setIsScanning] = useState(false);
     const [error, setError] = useState<string | null>(null);
-    const [connectedDevices, setConnectedDevices] = useState<Device[]>([]);
+    // SPP connections; headset connections come from deviceStates
+    const [serialDevices, setSerialDevices] = useState<Device[]>([]);
+    const [deviceStates, setDeviceStates] = useState<{
+      [address: string]: BluetoothDeviceState;
+    }>({});
     const [refreshing, setRefreshing] = useState(false);
     const [showConnectionStatus, setShowConnectionStatus] = useState(false);
     const [selectedSound, setSelectedSound] = useState<
@@ -60,8 +79,26 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
       [key: string]: Audio.Sound;
     }>({});
     const [isSoundListExpanded, setIsSoundListExpanded] = useState(false);
+    const [isConnectingAll, setIsConnectingAll] = useState(false);
     const { colors } = useTheme();
 
+    const connectedDevices = useMemo(() => {
+      const audioDevices = Object.values(deviceStates)
+        .filter(state => state.audioConnected)
+        .map(deviceFromState);
+      return [
+        ...audioDevices,
+        ...serialDevices.filter(
+          d => !deviceStates[addressKey(d.address)]?.audioConnected
+        ),
+      ];
+    }, [deviceStates, serialDevices]);
+
+    const connectedAddresses = useMemo(
+      () => new Set(connectedDevices.map(d => addressKey(d.address))),
+      [connectedDevices]
+    );
+
     useImperativeHandle(ref, () => ({
       playSound: async (soundName: string) => {
         const soundToPlay = sounds.find(s => s.name === soundName);
@@ -102,16 +139,9 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
     useEffect(() => {
       const subscription = BluetoothSerial.onDeviceDisconnected(
         disconnectedDevice => {
-          setConnectedDevices(prev =>
+          setSerialDevices(prev =>
             prev.filter(d => d.address !== disconnectedDevice.address)
           );
-          setDevices(prev =>
-            prev.map(d =>
-              d.address === disconnectedDevice.address
-                ? { ...d, connected: false }
-                : d
-            )
-          );
         }
       );
 
@@ -120,6 +150,38 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
       };
     }, []);
 
+    // Headset state is pushed from native; the list is never re-queried
+    useEffect(() => {
+      if (Platform.OS !== 'android' || !nativeBluetoothModule) {
+        return;
+      }
+
+      const emitter = new NativeEventEmitter(nativeBluetoothModule);
+      const subscription = emitter.addListener(
+        'bluetoothDeviceState',
+        (event: { changes: BluetoothDeviceState[] }) => {
+          setDeviceStates(prev => {
+            const next = { ...prev };
+            event.changes.forEach(state => {
+              next[state.address] = state;
+            });
+            return next;
+          });
+        }
+      );
+
+      const seeded: { [address: string]: BluetoothDeviceState } = {};
+      nativeBluetoothModule.getDeviceStates().forEach(state => {
+        seeded[state.address] = state;
+      });
+      // Events that arrived before the seed are newer; keep them
+      setDeviceStates(prev => ({ ...seeded, ...prev }));
+
+      return () => {
+        subscription.remove();
+      };
+    }, []);
+
     const cleanup = () => {
       try {
         if (
@@ -201,19 +263,27 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
       }
     };
 
-    const checkDeviceProfiles = async (
-      deviceAddress: string
-    ): Promise<string[]> => {
+    // One native call for the whole list instead of one query per device
+    const loadDeviceProfiles = async (addresses: string[]) => {
+      if (
+        Platform.OS !== 'android' ||
+        !nativeBluetoothModule ||
+        addresses.length === 0
+      ) {
+        return;
+      }
       try {
-        if (Platform.OS === 'android') {
-          const profiles = await nativeBluetoothModule.getDeviceProfiles(
-            deviceAddress
-          );
-          return profiles || [];
-        }
-        return [];
+        const profiles = (await nativeBluetoothModule.getDeviceProfilesBatch(
+          addresses
+        )) as { [address: string]: string[] };
+        setDevices(prev =>
+          prev.map(d => {
+            const found = profiles[d.address.toUpperCase()];
+            return found ? { ...d, profiles: found } : d;
+          })
+        );
       } catch (error) {
-        return [];
+        console.warn('Błąd odczytu profili urządzeń:', error);
       }
     };
 
@@ -269,15 +339,11 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
       if (!selectedSound || connectedDevices.length === 0) return;
 
       try {
-        const activeConnections = connectedDevices.filter(
-          device => device.connected
-        );
-
         if (selectedSound && soundObjects[selectedSound.name]) {
           await playSound(selectedSound.name);
         }
 
-        const sendPromises = activeConnections.map(async device => {
+        const sendPromises = connectedDevices.map(async device => {
           try {
             if (
               device.profiles?.includes('A2DP') ||
@@ -306,24 +372,19 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
         }
         await Audio.setIsEnabledAsync(false);
 
-        if (Platform.OS === 'android') {
-          await nativeBluetoothModule.disconnectAudio();
-          await new Promise(resolve => setTimeout(resolve, 1000));
+        if (
+          Platform.OS === 'android' &&
+          nativeBluetoothModule &&
+          deviceStates[addressKey(device.address)]?.audioConnected
+        ) {
+          // The state event drops it from the list once it is down
+          await nativeBluetoothModule.disconnectAudioDevice(device.address);
+        } else {
+          await BluetoothSerial.disconnectFromDevice(device.address);
+          setSerialDevices(prev =>
+            prev.filter(d => d.address !== device.address)
+          );
         }
-
-        await BluetoothSerial.disconnectFromDevice(device.address);
-
-        await new Promise(resolve => setTimeout(resolve, 500));
-
-        setConnectedDevices(prev =>
-          prev.filter(d => d.address !== device.address)
-        );
-
-        setDevices(prev =>
-          prev.map(d =>
-            d.address === device.address ? { ...d, connected: false } : d
-          )
-        );
       } catch (err) {
         console.error('Błąd rozłączania:', err);
         setError('Rozłączenie nie powiodło się. Sprawdź ustawienia Bluetooth.');
@@ -335,26 +396,51 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
       try {
         await Audio.setIsEnabledAsync(false);
 
-        if (Platform.OS === 'android') {
-          nativeBluetoothModule.disconnectAudio();
+        const audioDevices = connectedDevices.filter(hasAudioProfile);
+        const serialDevices = connectedDevices.filter(
+          d => !hasAudioProfile(d)
+        );
+        const failedDevices: Device[] = [];
+
+        if (
+          Platform.OS === 'android' &&
+          nativeBluetoothModule &&
+          audioDevices.length > 0
+        ) {
+          const summary = (await nativeBluetoothModule.disconnectDevices(
+            audioDevices.map(d => d.address),
+            0,
+            0,
+            null
+          )) as BluetoothBatchSummary;
+          summary.results
+            .filter(result => !result.success)
+            .forEach(result => {
+              const device = audioDevices.find(
+                d => d.address.toUpperCase() === result.address
+              );
+              if (device) {
+                failedDevices.push(device);
+              }
+            });
         }
 
         const results = await Promise.allSettled(
-          connectedDevices.map(device =>
+          serialDevices.map(device =>
             BluetoothSerial.disconnectFromDevice(device.address)
           )
         );
+        results.forEach((result, index) => {
+          if (result.status === 'rejected') {
+            failedDevices.push(serialDevices[index]);
+          }
+        });
 
-        const failedDevices = results
-          .map((result, index) => ({ result, device: connectedDevices[index] }))
-          .filter(({ result }) => result.status === 'rejected');
-
-        setConnectedDevices([]);
-        setDevices(prev => prev.map(d => ({ ...d, connected: false })));
+        setSerialDevices(prev => prev.filter(d => failedDevices.includes(d)));
 
         if (failedDevices.length > 0) {
           const names = failedDevices.map(
-            ({ device }) => device.name || device.address
+            device => device.name || device.address
           );
           setError(`Nie udało się rozłączyć: ${names.join(', ')}`);
         } else {
@@ -413,10 +499,11 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
           id: device.address,
           name: device.name,
           address: device.address,
-          connected: false,
           isComputer: isLikelyComputer(device),
         }));
         setDevices(enhancedBondedDevices);
+        loadDeviceProfiles(enhancedBondedDevices.map(d => d.address));
+        const discovered: string[] = [];
         const discoverySubscription = BluetoothSerial.onDeviceDiscovered(
           device => {
             setDevices(prevDevices => {
@@ -424,13 +511,13 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
                 d => d.address === device.address
               );
               if (exists) return prevDevices;
+              discovered.push(device.address);
               return [
                 ...prevDevices,
                 {
                   id: device.address,
                   name: device.name,
                   address: device.address,
-                  connected: false,
                   isComputer: isLikelyComputer(device),
                 },
               ];
@@ -446,6 +533,7 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
             if (discoverySubscription) {
               discoverySubscription.remove();
             }
+            loadDeviceProfiles(discovered);
           } catch (error) {
             console.warn('Błąd podczas anulowania wyszukiwania:', error);
           } finally {
@@ -482,96 +570,78 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
           return;
         }
 
-        const isAlreadyConnected = connectedDevices.some(
-          d => d.address === device.address
-        );
-        if (isAlreadyConnected) {
+        if (connectedAddresses.has(addressKey(device.address))) {
           setError(`Już połączono z ${device.name || device.address}`);
           setShowConnectionStatus(true);
           return;
         }
 
-        const profiles = await checkDeviceProfiles(device.address);
-        let connection;
-        if (profiles.includes('A2DP') || profiles.includes('HFP')) {
-          const result = await nativeBluetoothModule.connectToDevice(
+        if (nativeBluetoothModule && hasAudioProfile(device)) {
+          // The state event adds it to the connected list
+          await nativeBluetoothModule.connectToDevice(device.address);
+          await Audio.setIsEnabledAsync(true);
+        } else {
+          const connection = await BluetoothSerial.connectToDevice(
             device.address
           );
-          connection = result === 'SUCCESS';
-        } else {
-          connection = await BluetoothSerial.connectToDevice(device.address);
-        }
-
-        if (connection) {
+          if (!connection) {
+            setError(
+              `Nie udało się połączyć z ${device.name || device.address}`
+            );
+            setShowConnectionStatus(true);
+            return;
+          }
           await Audio.setIsEnabledAsync(true);
-
-          const updatedDevice = {
-            ...device,
-            connected: true,
-            profiles: profiles,
-          };
-
-          setConnectedDevices(prev => [...prev, updatedDevice]);
-          setDevices(prev =>
-            prev.map(d => (d.id === device.id ? updatedDevice : d))
-          );
-
-          setError(`Połączono z ${device.name || device.address}`);
-          setShowConnectionStatus(true);
-
-          BluetoothSerial.onDeviceDisconnected(disconnectedDevice => {
-            if (disconnectedDevice.address === device.address) {
-              setConnectedDevices(prev =>
-                prev.filter(d => d.address !== disconnectedDevice.address)
-              );
-              setDevices(prev =>
-                prev.map(d =>
-                  d.id === disconnectedDevice.address
-                    ? { ...d, connected: false }
-                    : d
-                )
-              );
-            }
-          });
-        } else {
-          setError(`Nie udało się połączyć z ${device.name || device.address}`);
-          setShowConnectionStatus(true);
+          setSerialDevices(prev => [...prev, device]);
         }
+
+        setError(`Połączono z ${device.name || device.address}`);
+        setShowConnectionStatus(true);
       } catch (err) {
         const error = err as Error;
         console.error('Pełny błąd połączenia:', error);
         setError('Błąd połączenia: ' + error.message);
         setShowConnectionStatus(true);
+      }
+    };
 
-        if (
-          error.message.includes('socket') ||
-          error.message.includes('timeout')
-        ) {
-          try {
-            await nativeBluetoothModule.connectToDevice(device.address);
-            await Audio.setIsEnabledAsync(true);
-
-            const updatedDevice = {
-              ...device,
-              connected: true,
-              profiles: ['A2DP/HFP (alternatywne połączenie)'],
-            };
-
-            setConnectedDevices(prev => [...prev, updatedDevice]);
-            setDevices(prev =>
-              prev.map(d => (d.id === device.id ? updatedDevice : d))
-            );
+    const connectAllHeadsets = async () => {
+      if (!nativeBluetoothModule) {
+        return;
+      }
+      const headsets = devices.filter(
+        d =>
+          hasAudioProfile(d) && !connectedAddresses.has(addressKey(d.address))
+      );
+      if (headsets.length === 0) {
+        setError('Brak niepołączonych słuchawek');
+        setShowConnectionStatus(true);
+        return;
+      }
 
-            setError(
-              `Połączono z ${
-                device.name || device.address
-              } (alternatywna metoda)`
-            );
-            setShowConnectionStatus(true);
-          } catch (altErr) {
-            console.error('Błąd alternatywnej metody:', altErr);
-          }
+      try {
+        setIsConnectingAll(true);
+        const summary = (await nativeBluetoothModule.connectDevices(
+          headsets.map(d => d.address),
+          0,
+          0,
+          null
+        )) as BluetoothBatchSummary;
+
+        // The connected list follows the state events
+        if (summary.succeeded > 0) {
+          await Audio.setIsEnabledAsync(true);
         }
+        setError(
+          `Połączono ${summary.succeeded}/${summary.total} słuchawek w ${Math.round(
+            summary.wallMs
+          )} ms`
+        );
+      } catch (err) {
+        setError('Błąd łączenia słuchawek: ' + (err as Error).message);
+      } finally {
+        setIsConnectingAll(false);
+        setShowConnectionStatus(true);
       }
     };
 
@@ -590,57 +660,60 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
       </TouchableOpacity>
     );
 
-    const renderDeviceItem = ({ item }: { item: Device }) => (
-      <TouchableOpacity
-        style={[
-          styles.deviceCard,
-          {
-            backgroundColor: colors.surface,
-            shadowColor: colors.shadow,
-          },
-          item.connected && {
-            borderLeftWidth: 6,
-            borderLeftColor: colors.success,
-          },
-          item.isComputer && {
-            borderRightWidth: 6,
-            borderRightColor: colors.tertiary,
-          },
-        ]}
-        onPress={() => connectToDevice(item)}
-      >
-        <View style={styles.deviceInfo}>
-          <Text
-            style={[styles.deviceName, { color: colors.onSurface }]}
-            numberOfLines={1}
-            ellipsizeMode="tail"
-          >
-            {item.name || 'Nieznane urządzenie'}
-          </Text>
-          <Text style={[styles.deviceType, { color: colors.onSurfaceVariant }]}>
-            {item.isComputer ? 'Komputer' : 'Inne urządzenie'}
-          </Text>
-          <Text
-            style={[styles.deviceAddress, { color: colors.onSurfaceVariant }]}
-          >
-            {item.address}
-          </Text>
-        </View>
-        <View style={styles.deviceStatus}>
-          {item.connected ? (
-            <TouchableOpacity onPress={() => disconnectDevice(item)}>
-              <Text style={[styles.connectedText, { color: colors.error }]}>
-                Rozłącz
-              </Text>
-            </TouchableOpacity>
-          ) : (
-            <Text style={[styles.connectText, { color: colors.primary }]}>
-              Dotknij aby połączyć
+    const renderDeviceItem = ({ item }: { item: Device }) => {
+      const connected = connectedAddresses.has(addressKey(item.address));
+      return (
+        <TouchableOpacity
+          style={[
+            styles.deviceCard,
+            {
+              backgroundColor: colors.surface,
+              shadowColor: colors.shadow,
+            },
+            connected && {
+              borderLeftWidth: 6,
+              borderLeftColor: colors.success,
+            },
+            item.isComputer && {
+              borderRightWidth: 6,
+              borderRightColor: colors.tertiary,
+            },
+          ]}
+          onPress={() => connectToDevice(item)}
+        >
+          <View style={styles.deviceInfo}>
+            <Text
+              style={[styles.deviceName, { color: colors.onSurface }]}
+              numberOfLines={1}
+              ellipsizeMode="tail"
+            >
+              {item.name || 'Nieznane urządzenie'}
             </Text>
-          )}
-        </View>
-      </TouchableOpacity>
-    );
+            <Text style={[styles.deviceType, { color: colors.onSurfaceVariant }]}>
+              {item.isComputer ? 'Komputer' : 'Inne urządzenie'}
+            </Text>
+            <Text
+              style={[styles.deviceAddress, { color: colors.onSurfaceVariant }]}
+            >
+              {item.address}
+            </Text>
+          </View>
+          <View style={styles.deviceStatus}>
+            {connected ? (
+              <TouchableOpacity onPress={() => disconnectDevice(item)}>
+                <Text style={[styles.connectedText, { color: colors.error }]}>
+                  Rozłącz
+                </Text>
+              </TouchableOpacity>
+            ) : (
+              <Text style={[styles.connectText, { color: colors.primary }]}>
+                Dotknij aby połączyć
+              </Text>
+            )}
+          </View>
+        </TouchableOpacity>
+      );
+    };
 
     return (
       <View style={[styles.container, { backgroundColor: colors.background }]}>
@@ -654,6 +727,19 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
           />
         </View>
 
+        {nativeBluetoothModule && devices.some(hasAudioProfile) && (
+          <View style={styles.bulkActions}>
+            <Button
+              title={
+                isConnectingAll ? 'Łączenie...' : 'Połącz wszystkie słuchawki'
+              }
+              onPress={connectAllHeadsets}
+              disabled={isConnectingAll || isScanning}
+              color={colors.secondary}
+            />
+          </View>
+        )}
+
         {error && showConnectionStatus && (
           <View
             style={[styles.errorContainer, { backgroundColor: colors.error }]}
@@ -676,7 +762,7 @@ export const BluetoothComponent = forwardRef<BluetoothComponentRef>(
                   {device.name || device.address}
                 </Text>
                 <Text style={styles.connectionStatus}>
-                  {device.connected ? 'Połączono' : 'Rozłączony'}
+                  Połączono
                 </Text>
                 <TouchableOpacity
                   onPress={() => disconnectDevice(device)}
@@ -809,6 +895,9 @@ const styles = StyleSheet.create({
     marginBottom: 16,
     marginTop: 8,
   },
+  bulkActions: {
+    marginBottom: 16,
+  },
   errorContainer: {
     padding: 12,
     borderRadius: 8,
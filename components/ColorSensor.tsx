@@ -7,6 +7,8 @@ import {
   ConnectionControls,
   ColorValue,
 } from './bleColorSensor';
+import { colorClassifierService } from '@/services/ColorClassifierService';
+import { bleColorSensorService } from '@/services/BleColorSensorService';
 
 interface ColorSensorProps {
   colorConfigs?: any[];
@@ -14,6 +16,71 @@ interface ColorSensorProps {
   onColorLost?: () => void;
 }
 
+// The native classifier only sees readings streamed by the native sensor
+// module; iOS and the ble-plx fallback match in JS
+const NATIVE_CLASSIFICATION =
+  colorClassifierService.isAvailable && bleColorSensorService.isAvailable;
+
+const isColorMatch = (
+  color1: ColorValue,
+  color2: ColorValue,
+  tolerance: number
+): boolean => {
+  const { r: r1, g: g1, b: b1 } = color1;
+  const { r: r2, g: g2, b: b2 } = color2;
+
+  const total1 = r1 + g1 + b1;
+  const total2 = r2 + g2 + b2;
+
+  if (total1 === 0 || total2 === 0) {
+    return false;
+  }
+
+  const ratio1 = { r: r1 / total1, g: g1 / total1, b: b1 / total1 };
+  const ratio2 = { r: r2 / total2, g: g2 / total2, b: b2 / total2 };
+
+  const distance = Math.sqrt(
+    Math.pow(ratio1.r - ratio2.r, 2) +
+      Math.pow(ratio1.g - ratio2.g, 2) +
+      Math.pow(ratio1.b - ratio2.b, 2)
+  );
+
+  return distance <= tolerance;
+};
+
+const detectConfiguredColor = (
+  currentColor: ColorValue,
+  colorConfigs: any[]
+): number | null => {
+  const { r, g, b } = currentColor;
+  if (r + g + b < 100) {
+    return null;
+  }
+
+  for (const config of colorConfigs) {
+    if (!config.isEnabled) {
+      continue;
+    }
+
+    if (config.color === 'custom' && config.customColorRgb) {
+      const { r: targetR, g: targetG, b: targetB } = config.customColorRgb;
+      const tolerance = config.colorTolerance || 0.15;
+
+      if (
+        isColorMatch(
+          currentColor,
+          { r: targetR, g: targetG, b: targetB },
+          tolerance
+        )
+      ) {
+        return config.id;
+      }
+    }
+  }
+
+  return null;
+};
+
 export const ColorSensor: React.FC<ColorSensorProps> = ({
   colorConfigs = [],
   onColorDetected,
@@ -23,69 +90,54 @@ export const ColorSensor: React.FC<ColorSensorProps> = ({
   const [lastDetectedColor, setLastDetectedColor] = useState<string | null>(
     null
   );
+  const lastDetectedRef = useRef<string | null>(null);
   const debounceTimeoutRef = useRef<NodeJS.Timeout | null>(null);
 
-  const processDetectedColor = useCallback(
-    (detectedColor: string) => {
-      const config = colorConfigs.find(cfg => {
-        if (cfg.color === 'custom') {
-          return `custom-${cfg.id}` === detectedColor && cfg.isEnabled;
-        } else {
-          return (
-            cfg.color.toLowerCase() === detectedColor.toLowerCase() &&
-            cfg.isEnabled
-          );
-        }
-      });
+  const colorConfigsRef = useRef(colorConfigs);
+  colorConfigsRef.current = colorConfigs;
+  const onColorDetectedRef = useRef(onColorDetected);
+  onColorDetectedRef.current = onColorDetected;
+  const onColorLostRef = useRef(onColorLost);
+  onColorLostRef.current = onColorLost;
 
-      if (config && onColorDetected) {
-        onColorDetected(detectedColor, config);
-      } else if (!config) {
-      }
-    },
-    [colorConfigs, onColorDetected]
-  );
-
-  const handleColorUpdate = useCallback(
-    async (color: ColorValue) => {
-      const enabledConfigs = colorConfigs.filter(cfg => cfg.isEnabled);
-      if (debounceTimeoutRef.current) {
-        clearTimeout(debounceTimeoutRef.current);
-      }
+  const applyDetection = useRef((configId: number | null) => {
+    const detectedColor = configId === null ? null : `custom-${configId}`;
+    if (detectedColor === lastDetectedRef.current) {
+      return;
+    }
 
-      const detectedConfig = detectConfiguredColor(color);
-      if (detectedConfig !== lastDetectedColor) {
-        debounceTimeoutRef.current = setTimeout(() => {
-          if (lastDetectedColor && onColorLost) {
-            onColorLost();
+    if (lastDetectedRef.current && onColorLostRef.current) {
+      onColorLostRef.current();
+    }
+    lastDetectedRef.current = detectedColor;
+    setLastDetectedColor(detectedColor);
 
-            setTimeout(() => {
-              setLastDetectedColor(detectedConfig);
+    if (configId === null) {
+      return;
+    }
+    const config = colorConfigsRef.current.find(
+      cfg => cfg.id === configId && cfg.isEnabled
+    );
+    if (config && onColorDetectedRef.current) {
+      onColorDetectedRef.current(detectedColor!, config);
+    }
+  }).current;
 
-              if (detectedConfig) {
-                processDetectedColor(detectedConfig);
-              }
-            }, 20);
-          } else {
-            setLastDetectedColor(detectedConfig);
+  // Matching runs natively on every reading; the table follows the configs
+  useEffect(() => {
+    if (NATIVE_CLASSIFICATION) {
+      colorClassifierService.sync(colorConfigs);
+    }
+  }, [colorConfigs]);
 
-            if (detectedConfig) {
-              processDetectedColor(detectedConfig);
-            }
-          }
-        }, 50);
-      } else if (detectedConfig) {
-      } else {
-      }
-    },
-    [
-      colorConfigs,
-      onColorDetected,
-      onColorLost,
-      lastDetectedColor,
-      processDetectedColor,
-    ]
-  );
+  useEffect(() => {
+    if (!NATIVE_CLASSIFICATION) {
+      return;
+    }
+    return colorClassifierService.onColorClassChanged(event =>
+      applyDetection(event.configId)
+    );
+  }, []);
 
   useEffect(() => {
     return () => {
@@ -95,6 +147,20 @@ export const ColorSensor: React.FC<ColorSensorProps> = ({
     };
   }, []);
 
+  const handleColorUpdate = useCallback(async (color: ColorValue) => {
+    if (NATIVE_CLASSIFICATION) {
+      return;
+    }
+    const configId = detectConfiguredColor(color, colorConfigsRef.current);
+    if (debounceTimeoutRef.current) {
+      clearTimeout(debounceTimeoutRef.current);
+    }
+    debounceTimeoutRef.current = setTimeout(
+      () => applyDetection(configId),
+      50
+    );
+  }, []);
+
   const {
     status,
     error,
@@ -106,73 +172,19 @@ export const ColorSensor: React.FC<ColorSensorProps> = ({
 
   useEffect(() => {
     if (status === 'idle' || status === 'error') {
-      setLastDetectedColor(null);
-
-      if (lastDetectedColor && onColorLost) {
-        onColorLost();
-      }
-    }
-  }, [status, onColorLost, lastDetectedColor]);
-
-  const detectConfiguredColor = (currentColor: ColorValue): string | null => {
-    const { r, g, b } = currentColor;
-    const totalBrightness = r + g + b;
-
-    if (totalBrightness < 100) {
-      return null;
-    }
-
-    for (const config of colorConfigs) {
-      if (!config.isEnabled) {
-        continue;
+      if (debounceTimeoutRef.current) {
+        clearTimeout(debounceTimeoutRef.current);
+        debounceTimeoutRef.current = null;
       }
+      const hadColor = lastDetectedRef.current !== null;
+      lastDetectedRef.current = null;
+      setLastDetectedColor(null);
 
-      if (config.color === 'custom' && config.customColorRgb) {
-        const { r: targetR, g: targetG, b: targetB } = config.customColorRgb;
-        const tolerance = config.colorTolerance || 0.15;
-
-        const isMatch = isColorMatch(
-          currentColor,
-          { r: targetR, g: targetG, b: targetB },
-          tolerance
-        );
-        if (isMatch) {
-          const result = `custom-${config.id}`;
-          return result;
-        }
+      if (hadColor && onColorLostRef.current) {
+        onColorLostRef.current();
       }
     }
-
-    return null;
-  };
-
-  const isColorMatch = (
-    color1: ColorValue,
-    color2: ColorValue,
-    tolerance: number
-  ): boolean => {
-    const { r: r1, g: g1, b: b1 } = color1;
-    const { r: r2, g: g2, b: b2 } = color2;
-
-    const total1 = r1 + g1 + b1;
-    const total2 = r2 + g2 + b2;
-
-    if (total1 === 0 || total2 === 0) {
-      return false;
-    }
-
-    const ratio1 = { r: r1 / total1, g: g1 / total1, b: b1 / total1 };
-    const ratio2 = { r: r2 / total2, g: g2 / total2, b: b2 / total2 };
-
-    const distance = Math.sqrt(
-      Math.pow(ratio1.r - ratio2.r, 2) +
-        Math.pow(ratio1.g - ratio2.g, 2) +
-        Math.pow(ratio1.b - ratio2.b, 2)
-    );
-
-    const isMatch = distance <= tolerance;
-    return isMatch;
-  };
+  }, [status]);
 
   return (
     <Surface
@@ -1,16 +1,53 @@
-import React from 'react';
+import React, { useEffect, useState } from 'react';
 import { Dialog, Portal, Button, Paragraph, Title } from 'react-native-paper';
 import { ScrollView, Platform } from 'react-native';
+import {
+  nativeMetricsService,
+  NativeMetricsSnapshot,
+} from '@/services/NativeMetricsService';
 
 interface DebugModeDialogProps {
   visible: boolean;
   onDismiss: () => void;
 }
 
+const SLOWEST_METHODS = 5;
+
+// One line per slow native method and per executor, for development builds
+const summarizeMetrics = (metrics: NativeMetricsSnapshot): string[] => {
+  const methods = Object.entries(metrics.methods)
+    .sort(([, a], [, b]) => b.p99Micros - a.p99Micros)
+    .slice(0, SLOWEST_METHODS)
+    .map(
+      ([name, stats]) =>
+        `${name}: p99 ${(stats.p99Micros / 1000).toFixed(1)} ms, ` +
+        `${stats.count}x, ${stats.timeouts} timeout`
+    );
+  const executors = Object.entries(metrics.executors).map(
+    ([name, stats]) =>
+      `${name}: kolejka ${stats.depth} (max ${stats.maxDepth}), ` +
+      `czekanie p99 ${(stats.wait.p99Micros / 1000).toFixed(1)} ms`
+  );
+  return [...methods, ...executors];
+};
+
 export const DebugModeDialog: React.FC<DebugModeDialogProps> = ({
   visible,
   onDismiss,
 }) => {
+  const [metricLines, setMetricLines] = useState<string[]>([]);
+
+  useEffect(() => {
+    if (!visible || !__DEV__ || !nativeMetricsService.isAvailable) {
+      return;
+    }
+    nativeMetricsService.getMetrics().then(metrics => {
+      if (metrics) {
+        setMetricLines(summarizeMetrics(metrics));
+      }
+    });
+  }, [visible]);
+
   if (Platform.OS === 'web') {
     return null;
   }
@@ -69,6 +106,19 @@ export const DebugModeDialog: React.FC<DebugModeDialogProps> = ({
           >
             4. Włącz "Debugowanie USB"
           </Paragraph>
+
+          {metricLines.length > 0 && (
+            <ScrollView style={{ maxHeight: 160 }}>
+              <Paragraph style={{ fontSize: 14, marginBottom: 6 }}>
+                Metryki natywne
+              </Paragraph>
+              {metricLines.map(line => (
+                <Paragraph key={line} style={{ fontSize: 12, lineHeight: 16 }}>
+                  {line}
+                </Paragraph>
+              ))}
+            </ScrollView>
+          )}
         </Dialog.Content>
         <Dialog.Actions>
           <Button
@@ -9,9 +9,45 @@ import {
 import { decode as atob } from 'base-64';
 import { BLE_CONFIG, COLOR_RATIO_THRESHOLDS } from './constants';
 import { ColorValue } from './colorUtils';
+import { bleColorSensorService } from '../../services/BleColorSensorService';
 
 let GLOBAL_AUTO_RECONNECT_ENABLED = true;
 
+// Readings are batched natively; one batch per frame keeps the UI current
+const NATIVE_BATCH_INTERVAL_MS = 50;
+
+const filterReading = (r: number, g: number, b: number): ColorValue | null => {
+  if (r === 1000 && g === 1000 && b === 1000) {
+    return null;
+  }
+
+  const isAllSimilar =
+    Math.abs(r - g) < 10 && Math.abs(r - b) < 10 && Math.abs(g - b) < 10;
+  if (isAllSimilar && r > 400 && r < 600) {
+    return null;
+  }
+
+  const filteredR = r < 2 ? 0 : r;
+  const filteredG = g < 2 ? 0 : g;
+  const filteredB = b < 2 ? 0 : b;
+
+  const maxValidValue = 65535;
+  if (
+    filteredR > maxValidValue ||
+    filteredG > maxValidValue ||
+    filteredB > maxValidValue
+  ) {
+    return null;
+  }
+
+  const sumRGB = filteredR + filteredG + filteredB;
+  if (sumRGB < COLOR_RATIO_THRESHOLDS.MIN_BRIGHTNESS) {
+    return null;
+  }
+
+  return { r: filteredR, g: filteredG, b: filteredB };
+};
+
 interface BleManagerState {
   bleState: string;
   device: Device | null;
@@ -44,6 +80,27 @@ export const useBleManager = (
   const [lastColorUpdate, setLastColorUpdate] = useState<number>(0);
 
   const colorTimeoutRef = useRef<NodeJS.Timeout | null>(null);
+  // Address streamed by the native module, cleared before we disconnect it
+  const nativeAddressRef = useRef<string | null>(null);
+
+  const applyColor = async (newColor: ColorValue) => {
+    setColor(newColor);
+    setLastColorUpdate(Date.now());
+
+    if (colorTimeoutRef.current) {
+      clearTimeout(colorTimeoutRef.current);
+    }
+
+    colorTimeoutRef.current = setTimeout(async () => {
+      if (Date.now() - lastColorUpdate > 1000) {
+        setColor({ r: 0, g: 0, b: 0 });
+      }
+    }, 1000);
+    await onColorUpdate(newColor);
+  };
+
+  const applyColorRef = useRef(applyColor);
+  applyColorRef.current = applyColor;
 
   useEffect(() => {
     if (!manager || Platform.OS === 'web') {
@@ -74,6 +131,51 @@ export const useBleManager = (
     }
   }, [autoReconnect, manager]);
 
+  useEffect(() => {
+    if (!bleColorSensorService.isAvailable) {
+      return;
+    }
+
+    const offBatch = bleColorSensorService.onBatch(batch => {
+      // Batches hold only readings the native decoder already filtered, and
+      // only the newest one matters; older ones are already stale
+      const last = batch.count - 1;
+      if (last < 0) {
+        return;
+      }
+      const newColor: ColorValue = { r: batch.r[last], g: batch.g[last], b: batch.b[last] };
+      applyColorRef.current(newColor).catch(error => {
+        console.error('[BLE] Error processing colour batch:', error);
+      });
+    });
+
+    const offState = bleColorSensorService.onState(event => {
+      if (
+        event.state !== 'disconnected' ||
+        event.deviceAddress !== nativeAddressRef.current
+      ) {
+        return;
+      }
+      nativeAddressRef.current = null;
+      setStatus('idle');
+      setDevice(null);
+
+      if (GLOBAL_AUTO_RECONNECT_ENABLED) {
+        setTimeout(() => {
+          if (GLOBAL_AUTO_RECONNECT_ENABLED) {
+            setIsReconnecting(false);
+            scanAndMonitorRef.current();
+          }
+        }, 2000);
+      }
+    });
+
+    return () => {
+      offBatch();
+      offState();
+    };
+  }, []);
+
   useEffect(() => {
     return () => {
       if (colorTimeoutRef.current) {
@@ -102,6 +204,11 @@ export const useBleManager = (
         console.warn('[BLE] Error stopping device scan:', e);
       }
 
+      if (nativeAddressRef.current) {
+        nativeAddressRef.current = null;
+        await bleColorSensorService.disconnect();
+      }
+
       if (sub) {
         try {
           sub.remove();
@@ -233,6 +340,38 @@ export const useBleManager = (
               console.warn('[BLE] Error stopping device scan:', e);
             }
 
+            const handleConnectError = (e: Error) => {
+              console.error('[BLE] Error during connection or monitoring', e);
+              setError(e.message);
+              setStatus('error');
+
+              if (autoReconnect) {
+                setTimeout(() => {
+                  if (autoReconnect && !isReconnecting) {
+                    setStatus('idle');
+                    setIsReconnecting(false);
+                    scanAndMonitor();
+                  }
+                }, 3000);
+              }
+            };
+
+            if (bleColorSensorService.isAvailable) {
+              // GATT and notification parsing stay native; JS gets batches
+              nativeAddressRef.current = dev.id;
+              setDevice(dev);
+              setStatus('connected');
+              bleColorSensorService
+                .connect(dev.id, { batchIntervalMs: NATIVE_BATCH_INTERVAL_MS })
+                .then(() => setStatus('monitoring'))
+                .catch(e => {
+                  nativeAddressRef.current = null;
+                  setDevice(null);
+                  handleConnectError(e);
+                });
+              return;
+            }
+
             const connectWithRetry = async (device: Device, maxRetries = 3) => {
               for (let retries = 0; retries < maxRetries; retries++) {
                 try {
@@ -338,54 +477,11 @@ export const useBleManager = (
                         const b =
                           (rawData.charCodeAt(4) << 8) + rawData.charCodeAt(5);
 
-                        if (r === 1000 && g === 1000 && b === 1000) {
-                          return;
-                        }
-
-                        const isAllSimilar =
-                          Math.abs(r - g) < 10 &&
-                          Math.abs(r - b) < 10 &&
-                          Math.abs(g - b) < 10;
-                        if (isAllSimilar && r > 400 && r < 600) {
-                          return;
-                        }
-
-                        const filteredR = r < 2 ? 0 : r;
-                        const filteredG = g < 2 ? 0 : g;
-                        const filteredB = b < 2 ? 0 : b;
-
-                        const newColor = {
-                          r: filteredR,
-                          g: filteredG,
-                          b: filteredB,
-                        };
-                        const maxValidValue = 65535;
-                        if (
-                          filteredR > maxValidValue ||
-                          filteredG > maxValidValue ||
-                          filteredB > maxValidValue
-                        ) {
+                        const newColor = filterReading(r, g, b);
+                        if (!newColor) {
                           return;
                         }
-
-                        const sumRGB = filteredR + filteredG + filteredB;
-                        if (sumRGB < COLOR_RATIO_THRESHOLDS.MIN_BRIGHTNESS) {
-                          return;
-                        }
-
-                        setColor(newColor);
-                        setLastColorUpdate(Date.now());
-
-                        if (colorTimeoutRef.current) {
-                          clearTimeout(colorTimeoutRef.current);
-                        }
-
-                        colorTimeoutRef.current = setTimeout(async () => {
-                          if (Date.now() - lastColorUpdate > 1000) {
-                            setColor({ r: 0, g: 0, b: 0 });
-                          }
-                        }, 1000);
-                        await onColorUpdate(newColor);
+                        await applyColor(newColor);
                       } else {
                       }
                     } catch (error) {
@@ -400,21 +496,7 @@ export const useBleManager = (
                 setSub(subscription);
                 setStatus('monitoring');
               })
-              .catch(e => {
-                console.error('[BLE] Error during connection or monitoring', e);
-                setError(e.message);
-                setStatus('error');
-
-                if (autoReconnect) {
-                  setTimeout(() => {
-                    if (autoReconnect && !isReconnecting) {
-                      setStatus('idle');
-                      setIsReconnecting(false);
-                      scanAndMonitor();
-                    }
-                  }, 3000);
-                }
-              });
+              .catch(handleConnectError);
           }
         }
       );
@@ -431,6 +513,9 @@ export const useBleManager = (
     }
   };
 
+  const scanAndMonitorRef = useRef(scanAndMonitor);
+  scanAndMonitorRef.current = scanAndMonitor;
+
   const disconnectDevice = async () => {
     if (!manager || Platform.OS === 'web') {
       return;
@@ -447,6 +532,11 @@ export const useBleManager = (
         console.warn('[BLE] Error stopping device scan:', e);
       }
 
+      if (nativeAddressRef.current) {
+        nativeAddressRef.current = null;
+        await bleColorSensorService.disconnect();
+      }
+
       if (sub) {
         try {
           sub.remove();
@@ -20,6 +20,9 @@ import Svg, {
 import { EkgType, NoiseType, EkgFactory } from '../../services/EkgFactory';
 import { EkgDataAdapter } from '../../services/EkgDataAdapter';
 import { EkgJsonDataLoader } from '../../services/EkgJsonDataLoader';
+import { ekgEngineService } from '../../services/EkgEngineService';
+import NativeEkgDisplay from './NativeEkgDisplay';
+import { isVitalsMonitorAvailable } from './VitalsMonitorView';
 
 interface EkgDisplayProps {
   ekgType?: EkgType;
@@ -482,4 +485,15 @@ const styles = StyleSheet.create({
   },
 });
 
-export default React.memo(EkgDisplay);
+// Android draws the trace natively when the engine and the view are built in
+const USE_NATIVE_MONITOR =
+  isVitalsMonitorAvailable && ekgEngineService.isAvailable;
+
+const EkgDisplaySwitch: React.FC<EkgDisplayProps> = props =>
+  USE_NATIVE_MONITOR ? (
+    <NativeEkgDisplay {...props} />
+  ) : (
+    <EkgDisplay {...props} />
+  );
+
+export default React.memo(EkgDisplaySwitch);
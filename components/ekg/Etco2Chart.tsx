@@ -2,6 +2,8 @@ import React, { useRef, useEffect, useLayoutEffect, useState } from 'react';
 import { View, StyleSheet, Platform } from 'react-native';
 import { Text, useTheme } from 'react-native-paper';
 import Svg, { Path, G, Rect } from 'react-native-svg';
+import NativeEtco2Chart from './NativeEtco2Chart';
+import { isVitalsMonitorAvailable } from './VitalsMonitorView';
 
 interface Etco2ChartProps {
   value: number;
@@ -144,4 +146,12 @@ const styles = StyleSheet.create({
   },
 });
 
-export default React.memo(Etco2Chart);
+// Android draws the trace natively when the view is built in
+const Etco2ChartSwitch: React.FC<Etco2ChartProps> = props =>
+  isVitalsMonitorAvailable ? (
+    <NativeEtco2Chart {...props} />
+  ) : (
+    <Etco2Chart {...props} />
+  );
+
+export default React.memo(Etco2ChartSwitch);
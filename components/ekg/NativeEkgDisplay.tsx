@@ -0,0 +1,138 @@
+import React, { useEffect, useMemo, useRef, useState } from 'react';
+import { View, StyleSheet } from 'react-native';
+import { Text, useTheme } from 'react-native-paper';
+import { EkgType, NoiseType } from '../../services/EkgFactory';
+import { ekgEngineService } from '../../services/EkgEngineService';
+import VitalsMonitorView from './VitalsMonitorView';
+
+interface NativeEkgDisplayProps {
+  ekgType?: EkgType;
+  bpm?: number;
+  noiseType?: NoiseType;
+  isRunning?: boolean;
+  svgHeight?: number;
+}
+
+const FLUCTUATION_RANGE = 2;
+
+/**
+ * EkgDisplay on Android: the trace comes from the native EKG engine and is
+ * drawn by VitalsMonitorView, so JS neither generates nor renders samples.
+ */
+const NativeEkgDisplay: React.FC<NativeEkgDisplayProps> = ({
+  ekgType = EkgType.NORMAL_SINUS_RHYTHM,
+  bpm = 72,
+  noiseType = NoiseType.NONE,
+  isRunning,
+  svgHeight = 280,
+}) => {
+  const theme = useTheme();
+  const [displayBpm, setDisplayBpm] = useState(bpm);
+  const acquiredRef = useRef(false);
+  const configRef = useRef({ ekgType, bpm, noiseType });
+  configRef.current = { ekgType, bpm, noiseType };
+
+  useEffect(() => {
+    if (!isRunning) {
+      return;
+    }
+    acquiredRef.current = true;
+    ekgEngineService.acquire(configRef.current);
+    return () => {
+      acquiredRef.current = false;
+      ekgEngineService.release();
+    };
+  }, [isRunning]);
+
+  useEffect(() => {
+    if (acquiredRef.current) {
+      ekgEngineService.setRhythm(ekgType);
+    }
+  }, [ekgType]);
+
+  useEffect(() => {
+    if (acquiredRef.current) {
+      ekgEngineService.setBpm(bpm);
+    }
+  }, [bpm]);
+
+  useEffect(() => {
+    if (acquiredRef.current) {
+      ekgEngineService.setNoise(noiseType);
+    }
+  }, [noiseType]);
+
+  useEffect(() => {
+    setDisplayBpm(bpm);
+    if (!isRunning) {
+      return;
+    }
+    const timer = setInterval(() => {
+      const fluctPercent = (Math.random() - 0.5) * 2 * FLUCTUATION_RANGE;
+      setDisplayBpm(Math.round(bpm + bpm * (fluctPercent / 100)));
+    }, 1000);
+    return () => clearInterval(timer);
+  }, [bpm, isRunning]);
+
+  const color = theme.dark ? '#00ff00' : '#008800';
+  const channels = useMemo(() => [{ type: 'ekg', color }], [color]);
+
+  return (
+    <View style={styles.container}>
+      <View style={styles.bpmContainer}>
+        <Text
+          variant="labelLarge"
+          style={[
+            styles.bpmText,
+            {
+              color,
+              textShadowColor: theme.dark
+                ? 'rgba(0, 255, 0, 0.8)'
+                : 'rgba(0, 136, 0, 0.5)',
+            },
+          ]}
+        >
+          {displayBpm} BPM
+        </Text>
+      </View>
+      <VitalsMonitorView
+        style={{ width: '100%', height: svgHeight }}
+        channels={channels}
+        running={!!isRunning}
+        heartRate={bpm}
+        gridColor={
+          theme.dark ? 'rgba(0, 255, 0, 0.2)' : 'rgba(0, 136, 0, 0.15)'
+        }
+        statsIntervalMs={0}
+      />
+    </View>
+  );
+};
+
+const styles = StyleSheet.create({
+  container: {
+    width: '100%',
+    height: 320,
+    justifyContent: 'center',
+    alignItems: 'center',
+    borderRadius: 12,
+    overflow: 'hidden',
+    paddingVertical: 12,
+  },
+  bpmContainer: {
+    width: '100%',
+    alignItems: 'flex-end',
+    paddingRight: 12,
+    paddingTop: 8,
+    zIndex: 1,
+  },
+  bpmText: {
+    textShadowOffset: { width: 0, height: 0 },
+    textShadowRadius: 5,
+    alignSelf: 'flex-end',
+    marginTop: 8,
+    marginRight: 12,
+  },
+});
+
+export default React.memo(NativeEkgDisplay);
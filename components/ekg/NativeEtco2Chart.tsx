@@ -0,0 +1,58 @@
+import React, { useMemo } from 'react';
+import { View, StyleSheet, Platform } from 'react-native';
+import { Text, useTheme } from 'react-native-paper';
+import VitalsMonitorView from './VitalsMonitorView';
+
+interface NativeEtco2ChartProps {
+  value: number;
+  height?: number;
+}
+
+/**
+ * Etco2Chart on Android: the capnogram is generated and drawn on the
+ * VitalsMonitorView render thread instead of an SVG path rebuilt per frame.
+ */
+const NativeEtco2Chart: React.FC<NativeEtco2ChartProps> = ({
+  value,
+  height = 120,
+}) => {
+  const theme = useTheme();
+  const color = theme.colors.secondary;
+  const channels = useMemo(() => [{ type: 'capno', color }], [color]);
+
+  return (
+    <View style={[styles.container, { height }]}>
+      <VitalsMonitorView
+        style={StyleSheet.absoluteFill}
+        channels={channels}
+        running
+        etco2={value}
+        gridColor={
+          theme.dark ? 'rgba(255,0,0,0.1)' : 'rgba(255,255,255,0.1)'
+        }
+        statsIntervalMs={0}
+      />
+      <Text
+        style={{
+          position: 'absolute',
+          top: 8,
+          left: 8,
+          color,
+          fontSize: Platform.OS === 'web' ? 20 : 18,
+          fontWeight: '600',
+        }}
+      >
+        EtCO₂: {value.toFixed(1)} mmHg
+      </Text>
+    </View>
+  );
+};
+
+const styles = StyleSheet.create({
+  container: {
+    width: '100%',
+    backgroundColor: '#000',
+  },
+});
+
+export default React.memo(NativeEtco2Chart);
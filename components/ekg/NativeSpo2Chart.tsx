@@ -0,0 +1,54 @@
+import React, { useMemo } from 'react';
+import { View, StyleSheet, Platform } from 'react-native';
+import { Text } from 'react-native-paper';
+import VitalsMonitorView from './VitalsMonitorView';
+
+interface NativeSpo2ChartProps {
+  value: number;
+  svgHeight?: number;
+}
+
+const COLOR = '#4CAF50';
+
+/**
+ * Spo2Chart on Android: the pleth wave is generated and drawn on the
+ * VitalsMonitorView render thread, so JS does not animate it per frame.
+ */
+const NativeSpo2Chart: React.FC<NativeSpo2ChartProps> = ({
+  value,
+  svgHeight = Platform.OS === 'web' ? 200 : 200,
+}) => {
+  const channels = useMemo(() => [{ type: 'pleth', color: COLOR }], []);
+
+  return (
+    <View style={[styles.container, { height: svgHeight }]}>
+      <VitalsMonitorView
+        style={StyleSheet.absoluteFill}
+        channels={channels}
+        running
+        spo2={value}
+        gridColor="rgba(0,255,0,0.15)"
+        statsIntervalMs={0}
+      />
+      <Text style={styles.value}>{`${value}%`}</Text>
+    </View>
+  );
+};
+
+const styles = StyleSheet.create({
+  container: {
+    width: '100%',
+    backgroundColor: '#000',
+    overflow: 'hidden',
+  },
+  value: {
+    position: 'absolute',
+    top: 4,
+    right: 10,
+    color: COLOR,
+    fontSize: 20,
+    fontWeight: 'bold',
+  },
+});
+
+export default React.memo(NativeSpo2Chart);
@@ -8,6 +8,8 @@ import Svg, {
   Path as SvgPath,
   Text as SvgText,
 } from 'react-native-svg';
+import NativeSpo2Chart from './NativeSpo2Chart';
+import { isVitalsMonitorAvailable } from './VitalsMonitorView';
 
 interface Spo2ChartProps {
   value: number;
@@ -302,4 +304,12 @@ const styles = StyleSheet.create({
   },
 });
 
-export default React.memo(Spo2Chart);
+// Android draws the trace natively when the view is built in
+const Spo2ChartSwitch: React.FC<Spo2ChartProps> = props =>
+  isVitalsMonitorAvailable ? (
+    <NativeSpo2Chart {...props} />
+  ) : (
+    <Spo2Chart {...props} />
+  );
+
+export default React.memo(Spo2ChartSwitch);
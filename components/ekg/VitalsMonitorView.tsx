@@ -0,0 +1,99 @@
+import React, { forwardRef, useImperativeHandle, useRef } from 'react';
+import {
+  findNodeHandle,
+  NativeSyntheticEvent,
+  Platform,
+  requireNativeComponent,
+  UIManager,
+  ViewProps,
+} from 'react-native';
+
+export interface VitalsChannelConfig {
+  type: 'ekg' | 'pleth' | 'capno' | string;
+  /** 'native': EKG engine or built-in waveform; 'js': pushSamples. */
+  source?: 'native' | 'js';
+  color?: string;
+  min?: number;
+  max?: number;
+  sampleRate?: number;
+  sweepSeconds?: number;
+  lineWidth?: number;
+}
+
+export interface VitalsFrameStats {
+  frames: number;
+  droppedFrames: number;
+  fps: number;
+  avgFrameMs: number;
+  p95FrameMs: number;
+  maxFrameMs: number;
+  avgDrawMs: number;
+  maxDrawMs: number;
+  channels: {
+    type: string;
+    buffered: number;
+    overruns: number;
+    skipped: number;
+  }[];
+}
+
+export interface VitalsMonitorProps extends ViewProps {
+  channels?: VitalsChannelConfig[];
+  running?: boolean;
+  spo2?: number;
+  etco2?: number;
+  heartRate?: number;
+  respiratoryRate?: number;
+  gridColor?: string;
+  statsIntervalMs?: number;
+  onFrameStats?: (event: NativeSyntheticEvent<VitalsFrameStats>) => void;
+}
+
+export interface VitalsMonitorHandle {
+  pushSamples(channelIndex: number, samples: number[]): void;
+  clear(): void;
+  requestStats(): void;
+}
+
+const VIEW_NAME = 'VitalsMonitor';
+
+const NativeVitalsMonitor =
+  Platform.OS === 'android' && UIManager.getViewManagerConfig(VIEW_NAME)
+    ? requireNativeComponent<VitalsMonitorProps>(VIEW_NAME)
+    : null;
+
+/** False on platforms and builds without the native view manager. */
+export const isVitalsMonitorAvailable = NativeVitalsMonitor !== null;
+
+/**
+ * Traces drawn on a native render thread (VitalsMonitorManager). Renders
+ * nothing where the view is not available; check isVitalsMonitorAvailable
+ * and fall back to the SVG displays.
+ */
+const VitalsMonitorView = forwardRef<VitalsMonitorHandle, VitalsMonitorProps>(
+  (props, ref) => {
+    const nativeRef = useRef(null);
+
+    useImperativeHandle(ref, () => {
+      const dispatch = (command: string, args: unknown[] = []) => {
+        const tag = findNodeHandle(nativeRef.current);
+        if (tag != null) {
+          UIManager.dispatchViewManagerCommand(tag, command, args);
+        }
+      };
+      return {
+        pushSamples: (channelIndex, samples) =>
+          dispatch('pushSamples', [channelIndex, samples]),
+        clear: () => dispatch('clear'),
+        requestStats: () => dispatch('requestStats'),
+      };
+    }, []);
+
+    if (!NativeVitalsMonitor) {
+      return null;
+    }
+    return <NativeVitalsMonitor ref={nativeRef} {...props} />;
+  }
+);
+
+export default VitalsMonitorView;
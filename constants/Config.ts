@@ -7,3 +7,12 @@ export const WS_URL =
   Constants.expoConfig?.extra?.REACT_APP_WS_URL ||
   process.env.EXPO_PUBLIC_REACT_APP_WS_URL;
 export const SESSION_CODE_LENGTH = 6;
+// Opt-in: carry session traffic over the native WebSocket transport (Android)
+export const NATIVE_TRANSPORT =
+  (Constants.expoConfig?.extra?.NATIVE_TRANSPORT ??
+    process.env.EXPO_PUBLIC_NATIVE_TRANSPORT) === 'true';
+// Opt-in: send audio commands as binary delta frames (Android); the server
+// has to decode '<event>-frame' and answer with 'codec-ack'
+export const SESSION_CODEC =
+  (Constants.expoConfig?.extra?.SESSION_CODEC ??
+    process.env.EXPO_PUBLIC_SESSION_CODEC) === 'true';
@@ -0,0 +1,115 @@
+import {
+  EmitterSubscription,
+  NativeEventEmitter,
+  NativeModules,
+  Platform,
+} from 'react-native';
+
+export interface BleColorSensorOptions {
+  batchIntervalMs?: number;
+  mtu?: number;
+}
+
+/**
+ * Readings received since the previous batch, oldest first; timestamps
+ * are elapsedRealtime in ms.
+ */
+export interface BleColorBatch {
+  deviceAddress: string;
+  count: number;
+  r: number[];
+  g: number[];
+  b: number[];
+  timestamps: number[];
+  /** Readings the native buffer dropped since the previous batch */
+  dropped: number;
+}
+
+export interface BleColorSensorStateEvent {
+  deviceAddress: string;
+  state: 'connected' | 'monitoring' | 'disconnected';
+}
+
+interface BleColorSensorInterface {
+  connect(
+    address: string,
+    options: BleColorSensorOptions | null
+  ): Promise<{ deviceAddress: string; mtu: number; batchIntervalMs: number }>;
+  disconnect(): Promise<boolean>;
+  setBatchInterval(intervalMs: number): void;
+}
+
+const NativeBleColorSensor: BleColorSensorInterface | null =
+  Platform.OS === 'android' ? NativeModules.BleColorSensor || null : null;
+
+class BleColorSensorService {
+  private batchHandlers: Set<(batch: BleColorBatch) => void> = new Set();
+  private stateHandlers: Set<(event: BleColorSensorStateEvent) => void> =
+    new Set();
+  private subscriptions: EmitterSubscription[] = [];
+
+  get isAvailable(): boolean {
+    return NativeBleColorSensor !== null;
+  }
+
+  /**
+   * Connects to the sensor natively. Resolves once notifications are
+   * enabled; readings then arrive through onBatch.
+   */
+  async connect(
+    address: string,
+    options: BleColorSensorOptions = {}
+  ): Promise<void> {
+    if (!NativeBleColorSensor) {
+      throw new Error('Native colour sensor is not available');
+    }
+    this.subscribe();
+    await NativeBleColorSensor.connect(address, options);
+  }
+
+  async disconnect(): Promise<void> {
+    if (!NativeBleColorSensor) {
+      return;
+    }
+    try {
+      await NativeBleColorSensor.disconnect();
+    } catch (error) {
+      console.warn('Failed to disconnect colour sensor:', error);
+    }
+  }
+
+  onBatch(handler: (batch: BleColorBatch) => void): () => void {
+    this.batchHandlers.add(handler);
+    return () => {
+      this.batchHandlers.delete(handler);
+    };
+  }
+
+  onState(handler: (event: BleColorSensorStateEvent) => void): () => void {
+    this.stateHandlers.add(handler);
+    return () => {
+      this.stateHandlers.delete(handler);
+    };
+  }
+
+  private subscribe(): void {
+    if (this.subscriptions.length > 0) {
+      return;
+    }
+
+    const emitter = new NativeEventEmitter(NativeModules.BleColorSensor);
+    this.subscriptions.push(
+      emitter.addListener('bleColorBatch', (batch: BleColorBatch) => {
+        this.batchHandlers.forEach(handler => handler(batch));
+      }),
+      emitter.addListener(
+        'bleColorSensorState',
+        (event: BleColorSensorStateEvent) => {
+          this.stateHandlers.forEach(handler => handler(event));
+        }
+      )
+    );
+  }
+}
+
+export const bleColorSensorService = new BleColorSensorService();
@@ -0,0 +1,135 @@
+import {
+  EmitterSubscription,
+  NativeEventEmitter,
+  NativeModules,
+  Platform,
+} from 'react-native';
+import { ColorConfig } from './ColorConfigService';
+
+export interface ColorClassifierOptions {
+  hysteresis?: number;
+  debounceSamples?: number;
+  minBrightness?: number;
+}
+
+/**
+ * Sent when the stable colour of a sensor stream changes; configId is null
+ * once the reading no longer matches any enabled config.
+ */
+export interface ColorClassChangedEvent {
+  source: string;
+  configId: number | null;
+  r: number;
+  g: number;
+  b: number;
+}
+
+export interface ColorClassifierStats {
+  configs: number;
+  debounceSamples: number;
+  readings: number;
+  changes: number;
+  cellsRebuilt: number;
+}
+
+interface ColorClassifierInterface {
+  configure(
+    configs: ColorConfig[],
+    options: ColorClassifierOptions | null
+  ): Promise<number>;
+  updateConfig(config: ColorConfig): Promise<boolean>;
+  classify(r: number, g: number, b: number): Promise<number | null>;
+  getStats(): Promise<ColorClassifierStats>;
+}
+
+const NativeColorClassifier: ColorClassifierInterface | null =
+  Platform.OS === 'android' ? NativeModules.ColorClassifier || null : null;
+
+// The fields the native lookup table is built from
+const classifiedFields = (config: ColorConfig): string =>
+  JSON.stringify([
+    config.isEnabled,
+    config.color,
+    config.customColorRgb ?? null,
+    config.colorTolerance ?? null,
+  ]);
+
+class ColorClassifierService {
+  private handlers: Set<(event: ColorClassChangedEvent) => void> = new Set();
+  private subscription: EmitterSubscription | null = null;
+  private pushed: Map<number, string> = new Map();
+
+  get isAvailable(): boolean {
+    return NativeColorClassifier !== null;
+  }
+
+  /**
+   * Brings the native table in line with configs. A list with the same ids
+   * as the last one only sends the configs that changed through
+   * updateConfig, so a single recalibration does not rebuild the table.
+   */
+  async sync(
+    configs: ColorConfig[],
+    options: ColorClassifierOptions | null = null
+  ): Promise<void> {
+    if (!NativeColorClassifier) {
+      return;
+    }
+
+    const sameIds =
+      configs.length === this.pushed.size &&
+      configs.every(config => this.pushed.has(config.id));
+
+    try {
+      if (!sameIds || options) {
+        await NativeColorClassifier.configure(configs, options);
+      } else {
+        for (const config of configs) {
+          if (this.pushed.get(config.id) !== classifiedFields(config)) {
+            await NativeColorClassifier.updateConfig(config);
+          }
+        }
+      }
+      this.pushed = new Map(
+        configs.map(config => [config.id, classifiedFields(config)])
+      );
+    } catch (error) {
+      // Forget what was pushed so the next sync rebuilds the whole table
+      this.pushed.clear();
+      console.warn('Failed to update colour classifier:', error);
+    }
+  }
+
+  async getStats(): Promise<ColorClassifierStats | null> {
+    if (!NativeColorClassifier) {
+      return null;
+    }
+    return NativeColorClassifier.getStats();
+  }
+
+  onColorClassChanged(
+    handler: (event: ColorClassChangedEvent) => void
+  ): () => void {
+    this.subscribe();
+    this.handlers.add(handler);
+    return () => {
+      this.handlers.delete(handler);
+    };
+  }
+
+  private subscribe(): void {
+    if (this.subscription || !NativeColorClassifier) {
+      return;
+    }
+
+    const emitter = new NativeEventEmitter(NativeModules.ColorClassifier);
+    this.subscription = emitter.addListener(
+      'colorClassChanged',
+      (event: ColorClassChangedEvent) => {
+        this.handlers.forEach(handler => handler(event));
+      }
+    );
+  }
+}
+
+export const colorClassifierService = new ColorClassifierService();
@@ -0,0 +1,117 @@
+import { Image, NativeModules, Platform } from 'react-native';
+
+export interface CuePlayOptions {
+  volume?: number;
+  loop?: boolean;
+}
+
+export interface CuePreloadResult {
+  key: string;
+  frames: number;
+  durationMs: number;
+  bytes: number;
+  decodeMs: number;
+}
+
+interface CueSoundInterface {
+  preload(key: string, source: string): Promise<CuePreloadResult>;
+  unload(key: string): Promise<boolean>;
+  play(key: string, options: CuePlayOptions | null): Promise<number>;
+  pause(voiceId: number): Promise<boolean>;
+  resume(voiceId: number): Promise<boolean>;
+  stop(voiceId: number): Promise<boolean>;
+  stopAll(): Promise<boolean>;
+}
+
+const NativeCueSound: CueSoundInterface | null =
+  Platform.OS === 'android' ? NativeModules.CueSound || null : null;
+
+/**
+ * Where the native decoder finds a bundled asset: the Metro URL in
+ * development, the res/raw entry in release builds.
+ */
+const assetSource = (asset: number): string | null => {
+  const resolved = Image.resolveAssetSource(asset);
+  if (!resolved?.uri) {
+    return null;
+  }
+  return resolved.uri.includes('://') ? resolved.uri : `raw:${resolved.uri}`;
+};
+
+class CueSoundService {
+  private loaded: Map<string, Promise<CuePreloadResult | null>> = new Map();
+
+  get isAvailable(): boolean {
+    return NativeCueSound !== null;
+  }
+
+  /**
+   * Decodes a bundled sound once; later calls share the first decode.
+   * Resolves with null when it cannot be decoded.
+   */
+  preload(key: string, asset: number): Promise<CuePreloadResult | null> {
+    const existing = this.loaded.get(key);
+    if (existing) {
+      return existing;
+    }
+
+    const source = assetSource(asset);
+    if (!NativeCueSound || !source) {
+      return Promise.resolve(null);
+    }
+
+    const pending = NativeCueSound.preload(key, source).catch(error => {
+      console.warn(`Failed to preload cue ${key}:`, error);
+      this.loaded.delete(key);
+      return null;
+    });
+    this.loaded.set(key, pending);
+    return pending;
+  }
+
+  /**
+   * Plays a cue, preloading it first if needed. Resolves with the voice
+   * id and the cue length, or null when native playback is unavailable.
+   */
+  async play(
+    key: string,
+    asset: number,
+    options: CuePlayOptions = {}
+  ): Promise<{ voiceId: number; durationMs: number } | null> {
+    if (!NativeCueSound) {
+      return null;
+    }
+    const cue = await this.preload(key, asset);
+    if (!cue) {
+      return null;
+    }
+
+    try {
+      const voiceId = await NativeCueSound.play(key, options);
+      return { voiceId, durationMs: cue.durationMs };
+    } catch (error) {
+      // Evicted from the pool since it was preloaded
+      this.loaded.delete(key);
+      console.warn(`Failed to play cue ${key}:`, error);
+      return null;
+    }
+  }
+
+  async pause(voiceId: number): Promise<void> {
+    await NativeCueSound?.pause(voiceId);
+  }
+
+  async resume(voiceId: number): Promise<void> {
+    await NativeCueSound?.resume(voiceId);
+  }
+
+  async stop(voiceId: number): Promise<void> {
+    await NativeCueSound?.stop(voiceId);
+  }
+
+  async stopAll(): Promise<void> {
+    await NativeCueSound?.stopAll();
+  }
+}
+
+export const cueSoundService = new CueSoundService();
@@ -0,0 +1,156 @@
+import { NativeModules, Platform } from 'react-native';
+import { EkgType, NoiseType } from './EkgFactory';
+import { ekgTypeToFilename } from './ekgTypeToFileMap';
+
+export interface EkgEngineConfig {
+  ekgType: EkgType;
+  bpm: number;
+  noiseType: NoiseType;
+}
+
+export interface EkgEngineStats {
+  running: boolean;
+  sampleRate: number;
+  bpm: number;
+  currentBpm: number;
+  noiseType: NoiseType;
+  retiming: boolean;
+  rhythm: string | null;
+  loadedRhythms: number;
+  generated: number;
+  lateTicks: number;
+  maxLatenessMs: number;
+  buffered: number;
+  overruns: number;
+}
+
+export interface EkgBundleInfo {
+  openMs: number;
+  mappedBytes: number;
+  rhythms: number;
+  decodedRhythms: number;
+  names: string[];
+}
+
+interface EkgEngineInterface {
+  start(options: {
+    rhythm: string | null;
+    bpm: number;
+    noise: { noiseType: number };
+  }): Promise<number>;
+  stop(): Promise<boolean>;
+  setRhythm(name: string | null): Promise<boolean>;
+  setBpm(bpm: number): void;
+  setNoise(config: { noiseType: number }): Promise<number>;
+  getBundleInfo(): Promise<EkgBundleInfo>;
+  getStats(): Promise<EkgEngineStats>;
+}
+
+const NativeEkgEngine: EkgEngineInterface | null =
+  Platform.OS === 'android' ? NativeModules.EkgEngine || null : null;
+
+// Bundled rhythms are named after the heart_beat_data files
+const rhythmName = (ekgType: EkgType): string | null =>
+  ekgTypeToFilename[ekgType] ?? null;
+
+class EkgEngineService {
+  private users = 0;
+
+  get isAvailable(): boolean {
+    return NativeEkgEngine !== null;
+  }
+
+  /**
+   * Starts the engine for one display, which the native vitals monitor
+   * reads from. The engine keeps running until every display that
+   * acquired it has released it.
+   */
+  async acquire(config: EkgEngineConfig): Promise<boolean> {
+    if (!NativeEkgEngine) {
+      return false;
+    }
+    this.users++;
+    try {
+      await NativeEkgEngine.start({
+        rhythm: rhythmName(config.ekgType),
+        bpm: config.bpm,
+        noise: { noiseType: config.noiseType },
+      });
+      return true;
+    } catch (error) {
+      console.error('Failed to start EKG engine:', error);
+      return false;
+    }
+  }
+
+  async release(): Promise<void> {
+    if (!NativeEkgEngine || this.users === 0) {
+      return;
+    }
+    this.users--;
+    if (this.users > 0) {
+      return;
+    }
+    try {
+      await NativeEkgEngine.stop();
+    } catch (error) {
+      console.error('Failed to stop EKG engine:', error);
+    }
+  }
+
+  async setRhythm(ekgType: EkgType): Promise<void> {
+    if (!NativeEkgEngine) {
+      return;
+    }
+    try {
+      await NativeEkgEngine.setRhythm(rhythmName(ekgType));
+    } catch (error) {
+      console.error('Failed to set EKG rhythm:', error);
+    }
+  }
+
+  setBpm(bpm: number): void {
+    NativeEkgEngine?.setBpm(bpm);
+  }
+
+  async setNoise(noiseType: NoiseType): Promise<void> {
+    if (!NativeEkgEngine) {
+      return;
+    }
+    try {
+      await NativeEkgEngine.setNoise({ noiseType });
+    } catch (error) {
+      console.error('Failed to set EKG noise:', error);
+    }
+  }
+
+  /**
+   * Maps the bundled rhythm file if it is not open yet and reports what it
+   * holds, or null when the native engine is not available.
+   */
+  async getBundleInfo(): Promise<EkgBundleInfo | null> {
+    if (!NativeEkgEngine) {
+      return null;
+    }
+    try {
+      return await NativeEkgEngine.getBundleInfo();
+    } catch (error) {
+      console.error('Failed to open EKG bundle:', error);
+      return null;
+    }
+  }
+
+  async getStats(): Promise<EkgEngineStats | null> {
+    if (!NativeEkgEngine) {
+      return null;
+    }
+    try {
+      return await NativeEkgEngine.getStats();
+    } catch (error) {
+      console.error('Failed to get EKG engine stats:', error);
+      return null;
+    }
+  }
+}
+
+export const ekgEngineService = new EkgEngineService();
@@ -0,0 +1,162 @@
+import { NativeModules, Platform } from 'react-native';
+
+export interface JournalRecord {
+  seq: number;
+  timestamp: number;
+  event: string;
+  payload: string | null;
+}
+
+export interface EventJournalStats {
+  lastSeq: number;
+  ackedSeq: number;
+  unacknowledged: number;
+  pendingCommit: number;
+  appended: number;
+  deduplicated: number;
+  committed: number;
+  commits: number;
+  avgBatchSize: number;
+  avgCommitMicros: number;
+  maxCommitMicros: number;
+  bytesWritten: number;
+  recordsPerSec: number;
+  bytesPerSec: number;
+  replayed: number;
+  acked: number;
+  dropped: number;
+  compactions: number;
+  recovered: number;
+  truncatedBytes: number;
+  segments: number;
+  liveBytes: number;
+  maxBytes: number;
+}
+
+interface EventJournalInterface {
+  append(
+    event: string,
+    payloadJson: string | null,
+    dedupKey: string | null
+  ): Promise<{ seq: number; duplicate: boolean }>;
+  replay(
+    afterSeq: number,
+    maxRecords: number
+  ): Promise<{ records: JournalRecord[]; lastSeq: number }>;
+  ack(seq: number): Promise<boolean>;
+  compact(): Promise<boolean>;
+  getStats(): Promise<EventJournalStats>;
+}
+
+const NativeEventJournal: EventJournalInterface | null =
+  Platform.OS === 'android' ? NativeModules.EventJournal || null : null;
+
+const REPLAY_BATCH = 100;
+
+class EventJournalService {
+  private replaying: Promise<number> | null = null;
+
+  get isAvailable(): boolean {
+    return NativeEventJournal !== null;
+  }
+
+  /**
+   * Stores an event until it is replayed and acknowledged. Resolves with
+   * its sequence number once it is on disk, or null when it could not be
+   * stored.
+   */
+  async append(
+    event: string,
+    payload: unknown,
+    dedupKey?: string
+  ): Promise<number | null> {
+    if (!NativeEventJournal) {
+      return null;
+    }
+    try {
+      const result = await NativeEventJournal.append(
+        event,
+        payload === undefined ? null : JSON.stringify(payload),
+        dedupKey ?? null
+      );
+      return result.seq;
+    } catch (error) {
+      console.error(`Failed to journal ${event}:`, error);
+      return null;
+    }
+  }
+
+  /**
+   * Sends every unacknowledged event through {@code send}, oldest first,
+   * acknowledging after each batch. Stops at the first event {@code send}
+   * refuses, so the rest stays for the next replay. Concurrent calls share
+   * one run. Resolves with the number of events sent.
+   */
+  replay(
+    send: (event: string, payload: unknown, seq: number) => boolean
+  ): Promise<number> {
+    if (!NativeEventJournal) {
+      return Promise.resolve(0);
+    }
+    if (!this.replaying) {
+      this.replaying = this.replayAll(send).finally(() => {
+        this.replaying = null;
+      });
+    }
+    return this.replaying;
+  }
+
+  async getStats(): Promise<EventJournalStats | null> {
+    if (!NativeEventJournal) {
+      return null;
+    }
+    try {
+      return await NativeEventJournal.getStats();
+    } catch (error) {
+      console.error('Failed to get journal stats:', error);
+      return null;
+    }
+  }
+
+  private async replayAll(
+    send: (event: string, payload: unknown, seq: number) => boolean
+  ): Promise<number> {
+    const journal = NativeEventJournal as EventJournalInterface;
+    let sent = 0;
+    let after = -1;
+
+    try {
+      for (;;) {
+        const { records } = await journal.replay(after, REPLAY_BATCH);
+        if (records.length === 0) {
+          return sent;
+        }
+
+        let lastSent = -1;
+        for (const record of records) {
+          const payload =
+            record.payload === null ? undefined : JSON.parse(record.payload);
+          if (!send(record.event, payload, record.seq)) {
+            break;
+          }
+          lastSent = record.seq;
+          sent++;
+        }
+
+        if (lastSent < 0) {
+          return sent;
+        }
+        await journal.ack(lastSent);
+        if (lastSent !== records[records.length - 1].seq) {
+          return sent;
+        }
+        after = lastSent;
+      }
+    } catch (error) {
+      console.error('Failed to replay journal:', error);
+      return sent;
+    }
+  }
+}
+
+export const eventJournalService = new EventJournalService();
@@ -0,0 +1,160 @@
+import {
+  DeviceEventEmitter,
+  EmitterSubscription,
+  NativeEventEmitter,
+  NativeModules,
+  Platform,
+} from 'react-native';
+
+export interface ForegroundSessionOptions {
+  title?: string;
+  text?: string;
+  bufferCapacity?: number;
+  /** Events that keep only their latest payload while buffered. */
+  coalesce?: string[];
+}
+
+export interface ForegroundSessionStatus {
+  running: boolean;
+  jsActive: boolean;
+  uptimeMs: number;
+  pendingEvents: number;
+  bufferedEvents: number;
+  droppedEvents: number;
+  coalescedEvents: number;
+  batchesDelivered: number;
+  eventsDelivered: number;
+  wakeLockHeld: boolean;
+  wifiLockHeld: boolean;
+}
+
+interface BufferedEvent {
+  name: string;
+  timestamp: number;
+  payload: unknown;
+}
+
+interface SessionEventBatch {
+  events: BufferedEvent[];
+  count: number;
+  firstTimestamp: number;
+  lastTimestamp: number;
+  /** Dropped since the previous batch; the running total is in getStatus. */
+  dropped: number;
+  /** Coalesced since the previous batch. */
+  coalesced: number;
+}
+
+interface ForegroundSessionInterface {
+  startSession(options: ForegroundSessionOptions | null): Promise<boolean>;
+  stopSession(): Promise<boolean>;
+  updateNotification(title: string, text: string): void;
+  setJsActive(active: boolean): void;
+  flushEvents(): Promise<number>;
+  getStatus(): Promise<ForegroundSessionStatus | null>;
+}
+
+const unavailable: ForegroundSessionInterface = {
+  startSession: async () => false,
+  stopSession: async () => false,
+  updateNotification: () => {},
+  setJsActive: () => {},
+  flushEvents: async () => 0,
+  getStatus: async () => null,
+};
+
+const NativeForegroundSession: ForegroundSessionInterface =
+  Platform.OS === 'android'
+    ? NativeModules.ForegroundSession || unavailable
+    : unavailable;
+
+const DEFAULT_COALESCE = [
+  'bleColorSensorState',
+  'networkChanged',
+  'networkQuality',
+];
+
+class ForegroundSessionService {
+  private batchSubscription: EmitterSubscription | null = null;
+  private running = false;
+
+  /**
+   * Starts the native foreground service. Events emitted while JS is
+   * suspended come back in one batch and are replayed to their usual
+   * listeners in order.
+   */
+  async start(options: ForegroundSessionOptions = {}): Promise<boolean> {
+    if (Platform.OS !== 'android') {
+      return true;
+    }
+    this.subscribe();
+
+    try {
+      this.running = await NativeForegroundSession.startSession({
+        coalesce: DEFAULT_COALESCE,
+        ...options,
+      });
+      return this.running;
+    } catch (error) {
+      console.error('Failed to start foreground session:', error);
+      return false;
+    }
+  }
+
+  async stop(): Promise<boolean> {
+    if (Platform.OS !== 'android' || !this.running) {
+      return true;
+    }
+
+    try {
+      await NativeForegroundSession.stopSession();
+      this.running = false;
+      return true;
+    } catch (error) {
+      console.error('Failed to stop foreground session:', error);
+      return false;
+    }
+  }
+
+  updateNotification(title: string, text: string): void {
+    if (Platform.OS === 'android') {
+      NativeForegroundSession.updateNotification(title, text);
+    }
+  }
+
+  async getStatus(): Promise<ForegroundSessionStatus | null> {
+    if (Platform.OS !== 'android') {
+      return null;
+    }
+
+    try {
+      return await NativeForegroundSession.getStatus();
+    } catch (error) {
+      console.error('Failed to get foreground session status:', error);
+      return null;
+    }
+  }
+
+  private subscribe(): void {
+    if (this.batchSubscription || !NativeModules.ForegroundSession) {
+      return;
+    }
+
+    const emitter = new NativeEventEmitter(NativeModules.ForegroundSession);
+    this.batchSubscription = emitter.addListener(
+      'sessionEventBatch',
+      (batch: SessionEventBatch) => {
+        if (batch.dropped > 0) {
+          console.warn(
+            `Foreground session dropped ${batch.dropped} buffered events`
+          );
+        }
+        for (const event of batch.events) {
+          DeviceEventEmitter.emit(event.name, event.payload);
+        }
+      }
+    );
+  }
+}
+
+export const foregroundSessionService = new ForegroundSessionService();
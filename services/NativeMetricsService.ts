@@ -0,0 +1,111 @@
+import { NativeModules, Platform } from 'react-native';
+
+/**
+ * Rejection code of a native promise that did not settle before its
+ * deadline; the native work behind it has been cancelled.
+ */
+export const DEADLINE_EXCEEDED = 'DEADLINE_EXCEEDED';
+
+export interface LatencyStats {
+  count: number;
+  errors: number;
+  timeouts: number;
+  inFlight: number;
+  avgMicros: number;
+  maxMicros: number;
+  p50Micros: number;
+  p90Micros: number;
+  p99Micros: number;
+  buckets: number[];
+}
+
+export interface ExecutorStats {
+  /** Tasks submitted and not yet started. */
+  depth: number;
+  maxDepth: number;
+  /** Time from submit to start. */
+  wait: LatencyStats;
+  run: LatencyStats;
+}
+
+export interface NativeMetricsSnapshot {
+  since: number;
+  methods: Record<string, LatencyStats>;
+  events: Record<string, LatencyStats>;
+  /** Keyed by subsystem: "bluetooth", "network", "locks". */
+  executors: Record<string, ExecutorStats>;
+  bucketLimitsMicros: number[];
+}
+
+interface NativeMetricsInterface {
+  getMetrics(): Promise<NativeMetricsSnapshot>;
+  resetMetrics(): Promise<boolean>;
+  startDump(intervalMs: number): Promise<string>;
+  stopDump(): Promise<boolean>;
+}
+
+const NativeMetrics: NativeMetricsInterface | null =
+  Platform.OS === 'android' ? NativeModules.NativeMetrics || null : null;
+
+class NativeMetricsService {
+  get isAvailable(): boolean {
+    return NativeMetrics !== null;
+  }
+
+  /**
+   * Latency histograms for every native module method ("Module.method")
+   * and every event sent to JS since the last reset, and the queue depth
+   * and wait times of the native executors.
+   */
+  async getMetrics(): Promise<NativeMetricsSnapshot | null> {
+    if (!NativeMetrics) {
+      return null;
+    }
+    try {
+      return await NativeMetrics.getMetrics();
+    } catch (error) {
+      console.error('Failed to get native metrics:', error);
+      return null;
+    }
+  }
+
+  async reset(): Promise<void> {
+    if (!NativeMetrics) {
+      return;
+    }
+    try {
+      await NativeMetrics.resetMetrics();
+    } catch (error) {
+      console.error('Failed to reset native metrics:', error);
+    }
+  }
+
+  /**
+   * Writes the metrics to a JSON file every {@code intervalMs}. Resolves
+   * with the file path, or null when dumping is not available.
+   */
+  async startDump(intervalMs: number = 10000): Promise<string | null> {
+    if (!NativeMetrics) {
+      return null;
+    }
+    try {
+      return await NativeMetrics.startDump(intervalMs);
+    } catch (error) {
+      console.error('Failed to start native metrics dump:', error);
+      return null;
+    }
+  }
+
+  async stopDump(): Promise<void> {
+    if (!NativeMetrics) {
+      return;
+    }
+    try {
+      await NativeMetrics.stopDump();
+    } catch (error) {
+      console.error('Failed to stop native metrics dump:', error);
+    }
+  }
+}
+
+export const nativeMetricsService = new NativeMetricsService();
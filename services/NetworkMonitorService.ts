@@ -1,45 +1,203 @@
-import { NativeModules, Platform, NativeEventEmitter } from 'react-native';
+import { Platform, NativeEventEmitter } from 'react-native';
+import NativeNetworkUtilsSpec from '@/specs/NativeNetworkUtils';
 import { socketService } from './SocketService';
+import { API_URL } from '@/constants/Config';
+
+export type NetworkQualityLevel = 'bad' | 'poor' | 'fair' | 'good' | 'unknown';
+
+export interface NetworkQualityProbeOptions {
+  host?: string;
+  port?: number;
+  /** 'connect' times the TCP handshake, 'echo' needs an echo server. */
+  mode?: 'connect' | 'echo';
+  intervalMs?: number;
+  timeoutMs?: number;
+  windowSize?: number;
+  thresholds?: {
+    poor?: number;
+    fair?: number;
+    good?: number;
+    hysteresis?: number;
+  };
+}
+
+export interface NetworkQualityEvent {
+  score: number;
+  level: NetworkQualityLevel;
+  previousLevel?: NetworkQualityLevel;
+  p50Ms: number;
+  p95Ms: number;
+  jitterMs: number;
+  lossRate: number;
+  transport: string;
+  rssi: number | null;
+}
+
+export interface NetworkQualityStats extends NetworkQualityEvent {
+  running: boolean;
+  lastMs: number;
+  p90Ms: number;
+  p99Ms: number;
+  samples: number;
+  totalProbes: number;
+  totalLost: number;
+  linkSpeedMbps: number;
+  downstreamKbps: number;
+  upstreamKbps: number;
+}
+
+export interface NetworkState {
+  isConnected: boolean;
+  connectionType: string;
+  validated: boolean;
+  metered: boolean;
+  updatedAt: number;
+  transitions: number;
+}
+
+export interface NetworkTransition {
+  timestamp: number;
+  elapsedRealtime: number;
+  isConnected: boolean;
+  connectionType: string;
+  previousType: string;
+  networkHandle: number;
+}
+
+export interface NetworkHandoverOptions {
+  /** Also accept ethernet as the standby network (default true). */
+  includeEthernet?: boolean;
+  /** Minimum time on the standby after a quality-triggered switch. */
+  minHoldMs?: number;
+  /** How long the primary must stay healthy before switching back. */
+  restoreStableMs?: number;
+}
+
+export interface NetworkHandoverEvent {
+  type: 'handover' | 'restore' | 'failed';
+  reason: string;
+  from: string;
+  to: string;
+  decisionMs: number;
+  standbyWarmMs: number;
+  standbyValidated: boolean;
+  timestamp: number;
+}
+
+export interface NetworkHandoverStatus {
+  enabled: boolean;
+  bound: boolean;
+  boundReason: string | null;
+  boundMs: number;
+  standbyAvailable: boolean;
+  standbyValidated: boolean;
+  standbyTransport: string;
+  standbyWarmMs: number;
+  handovers: number;
+  restores: number;
+  failures: number;
+  lastEvent: NetworkHandoverEvent | null;
+}
 
 interface NetworkUtilsInterface {
-  getNetworkInfo(): Promise<{
+  getNetworkInfo(): {
     isConnected: boolean;
     connectionType: string;
-  }>;
+  };
+  getNetworkState(): NetworkState | null;
+  getNetworkTransitions(): NetworkTransition[];
   startNetworkMonitoring(): void;
   stopNetworkMonitoring(): void;
+  startQualityProbe(
+    host: string,
+    port: number,
+    mode: string,
+    intervalMs: number,
+    timeoutMs: number,
+    windowSize: number
+  ): Promise<boolean>;
+  setQualityThresholds(
+    poor: number,
+    fair: number,
+    good: number,
+    hysteresis: number
+  ): void;
+  enableHandover(
+    includeEthernet: boolean,
+    minHoldMs: number,
+    restoreStableMs: number
+  ): Promise<boolean>;
+  disableHandover(): void;
+  getHandoverStatus(): Promise<NetworkHandoverStatus | null>;
+  stopQualityProbe(): void;
+  getQualityStats(): NetworkQualityStats | null;
 }
 
 const NativeNetworkUtils: NetworkUtilsInterface =
   Platform.OS === 'android'
-    ? NativeModules.NetworkUtils || {
-        getNetworkInfo: async () => {
+    ? (NativeNetworkUtilsSpec as NetworkUtilsInterface | null) || {
+        getNetworkInfo: () => {
           console.warn('NetworkUtils module not found');
           return { isConnected: true, connectionType: 'unknown' };
         },
+        getNetworkState: () => null,
+        getNetworkTransitions: () => [],
         startNetworkMonitoring: () => {
           console.warn('NetworkUtils module not found');
         },
         stopNetworkMonitoring: () => {
           console.warn('NetworkUtils module not found');
         },
+        startQualityProbe: async () => false,
+        setQualityThresholds: () => {},
+        enableHandover: async () => false,
+        disableHandover: () => {},
+        getHandoverStatus: async () => null,
+        stopQualityProbe: () => {},
+        getQualityStats: () => null,
       }
     : {
-        getNetworkInfo: async () => ({
+        getNetworkInfo: () => ({
           isConnected: true,
           connectionType: 'unknown',
         }),
+        getNetworkState: () => null,
+        getNetworkTransitions: () => [],
         startNetworkMonitoring: () => {},
         stopNetworkMonitoring: () => {},
+        startQualityProbe: async () => false,
+        setQualityThresholds: () => {},
+        enableHandover: async () => false,
+        disableHandover: () => {},
+        getHandoverStatus: async () => null,
+        stopQualityProbe: () => {},
+        getQualityStats: () => null,
       };
 
+const serverEndpoint = (): { host: string; port: number } | null => {
+  if (!API_URL) {
+    return null;
+  }
+  const match = /^(\w+):\/\/([^/:?#]+)(?::(\d+))?/.exec(API_URL);
+  if (!match) {
+    return null;
+  }
+  const port = match[3]
+    ? parseInt(match[3], 10)
+    : match[1] === 'https' || match[1] === 'wss'
+      ? 443
+      : 80;
+  return { host: match[2], port };
+};
+
 class NetworkMonitorService {
   private eventEmitter: NativeEventEmitter | null = null;
   private listeners: Array<() => void> = [];
+  private qualityListener: (() => void) | null = null;
   constructor() {
-    if (Platform.OS === 'android' && NativeModules.NetworkUtils) {
+    if (Platform.OS === 'android' && NativeNetworkUtilsSpec) {
       try {
-        this.eventEmitter = new NativeEventEmitter(NativeModules.NetworkUtils);
+        this.eventEmitter = new NativeEventEmitter(NativeNetworkUtilsSpec);
       } catch (error) {
         console.warn('Failed to create NetworkUtils event emitter:', error);
         this.eventEmitter = null;
@@ -78,6 +236,27 @@ class NetworkMonitorService {
       if (subscription) {
         this.listeners.push(() => subscription.remove());
       }
+
+      const handoverSubscription = this.eventEmitter?.addListener(
+        'networkHandover',
+        (event: NetworkHandoverEvent) => {
+          if (event.type !== 'failed') {
+            // New sockets now go out on the other network
+            socketService.reconnectNow();
+          }
+        }
+      );
+
+      if (handoverSubscription) {
+        this.listeners.push(() => handoverSubscription.remove());
+      }
+
+      NativeNetworkUtils.enableHandover(true, 0, 0).catch(error =>
+        console.warn('Failed to enable network handover:', error)
+      );
+
+      // Feeds the quality-triggered handover as well as networkQuality
+      this.startQualityProbe();
     } catch (error) {
       console.error('Error starting network monitoring:', error);
     }
@@ -90,18 +269,146 @@ class NetworkMonitorService {
       this.listeners.forEach(remove => remove());
       this.listeners = [];
 
+      this.stopQualityProbe();
+      NativeNetworkUtils.disableHandover();
       NativeNetworkUtils.stopNetworkMonitoring();
     } catch (error) {
       console.error('Error stopping network monitoring:', error);
     }
   }
 
+  /**
+   * Starts the native RTT/jitter probe, by default against the API server.
+   * The listener only fires when the quality level changes.
+   */
+  async startQualityProbe(
+    onQualityChange?: (event: NetworkQualityEvent) => void,
+    options: NetworkQualityProbeOptions = {}
+  ): Promise<boolean> {
+    if (Platform.OS !== 'android') {
+      return false;
+    }
+
+    const endpoint = serverEndpoint();
+    const host = options.host ?? endpoint?.host;
+    const port = options.port ?? endpoint?.port;
+    if (!host || !port) {
+      console.warn('No server endpoint configured for the quality probe');
+      return false;
+    }
+
+    try {
+      this.qualityListener?.();
+      this.qualityListener = null;
+      if (onQualityChange && this.eventEmitter) {
+        const subscription = this.eventEmitter.addListener(
+          'networkQuality',
+          onQualityChange
+        );
+        this.qualityListener = () => subscription.remove();
+      }
+      const thresholds = options.thresholds;
+      if (thresholds) {
+        NativeNetworkUtils.setQualityThresholds(
+          thresholds.poor ?? 25,
+          thresholds.fair ?? 50,
+          thresholds.good ?? 75,
+          thresholds.hysteresis ?? 5
+        );
+      }
+      return await NativeNetworkUtils.startQualityProbe(
+        host,
+        port,
+        options.mode ?? 'connect',
+        options.intervalMs ?? 0,
+        options.timeoutMs ?? 0,
+        options.windowSize ?? 0
+      );
+    } catch (error) {
+      console.error('Error starting network quality probe:', error);
+      return false;
+    }
+  }
+
+  stopQualityProbe() {
+    if (Platform.OS !== 'android') return;
+
+    try {
+      this.qualityListener?.();
+      this.qualityListener = null;
+      NativeNetworkUtils.stopQualityProbe();
+    } catch (error) {
+      console.error('Error stopping network quality probe:', error);
+    }
+  }
+
+  /**
+   * Copy of the probe window, read synchronously.
+   */
+  getQualityStats(): NetworkQualityStats | null {
+    if (Platform.OS !== 'android') {
+      return null;
+    }
+
+    try {
+      return NativeNetworkUtils.getQualityStats();
+    } catch (error) {
+      console.error('Error getting network quality stats:', error);
+      return null;
+    }
+  }
+
+  /**
+   * Cached native snapshot, read synchronously without a bridge round trip.
+   */
+  getNetworkState(): NetworkState | null {
+    if (Platform.OS !== 'android') {
+      return null;
+    }
+
+    try {
+      return NativeNetworkUtils.getNetworkState();
+    } catch (error) {
+      console.error('Error reading network state:', error);
+      return null;
+    }
+  }
+
+  /**
+   * Recent connectivity/transport transitions, oldest first.
+   */
+  getNetworkTransitions(): NetworkTransition[] {
+    if (Platform.OS !== 'android') {
+      return [];
+    }
+
+    try {
+      return NativeNetworkUtils.getNetworkTransitions();
+    } catch (error) {
+      console.error('Error reading network transitions:', error);
+      return [];
+    }
+  }
+
+  async getHandoverStatus(): Promise<NetworkHandoverStatus | null> {
+    if (Platform.OS !== 'android') {
+      return null;
+    }
+
+    try {
+      return await NativeNetworkUtils.getHandoverStatus();
+    } catch (error) {
+      console.error('Error getting handover status:', error);
+      return null;
+    }
+  }
+
   async getNetworkInfo(): Promise<{
     isConnected: boolean;
     connectionType: string;
   }> {
     try {
-      return await NativeNetworkUtils.getNetworkInfo();
+      return NativeNetworkUtils.getNetworkInfo();
     } catch (error) {
       console.error('Error getting network info:', error);
       return { isConnected: false, connectionType: 'unknown' };
@@ -0,0 +1,387 @@
+import {
+  EmitterSubscription,
+  NativeEventEmitter,
+  NativeModules,
+  Platform,
+} from 'react-native';
+
+export type RealtimePriority = 'high' | 'normal' | 'bulk';
+
+export type RealtimeState = 'idle' | 'connecting' | 'open' | 'waiting';
+
+export interface RealtimeTransportOptions {
+  /** 'socketio' speaks Engine.IO v4; 'raw' treats every frame as a message. */
+  mode?: 'socketio' | 'raw';
+  backoffBaseMs?: number;
+  backoffMaxMs?: number;
+  /** WebSocket ping interval in raw mode. */
+  pingIntervalMs?: number;
+  connectTimeoutMs?: number;
+  highCapacity?: number;
+  normalCapacity?: number;
+  bulkCapacity?: number;
+}
+
+interface QueueStats {
+  queued: number;
+  sent: number;
+  dropped: number;
+}
+
+export interface RealtimeTransportStats {
+  started: boolean;
+  state: RealtimeState;
+  attempt?: number;
+  backoffMs?: number;
+  connects?: number;
+  disconnects?: number;
+  framesIn?: number;
+  framesOut?: number;
+  charsIn?: number;
+  pingsAnswered?: number;
+  lastOpenAt?: number;
+  lastCloseAt?: number;
+  socketQueueBytes?: number;
+  queuedChars?: number;
+  batchesDelivered?: number;
+  messagesDelivered?: number;
+  pendingInbound?: number;
+  inboundDropped?: number;
+  leaseHeld?: boolean;
+  lastError?: string;
+  queues?: Record<RealtimePriority, QueueStats>;
+}
+
+interface RealtimeTransportInterface {
+  connect(
+    url: string,
+    options: RealtimeTransportOptions | null
+  ): Promise<boolean>;
+  disconnect(): Promise<boolean>;
+  reconnectNow(): void;
+  send(event: string, payloadJson: string | null, priority: number): void;
+  getStats(): Promise<RealtimeTransportStats>;
+}
+
+const unavailable: RealtimeTransportInterface = {
+  connect: async () => false,
+  disconnect: async () => false,
+  reconnectNow: () => {},
+  send: () => {},
+  getStats: async () => ({ started: false, state: 'idle' }),
+};
+
+const NativeRealtimeTransport: RealtimeTransportInterface =
+  Platform.OS === 'android'
+    ? NativeModules.RealtimeTransport || unavailable
+    : unavailable;
+
+const PRIORITIES: Record<RealtimePriority, number> = {
+  high: 0,
+  normal: 1,
+  bulk: 2,
+};
+
+type MessageHandler = (...args: any[]) => void;
+
+type StateHandler = (
+  state: RealtimeState,
+  previous: RealtimeState,
+  reason?: string
+) => void;
+
+class RealtimeTransportService {
+  private state: RealtimeState = 'idle';
+  private handlers: Map<string, Set<MessageHandler>> = new Map();
+  private anyHandlers: Set<MessageHandler> = new Set();
+  private stateHandlers: Set<StateHandler> = new Set();
+  private subscriptions: EmitterSubscription[] = [];
+
+  get isAvailable(): boolean {
+    return Platform.OS === 'android' && !!NativeModules.RealtimeTransport;
+  }
+
+  get isOpen(): boolean {
+    return this.state === 'open';
+  }
+
+  /** False once disconnected; true while open or (re)connecting. */
+  get isStarted(): boolean {
+    return this.state !== 'idle';
+  }
+
+  async connect(
+    url: string,
+    options: RealtimeTransportOptions = {}
+  ): Promise<boolean> {
+    if (!this.isAvailable) {
+      return false;
+    }
+    this.subscribe();
+    this.setState('connecting');
+
+    try {
+      return await NativeRealtimeTransport.connect(url, options);
+    } catch (error) {
+      console.error('Failed to start native transport:', error);
+      this.setState('idle');
+      return false;
+    }
+  }
+
+  async disconnect(): Promise<void> {
+    if (!this.isAvailable) {
+      return;
+    }
+    try {
+      await NativeRealtimeTransport.disconnect();
+    } catch (error) {
+      console.error('Failed to stop native transport:', error);
+    }
+    this.setState('idle');
+  }
+
+  reconnectNow(): void {
+    NativeRealtimeTransport.reconnectNow();
+  }
+
+  /**
+   * Queues an event on the native socket. High priority frames go out ahead
+   * of anything already waiting at normal or bulk priority.
+   */
+  send(
+    event: string,
+    payload: unknown,
+    priority: RealtimePriority = 'normal'
+  ): void {
+    NativeRealtimeTransport.send(
+      event,
+      payload === undefined ? null : JSON.stringify(payload),
+      PRIORITIES[priority]
+    );
+  }
+
+  on(event: string, handler: MessageHandler): () => void {
+    if (!this.handlers.has(event)) {
+      this.handlers.set(event, new Set());
+    }
+    this.handlers.get(event)?.add(handler);
+    return () => {
+      this.handlers.get(event)?.delete(handler);
+    };
+  }
+
+  off(event: string, handler?: MessageHandler): void {
+    if (handler) {
+      this.handlers.get(event)?.delete(handler);
+    } else {
+      this.handlers.delete(event);
+    }
+  }
+
+  onAny(handler: MessageHandler): () => void {
+    this.anyHandlers.add(handler);
+    return () => {
+      this.anyHandlers.delete(handler);
+    };
+  }
+
+  onState(handler: StateHandler): () => void {
+    this.stateHandlers.add(handler);
+    return () => {
+      this.stateHandlers.delete(handler);
+    };
+  }
+
+  /**
+   * A socket.io-client style socket on the native transport, for
+   * SocketService to use in place of its own connection.
+   */
+  createSocket(url: string): RealtimeSocket {
+    return new RealtimeSocket(this, url);
+  }
+
+  getStats(): Promise<RealtimeTransportStats> {
+    return NativeRealtimeTransport.getStats();
+  }
+
+  private subscribe(): void {
+    if (this.subscriptions.length > 0) {
+      return;
+    }
+
+    const emitter = new NativeEventEmitter(NativeModules.RealtimeTransport);
+    this.subscriptions.push(
+      emitter.addListener(
+        'realtimeState',
+        (event: { state: RealtimeState; reason?: string }) => {
+          this.setState(event.state, event.reason);
+        }
+      ),
+      emitter.addListener(
+        'realtimeMessages',
+        (batch: { messages: [string | null, string][] }) => {
+          for (const [event, body] of batch.messages) {
+            this.dispatch(event, body);
+          }
+        }
+      )
+    );
+  }
+
+  private setState(state: RealtimeState, reason?: string): void {
+    const previous = this.state;
+    if (state === previous) {
+      return;
+    }
+    this.state = state;
+    this.stateHandlers.forEach(handler => handler(state, previous, reason));
+  }
+
+  private dispatch(event: string | null, body: string): void {
+    // Raw mode frames have no event name and arrive as 'message'
+    const name = event ?? 'message';
+    const handlers = this.handlers.get(name);
+    if ((!handlers || handlers.size === 0) && this.anyHandlers.size === 0) {
+      return;
+    }
+
+    let args: any[];
+    try {
+      const parsed = JSON.parse(body);
+      args = event === null ? [parsed] : (parsed as any[]).slice(1);
+    } catch (error) {
+      console.warn(`Malformed realtime message for ${name}:`, error);
+      return;
+    }
+    this.anyHandlers.forEach(handler => handler(name, ...args));
+    handlers?.forEach(handler => handler(...args));
+  }
+}
+
+/**
+ * The part of socket.io-client's Socket that SocketService uses, on top of
+ * the native transport. Joins, inbound events and emits all go over the one
+ * native socket, so the rooms it joins are the ones its events come from.
+ */
+export class RealtimeSocket {
+  private lifecycle: Map<string, Set<MessageHandler>> = new Map();
+  private removeStateHandler: (() => void) | null = null;
+
+  constructor(
+    private transport: RealtimeTransportService,
+    private url: string
+  ) {
+    this.watchState();
+  }
+
+  get connected(): boolean {
+    return this.transport.isOpen;
+  }
+
+  /**
+   * Unlike socket.io-client, true only once the transport was stopped; a
+   * socket that is still reconnecting is not replaced with a new one.
+   */
+  get disconnected(): boolean {
+    return !this.transport.isStarted;
+  }
+
+  get id(): string | undefined {
+    return undefined;
+  }
+
+  on(event: string, handler: MessageHandler): this {
+    if (isLifecycleEvent(event)) {
+      if (!this.lifecycle.has(event)) {
+        this.lifecycle.set(event, new Set());
+      }
+      this.lifecycle.get(event)?.add(handler);
+    } else {
+      this.transport.on(event, handler);
+    }
+    return this;
+  }
+
+  once(event: string, handler: MessageHandler): this {
+    const wrapper = (...args: any[]) => {
+      this.off(event, wrapper);
+      handler(...args);
+    };
+    return this.on(event, wrapper);
+  }
+
+  off(event: string, handler?: MessageHandler): this {
+    if (isLifecycleEvent(event)) {
+      if (handler) {
+        this.lifecycle.get(event)?.delete(handler);
+      } else {
+        this.lifecycle.delete(event);
+      }
+    } else {
+      this.transport.off(event, handler);
+    }
+    return this;
+  }
+
+  onAny(handler: MessageHandler): this {
+    this.transport.onAny(handler);
+    return this;
+  }
+
+  /** One payload per event, which is all SocketService sends. */
+  emit(event: string, payload?: unknown): this {
+    this.transport.send(event, payload, 'normal');
+    return this;
+  }
+
+  connect(): this {
+    this.watchState();
+    this.transport.connect(this.url);
+    return this;
+  }
+
+  disconnect(): this {
+    this.removeStateHandler?.();
+    this.removeStateHandler = null;
+    this.transport.disconnect();
+    return this;
+  }
+
+  private watchState(): void {
+    if (this.removeStateHandler) {
+      return;
+    }
+    this.removeStateHandler = this.transport.onState(
+      (state, previous, reason) => {
+        if (state === 'open') {
+          this.emitLifecycle('connect');
+        } else if (previous === 'open') {
+          this.emitLifecycle('disconnect', reason ?? 'transport close');
+        }
+      }
+    );
+  }
+
+  private emitLifecycle(event: string, ...args: any[]): void {
+    this.lifecycle.get(event)?.forEach(handler => handler(...args));
+  }
+}
+
+// Raised by the socket itself; the rest are the server's events
+const LIFECYCLE_EVENTS = new Set([
+  'connect',
+  'disconnect',
+  'connect_error',
+  'connect_timeout',
+  'error',
+  'reconnect',
+  'reconnect_attempt',
+  'reconnect_error',
+  'reconnect_failed',
+]);
+
+const isLifecycleEvent = (event: string): boolean =>
+  LIFECYCLE_EVENTS.has(event);
+
+export const realtimeTransportService = new RealtimeTransportService();
@@ -0,0 +1,124 @@
+import { Platform } from 'react-native';
+import NativeNetworkUtils from '@/specs/NativeNetworkUtils';
+
+export interface ServerEndpoint {
+  name: string;
+  host: string;
+  port: number;
+  rttMs: number;
+  resolvedAt: number;
+}
+
+export interface DiscoveredServer extends ServerEndpoint {
+  networkId: string | null;
+  source: 'cache' | 'discovery';
+  elapsedMs: number;
+  candidates: ServerEndpoint[];
+}
+
+export interface ServerDiscoveryOptions {
+  serviceType?: string;
+  timeoutMs?: number;
+  settleMs?: number;
+  probeTimeoutMs?: number;
+  forceRefresh?: boolean;
+  maxAgeMs?: number;
+}
+
+interface ServerDiscoveryInterface {
+  discoverServer(
+    serviceType: string | null,
+    timeoutMs: number,
+    settleMs: number,
+    probeTimeoutMs: number,
+    forceRefresh: boolean,
+    maxAgeMs: number
+  ): Promise<DiscoveredServer>;
+  clearServerCache(networkId: string | null): void;
+  getCachedServers(): Promise<{
+    currentNetworkId: string | null;
+    networks: Record<string, ServerEndpoint[]>;
+  }>;
+}
+
+const NativeServerDiscovery: ServerDiscoveryInterface | null =
+  Platform.OS === 'android'
+    ? (NativeNetworkUtils as ServerDiscoveryInterface | null)
+    : null;
+
+// Zero or null leaves the native default in place
+const discoverWith = (
+  module: ServerDiscoveryInterface,
+  options: ServerDiscoveryOptions
+): Promise<DiscoveredServer> =>
+  module.discoverServer(
+    options.serviceType ?? null,
+    options.timeoutMs ?? 0,
+    options.settleMs ?? 0,
+    options.probeTimeoutMs ?? 0,
+    options.forceRefresh ?? false,
+    options.maxAgeMs ?? 0
+  );
+
+// Short enough not to hold up a connect on a network without an advertiser
+const CONNECT_DISCOVERY_TIMEOUT_MS = 1500;
+
+class ServerDiscoveryService {
+  private current: DiscoveredServer | null = null;
+
+  /**
+   * Replaces the host and port of {@code fallbackUrl} with the examiner
+   * server found on the local network. Known networks are answered from the
+   * native cache; when nothing is found the fallback is returned unchanged.
+   */
+  async resolveUrl(fallbackUrl: string): Promise<string> {
+    if (!NativeServerDiscovery || !fallbackUrl) {
+      return fallbackUrl;
+    }
+
+    try {
+      const server = await discoverWith(NativeServerDiscovery, {
+        timeoutMs: CONNECT_DISCOVERY_TIMEOUT_MS,
+      });
+      this.current = server;
+      const scheme = /^(\w+):\/\//.exec(fallbackUrl)?.[1] ?? 'http';
+      return `${scheme}://${server.host}:${server.port}`;
+    } catch (error) {
+      this.current = null;
+      return fallbackUrl;
+    }
+  }
+
+  /**
+   * Forgets the cached endpoint of the current network, e.g. when
+   * connecting to it failed, so the next connect browses again.
+   */
+  invalidateCurrent(): void {
+    if (NativeServerDiscovery && this.current?.networkId) {
+      NativeServerDiscovery.clearServerCache(this.current.networkId);
+    }
+    this.current = null;
+  }
+
+  getCurrent(): DiscoveredServer | null {
+    return this.current;
+  }
+
+  async discover(
+    options: ServerDiscoveryOptions = {}
+  ): Promise<DiscoveredServer | null> {
+    if (!NativeServerDiscovery) {
+      return null;
+    }
+
+    try {
+      this.current = await discoverWith(NativeServerDiscovery, options);
+      return this.current;
+    } catch (error) {
+      console.warn('Server discovery failed:', error);
+      return null;
+    }
+  }
+}
+
+export const serverDiscoveryService = new ServerDiscoveryService();
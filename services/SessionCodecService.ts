@@ -0,0 +1,141 @@
+import { NativeModules, Platform } from 'react-native';
+
+export type CodecKind = 'state' | 'audio' | 'vitals';
+
+export interface EncodedFrame {
+  /** Base64 of the binary frame. */
+  data: string;
+  seq: number;
+  delta: boolean;
+  bytes: number;
+  jsonBytes: number;
+  ratio: number;
+  encodeMicros: number;
+}
+
+export interface DecodedFrame<T = Record<string, unknown>> {
+  seq: number;
+  delta: boolean;
+  payload: T;
+  decodeMicros: number;
+}
+
+export interface SessionCodecStats {
+  encodeCount: number;
+  deltaCount: number;
+  fullCount: number;
+  encodedBytes: number;
+  jsonBytes: number;
+  compressionRatio: number;
+  avgEncodeMicros: number;
+  maxEncodeMicros: number;
+  decodeCount: number;
+  decodedBytes: number;
+  avgDecodeMicros: number;
+  maxDecodeMicros: number;
+  baseMisses: number;
+  acks: number;
+  encoderStreams: number;
+  decoderStreams: number;
+}
+
+interface SessionCodecInterface {
+  encode(
+    kind: CodecKind,
+    streamId: string,
+    payload: Record<string, unknown>
+  ): Promise<EncodedFrame>;
+  decode(
+    kind: CodecKind,
+    streamId: string,
+    data: string
+  ): Promise<DecodedFrame>;
+  ack(kind: CodecKind, streamId: string, seq: number): Promise<boolean>;
+  resetStream(kind: CodecKind | null, streamId: string): void;
+  getStats(): Promise<SessionCodecStats>;
+}
+
+const NativeSessionCodec: SessionCodecInterface | null =
+  Platform.OS === 'android' ? NativeModules.SessionCodec || null : null;
+
+class SessionCodecService {
+  get isAvailable(): boolean {
+    return NativeSessionCodec !== null;
+  }
+
+  /**
+   * Encodes a message for {@code streamId}. Frames are deltas against the
+   * last one the peer acknowledged, so call {@link ack} when it confirms.
+   */
+  async encode(
+    kind: CodecKind,
+    streamId: string,
+    payload: Record<string, unknown>
+  ): Promise<EncodedFrame | null> {
+    if (!NativeSessionCodec) {
+      return null;
+    }
+    try {
+      return await NativeSessionCodec.encode(kind, streamId, payload);
+    } catch (error) {
+      console.error(`Failed to encode ${kind} for ${streamId}:`, error);
+      return null;
+    }
+  }
+
+  /**
+   * Decodes a frame from {@code streamId}. Returns null when the frame
+   * refers to a base this side no longer has; the sender then needs to
+   * reset its stream and send the full state.
+   */
+  async decode<T = Record<string, unknown>>(
+    kind: CodecKind,
+    streamId: string,
+    data: string
+  ): Promise<DecodedFrame<T> | null> {
+    if (!NativeSessionCodec) {
+      return null;
+    }
+    try {
+      return (await NativeSessionCodec.decode(
+        kind,
+        streamId,
+        data
+      )) as DecodedFrame<T>;
+    } catch (error: any) {
+      if (error?.code !== 'BASE_MISSING') {
+        console.error(`Failed to decode ${kind} from ${streamId}:`, error);
+      }
+      return null;
+    }
+  }
+
+  async ack(kind: CodecKind, streamId: string, seq: number): Promise<boolean> {
+    if (!NativeSessionCodec) {
+      return false;
+    }
+    return NativeSessionCodec.ack(kind, streamId, seq);
+  }
+
+  /**
+   * Forgets a peer, e.g. when a student leaves or reconnects; with no kind
+   * every stream of the peer starts over with a full frame.
+   */
+  resetStream(streamId: string, kind: CodecKind | null = null): void {
+    NativeSessionCodec?.resetStream(kind, streamId);
+  }
+
+  async getStats(): Promise<SessionCodecStats | null> {
+    if (!NativeSessionCodec) {
+      return null;
+    }
+    try {
+      return await NativeSessionCodec.getStats();
+    } catch (error) {
+      console.error('Failed to get codec stats:', error);
+      return null;
+    }
+  }
+}
+
+export const sessionCodecService = new SessionCodecService();
@@ -1,8 +1,15 @@
 import { io, Socket } from 'socket.io-client';
 import { Session } from './SessionService';
-import { WS_URL } from '@/constants/Config';
+import { NATIVE_TRANSPORT, SESSION_CODEC, WS_URL } from '@/constants/Config';
 import { Platform } from 'react-native';
 import { wifiKeepAliveService } from './WifiKeepAliveService';
+import { serverDiscoveryService } from './ServerDiscoveryService';
+import {
+  RealtimeSocket,
+  realtimeTransportService,
+} from './RealtimeTransportService';
+import { eventJournalService } from './EventJournalService';
+import { CodecKind, sessionCodecService } from './SessionCodecService';
 import { SoundQueueItem } from '@/app/screens/examiner/types/types';
 
 export interface StudentListUpdate {
@@ -31,7 +38,18 @@ export interface StudentSessionUpdate {
 
 class SocketService {
   private socket: Socket | null = null;
+  private url: string = WS_URL;
   private listeners: Map<string, Set<(data: any) => void>> = new Map();
+  // Sessions this client takes part in; leases auto-renew only while any is
+  private activeSessions = new Set<string>();
+  // Codec streams sent on this connection, restarted with a full frame after
+  // a reconnect since the server's decoders may be gone
+  private codecStreams = new Set<string>();
+  // Priority emits made while the journal replays, sent after it so the
+  // server sees commands in the order they were given
+  private replaying: Promise<void> | null = null;
+  private heldEmits: { eventName: string; data: any }[] = [];
+  private commandCounter = 0;
   async connect(): Promise<Socket> {
     if (!this.socket || this.socket.disconnected) {
       if (Platform.OS === 'android') {
@@ -42,6 +60,18 @@ class SocketService {
         }
       }
 
+      this.url = await serverDiscoveryService.resolveUrl(WS_URL);
+
+      if (NATIVE_TRANSPORT && realtimeTransportService.isAvailable) {
+        // The native socket carries all session traffic, so no socket.io
+        // connection is opened next to it; it mirrors the Socket API used here
+        this.socket = realtimeTransportService
+          .createSocket(this.url)
+          .connect() as unknown as Socket;
+        this.setupEventListeners();
+        return this.socket;
+      }
+
       const socketOptions = {
         path: '/socket.io',
         transports:
@@ -66,7 +96,7 @@ class SocketService {
       }
 
       try {
-        this.socket = io(WS_URL, socketOptions);
+        this.socket = io(this.url, socketOptions);
       } catch (error) {
         console.error('Failed to initialize socket:', error);
 
@@ -75,7 +105,7 @@ class SocketService {
           transports: ['polling'],
           upgrade: false,
         };
-        this.socket = io(WS_URL, altOptions);
+        this.socket = io(this.url, altOptions);
       }
 
       this.setupEventListeners();
@@ -86,10 +116,35 @@ class SocketService {
   private setupEventListeners() {
     if (!this.socket) return;
 
-    this.socket.on('connect', () => {});
+    this.socket.on('connect', () => {
+      this.resetCodecStreams();
+      this.replayJournal();
+    });
+    if (SESSION_CODEC) {
+      this.socket.on(
+        'codec-ack',
+        (ack: { kind: CodecKind; stream: string; seq: number }) => {
+          sessionCodecService
+            .ack(ack.kind, ack.stream, ack.seq)
+            .catch(error => console.error('Failed to apply codec ack:', error));
+        }
+      );
+      this.socket.on(
+        'codec-reset',
+        (reset: { kind: CodecKind; stream: string }) => {
+          sessionCodecService.resetStream(reset.stream, reset.kind);
+        }
+      );
+    }
     this.socket.on('connect_error', error => {
       console.error('🔴 Socket connection error:', error.message);
 
+      if (this.url !== WS_URL) {
+        // The discovered endpoint is stale; browse again on the next connect
+        serverDiscoveryService.invalidateCurrent();
+        this.url = WS_URL;
+      }
+
       if (Platform.OS === 'android') {
         this.reconnectWithPolling();
       }
@@ -153,6 +208,9 @@ class SocketService {
       }
 
       this.socket.once('joined-code', response => {
+        if (response?.success) {
+          this.setSessionActive(`code:${code}`, true);
+        }
         resolve(response);
       });
     });
@@ -220,8 +278,9 @@ class SocketService {
       command,
       soundName,
       loop,
+      commandId: this.nextCommandId(),
     };
-    this.safeEmit('audio-command', payload);
+    this.emitCommand('audio-command', `code:${sessionCode}`, payload);
   }
 
   // Nowa metoda do odtwarzania audio z serwera dla całej sesji
@@ -231,21 +290,20 @@ class SocketService {
     audioId: string,
     loop: boolean = false
   ): void {
-    if (this.socket && this.socket.connected) {
-      this.socket.emit('server-audio-command', {
-        code: sessionCode,
-        command,
-        audioId,
-        loop,
-      });
-    } else {
-      console.warn('Socket not connected, cannot emit server audio command');
-    }
+    const payload = {
+      code: sessionCode,
+      command,
+      audioId,
+      loop,
+      commandId: this.nextCommandId(),
+    };
+    this.emitCommand('server-audio-command', `code:${sessionCode}`, payload);
   }
   leaveSession(code: string): void {
     if (!this.socket || !this.socket.connected) return;
 
     this.safeEmit('leave-code', code);
+    this.setSessionActive(`code:${code}`, false);
 
     // Also unsubscribe from specific session update events for this code
     const specificEvent = `session-update-${code}`;
@@ -318,9 +376,14 @@ class SocketService {
       command,
       soundName,
       loop,
+      commandId: this.nextCommandId(),
     };
 
-    this.safeEmit('student-audio-command', payload);
+    this.emitCommand(
+      'student-audio-command',
+      `student:${studentId}`,
+      payload
+    );
   }
 
   private _doExaminerSubscribe(
@@ -362,6 +425,7 @@ class SocketService {
 
       this.socket.once('examiner-subscribe-success', () => {
         clearTimeout(timeoutId);
+        this.setSessionActive('examiner', true);
         resolve({ success: true });
       });
 
@@ -378,6 +442,7 @@ class SocketService {
   unsubscribeAsExaminer(): void {
     if (!this.socket || !this.socket.connected) return;
     this.safeEmit('examiner-unsubscribe', {});
+    this.setSessionActive('examiner', false);
 
     // Clean up listeners
     this.socket.off('student-list-update');
@@ -388,6 +453,18 @@ class SocketService {
     this.socket.off('examiner-subscribe-error');
   }
 
+  private setSessionActive(key: string, active: boolean): void {
+    const wasActive = this.activeSessions.size > 0;
+    if (active) {
+      this.activeSessions.add(key);
+    } else {
+      this.activeSessions.delete(key);
+    }
+    if (this.activeSessions.size > 0 !== wasActive) {
+      wifiKeepAliveService.setSessionActive(!wasActive);
+    }
+  }
+
   private async reconnectWithPolling(): Promise<void> {
     try {
       // Disconnect current socket
@@ -396,7 +473,7 @@ class SocketService {
       }
 
       // Create new socket with polling transport only
-      this.socket = io(WS_URL, {
+      this.socket = io(this.url, {
         transports: ['polling'],
         withCredentials: false,
         autoConnect: true,
@@ -428,6 +505,117 @@ class SocketService {
     }
   }
 
+  /**
+   * Audio commands go through the native transport when it is open, where
+   * they overtake any bulk updates still waiting to be sent. Without a
+   * connection they are journaled under their commandId and sent on the
+   * next connect; while that replay runs, new ones wait behind it.
+   */
+  private emitPriority(eventName: string, data: any): void {
+    if (this.replaying) {
+      this.heldEmits.push({ eventName, data });
+      return;
+    }
+    if (realtimeTransportService.isOpen) {
+      realtimeTransportService.send(eventName, data, 'high');
+      return;
+    }
+    if (!this.socket?.connected && eventJournalService.isAvailable) {
+      eventJournalService.append(eventName, data, data?.commandId);
+      return;
+    }
+    this.safeEmit(eventName, data);
+  }
+
+  // Unique per command, so the journal and the server can drop a repeat
+  private nextCommandId(): string {
+    this.commandCounter += 1;
+    return `${Date.now().toString(36)}-${this.commandCounter}`;
+  }
+
+  /**
+   * With SESSION_CODEC on, a command goes out on '<event>-frame' as a codec
+   * frame (a delta once the server has acknowledged an earlier one) instead
+   * of JSON. Offline commands stay JSON: a journaled delta could outlive
+   * the base it refers to.
+   */
+  private emitCommand(
+    eventName: string,
+    streamId: string,
+    payload: Record<string, unknown>
+  ): void {
+    if (
+      !SESSION_CODEC ||
+      !sessionCodecService.isAvailable ||
+      !this.socket?.connected
+    ) {
+      this.emitPriority(eventName, payload);
+      return;
+    }
+    this.codecStreams.add(streamId);
+    sessionCodecService.encode('audio', streamId, payload).then(frame => {
+      if (!frame || !this.socket?.connected) {
+        this.emitPriority(eventName, payload);
+        return;
+      }
+      this.emitPriority(`${eventName}-frame`, {
+        kind: 'audio',
+        stream: streamId,
+        seq: frame.seq,
+        data: frame.data,
+      });
+    });
+  }
+
+  private resetCodecStreams(): void {
+    this.codecStreams.forEach(streamId =>
+      sessionCodecService.resetStream(streamId)
+    );
+    this.codecStreams.clear();
+  }
+
+  private replayJournal(): void {
+    if (!eventJournalService.isAvailable || this.replaying) {
+      return;
+    }
+    this.replaying = eventJournalService
+      .replay((eventName, data) => {
+        if (!this.socket?.connected) {
+          return false;
+        }
+        this.socket.emit(eventName, data);
+        return true;
+      })
+      .finally(() => {
+        this.replaying = null;
+        const held = this.heldEmits;
+        this.heldEmits = [];
+        held.forEach(({ eventName, data }) =>
+          this.emitPriority(eventName, data)
+        );
+      });
+  }
+
+  /**
+   * Drops the current transport and reconnects at once instead of waiting
+   * for the backoff, e.g. after the native side switched networks.
+   */
+  reconnectNow(): void {
+    if (!this.socket) {
+      return;
+    }
+    if (this.socket instanceof RealtimeSocket) {
+      realtimeTransportService.reconnectNow();
+      return;
+    }
+    try {
+      this.socket.disconnect();
+      this.socket.connect();
+    } catch (error) {
+      console.error('Error reconnecting socket:', error);
+    }
+  }
+
   getConnectionStatus(): {
     connected: boolean;
     id: string | null;
@@ -436,7 +624,7 @@ class SocketService {
     return {
       connected: this.socket?.connected || false,
       id: this.socket?.id || null,
-      url: WS_URL,
+      url: this.url,
     };
   }
   async disconnect(): Promise<void> {
@@ -444,6 +632,11 @@ class SocketService {
       this.socket.disconnect();
       this.socket = null;
       this.listeners.clear();
+      if (this.activeSessions.size > 0) {
+        this.activeSessions.clear();
+        wifiKeepAliveService.setSessionActive(false);
+      }
+      await realtimeTransportService.disconnect();
 
       // Release WiFi lock on Android
       if (Platform.OS === 'android') {
@@ -1,41 +1,90 @@
-import { NativeModules, Platform } from 'react-native';
+import { Platform } from 'react-native';
+import NativeWifiKeepAliveSpec from '@/specs/NativeWifiKeepAlive';
+
+export interface WifiKeepAliveLease {
+  name: string;
+  holders: number;
+  ttlMs: number;
+  expiresInMs: number;
+  heldMs: number;
+  autoRenew: boolean;
+  /** Renewed until released, session or not. */
+  pinned: boolean;
+  renewals: number;
+}
+
+export interface WifiKeepAliveStatus {
+  wakeLockHeld: boolean;
+  wifiLockHeld: boolean;
+  wifiMode: 'LOW_LATENCY' | 'HIGH_PERF';
+  sessionActive: boolean;
+  heldMs: number;
+  totalHeldMs: number;
+  acquireCount: number;
+  releaseCount: number;
+  leaseGrants: number;
+  leaseRenewals: number;
+  leaseExpirations: number;
+  activeLeases: WifiKeepAliveLease[];
+}
+
+export interface WifiKeepAliveLeaseOptions {
+  ttlMs?: number;
+  autoRenew?: boolean;
+}
 
 interface WifiKeepAliveInterface {
   acquireWifiLock(): Promise<boolean>;
   releaseWifiLock(): Promise<boolean>;
-  getStatus(): Promise<string>;
+  acquireLease(name: string, ttlMs: number, autoRenew: boolean): Promise<number>;
+  renewLease(name: string, ttlMs: number): Promise<boolean>;
+  releaseLease(name: string): Promise<number>;
+  setSessionActive(active: boolean): void;
+  getStatus(): WifiKeepAliveStatus | null;
 }
 
+const unavailable: WifiKeepAliveInterface = {
+  acquireWifiLock: async () => false,
+  releaseWifiLock: async () => false,
+  acquireLease: async () => 0,
+  renewLease: async () => false,
+  releaseLease: async () => 0,
+  setSessionActive: () => {},
+  getStatus: () => null,
+};
+
 const NativeWifiKeepAlive: WifiKeepAliveInterface =
-  Platform.OS === 'android'
-    ? NativeModules.WifiKeepAlive || {
-        acquireWifiLock: async () => {
-          console.warn('WifiKeepAlive module not found');
-          return false;
-        },
-        releaseWifiLock: async () => {
-          console.warn('WifiKeepAlive module not found');
-          return false;
-        },
-        getStatus: async () => 'Module not found',
-      }
-    : {
-        acquireWifiLock: async () => true,
-        releaseWifiLock: async () => true,
-        getStatus: async () => 'Not available on this platform',
-      };
+  Platform.OS === 'android' && NativeWifiKeepAliveSpec
+    ? (NativeWifiKeepAliveSpec as WifiKeepAliveInterface)
+    : unavailable;
+
+const DEFAULT_LEASE = 'socket';
 
 class WifiKeepAliveService {
-  private isActive = false;
+  private heldLeases = new Set<string>();
 
-  async enableWebSocketKeepAlive(): Promise<boolean> {
+  /**
+   * Takes a keep-alive lease for one caller. Each caller should use its own
+   * lease name, so releasing one does not drop the locks another still needs.
+   */
+  async enableWebSocketKeepAlive(
+    leaseName: string = DEFAULT_LEASE,
+    options: WifiKeepAliveLeaseOptions = {}
+  ): Promise<boolean> {
     if (Platform.OS !== 'android') {
       return true;
     }
+    if (this.heldLeases.has(leaseName)) {
+      return true;
+    }
 
     try {
-      await NativeWifiKeepAlive.acquireWifiLock();
-      this.isActive = true;
+      await NativeWifiKeepAlive.acquireLease(
+        leaseName,
+        options.ttlMs ?? 0,
+        options.autoRenew ?? true
+      );
+      this.heldLeases.add(leaseName);
       return true;
     } catch (error) {
       console.error('Failed to enable WebSocket keep-alive:', error);
@@ -43,14 +92,16 @@ class WifiKeepAliveService {
     }
   }
 
-  async disableWebSocketKeepAlive(): Promise<boolean> {
-    if (Platform.OS !== 'android' || !this.isActive) {
+  async disableWebSocketKeepAlive(
+    leaseName: string = DEFAULT_LEASE
+  ): Promise<boolean> {
+    if (Platform.OS !== 'android' || !this.heldLeases.has(leaseName)) {
       return true;
     }
 
     try {
-      await NativeWifiKeepAlive.releaseWifiLock();
-      this.isActive = false;
+      await NativeWifiKeepAlive.releaseLease(leaseName);
+      this.heldLeases.delete(leaseName);
       return true;
     } catch (error) {
       console.error('Failed to disable WebSocket keep-alive:', error);
@@ -58,17 +109,47 @@ class WifiKeepAliveService {
     }
   }
 
-  async getStatus(): Promise<string> {
+  setSessionActive(active: boolean): void {
+    if (Platform.OS === 'android') {
+      NativeWifiKeepAlive.setSessionActive(active);
+    }
+  }
+
+  /**
+   * Synchronous on the new architecture: the status is read from memory.
+   */
+  getStatusDetails(): WifiKeepAliveStatus | null {
     if (Platform.OS !== 'android') {
-      return 'Not available on this platform';
+      return null;
     }
 
     try {
-      return await NativeWifiKeepAlive.getStatus();
+      return NativeWifiKeepAlive.getStatus();
     } catch (error) {
       console.error('Failed to get WebSocket keep-alive status:', error);
+      return null;
+    }
+  }
+
+  async getStatus(): Promise<string> {
+    if (Platform.OS !== 'android') {
+      return 'Not available on this platform';
+    }
+
+    const status = this.getStatusDetails();
+    if (!status) {
       return 'Error getting status';
     }
+
+    const leases = status.activeLeases
+      .map(lease => `${lease.name} x${lease.holders}`)
+      .join(', ');
+    return (
+      `Wake lock: ${status.wakeLockHeld ? 'Held' : 'Not held'}, ` +
+      `WiFi lock: ${status.wifiLockHeld ? 'Held' : 'Not held'} ` +
+      `(${status.wifiMode})` +
+      (leases ? `, leases: ${leases}` : '')
+    );
   }
 }
 
@@ -0,0 +1,63 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export type BluetoothDeviceState = {
+  address: string;
+  name: string | null;
+  aclConnected: boolean;
+  a2dp: string;
+  hfp: string;
+  audioConnected: boolean;
+  changedAt: number;
+};
+
+export type BluetoothBatchResult = {
+  address: string;
+  success: boolean;
+  result: string;
+  profile: string | null;
+  message: string | null;
+  elapsedMs: number;
+};
+
+/** What connectDevices and disconnectDevices resolve with. */
+export type BluetoothBatchSummary = {
+  batchId: string;
+  operation: 'connect' | 'disconnect';
+  total: number;
+  succeeded: number;
+  failed: number;
+  wallMs: number;
+  averageDeviceMs: number;
+  maxDeviceMs: number;
+  results: Array<BluetoothBatchResult>;
+};
+
+export interface Spec extends TurboModule {
+  connectToDevice(deviceAddress: string): Promise<string>;
+  disconnectAudioDevice(deviceAddress: string): Promise<boolean>;
+  disconnectAudio(): Promise<boolean>;
+  getDeviceProfiles(deviceAddress: string): Promise<Array<string>>;
+  /** Resolves with {ADDRESS: ["A2DP", "HFP", ...]}, addresses upper-cased. */
+  getDeviceProfilesBatch(deviceAddresses: Array<string>): Promise<Object>;
+
+  /** concurrency and timeoutMs of zero or below use the defaults. */
+  connectDevices(
+    deviceAddresses: Array<string>,
+    concurrency: number,
+    timeoutMs: number,
+    batchId: string | null
+  ): Promise<Object>;
+  disconnectDevices(
+    deviceAddresses: Array<string>,
+    concurrency: number,
+    timeoutMs: number,
+    batchId: string | null
+  ): Promise<Object>;
+  getDeviceStates(): Array<BluetoothDeviceState>;
+
+  addListener(eventName: string): void;
+  removeListeners(count: number): void;
+}
+
+export default TurboModuleRegistry.get<Spec>('BluetoothModule');
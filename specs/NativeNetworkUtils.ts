@@ -0,0 +1,98 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export type NetworkInfo = {
+  isConnected: boolean;
+  connectionType: string;
+};
+
+export type NetworkState = {
+  isConnected: boolean;
+  connectionType: string;
+  validated: boolean;
+  metered: boolean;
+  updatedAt: number;
+  transitions: number;
+};
+
+export type NetworkTransition = {
+  timestamp: number;
+  elapsedRealtime: number;
+  isConnected: boolean;
+  connectionType: string;
+  previousType: string;
+  networkHandle: number;
+};
+
+export type NetworkQualityStats = {
+  score: number;
+  level: string;
+  p50Ms: number;
+  p95Ms: number;
+  jitterMs: number;
+  lossRate: number;
+  transport: string;
+  rssi: number | null;
+  running: boolean;
+  lastMs: number;
+  p90Ms: number;
+  p99Ms: number;
+  samples: number;
+  totalProbes: number;
+  totalLost: number;
+  linkSpeedMbps: number;
+  downstreamKbps: number;
+  upstreamKbps: number;
+};
+
+export interface Spec extends TurboModule {
+  getNetworkInfo(): NetworkInfo;
+  getNetworkState(): NetworkState;
+  getNetworkTransitions(): Array<NetworkTransition>;
+  startNetworkMonitoring(): void;
+  stopNetworkMonitoring(): void;
+
+  /** mode is 'connect' or 'echo'; zero or below uses the default. */
+  startQualityProbe(
+    host: string,
+    port: number,
+    mode: string,
+    intervalMs: number,
+    timeoutMs: number,
+    windowSize: number
+  ): Promise<boolean>;
+  /** Applies to the running probe and every probe started later. */
+  setQualityThresholds(
+    poor: number,
+    fair: number,
+    good: number,
+    hysteresis: number
+  ): void;
+  stopQualityProbe(): void;
+  getQualityStats(): NetworkQualityStats | null;
+
+  enableHandover(
+    includeEthernet: boolean,
+    minHoldMs: number,
+    restoreStableMs: number
+  ): Promise<boolean>;
+  disableHandover(): void;
+  getHandoverStatus(): Promise<Object>;
+
+  /** Null serviceType and zero or below use the defaults. */
+  discoverServer(
+    serviceType: string | null,
+    timeoutMs: number,
+    settleMs: number,
+    probeTimeoutMs: number,
+    forceRefresh: boolean,
+    maxAgeMs: number
+  ): Promise<Object>;
+  clearServerCache(networkId: string | null): void;
+  getCachedServers(): Promise<Object>;
+
+  addListener(eventName: string): void;
+  removeListeners(count: number): void;
+}
+
+export default TurboModuleRegistry.get<Spec>('NetworkUtils');
@@ -0,0 +1,42 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export type WifiKeepAliveLease = {
+  name: string;
+  holders: number;
+  ttlMs: number;
+  expiresInMs: number;
+  heldMs: number;
+  autoRenew: boolean;
+  /** Renewed until released, session or not. */
+  pinned: boolean;
+  renewals: number;
+};
+
+export type WifiKeepAliveStatus = {
+  wakeLockHeld: boolean;
+  wifiLockHeld: boolean;
+  wifiMode: string;
+  sessionActive: boolean;
+  heldMs: number;
+  totalHeldMs: number;
+  acquireCount: number;
+  releaseCount: number;
+  leaseGrants: number;
+  leaseRenewals: number;
+  leaseExpirations: number;
+  activeLeases: Array<WifiKeepAliveLease>;
+};
+
+export interface Spec extends TurboModule {
+  /** ttlMs <= 0 uses the default TTL. Resolves with the holder count. */
+  acquireLease(name: string, ttlMs: number, autoRenew: boolean): Promise<number>;
+  renewLease(name: string, ttlMs: number): Promise<boolean>;
+  releaseLease(name: string): Promise<number>;
+  setSessionActive(active: boolean): void;
+  acquireWifiLock(): Promise<boolean>;
+  releaseWifiLock(): Promise<boolean>;
+  getStatus(): WifiKeepAliveStatus;
+}
+
+export default TurboModuleRegistry.get<Spec>('WifiKeepAlive');